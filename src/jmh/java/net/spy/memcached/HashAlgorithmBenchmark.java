@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing a typical key with every {@link DefaultHashAlgorithm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashAlgorithmBenchmark {
+
+  @Param({ "NATIVE_HASH", "CRC_HASH", "FNV1_64_HASH", "FNV1A_64_HASH",
+    "FNV1_32_HASH", "FNV1A_32_HASH", "KETAMA_HASH" })
+  private String algorithm;
+
+  @Param({ "user:session:4711", "a-considerably-longer-key-for-a-cached-"
+    + "page-fragment:en_US:mobile:v2" })
+  private String key;
+
+  private DefaultHashAlgorithm alg;
+
+  @Setup
+  public void setUp() {
+    alg = DefaultHashAlgorithm.valueOf(algorithm);
+  }
+
+  @Benchmark
+  public long hash() {
+    return alg.hash(key);
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Key to node lookups of the {@link KetamaNodeLocator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KetamaNodeLocatorBenchmark {
+
+  private static final int KEYS = 1024;
+
+  @Param({ "3", "30", "300" })
+  private int nodeCount;
+
+  private KetamaNodeLocator locator;
+  private String[] keys;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    List<MemcachedNode> nodes = new ArrayList<MemcachedNode>(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      nodes.add(new MockMemcachedNode(
+          InetSocketAddress.createUnresolved("10.0." + (i / 256) + "."
+              + (i % 256), 11211)));
+    }
+    locator = new KetamaNodeLocator(nodes, DefaultHashAlgorithm.KETAMA_HASH);
+    keys = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = "user:session:" + i;
+    }
+  }
+
+  @Benchmark
+  public MemcachedNode getPrimary() {
+    String key = keys[next++ & (KEYS - 1)];
+    return locator.getPrimary(key);
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating, completing and reading an {@link OperationFuture}, the way a
+ * callback and a waiting caller use it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OperationFutureBenchmark {
+
+  private static final OperationStatus OK =
+      new OperationStatus(true, "OK", StatusCode.SUCCESS);
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public Boolean complete() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    OperationFuture<Boolean> f =
+        new OperationFuture<Boolean>("key", latch, 2500, executor);
+    f.set(Boolean.TRUE, OK);
+    latch.countDown();
+    f.signalComplete();
+    return f.get();
+  }
+
+  @Benchmark
+  public Object completeWithListener() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    OperationFuture<Boolean> f =
+        new OperationFuture<Boolean>("key", latch, 2500, executor);
+    f.addListener(new OperationCompletionListener() {
+      public void onComplete(OperationFuture<?> future) {
+        // noop
+      }
+    });
+    f.set(Boolean.TRUE, OK);
+    latch.countDown();
+    f.signalComplete();
+    return f.get();
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.BinaryConnectionFactory;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.OperationFactory;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Moving a batch of store operations through
+ * {@link TCPMemcachedNodeImpl#fillWriteBuffer(boolean)} onto a loopback
+ * socket whose peer discards everything.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBufferBenchmark {
+
+  private static final StoreOperation.Callback NOOP =
+      new StoreOperation.Callback() {
+        public void gotData(String key, long cas) {
+          // noop
+        }
+
+        public void receivedStatus(OperationStatus status) {
+          // noop
+        }
+
+        public void complete() {
+          // noop
+        }
+      };
+
+  @Param({ "1", "32" })
+  private int batchSize;
+
+  @Param({ "16", "4096" })
+  private int valueSize;
+
+  private ServerSocketChannel server;
+  private SocketChannel client;
+  private Thread drainer;
+  private OperationFactory opFact;
+  private MemcachedNode node;
+  private byte[] value;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+    client = SocketChannel.open(server.socket().getLocalSocketAddress());
+    final SocketChannel accepted = server.accept();
+    drainer = new Thread("write benchmark drainer") {
+      @Override
+      public void run() {
+        ByteBuffer discard = ByteBuffer.allocateDirect(65536);
+        try {
+          while (accepted.read(discard) >= 0) {
+            discard.clear();
+          }
+        } catch (IOException e) {
+          // closed
+        }
+      }
+    };
+    drainer.setDaemon(true);
+    drainer.start();
+
+    BinaryConnectionFactory factory = new BinaryConnectionFactory();
+    opFact = factory.getOperationFactory();
+    node = factory.createMemcachedNode(
+        client.socket().getRemoteSocketAddress(), client, 16384);
+    value = new byte[valueSize];
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Benchmark
+  public void fillWriteBuffer() throws IOException {
+    for (int i = 0; i < batchSize; i++) {
+      Operation op = opFact.store(StoreType.set, "key" + i, 0, 0, value,
+          NOOP);
+      op.setHandlingNode(node);
+      op.initialize();
+      node.addOp(op);
+    }
+    node.copyInputQueue();
+    node.fillWriteBuffer(false);
+    while (node.getBytesRemainingToWrite() > 0) {
+      node.writeSome();
+      node.fillWriteBuffer(false);
+    }
+    while (node.hasReadOp()) {
+      node.removeCurrentReadOp();
+    }
+  }
+}
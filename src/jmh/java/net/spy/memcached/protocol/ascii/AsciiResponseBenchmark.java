@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing an ASCII get response, from a heap and from a direct buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsciiResponseBenchmark {
+
+  @Param({ "16", "4096" })
+  private int valueSize;
+
+  @Param({ "false", "true" })
+  private boolean direct;
+
+  private ByteBuffer response;
+
+  @Setup
+  public void setUp() {
+    byte[] header = ("VALUE key 0 " + valueSize + "\r\n").getBytes();
+    byte[] trailer = "\r\nEND\r\n".getBytes();
+    int size = header.length + valueSize + trailer.length;
+    ByteBuffer b = direct ? ByteBuffer.allocateDirect(size)
+        : ByteBuffer.allocate(size);
+    b.put(header).put(new byte[valueSize]).put(trailer);
+    b.flip();
+    response = b;
+  }
+
+  @Benchmark
+  public void get(final Blackhole bh) throws Exception {
+    GetOperationImpl op = new GetOperationImpl("key",
+        new GetOperation.Callback() {
+          public void gotData(String key, int flags, byte[] data) {
+            bh.consume(data);
+          }
+
+          public void receivedStatus(OperationStatus status) {
+            bh.consume(status);
+          }
+
+          public void complete() {
+            // noop
+          }
+        });
+    op.readFromBuffer(response.duplicate());
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing a binary get response, from a heap and from a direct buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryResponseBenchmark {
+
+  @Param({ "16", "4096" })
+  private int valueSize;
+
+  @Param({ "false", "true" })
+  private boolean direct;
+
+  private ByteBuffer response;
+
+  @Setup
+  public void setUp() {
+    ByteBuffer b = direct ? ByteBuffer.allocateDirect(28 + valueSize)
+        : ByteBuffer.allocate(28 + valueSize);
+    b.put(OperationImpl.RES_MAGIC).put(GetOperationImpl.GET_CMD);
+    b.putShort((short) 0).put((byte) 4).put((byte) 0).putShort((short) 0);
+    b.putInt(4 + valueSize).putInt(0).putLong(0);
+    b.putInt(0).put(new byte[valueSize]);
+    b.flip();
+    response = b;
+  }
+
+  @Benchmark
+  public void get(final Blackhole bh) throws Exception {
+    GetOperationImpl op = new GetOperationImpl("key",
+        new GetOperation.Callback() {
+          public void gotData(String key, int flags, byte[] data) {
+            bh.consume(data);
+          }
+
+          public void receivedStatus(OperationStatus status) {
+            bh.consume(status);
+          }
+
+          public void complete() {
+            // noop
+          }
+        });
+    ByteBuffer b = response.duplicate();
+    b.putInt(12, op.opaque);
+    op.readFromBuffer(b);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding values with the {@link SerializingTranscoder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializingTranscoderBenchmark {
+
+  @Param({ "string", "map" })
+  private String type;
+
+  @Param({ "100", "32768" })
+  private int size;
+
+  @Param({ "false", "true" })
+  private boolean compress;
+
+  private SerializingTranscoder tc;
+  private Object value;
+  private CachedData encoded;
+
+  @Setup
+  public void setUp() {
+    tc = new SerializingTranscoder();
+    tc.setCompressionThreshold(compress ? 64 : Integer.MAX_VALUE);
+    StringBuilder sb = new StringBuilder(size);
+    while (sb.length() < size) {
+      sb.append("{\"id\":").append(sb.length()).append(",\"flag\":true}");
+    }
+    String s = sb.substring(0, size);
+    if (type.equals("string")) {
+      value = s;
+    } else {
+      HashMap<String, String> m = new HashMap<String, String>();
+      for (int i = 0; i * 64 < size; i++) {
+        int end = Math.min(size, (i + 1) * 64);
+        m.put("field" + i, s.substring(i * 64, end));
+      }
+      value = m;
+    }
+    encoded = tc.encode(value);
+  }
+
+  @Benchmark
+  public CachedData encode() {
+    return tc.encode(value);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return tc.decode(encoded);
+  }
+}
@@ -36,7 +36,7 @@ public final class ArrayModNodeLocator implements NodeLocator {
 
   private final HashAlgorithm hashAlg;
 
-  private MemcachedNode[] nodes;
+  private volatile MemcachedNode[] nodes;
 
   /**
    * Construct an ArraymodNodeLocator over the given array of nodes and using
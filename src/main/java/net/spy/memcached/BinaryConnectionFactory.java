@@ -108,7 +108,8 @@ public class BinaryConnectionFactory extends DefaultConnectionFactory {
     return new BinaryMemcachedNodeImpl(sa, c, bufSize,
         createReadOperationQueue(), createWriteOperationQueue(),
         createOperationQueue(), getOpQueueMaxBlockTime(), doAuth,
-        getOperationTimeout(), getAuthWaitTime(), this);
+        getOperationTimeout(), getAuthWaitTime(), this,
+        getBufferAllocator());
   }
 
   @Override
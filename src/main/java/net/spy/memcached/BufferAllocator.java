@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the buffers a {@link MemcachedNode} uses to read from and write
+ * to its channel, including the buffers of a TLS connection.
+ */
+public interface BufferAllocator {
+
+  /**
+   * Allocate a cleared buffer.
+   *
+   * @param capacity the capacity of the buffer.
+   * @return a buffer with exactly the given capacity.
+   */
+  ByteBuffer allocate(int capacity);
+
+  /**
+   * Give a buffer back once it is no longer used.
+   *
+   * The caller must not touch the buffer after releasing it.
+   *
+   * @param buffer the buffer to release, may be null.
+   */
+  void release(ByteBuffer buffer);
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Collection;
+import java.util.Map;
+
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.DeleteBulkOperation;
+import net.spy.memcached.ops.StoreBulkOperation;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.ops.TouchBulkOperation;
+
+/**
+ * An {@link OperationFactory} that can also pipeline mutations of many keys
+ * into one request.
+ *
+ * <p>
+ * The bulk mutations of {@link MemcachedClient} are only available when the
+ * operation factory of its connection implements this interface.
+ * </p>
+ */
+public interface BulkMutationOperationFactory extends OperationFactory {
+
+  /**
+   * Create a store operation for many keys, sent as one pipelined request.
+   *
+   * @param storeType the type of store operation
+   * @param values the encoded values by key
+   * @param exp the expiration time for all keys
+   * @param cb the callback receiving the status of each key
+   * @return the new bulk store operation
+   */
+  StoreBulkOperation storeBulk(StoreType storeType,
+      Map<String, CachedData> values, int exp,
+      BulkMutationOperation.Callback cb);
+
+  /**
+   * Create a deletion operation for many keys, sent as one pipelined request.
+   *
+   * @param keys the keys to delete
+   * @param cb the callback receiving the status of each key
+   * @return the new bulk delete operation
+   */
+  DeleteBulkOperation deleteBulk(Collection<String> keys,
+      BulkMutationOperation.Callback cb);
+
+  /**
+   * Create a touch operation for many keys, sent as one pipelined request.
+   *
+   * @param keys the keys to touch
+   * @param expiration the new expiration time for all keys
+   * @param cb the callback receiving the status of each key
+   * @return the new bulk touch operation
+   */
+  TouchBulkOperation touchBulk(Collection<String> keys, int expiration,
+      BulkMutationOperation.Callback cb);
+}
@@ -40,7 +40,8 @@ public final class CachedData {
   public static final int MAX_SIZE = 20 * 1024 * 1024;
 
   private final int flags;
-  private final byte[] data;
+  private final ValueBuffer buffer;
+  private volatile byte[] data;
 
   /**
    * Get a CachedData instance for the given flags and byte array.
@@ -58,13 +59,49 @@ public final class CachedData {
     }
     flags = f;
     data = d;
+    buffer = null;
+  }
+
+  /**
+   * Get a CachedData instance for the given flags and data encoded in a
+   * buffer.
+   *
+   * @param f the flags
+   * @param b the buffer holding the data
+   * @param maxSize the maximum allowable size.
+   */
+  public CachedData(int f, ValueBuffer b, int maxSize) {
+    super();
+    if (b.size() > maxSize) {
+      throw new IllegalArgumentException("Cannot cache data larger than "
+          + maxSize + " bytes (you tried to cache a " + b.size()
+          + " byte object)");
+    }
+    flags = f;
+    buffer = b;
   }
 
   /**
    * Get the stored data.
+   *
+   * When the data was encoded in a buffer, this copies it on first use.
    */
   public byte[] getData() {
-    return data;
+    byte[] rv = data;
+    if (rv == null) {
+      rv = buffer.toByteArray();
+      data = rv;
+    }
+    return rv;
+  }
+
+  /**
+   * Get the buffer the data was encoded in, if any.
+   *
+   * @return the buffer, or null if the data was encoded in a byte array
+   */
+  public ValueBuffer getBuffer() {
+    return buffer;
   }
 
   /**
@@ -76,7 +113,7 @@ public final class CachedData {
 
   @Override
   public String toString() {
-    return "{CachedData flags=" + flags + " data=" + Arrays.toString(data)
+    return "{CachedData flags=" + flags + " data=" + Arrays.toString(getData())
         + "}";
   }
 }
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.metrics.MetricCollector;
@@ -69,12 +70,23 @@ public class ConnectionFactoryBuilder {
   protected long opTimeout = -1;
   protected boolean isDaemon = false;
   protected boolean shouldOptimize = false;
+  protected boolean coalesceGets = false;
   protected boolean useNagle = false;
   protected boolean keepAlive = false;
   protected long maxReconnectDelay =
       DefaultConnectionFactory.DEFAULT_MAX_RECONNECT_DELAY;
 
   protected int readBufSize = -1;
+  protected int selectorThreadCount = -1;
+  protected BufferAllocator bufferAllocator = null;
+  protected BufferAllocator payloadAllocator = null;
+  protected int nearCacheMaxEntries = -1;
+  protected long nearCacheMaxBytes = -1;
+  protected long nearCacheMaxStaleness = -1;
+  protected int hotKeySamplingInterval = -1;
+  protected int maxNodeOutstandingOps = -1;
+  protected long maxNodeQueuedBytes = -1;
+  protected boolean rejectOverloadedOps = false;
   protected HashAlgorithm hashAlg;
   protected AuthDescriptor authDescriptor = null;
   protected long opQueueMaxBlockTime = -1;
@@ -110,6 +122,18 @@ public class ConnectionFactoryBuilder {
     setOpQueueMaxBlockTime(cf.getOpQueueMaxBlockTime());
     setOpTimeout(cf.getOperationTimeout());
     setReadBufferSize(cf.getReadBufSize());
+    FactorySettings settings = FactorySettings.of(cf);
+    setSelectorThreadCount(settings.getSelectorThreadCount());
+    setBufferAllocator(settings.getBufferAllocator());
+    setPayloadAllocator(settings.getPayloadAllocator());
+    setNearCache(settings.getNearCacheMaxEntries(),
+      settings.getNearCacheMaxBytes(), settings.getNearCacheMaxStaleness(),
+      TimeUnit.MILLISECONDS);
+    setHotKeySamplingInterval(settings.getHotKeySamplingInterval());
+    setCoalesceGets(settings.shouldCoalesceGets());
+    setNodeLimits(settings.getMaxNodeOutstandingOps(),
+      settings.getMaxNodeQueuedBytes());
+    setRejectOverloadedOps(settings.shouldRejectOverloadedOps());
     setShouldOptimize(cf.shouldOptimize());
     setTimeoutExceptionThreshold(cf.getTimeoutExceptionThreshold());
     setTranscoder(cf.getDefaultTranscoder());
@@ -235,6 +259,146 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the number of selector threads the nodes are sharded across.
+   *
+   * Each selector thread owns its own selector, reconnect queue and input
+   * handling, so IO throughput can scale beyond a single core. Operation
+   * routing is not affected.
+   */
+  public ConnectionFactoryBuilder setSelectorThreadCount(int to) {
+    assert to > 0 : "Selector thread count must be a positive number";
+    selectorThreadCount = to;
+    return this;
+  }
+
+  /**
+   * Set the {@link BufferAllocator} for the read and write buffers of the
+   * nodes.
+   *
+   * Use a {@link PooledBufferAllocator} to reuse direct buffers across
+   * reconnects and node changes.
+   *
+   * @param allocator the buffer allocator to use.
+   */
+  public ConnectionFactoryBuilder setBufferAllocator(BufferAllocator allocator) {
+    bufferAllocator = allocator;
+    return this;
+  }
+
+  /**
+   * Set the {@link BufferAllocator} values are encoded into.
+   *
+   * With an allocator set, values stored with a
+   * {@link net.spy.memcached.transcoders.StreamingTranscoder} are encoded
+   * straight into a buffer of the allocator, which is sent to the server as
+   * is and released once the store completes. Use a
+   * {@link PooledBufferAllocator} to reuse the buffers.
+   *
+   * @param allocator the buffer allocator to use, or null to encode values
+   *          into byte arrays.
+   */
+  public ConnectionFactoryBuilder setPayloadAllocator(
+      BufferAllocator allocator) {
+    payloadAllocator = allocator;
+    return this;
+  }
+
+  /**
+   * Enable the client side near cache for get operations.
+   *
+   * Values read from the servers are kept in process and served to later
+   * gets of the same key until they are older than the given staleness.
+   * Local mutations of a key drop it from the near cache.
+   *
+   * @param maxEntries the maximum number of cached keys, 0 to disable
+   * @param maxBytes the maximum number of cached value bytes
+   * @param maxStaleness the time a value may be served from the near cache
+   * @param unit the unit of maxStaleness
+   */
+  public ConnectionFactoryBuilder setNearCache(int maxEntries, long maxBytes,
+      long maxStaleness, TimeUnit unit) {
+    assert maxEntries >= 0 : "Near cache entries must not be negative";
+    assert maxBytes >= 0 : "Near cache bytes must not be negative";
+    assert maxStaleness >= 0 : "Near cache staleness must not be negative";
+    nearCacheMaxEntries = maxEntries;
+    nearCacheMaxBytes = maxBytes;
+    nearCacheMaxStaleness = unit.toMillis(maxStaleness);
+    return this;
+  }
+
+  /**
+   * Enable hot key tracking, sampling one in every given number of keys
+   * enqueued by each thread.
+   *
+   * The hottest keys of each node can be read with
+   * {@link MemcachedClient#getHotKeys()}. The rate of the hottest key of
+   * each node is published through the {@link MetricCollector}.
+   *
+   * @param interval the number of keys per sampled key, 0 to disable
+   */
+  public ConnectionFactoryBuilder setHotKeySamplingInterval(int interval) {
+    assert interval >= 0 : "Hot key sampling interval must not be negative";
+    hotKeySamplingInterval = interval;
+    return this;
+  }
+
+  /**
+   * Set to true to let concurrent gets of the same key share one operation.
+   *
+   * A get issued while another get of the same key is in flight, including
+   * the keys of a bulk get, waits for the response of the first one instead
+   * of sending its own request. Each caller still gets its own future; a
+   * future of a shared get is cancelled or timed out along with the shared
+   * operation.
+   */
+  public ConnectionFactoryBuilder setCoalesceGets(boolean to) {
+    coalesceGets = to;
+    return this;
+  }
+
+  /**
+   * Limit the operations outstanding on each node.
+   *
+   * An operation for a node that has reached one of its limits is rejected
+   * right away rather than waiting for room in the queue: it throws an
+   * {@link IllegalStateException}, or its future fails if
+   * {@link #setRejectOverloadedOps(boolean)} is set. The limits apply to
+   * single, bulk and broadcast operations alike, but never to the operations
+   * authenticating a node. They are checked before enqueueing, so concurrent
+   * callers may go slightly over them.
+   *
+   * @param maxOutstandingOps the maximum number of operations queued or
+   *          waiting for a response, 0 for no limit
+   * @param maxQueuedBytes the maximum number of bytes of operations queued
+   *          but not written, 0 for no limit
+   */
+  public ConnectionFactoryBuilder setNodeLimits(int maxOutstandingOps,
+      long maxQueuedBytes) {
+    assert maxOutstandingOps >= 0 : "Outstanding ops must not be negative";
+    assert maxQueuedBytes >= 0 : "Queued bytes must not be negative";
+    maxNodeOutstandingOps = maxOutstandingOps;
+    maxNodeQueuedBytes = maxQueuedBytes;
+    return this;
+  }
+
+  /**
+   * Set to true to fail operations for an overloaded node instead of
+   * throwing.
+   *
+   * The future of a rejected operation is done immediately and fails with an
+   * {@link java.util.concurrent.ExecutionException} caused by an
+   * {@link net.spy.memcached.ops.OperationException}, so callers never have
+   * to catch an exception at the call site and can tell a rejection from a
+   * cancellation.
+   *
+   * @see #setNodeLimits(int, long)
+   */
+  public ConnectionFactoryBuilder setRejectOverloadedOps(boolean to) {
+    rejectOverloadedOps = to;
+    return this;
+  }
+
   /**
    * Set the hash algorithm.
    */
@@ -453,6 +617,70 @@ public class ConnectionFactoryBuilder {
         return readBufSize == -1 ? super.getReadBufSize() : readBufSize;
       }
 
+      @Override
+      public int getSelectorThreadCount() {
+        return selectorThreadCount == -1 ? super.getSelectorThreadCount()
+            : selectorThreadCount;
+      }
+
+      @Override
+      public BufferAllocator getBufferAllocator() {
+        return bufferAllocator == null ? super.getBufferAllocator()
+            : bufferAllocator;
+      }
+
+      @Override
+      public BufferAllocator getPayloadAllocator() {
+        return payloadAllocator == null ? super.getPayloadAllocator()
+            : payloadAllocator;
+      }
+
+      @Override
+      public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries == -1 ? super.getNearCacheMaxEntries()
+            : nearCacheMaxEntries;
+      }
+
+      @Override
+      public long getNearCacheMaxBytes() {
+        return nearCacheMaxBytes == -1 ? super.getNearCacheMaxBytes()
+            : nearCacheMaxBytes;
+      }
+
+      @Override
+      public long getNearCacheMaxStaleness() {
+        return nearCacheMaxStaleness == -1 ? super.getNearCacheMaxStaleness()
+            : nearCacheMaxStaleness;
+      }
+
+      @Override
+      public boolean shouldCoalesceGets() {
+        return coalesceGets;
+      }
+
+      @Override
+      public int getHotKeySamplingInterval() {
+        return hotKeySamplingInterval == -1
+            ? super.getHotKeySamplingInterval() : hotKeySamplingInterval;
+      }
+
+      @Override
+      public int getMaxNodeOutstandingOps() {
+        return maxNodeOutstandingOps == -1
+            ? super.getMaxNodeOutstandingOps() : maxNodeOutstandingOps;
+      }
+
+      @Override
+      public long getMaxNodeQueuedBytes() {
+        return maxNodeQueuedBytes == -1
+            ? super.getMaxNodeQueuedBytes() : maxNodeQueuedBytes;
+      }
+
+      @Override
+      public boolean shouldRejectOverloadedOps() {
+        return rejectOverloadedOps;
+      }
+
       @Override
       public boolean isDaemon() {
         return isDaemon;
@@ -106,6 +106,41 @@ public class DefaultConnectionFactory extends SpyObject implements
    */
   public static final int DEFAULT_READ_BUFFER_SIZE = 16384;
 
+  /**
+   * By default, all IO is handled by the single connection thread.
+   */
+  public static final int DEFAULT_SELECTOR_THREAD_COUNT = 1;
+
+  /**
+   * Maximum number of near cache entries (the near cache is disabled).
+   */
+  public static final int DEFAULT_NEAR_CACHE_MAX_ENTRIES = 0;
+
+  /**
+   * Maximum number of value bytes held by the near cache (64MB).
+   */
+  public static final long DEFAULT_NEAR_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Time in milliseconds a value may be served from the near cache.
+   */
+  public static final long DEFAULT_NEAR_CACHE_MAX_STALENESS = 1000;
+
+  /**
+   * Number of enqueued keys per sampled key (hot key tracking is disabled).
+   */
+  public static final int DEFAULT_HOT_KEY_SAMPLING_INTERVAL = 0;
+
+  /**
+   * Maximum number of outstanding operations per node (no limit).
+   */
+  public static final int DEFAULT_MAX_NODE_OUTSTANDING_OPS = 0;
+
+  /**
+   * Maximum number of queued operation bytes per node (no limit).
+   */
+  public static final long DEFAULT_MAX_NODE_QUEUED_BYTES = 0;
+
   /**
    * Default operation timeout in milliseconds.
    */
@@ -139,6 +174,8 @@ public class DefaultConnectionFactory extends SpyObject implements
 
   private MetricCollector metrics;
 
+  private BufferAllocator bufferAllocator;
+
   /**
    * The ExecutorService in which the listener callbacks will be executed.
    */
@@ -227,7 +264,8 @@ public class DefaultConnectionFactory extends SpyObject implements
           getOpQueueMaxBlockTime(),
           getOperationTimeout(),
           getAuthWaitTime(),
-          this);
+          this,
+          getBufferAllocator());
     } else if (of instanceof BinaryOperationFactory) {
       boolean doAuth = false;
       if (getAuthDescriptor() != null) {
@@ -241,7 +279,8 @@ public class DefaultConnectionFactory extends SpyObject implements
           doAuth,
           getOperationTimeout(),
           getAuthWaitTime(),
-          this);
+          this,
+          getBufferAllocator());
     } else {
       throw new IllegalStateException("Unhandled operation factory type " + of);
     }
@@ -374,6 +413,118 @@ public class DefaultConnectionFactory extends SpyObject implements
     return readBufSize;
   }
 
+  /**
+   * Get the number of selector threads the connection shards its nodes
+   * across.
+   *
+   * Every selector thread owns its own {@link java.nio.channels.Selector}
+   * and handles reads, writes and reconnects for its share of the nodes.
+   * A value of 1 keeps all IO on the single connection thread, which is
+   * also what connection factories not extending this class get.
+   */
+  public int getSelectorThreadCount() {
+    return DEFAULT_SELECTOR_THREAD_COUNT;
+  }
+
+  /**
+   * Returns the stored {@link BufferAllocator}, used for the read and write
+   * buffers of the nodes, including the buffers of TLS connections.
+   *
+   * By default, a {@link DirectBufferAllocator} is used that allocates a new
+   * direct buffer for every node and TLS handshake. So do connection
+   * factories not extending this class.
+   *
+   * @return the stored {@link BufferAllocator}.
+   */
+  public BufferAllocator getBufferAllocator() {
+    if (bufferAllocator == null) {
+      bufferAllocator = new DirectBufferAllocator();
+    }
+    return bufferAllocator;
+  }
+
+  /**
+   * Get the {@link BufferAllocator} values are encoded into by streaming
+   * transcoders, or null to encode values into byte arrays, as for
+   * connection factories not extending this class.
+   */
+  public BufferAllocator getPayloadAllocator() {
+    return null;
+  }
+
+  /**
+   * Get the maximum number of entries of the client side near cache.
+   *
+   * A value of 0 disables the near cache, which stays disabled for
+   * connection factories not extending this class.
+   */
+  public int getNearCacheMaxEntries() {
+    return DEFAULT_NEAR_CACHE_MAX_ENTRIES;
+  }
+
+  /**
+   * Get the maximum number of value bytes held by the near cache.
+   */
+  public long getNearCacheMaxBytes() {
+    return DEFAULT_NEAR_CACHE_MAX_BYTES;
+  }
+
+  /**
+   * Get the time in milliseconds a value read from a server may be served
+   * from the near cache.
+   */
+  public long getNearCacheMaxStaleness() {
+    return DEFAULT_NEAR_CACHE_MAX_STALENESS;
+  }
+
+  /**
+   * Get the number of enqueued keys per sampled key for hot key tracking.
+   *
+   * A value of 0 disables hot key tracking, which stays disabled for
+   * connection factories not extending this class.
+   */
+  public int getHotKeySamplingInterval() {
+    return DEFAULT_HOT_KEY_SAMPLING_INTERVAL;
+  }
+
+  /**
+   * If true, concurrent gets of the same key share one operation. Gets are
+   * never shared for connection factories not extending this class.
+   */
+  public boolean shouldCoalesceGets() {
+    return false;
+  }
+
+  /**
+   * Get the maximum number of operations queued or waiting for a response on
+   * a single node.
+   *
+   * A value of 0 puts no limit on the operations of a node, as for
+   * connection factories not extending this class.
+   */
+  public int getMaxNodeOutstandingOps() {
+    return DEFAULT_MAX_NODE_OUTSTANDING_OPS;
+  }
+
+  /**
+   * Get the maximum number of bytes of operations queued but not written on
+   * a single node.
+   *
+   * A value of 0 puts no limit on the queued bytes of a node, as for
+   * connection factories not extending this class.
+   */
+  public long getMaxNodeQueuedBytes() {
+    return DEFAULT_MAX_NODE_QUEUED_BYTES;
+  }
+
+  /**
+   * If true, operations for a node over its limits fail instead of throwing
+   * an {@link IllegalStateException} to the caller.
+   */
+  public boolean shouldRejectOverloadedOps() {
+    return false;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -540,7 +691,8 @@ public class DefaultConnectionFactory extends SpyObject implements
       + ", Op Queue Length: " + getOpQueueLen() + ", Op Max Queue Block Time"
       + getOpQueueMaxBlockTime() + ", Max Timeout Exception Threshold: "
       + getTimeoutExceptionThreshold() + ", Read Buffer Size: "
-      + getReadBufSize() + ", Transcoder: " + getDefaultTranscoder()
+      + getReadBufSize() + ", Selector Threads: "
+      + getSelectorThreadCount() + ", Transcoder: " + getDefaultTranscoder()
       + ", Operation Factory: " + getOperationFactory() + " isDaemon: "
       + isDaemon() + ", Optimized: " + shouldOptimize() + ", Using Nagle: "
       + useNagleAlgorithm() + ", KeepAlive: " + getKeepAlive() + ", SSLContext: " + getSSLContext() + ", ConnectionFactory: " + getName();
@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BufferAllocator that allocates a new direct buffer on every call and leaves
+ * released buffers to the garbage collector.
+ */
+public class DirectBufferAllocator implements BufferAllocator {
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.BufferAllocator#allocate(int)
+   */
+  public ByteBuffer allocate(int capacity) {
+    return ByteBuffer.allocateDirect(capacity);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.BufferAllocator#release(java.nio.ByteBuffer)
+   */
+  public void release(ByteBuffer buffer) {
+    // nothing to do
+  }
+
+  @Override
+  public String toString() {
+    return "DirectBufferAllocator";
+  }
+}
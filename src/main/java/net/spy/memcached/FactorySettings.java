@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+/**
+ * The settings of a {@link ConnectionFactory} that are not part of its
+ * interface, read once from the factory.
+ *
+ * <p>
+ * Adding methods to {@link ConnectionFactory} would break its existing
+ * implementations, which cannot inherit default methods on Java 6, so these
+ * settings are only carried by {@link DefaultConnectionFactory} and its
+ * subclasses. Any other factory gets the defaults of
+ * {@link DefaultConnectionFactory}: a single selector thread, direct node
+ * buffers, values encoded into byte arrays, and no near cache, hot key
+ * tracking, get coalescing or node limits.
+ * </p>
+ */
+final class FactorySettings {
+
+  private final boolean carriedByFactory;
+  private final int selectorThreadCount;
+  private final BufferAllocator bufferAllocator;
+  private final BufferAllocator payloadAllocator;
+  private final int nearCacheMaxEntries;
+  private final long nearCacheMaxBytes;
+  private final long nearCacheMaxStaleness;
+  private final int hotKeySamplingInterval;
+  private final boolean coalesceGets;
+  private final int maxNodeOutstandingOps;
+  private final long maxNodeQueuedBytes;
+  private final boolean rejectOverloadedOps;
+
+  private FactorySettings(DefaultConnectionFactory df) {
+    carriedByFactory = true;
+    selectorThreadCount = df.getSelectorThreadCount();
+    bufferAllocator = df.getBufferAllocator();
+    payloadAllocator = df.getPayloadAllocator();
+    nearCacheMaxEntries = df.getNearCacheMaxEntries();
+    nearCacheMaxBytes = df.getNearCacheMaxBytes();
+    nearCacheMaxStaleness = df.getNearCacheMaxStaleness();
+    hotKeySamplingInterval = df.getHotKeySamplingInterval();
+    coalesceGets = df.shouldCoalesceGets();
+    maxNodeOutstandingOps = df.getMaxNodeOutstandingOps();
+    maxNodeQueuedBytes = df.getMaxNodeQueuedBytes();
+    rejectOverloadedOps = df.shouldRejectOverloadedOps();
+  }
+
+  private FactorySettings() {
+    carriedByFactory = false;
+    selectorThreadCount =
+        DefaultConnectionFactory.DEFAULT_SELECTOR_THREAD_COUNT;
+    bufferAllocator = new DirectBufferAllocator();
+    payloadAllocator = null;
+    nearCacheMaxEntries =
+        DefaultConnectionFactory.DEFAULT_NEAR_CACHE_MAX_ENTRIES;
+    nearCacheMaxBytes = DefaultConnectionFactory.DEFAULT_NEAR_CACHE_MAX_BYTES;
+    nearCacheMaxStaleness =
+        DefaultConnectionFactory.DEFAULT_NEAR_CACHE_MAX_STALENESS;
+    hotKeySamplingInterval =
+        DefaultConnectionFactory.DEFAULT_HOT_KEY_SAMPLING_INTERVAL;
+    coalesceGets = false;
+    maxNodeOutstandingOps =
+        DefaultConnectionFactory.DEFAULT_MAX_NODE_OUTSTANDING_OPS;
+    maxNodeQueuedBytes =
+        DefaultConnectionFactory.DEFAULT_MAX_NODE_QUEUED_BYTES;
+    rejectOverloadedOps = false;
+  }
+
+  /**
+   * Read the settings of the given factory.
+   */
+  static FactorySettings of(ConnectionFactory cf) {
+    return cf instanceof DefaultConnectionFactory
+        ? new FactorySettings((DefaultConnectionFactory) cf)
+        : new FactorySettings();
+  }
+
+  /**
+   * Whether the settings were read from the factory, rather than being the
+   * defaults of a factory not extending {@link DefaultConnectionFactory}.
+   */
+  boolean isCarriedByFactory() {
+    return carriedByFactory;
+  }
+
+  int getSelectorThreadCount() {
+    return selectorThreadCount;
+  }
+
+  BufferAllocator getBufferAllocator() {
+    return bufferAllocator;
+  }
+
+  BufferAllocator getPayloadAllocator() {
+    return payloadAllocator;
+  }
+
+  int getNearCacheMaxEntries() {
+    return nearCacheMaxEntries;
+  }
+
+  long getNearCacheMaxBytes() {
+    return nearCacheMaxBytes;
+  }
+
+  long getNearCacheMaxStaleness() {
+    return nearCacheMaxStaleness;
+  }
+
+  int getHotKeySamplingInterval() {
+    return hotKeySamplingInterval;
+  }
+
+  boolean shouldCoalesceGets() {
+    return coalesceGets;
+  }
+
+  int getMaxNodeOutstandingOps() {
+    return maxNodeOutstandingOps;
+  }
+
+  long getMaxNodeQueuedBytes() {
+    return maxNodeQueuedBytes;
+  }
+
+  boolean shouldRejectOverloadedOps() {
+    return rejectOverloadedOps;
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.BaseOperationImpl;
+
+/**
+ * Shares one get operation between all callers asking for the same key while
+ * it is in flight.
+ *
+ * <p>
+ * The first caller for a key starts a {@link Flight}; later callers join it
+ * until the response arrives. Every caller still gets its own future and
+ * decodes the shared raw value with its own transcoder.
+ * </p>
+ *
+ * <p>
+ * Every caller holds its own {@link Ticket} on the flight. Cancelling it or
+ * timing it out only releases that caller; the shared operation is cancelled
+ * or timed out once no caller waits for it anymore.
+ * </p>
+ *
+ * <p>
+ * A get never joins a flight that started before a local mutation of its key
+ * was enqueued, so it still reads what the mutation wrote. Mutations are
+ * counted per stripe of keys: a mutation of another key of the same stripe
+ * only makes a get start its own flight.
+ * </p>
+ */
+final class GetCoalescer {
+
+  private static final int STRIPES = 64;
+
+  /**
+   * Receives the result of a flight.
+   */
+  interface Waiter {
+    /**
+     * @param op the ticket of this waiter on the shared operation
+     * @param data the value, or null if there is none
+     * @param status the status of the get
+     */
+    void done(Operation op, CachedData data, OperationStatus status);
+  }
+
+  private final ConcurrentMap<String, Flight> flights =
+      new ConcurrentHashMap<String, Flight>();
+
+  /**
+   * Number of mutations enqueued so far for the keys of each stripe.
+   */
+  private final AtomicLongArray mutations = new AtomicLongArray(STRIPES);
+
+  /**
+   * Create a flight for the given key, led by the given waiter.
+   *
+   * The flight must get its operation before it is started with
+   * {@link #start}.
+   */
+  Flight newFlight(String key, Waiter leader) {
+    return new Flight(key, mutations.get(stripe(key)), leader);
+  }
+
+  /**
+   * Start the given flight, unless another flight for its key is already in
+   * flight.
+   *
+   * @return the ticket of the leader of the given flight if it was started,
+   *         or the ticket it got on the flight in progress it joined
+   */
+  Ticket start(Flight f) {
+    while (true) {
+      Flight current = flights.putIfAbsent(f.key, f);
+      if (current == null) {
+        return f.leader;
+      }
+      if (isCurrent(current)) {
+        Ticket t = current.join(f.leader.waiter);
+        if (t != null) {
+          return t;
+        }
+      }
+      // Completed or stale, but not removed yet.
+      flights.remove(f.key, current);
+    }
+  }
+
+  /**
+   * Join the flight in progress for the given key.
+   *
+   * @return the ticket of the given waiter, or null if there is no flight to
+   *         join
+   */
+  Ticket join(String key, Waiter w) {
+    Flight f = flights.get(key);
+    if (f == null) {
+      return null;
+    }
+    if (!isCurrent(f)) {
+      flights.remove(key, f);
+      return null;
+    }
+    return f.join(w);
+  }
+
+  /**
+   * Keep later gets of the given key from joining flights started so far.
+   *
+   * Called once a mutation of the key was enqueued.
+   */
+  void invalidate(String key) {
+    mutations.incrementAndGet(stripe(key));
+    flights.remove(key);
+  }
+
+  /**
+   * Keep later gets from joining any flight started so far.
+   */
+  void clear() {
+    for (int i = 0; i < STRIPES; i++) {
+      mutations.incrementAndGet(i);
+    }
+    flights.clear();
+  }
+
+  private boolean isCurrent(Flight f) {
+    return f.stamp == mutations.get(stripe(f.key));
+  }
+
+  private static int stripe(String key) {
+    return key.hashCode() & (STRIPES - 1);
+  }
+
+  /**
+   * One get in flight and the callers waiting for it.
+   */
+  final class Flight {
+    private final String key;
+    private final long stamp;
+    private final Ticket leader;
+
+    /**
+     * The tickets of the callers waiting, guarded by this.
+     */
+    private final List<Ticket> tickets = new ArrayList<Ticket>();
+    private boolean completed;
+    private volatile Operation op;
+    private volatile CachedData data;
+    private volatile OperationStatus status;
+
+    private Flight(String key, long stamp, Waiter leaderWaiter) {
+      this.key = key;
+      this.stamp = stamp;
+      leader = new Ticket(this, leaderWaiter);
+      tickets.add(leader);
+    }
+
+    Operation getOperation() {
+      return op;
+    }
+
+    void setOperation(Operation o) {
+      op = o;
+    }
+
+    void setData(CachedData d) {
+      data = d;
+    }
+
+    void setStatus(OperationStatus s) {
+      status = s;
+    }
+
+    private synchronized Ticket join(Waiter w) {
+      if (completed) {
+        return null;
+      }
+      Ticket t = new Ticket(this, w);
+      tickets.add(t);
+      return t;
+    }
+
+    /**
+     * Release the given ticket, cancelling or timing out the shared
+     * operation if it was the last one.
+     *
+     * @return false if the flight already completed
+     */
+    private boolean leave(Ticket t, boolean timedOut) {
+      synchronized (this) {
+        if (completed || !tickets.remove(t)) {
+          return false;
+        }
+        if (!tickets.isEmpty()) {
+          return true;
+        }
+        completed = true;
+      }
+      flights.remove(key, this);
+      if (timedOut) {
+        op.timeOut();
+      } else {
+        op.cancel();
+      }
+      return true;
+    }
+
+    /**
+     * Hand the result to every waiter and let later callers start a new
+     * flight.
+     */
+    void complete() {
+      List<Ticket> toNotify;
+      synchronized (this) {
+        completed = true;
+        toNotify = new ArrayList<Ticket>(tickets);
+        tickets.clear();
+      }
+      flights.remove(key, this);
+      for (Ticket t : toNotify) {
+        t.waiter.done(t, data, status);
+      }
+    }
+  }
+
+  /**
+   * The view one caller has of the operation of a flight.
+   *
+   * <p>
+   * It reports the state of the shared operation, unless the caller
+   * cancelled it or timed it out, which only releases this caller. Tickets
+   * are never sent themselves.
+   * </p>
+   */
+  static final class Ticket implements Operation {
+    private final Flight flight;
+    private final Waiter waiter;
+    private boolean cancelled;
+    private boolean timedOut;
+
+    private Ticket(Flight f, Waiter w) {
+      flight = f;
+      waiter = w;
+    }
+
+    private Operation op() {
+      return flight.op;
+    }
+
+    /**
+     * Whether this is the ticket of the caller that started the flight.
+     */
+    boolean isLeader() {
+      return this == flight.leader;
+    }
+
+    public void cancel() {
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        cancelled = true;
+      }
+      if (flight.leave(this, false)) {
+        waiter.done(this, null, BaseOperationImpl.CANCELLED);
+      }
+    }
+
+    public void timeOut() {
+      synchronized (this) {
+        if (cancelled || timedOut) {
+          return;
+        }
+      }
+      if (flight.leave(this, true)) {
+        synchronized (this) {
+          timedOut = true;
+        }
+        waiter.done(this, null, BaseOperationImpl.TIMED_OUT);
+      }
+    }
+
+    private synchronized boolean hasLeft() {
+      return cancelled || timedOut;
+    }
+
+    public boolean isCancelled() {
+      synchronized (this) {
+        if (cancelled) {
+          return true;
+        }
+      }
+      return !hasLeft() && op().isCancelled();
+    }
+
+    public boolean isTimedOut() {
+      synchronized (this) {
+        if (timedOut) {
+          return true;
+        }
+      }
+      return !hasLeft() && op().isTimedOut();
+    }
+
+    public boolean isTimedOut(long ttlMillis) {
+      return isTimedOut();
+    }
+
+    public boolean hasErrored() {
+      return !hasLeft() && op().hasErrored();
+    }
+
+    public OperationException getException() {
+      return hasLeft() ? null : op().getException();
+    }
+
+    public OperationState getState() {
+      return op().getState();
+    }
+
+    public OperationCallback getCallback() {
+      return op().getCallback();
+    }
+
+    public MemcachedNode getHandlingNode() {
+      return op().getHandlingNode();
+    }
+
+    public boolean isTimedOutUnsent() {
+      return op().isTimedOutUnsent();
+    }
+
+    public long getWriteCompleteTimestamp() {
+      return op().getWriteCompleteTimestamp();
+    }
+
+    public byte[] getErrorMsg() {
+      return op().getErrorMsg();
+    }
+
+    public int getCloneCount() {
+      return op().getCloneCount();
+    }
+
+    public ByteBuffer getBuffer() {
+      throw notSent();
+    }
+
+    public void writing() {
+      throw notSent();
+    }
+
+    public void writeComplete() {
+      throw notSent();
+    }
+
+    public void initialize() {
+      throw notSent();
+    }
+
+    public void readFromBuffer(ByteBuffer data) {
+      throw notSent();
+    }
+
+    public void handleRead(ByteBuffer data) {
+      throw notSent();
+    }
+
+    public void setHandlingNode(MemcachedNode to) {
+      throw notSent();
+    }
+
+    public void addClone(Operation o) {
+      throw notSent();
+    }
+
+    public void setCloneCount(int count) {
+      throw notSent();
+    }
+
+    private static UnsupportedOperationException notSent() {
+      return new UnsupportedOperationException("Tickets are not sent");
+    }
+
+    @Override
+    public String toString() {
+      return "Ticket on " + op();
+    }
+  }
+}
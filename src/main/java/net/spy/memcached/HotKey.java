@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.ConcatenationOperation;
+import net.spy.memcached.ops.DeleteBulkOperation;
+import net.spy.memcached.ops.DeleteOperation;
+import net.spy.memcached.ops.GetAndTouchOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetlOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.MutatorOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.StoreBulkOperation;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.TouchBulkOperation;
+import net.spy.memcached.ops.TouchOperation;
+
+/**
+ * A key that was frequently used with one kind of operation on one node.
+ */
+public final class HotKey {
+
+  /**
+   * The kinds of operations keys are tracked for.
+   */
+  public enum OpType {
+    GET, STORE, DELETE, MUTATE, TOUCH, OTHER;
+
+    /**
+     * Get the kind of the given operation.
+     */
+    static OpType of(Operation o) {
+      if (o instanceof GetOperation || o instanceof GetsOperation
+          || o instanceof GetlOperation) {
+        return GET;
+      } else if (o instanceof StoreOperation || o instanceof CASOperation
+          || o instanceof ConcatenationOperation
+          || o instanceof StoreBulkOperation) {
+        return STORE;
+      } else if (o instanceof DeleteOperation
+          || o instanceof DeleteBulkOperation) {
+        return DELETE;
+      } else if (o instanceof MutatorOperation) {
+        return MUTATE;
+      } else if (o instanceof TouchOperation
+          || o instanceof GetAndTouchOperation
+          || o instanceof TouchBulkOperation) {
+        return TOUCH;
+      }
+      return OTHER;
+    }
+  }
+
+  private final String key;
+  private final OpType opType;
+  private final double rate;
+
+  HotKey(String key, OpType opType, double rate) {
+    this.key = key;
+    this.opType = opType;
+    this.rate = rate;
+  }
+
+  /**
+   * Get the key.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Get the kind of operation the key was used with.
+   */
+  public OpType getOpType() {
+    return opType;
+  }
+
+  /**
+   * Get the estimated number of operations per second on the key.
+   */
+  public double getRate() {
+    return rate;
+  }
+
+  @Override
+  public String toString() {
+    return "{HotKey key=" + key + ", op=" + opType + ", rate=" + rate + "}";
+  }
+}
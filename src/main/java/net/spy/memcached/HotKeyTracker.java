@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.spy.memcached.metrics.MetricCollector;
+import net.spy.memcached.ops.KeyedOperation;
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Samples the keys of enqueued operations to find the hottest keys of each
+ * node.
+ *
+ * <p>
+ * One in every {@code samplingInterval} keys enqueued by a thread is counted
+ * in a Count-Min sketch per node and kind of operation. The sketch is a
+ * table of atomic counters, so sampling threads never block each other. A
+ * key whose estimate reaches the smallest count of the current top keys
+ * replaces it; only that rare update takes a lock.
+ * </p>
+ *
+ * <p>
+ * Counts start over every window. When a window ends, the estimated rate
+ * per second of the hottest key of each node is published as a counter of
+ * the {@link MetricCollector}, named after the node. The keys themselves
+ * are only available from {@link #getHotKeys()}.
+ * </p>
+ */
+final class HotKeyTracker {
+
+  static final int TOP_KEYS = 10;
+  static final long DEFAULT_WINDOW = TimeUnit.SECONDS.toNanos(60);
+
+  private static final String METRIC_PREFIX = "[MEM] Hottest Key Rate: ";
+  private static final int DEPTH = 4;
+  private static final int WIDTH = 1024;
+
+  private final int samplingInterval;
+  private final long windowNanos;
+  private final MetricCollector metrics;
+  private final ConcurrentMap<SocketAddress, AtomicReference<Window>> nodes =
+      new ConcurrentHashMap<SocketAddress, AtomicReference<Window>>();
+
+  /**
+   * The rate last published for each node, guarded by itself.
+   */
+  private final Map<SocketAddress, Integer> published =
+      new HashMap<SocketAddress, Integer>();
+
+  /**
+   * Keys each thread has seen since its last sample.
+   */
+  private final ThreadLocal<int[]> skipped = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
+  HotKeyTracker(int samplingInterval, long windowNanos,
+      MetricCollector metrics) {
+    this.samplingInterval = samplingInterval;
+    this.windowNanos = windowNanos;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Sample the keys of an operation enqueued to the given node.
+   */
+  void record(MemcachedNode node, Operation o) {
+    if (o instanceof KeyedOperation) {
+      for (String key : ((KeyedOperation) o).getKeys()) {
+        record(node, o, key);
+      }
+    }
+  }
+
+  /**
+   * Sample a key of an operation enqueued to the given node.
+   */
+  void record(MemcachedNode node, Operation o, String key) {
+    int[] count = skipped.get();
+    if (++count[0] < samplingInterval) {
+      return;
+    }
+    count[0] = 0;
+
+    SocketAddress sa = node.getSocketAddress();
+    AtomicReference<Window> ref = nodes.get(sa);
+    long now = System.nanoTime();
+    if (ref == null) {
+      ref = new AtomicReference<Window>(new Window(now));
+      AtomicReference<Window> prev = nodes.putIfAbsent(sa, ref);
+      if (prev != null) {
+        ref = prev;
+      }
+    }
+    Window w = ref.get();
+    if (now - w.start > windowNanos) {
+      Window next = new Window(now);
+      if (ref.compareAndSet(w, next)) {
+        publish(sa, w, now);
+      }
+      w = ref.get();
+    }
+    w.add(HotKey.OpType.of(o), key);
+  }
+
+  /**
+   * Get the hottest keys of every node in the current window, hottest first.
+   */
+  Map<SocketAddress, List<HotKey>> getHotKeys() {
+    long now = System.nanoTime();
+    Map<SocketAddress, List<HotKey>> rv =
+        new HashMap<SocketAddress, List<HotKey>>();
+    for (Map.Entry<SocketAddress, AtomicReference<Window>> me
+        : nodes.entrySet()) {
+      rv.put(me.getKey(), me.getValue().get().hotKeys(now));
+    }
+    return rv;
+  }
+
+  /**
+   * Forget everything about a node that left the cluster.
+   */
+  void removeNode(SocketAddress sa) {
+    nodes.remove(sa);
+    synchronized (published) {
+      if (published.remove(sa) != null) {
+        metrics.removeCounter(METRIC_PREFIX + sa);
+      }
+    }
+  }
+
+  private void publish(SocketAddress sa, Window w, long now) {
+    List<HotKey> hot = w.hotKeys(now);
+    int rate = hot.isEmpty() ? 0 : (int) Math.min(Integer.MAX_VALUE,
+        Math.round(hot.get(0).getRate()));
+    String name = METRIC_PREFIX + sa;
+    synchronized (published) {
+      if (nodes.get(sa) == null) {
+        return;
+      }
+      Integer old = published.put(sa, rate);
+      if (old == null) {
+        metrics.addCounter(name);
+        metrics.incrementCounter(name, rate);
+      } else if (rate > old) {
+        metrics.incrementCounter(name, rate - old);
+      } else {
+        metrics.decrementCounter(name, old - rate);
+      }
+    }
+  }
+
+  /**
+   * The sketches and top keys of one node during one window.
+   */
+  private final class Window {
+    private final long start;
+    private final AtomicReferenceArray<Sketch> sketches =
+        new AtomicReferenceArray<Sketch>(HotKey.OpType.values().length);
+
+    private Window(long start) {
+      this.start = start;
+    }
+
+    private void add(HotKey.OpType type, String key) {
+      Sketch s = sketches.get(type.ordinal());
+      if (s == null) {
+        sketches.compareAndSet(type.ordinal(), null, new Sketch());
+        s = sketches.get(type.ordinal());
+      }
+      s.add(key);
+    }
+
+    private List<HotKey> hotKeys(long now) {
+      double seconds = Math.max(1, now - start) / 1e9;
+      List<HotKey> rv = new ArrayList<HotKey>();
+      for (HotKey.OpType type : HotKey.OpType.values()) {
+        Sketch s = sketches.get(type.ordinal());
+        if (s == null) {
+          continue;
+        }
+        for (Map.Entry<String, Long> me : s.top().entrySet()) {
+          rv.add(new HotKey(me.getKey(), type,
+              me.getValue() * samplingInterval / seconds));
+        }
+      }
+      Collections.sort(rv, new Comparator<HotKey>() {
+        public int compare(HotKey a, HotKey b) {
+          return Double.compare(b.getRate(), a.getRate());
+        }
+      });
+      return rv;
+    }
+  }
+
+  /**
+   * A Count-Min sketch with the keys of its highest estimates.
+   */
+  static final class Sketch {
+    private final AtomicLongArray counters =
+        new AtomicLongArray(DEPTH * WIDTH);
+
+    /**
+     * The top keys and their estimates, guarded by itself.
+     */
+    private final Map<String, Long> top = new HashMap<String, Long>();
+
+    /**
+     * The smallest estimate in top once it is full.
+     */
+    private volatile long threshold;
+
+    /**
+     * Count the key and return its new estimate.
+     */
+    long add(String key) {
+      int h1 = spread(key.hashCode());
+      int h2 = spread(h1) | 1;
+      long estimate = Long.MAX_VALUE;
+      for (int i = 0; i < DEPTH; i++) {
+        int idx = i * WIDTH + ((h1 + i * h2) & (WIDTH - 1));
+        estimate = Math.min(estimate, counters.incrementAndGet(idx));
+      }
+      if (estimate > threshold) {
+        offer(key, estimate);
+      }
+      return estimate;
+    }
+
+    private void offer(String key, long estimate) {
+      synchronized (top) {
+        top.put(key, estimate);
+        if (top.size() > TOP_KEYS) {
+          String coldest = null;
+          long min = Long.MAX_VALUE;
+          for (Map.Entry<String, Long> me : top.entrySet()) {
+            if (me.getValue() < min) {
+              min = me.getValue();
+              coldest = me.getKey();
+            }
+          }
+          top.remove(coldest);
+        }
+        if (top.size() == TOP_KEYS) {
+          long min = Long.MAX_VALUE;
+          for (long v : top.values()) {
+            min = Math.min(min, v);
+          }
+          threshold = min;
+        }
+      }
+    }
+
+    Map<String, Long> top() {
+      synchronized (top) {
+        return new HashMap<String, Long>(top);
+      }
+    }
+
+    private static int spread(int h) {
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of a Ketama continuum and the nodes it was built from.
+ *
+ * <p>
+ * The points of the ring are kept as a sorted primitive array with the owning
+ * node of each point in a parallel array, so a lookup is a binary search
+ * without boxing the hash. Instances are never modified once built, which
+ * lets a locator replace its ring and node list together with a single
+ * volatile write; readers see either the old or the new snapshot, never a
+ * partially built one.
+ * </p>
+ */
+final class KetamaContinuum {
+
+  /**
+   * Packed points are at most 32 bits wide, leaving the low 31 bits of a
+   * packed entry for the index of the owning node.
+   */
+  private static final int NODE_BITS = 31;
+  private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+  private static final long MAX_PACKED_POINT = 0xffffffffL;
+
+  private final long[] points;
+  private final MemcachedNode[] nodes;
+  private final Collection<MemcachedNode> allNodes;
+  private volatile SortedMap<Long, MemcachedNode> sortedMap;
+
+  private KetamaContinuum(long[] p, MemcachedNode[] n,
+      Collection<MemcachedNode> an) {
+    points = p;
+    nodes = n;
+    allNodes = an;
+  }
+
+  /**
+   * Build a continuum from the points of each node.
+   *
+   * When several nodes claim the same point, the node that comes later in
+   * the list owns it.
+   *
+   * @param all the nodes of the ring
+   * @param nodePoints the points of each node, in the order of all
+   */
+  static KetamaContinuum create(List<MemcachedNode> all, long[][] nodePoints) {
+    int total = 0;
+    boolean packable = nodePoints.length <= NODE_MASK + 1;
+    for (long[] np : nodePoints) {
+      total += np.length;
+      for (long point : np) {
+        packable &= point >= 0 && point <= MAX_PACKED_POINT;
+      }
+    }
+    return packable ? createPacked(all, nodePoints, total)
+        : createSorted(all, nodePoints, total);
+  }
+
+  /**
+   * Build a continuum by sorting each point packed together with the index
+   * of its node into a single long, which needs every point to fit into 32
+   * unsigned bits. That is the case for all the {@link DefaultHashAlgorithm}s.
+   */
+  private static KetamaContinuum createPacked(List<MemcachedNode> all,
+      long[][] nodePoints, int total) {
+    long[] packed = new long[total];
+    int pos = 0;
+    for (int i = 0; i < nodePoints.length; i++) {
+      for (long point : nodePoints[i]) {
+        packed[pos++] = point << NODE_BITS | i;
+      }
+    }
+    Arrays.sort(packed);
+
+    // Collapse duplicate points, the last one sorts highest.
+    int count = 0;
+    for (int i = 0; i < total; i++) {
+      if (i + 1 < total
+          && packed[i] >>> NODE_BITS == packed[i + 1] >>> NODE_BITS) {
+        continue;
+      }
+      packed[count++] = packed[i];
+    }
+    long[] p = new long[count];
+    MemcachedNode[] n = new MemcachedNode[count];
+    for (int i = 0; i < count; i++) {
+      p[i] = packed[i] >>> NODE_BITS;
+      n[i] = all.get((int) (packed[i] & NODE_MASK));
+    }
+    return new KetamaContinuum(p, n, all);
+  }
+
+  /**
+   * Build a continuum from points of any range, as a custom
+   * {@link HashAlgorithm} may produce them, by sorting (point, node) pairs.
+   */
+  private static KetamaContinuum createSorted(List<MemcachedNode> all,
+      long[][] nodePoints, int total) {
+    long[][] entries = new long[total][];
+    int pos = 0;
+    for (int i = 0; i < nodePoints.length; i++) {
+      for (long point : nodePoints[i]) {
+        entries[pos++] = new long[] {point, i};
+      }
+    }
+    Arrays.sort(entries, new Comparator<long[]>() {
+      public int compare(long[] a, long[] b) {
+        if (a[0] != b[0]) {
+          return a[0] < b[0] ? -1 : 1;
+        }
+        return a[1] < b[1] ? -1 : (a[1] == b[1] ? 0 : 1);
+      }
+    });
+
+    // Collapse duplicate points, the last one sorts highest.
+    List<long[]> unique = new ArrayList<long[]>(total);
+    for (int i = 0; i < total; i++) {
+      if (i + 1 < total && entries[i][0] == entries[i + 1][0]) {
+        continue;
+      }
+      unique.add(entries[i]);
+    }
+    long[] p = new long[unique.size()];
+    MemcachedNode[] n = new MemcachedNode[unique.size()];
+    for (int i = 0; i < p.length; i++) {
+      p[i] = unique.get(i)[0];
+      n[i] = all.get((int) unique.get(i)[1]);
+    }
+    return new KetamaContinuum(p, n, all);
+  }
+
+  /**
+   * Find the node owning the first point at or after the given hash, wrapping
+   * around to the first point of the ring.
+   *
+   * @param hash the hash of the key
+   * @return the node, or null if the continuum is empty
+   */
+  MemcachedNode getNodeForKey(long hash) {
+    if (points.length == 0) {
+      return null;
+    }
+    int idx = Arrays.binarySearch(points, hash);
+    if (idx < 0) {
+      idx = -idx - 1;
+      if (idx == points.length) {
+        idx = 0;
+      }
+    }
+    return nodes[idx];
+  }
+
+  Collection<MemcachedNode> getAll() {
+    return allNodes;
+  }
+
+  int size() {
+    return points.length;
+  }
+
+  /**
+   * @return the highest point of the ring
+   * @throws NoSuchElementException if the continuum is empty
+   */
+  long getMaxKey() {
+    if (points.length == 0) {
+      throw new NoSuchElementException("The continuum is empty");
+    }
+    return points[points.length - 1];
+  }
+
+  /**
+   * Create a copy of this continuum with every node wrapped in a
+   * {@link MemcachedNodeROImpl}, each node being wrapped only once.
+   */
+  KetamaContinuum readonlyCopy() {
+    Map<MemcachedNode, MemcachedNode> wrappers =
+        new IdentityHashMap<MemcachedNode, MemcachedNode>();
+    Collection<MemcachedNode> an =
+        new ArrayList<MemcachedNode>(allNodes.size());
+    for (MemcachedNode node : allNodes) {
+      an.add(readonly(node, wrappers));
+    }
+    MemcachedNode[] n = new MemcachedNode[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      n[i] = readonly(nodes[i], wrappers);
+    }
+    return new KetamaContinuum(points, n, an);
+  }
+
+  private static MemcachedNode readonly(MemcachedNode node,
+      Map<MemcachedNode, MemcachedNode> wrappers) {
+    MemcachedNode ro = wrappers.get(node);
+    if (ro == null) {
+      ro = new MemcachedNodeROImpl(node);
+      wrappers.put(node, ro);
+    }
+    return ro;
+  }
+
+  /**
+   * Get an unmodifiable map holding the points of this continuum. It is
+   * built on first use and shared afterwards.
+   */
+  SortedMap<Long, MemcachedNode> asSortedMap() {
+    SortedMap<Long, MemcachedNode> rv = sortedMap;
+    if (rv == null) {
+      TreeMap<Long, MemcachedNode> m = new TreeMap<Long, MemcachedNode>();
+      for (int i = 0; i < points.length; i++) {
+        m.put(points[i], nodes[i]);
+      }
+      rv = Collections.unmodifiableSortedMap(m);
+      sortedMap = rv;
+    }
+    return rv;
+  }
+}
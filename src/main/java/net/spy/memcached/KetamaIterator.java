@@ -23,8 +23,6 @@
 package net.spy.memcached;
 
 import java.util.Iterator;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import net.spy.memcached.compat.SpyObject;
 
 /**
@@ -38,20 +36,19 @@ class KetamaIterator extends SpyObject implements Iterator<MemcachedNode> {
   private int remainingTries;
   private int numTries = 0;
   private final HashAlgorithm hashAlg;
-  private final TreeMap<Long, MemcachedNode> ketamaNodes;
+  private final KetamaContinuum ketamaNodes;
 
   /**
    * Create a new KetamaIterator to be used by a client for an operation.
    *
    * @param k the key to iterate for
    * @param t the number of tries until giving up
-   * @param ketamaNodes the continuum in the form of a TreeMap to be used when
-   *          selecting a node
+   * @param ketamaNodes the continuum to be used when selecting a node
    * @param hashAlg the hash algorithm to use when selecting within the
    *          continuumq
    */
   protected KetamaIterator(final String k, final int t,
-      TreeMap<Long, MemcachedNode> ketamaNodes, final HashAlgorithm hashAlg) {
+      KetamaContinuum ketamaNodes, final HashAlgorithm hashAlg) {
     super();
     this.ketamaNodes = ketamaNodes;
     this.hashAlg = hashAlg;
@@ -75,7 +72,7 @@ class KetamaIterator extends SpyObject implements Iterator<MemcachedNode> {
 
   public MemcachedNode next() {
     try {
-      return getNodeForKey(hashVal);
+      return ketamaNodes.getNodeForKey(hashVal);
     } finally {
       nextHash();
     }
@@ -84,20 +81,4 @@ class KetamaIterator extends SpyObject implements Iterator<MemcachedNode> {
   public void remove() {
     throw new UnsupportedOperationException("remove not supported");
   }
-
-  private MemcachedNode getNodeForKey(long hash) {
-    final MemcachedNode rv;
-    if (!ketamaNodes.containsKey(hash)) {
-      // Java 1.6 adds a ceilingKey method, but I'm still stuck in 1.5
-      // in a lot of places, so I'm doing this myself.
-      SortedMap<Long, MemcachedNode> tailMap = ketamaNodes.tailMap(hash);
-      if (tailMap.isEmpty()) {
-        hash = ketamaNodes.firstKey();
-      } else {
-        hash = tailMap.firstKey();
-      }
-    }
-    rv = ketamaNodes.get(hash);
-    return rv;
-  }
 }
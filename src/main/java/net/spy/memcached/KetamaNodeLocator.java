@@ -28,14 +28,12 @@ import net.spy.memcached.util.DefaultKetamaNodeLocatorConfiguration;
 import net.spy.memcached.util.KetamaNodeLocatorConfiguration;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * This is an implementation of the Ketama consistent hash strategy from
@@ -49,8 +47,15 @@ import java.util.TreeMap;
  */
 public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
 
-  private volatile TreeMap<Long, MemcachedNode> ketamaNodes;
-  private volatile Collection<MemcachedNode> allNodes;
+  private volatile KetamaContinuum ketamaNodes;
+
+  /**
+   * Points of the nodes in the current continuum, so that a cluster change
+   * only hashes the nodes that joined. Unused for weighted continuums, where
+   * the points of a node depend on the other nodes.
+   */
+  private final Map<MemcachedNode, long[]> nodePoints =
+      new HashMap<MemcachedNode, long[]>();
 
   private final HashAlgorithm hashAlg;
   private final Map<InetSocketAddress, Integer> weights;
@@ -120,7 +125,6 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
             Map<InetSocketAddress, Integer> nodeWeights,
             KetamaNodeLocatorConfiguration configuration) {
     super();
-    allNodes = nodes;
     hashAlg = alg;
     config = configuration;
     weights = nodeWeights;
@@ -128,13 +132,11 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
     setKetamaNodes(nodes);
   }
 
-  private KetamaNodeLocator(TreeMap<Long, MemcachedNode> smn,
-      Collection<MemcachedNode> an, HashAlgorithm alg,
+  private KetamaNodeLocator(KetamaContinuum smn, HashAlgorithm alg,
       Map<InetSocketAddress, Integer> nodeWeights,
       KetamaNodeLocatorConfiguration conf) {
     super();
     ketamaNodes = smn;
-    allNodes = an;
     hashAlg = alg;
     config = conf;
     weights = nodeWeights;
@@ -142,7 +144,7 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
   }
 
   public Collection<MemcachedNode> getAll() {
-    return allNodes;
+    return ketamaNodes.getAll();
   }
 
   public MemcachedNode getPrimary(final String k) {
@@ -152,62 +154,40 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
   }
 
   long getMaxKey() {
-    return getKetamaNodes().lastKey();
+    return ketamaNodes.getMaxKey();
   }
 
   MemcachedNode getNodeForKey(long hash) {
-    final MemcachedNode rv;
-    if (!ketamaNodes.containsKey(hash)) {
-      // Java 1.6 adds a ceilingKey method, but I'm still stuck in 1.5
-      // in a lot of places, so I'm doing this myself.
-      SortedMap<Long, MemcachedNode> tailMap = getKetamaNodes().tailMap(hash);
-      if (tailMap.isEmpty()) {
-        hash = getKetamaNodes().firstKey();
-      } else {
-        hash = tailMap.firstKey();
-      }
-    }
-    rv = getKetamaNodes().get(hash);
-    return rv;
+    return ketamaNodes.getNodeForKey(hash);
   }
 
   public Iterator<MemcachedNode> getSequence(String k) {
     // Seven searches gives us a 1 in 2^7 chance of hitting the
     // same dead node all of the time.
-    return new KetamaIterator(k, 7, getKetamaNodes(), hashAlg);
+    return new KetamaIterator(k, 7, ketamaNodes, hashAlg);
   }
 
   public NodeLocator getReadonlyCopy() {
-    TreeMap<Long, MemcachedNode> smn =
-        new TreeMap<Long, MemcachedNode>(getKetamaNodes());
-    Collection<MemcachedNode> an =
-        new ArrayList<MemcachedNode>(allNodes.size());
-
-    // Rewrite the values a copy of the map.
-    for (Map.Entry<Long, MemcachedNode> me : smn.entrySet()) {
-      smn.put(me.getKey(), new MemcachedNodeROImpl(me.getValue()));
-    }
-
-    // Copy the allNodes collection.
-    for (MemcachedNode n : allNodes) {
-      an.add(new MemcachedNodeROImpl(n));
-    }
-
-    return new KetamaNodeLocator(smn, an, hashAlg, weights, config);
+    return new KetamaNodeLocator(ketamaNodes.readonlyCopy(), hashAlg, weights,
+        config);
   }
 
+  /**
+   * Build the continuum for the new node list next to the current one and
+   * publish both together once complete; lookups running concurrently keep
+   * using the previous snapshot until then.
+   */
   @Override
   public void updateLocator(List<MemcachedNode> nodes) {
-    allNodes = nodes;
     setKetamaNodes(nodes);
-    allNodes = nodes;
   }
 
   /**
-   * @return the ketamaNodes
+   * @return an unmodifiable view of the continuum as a map from point to
+   *         node
    */
-  protected TreeMap<Long, MemcachedNode> getKetamaNodes() {
-    return ketamaNodes;
+  protected SortedMap<Long, MemcachedNode> getKetamaNodes() {
+    return ketamaNodes.asSortedMap();
   }
 
   /**
@@ -216,9 +196,7 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
    * @param nodes a List of MemcachedNodes for this KetamaNodeLocator to use in
    *          its continuum
    */
-  protected void setKetamaNodes(List<MemcachedNode> nodes) {
-    TreeMap<Long, MemcachedNode> newNodeMap =
-            new TreeMap<Long, MemcachedNode>();
+  protected synchronized void setKetamaNodes(List<MemcachedNode> nodes) {
     int numReps = config.getNodeRepetitions();
     int nodeCount = nodes.size();
     int totalWeight = 0;
@@ -229,51 +207,71 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
         }
     }
 
-    for (MemcachedNode node : nodes) {
-      if (isWeightedKetama) {
-
-          int thisWeight = weights.get(node.getSocketAddress());
-          float percent = (float)thisWeight / (float)totalWeight;
-          int pointerPerServer = (int)((Math.floor((float)(percent * (float)config.getNodeRepetitions() / 4 * (float)nodeCount + 0.0000000001))) * 4);
-          for (int i = 0; i < pointerPerServer / 4; i++) {
-              for(long position : ketamaNodePositionsAtIteration(node, i)) {
-                  newNodeMap.put(position, node);
-                  getLogger().debug("Adding node %s with weight %s in position %d", node, thisWeight, position);
-              }
-          }
-      } else {
-          // Ketama does some special work with md5 where it reuses chunks.
-          // Check to be backwards compatible, the hash algorithm does not
-          // matter for Ketama, just the placement should always be done using
-          // MD5
-          if (hashAlg == DefaultHashAlgorithm.KETAMA_HASH) {
-              for (int i = 0; i < numReps / 4; i++) {
-                  for(long position : ketamaNodePositionsAtIteration(node, i)) {
-                    newNodeMap.put(position, node);
-                    getLogger().debug("Adding node %s in position %d", node, position);
-                  }
-              }
-          } else {
-              for (int i = 0; i < numReps; i++) {
-                  newNodeMap.put(hashAlg.hash(config.getKeyForNode(node, i)), node);
-              }
-          }
+    long[][] points = new long[nodeCount][];
+    Map<MemcachedNode, long[]> current = new HashMap<MemcachedNode, long[]>();
+    for (int n = 0; n < nodeCount; n++) {
+      MemcachedNode node = nodes.get(n);
+      points[n] = isWeightedKetama ? null : nodePoints.get(node);
+      if (points[n] == null) {
+        points[n] = getNodePoints(node, totalWeight, nodeCount);
+        getLogger().debug("Adding node %s with %d points", node,
+            points[n].length);
       }
+      current.put(node, points[n]);
+    }
+    KetamaContinuum continuum = KetamaContinuum.create(nodes, points);
+    assert continuum.size() == numReps * nodes.size();
+    if (!isWeightedKetama) {
+      nodePoints.clear();
+      nodePoints.putAll(current);
+    }
+    ketamaNodes = continuum;
+  }
+
+  /**
+   * Compute the points of a node on the continuum.
+   */
+  private long[] getNodePoints(MemcachedNode node, int totalWeight,
+      int nodeCount) {
+    long[] rv;
+    if (isWeightedKetama) {
+
+        int thisWeight = weights.get(node.getSocketAddress());
+        float percent = (float)thisWeight / (float)totalWeight;
+        int pointerPerServer = (int)((Math.floor((float)(percent * (float)config.getNodeRepetitions() / 4 * (float)nodeCount + 0.0000000001))) * 4);
+        rv = new long[pointerPerServer / 4 * 4];
+        for (int i = 0; i < pointerPerServer / 4; i++) {
+            ketamaNodePositionsAtIteration(node, i, rv);
+        }
+    } else {
+        int numReps = config.getNodeRepetitions();
+        // Ketama does some special work with md5 where it reuses chunks.
+        // Check to be backwards compatible, the hash algorithm does not
+        // matter for Ketama, just the placement should always be done using
+        // MD5
+        if (hashAlg == DefaultHashAlgorithm.KETAMA_HASH) {
+            rv = new long[numReps / 4 * 4];
+            for (int i = 0; i < numReps / 4; i++) {
+                ketamaNodePositionsAtIteration(node, i, rv);
+            }
+        } else {
+            rv = new long[numReps];
+            for (int i = 0; i < numReps; i++) {
+                rv[i] = hashAlg.hash(config.getKeyForNode(node, i));
+            }
+        }
     }
-    assert newNodeMap.size() == numReps * nodes.size();
-    ketamaNodes = newNodeMap;
+    return rv;
   }
 
-  private List<Long> ketamaNodePositionsAtIteration(MemcachedNode node, int iteration) {
-      List<Long> positions = new ArrayList<Long>();
+  private void ketamaNodePositionsAtIteration(MemcachedNode node,
+      int iteration, long[] positions) {
       byte[] digest = DefaultHashAlgorithm.computeHashDigest(config.getKeyForNode(node, iteration));
       for (int h = 0; h < 4; h++) {
-          Long k = ((long) (digest[3 + h * 4] & 0xFF) << 24)
+          positions[iteration * 4 + h] = ((long) (digest[3 + h * 4] & 0xFF) << 24)
               | ((long) (digest[2 + h * 4] & 0xFF) << 16)
               | ((long) (digest[1 + h * 4] & 0xFF) << 8)
               | (digest[h * 4] & 0xFF);
-          positions.add(k);
       }
-      return positions;
   }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in microseconds with log-linear buckets.
+ *
+ * <p>
+ * Like HdrHistogram, every power of two is split into 128 linear buckets, so
+ * any recorded value is reported within 1% of its true value, up to
+ * {@link #MAX_VALUE}. Recording is a single atomic increment.
+ * </p>
+ *
+ * <p>
+ * Counts are kept per interval: {@link #snapshotAndReset} hands the counts
+ * recorded so far to the caller and starts a new interval. A value recorded
+ * while the counts are being collected may be counted in either interval.
+ * </p>
+ */
+final class LatencyHistogram {
+
+  /**
+   * The largest value told apart from larger ones, about 71 minutes.
+   */
+  static final long MAX_VALUE = (1L << 32) - 1;
+
+  private static final int SUB_BITS = 7;
+  private static final int SUB = 1 << SUB_BITS;
+  private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Record a latency.
+   *
+   * @param micros the latency in microseconds
+   */
+  void record(long micros) {
+    counts.incrementAndGet(index(Math.max(0, Math.min(micros, MAX_VALUE))));
+  }
+
+  /**
+   * Get the counts of the current interval and start a new one.
+   */
+  Snapshot snapshotAndReset() {
+    long[] c = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      if (counts.get(i) != 0) {
+        c[i] = counts.getAndSet(i, 0);
+      }
+    }
+    return new Snapshot(c);
+  }
+
+  static int index(long v) {
+    if (v < 2 * SUB) {
+      return (int) v;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+    return shift * SUB + (int) (v >>> shift);
+  }
+
+  /**
+   * Get the largest value counted in the given bucket.
+   */
+  static long highestValue(int index) {
+    if (index < 2 * SUB) {
+      return index;
+    }
+    int shift = index / SUB - 1;
+    long top = index % SUB + SUB;
+    return ((top + 1) << shift) - 1;
+  }
+
+  /**
+   * The counts of one interval.
+   */
+  static final class Snapshot {
+    private final long[] counts;
+    private final long total;
+
+    private Snapshot(long[] counts) {
+      this.counts = counts;
+      long t = 0;
+      for (long c : counts) {
+        t += c;
+      }
+      total = t;
+    }
+
+    /**
+     * Get the number of values recorded.
+     */
+    long getCount() {
+      return total;
+    }
+
+    /**
+     * Get the value at the given percentile.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the value, or 0 if nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+      if (total == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return highestValue(i);
+        }
+      }
+      return MAX_VALUE;
+    }
+  }
+}
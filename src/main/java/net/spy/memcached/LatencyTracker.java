@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.spy.memcached.metrics.MetricCollector;
+import net.spy.memcached.ops.DeleteConfigOperation;
+import net.spy.memcached.ops.GetConfigOperation;
+import net.spy.memcached.ops.KeyedOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.SetConfigOperation;
+import net.spy.memcached.protocol.BaseOperationImpl;
+
+/**
+ * Records the latencies of completed operations per node and kind of
+ * operation. Only operations extending {@link BaseOperationImpl} keep the
+ * timestamps this needs.
+ *
+ * <p>
+ * Each operation is split into the time it waited in the write queue, the
+ * time from the end of its write to the end of its response, and the time
+ * spent reading and decoding its response, next to its total time from its
+ * creation. Every phase of every kind of operation has its own
+ * {@link LatencyHistogram} per node.
+ * </p>
+ *
+ * <p>
+ * Whenever {@link #publish} is called, which the connection does at the end
+ * of every window from its own thread, the 50th, 99th and 99.9th percentiles
+ * of the window are published as counters of the {@link MetricCollector},
+ * holding their value in microseconds, and the histograms start over.
+ * </p>
+ */
+final class LatencyTracker {
+
+  static final long DEFAULT_WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+  private static final String METRIC_PREFIX = "[MEM] Latency: ";
+  private static final double[] PERCENTILES = {50, 99, 99.9};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999"};
+
+  /**
+   * The kinds of operations latencies are kept for.
+   */
+  enum Kind {
+    GET("get"), MULTI_GET("multiget"), SET("set"), DELETE("delete"),
+    INCR("incr"), TOUCH("touch"), CONFIG("config"), OTHER("other");
+
+    private final String name;
+
+    private Kind(String name) {
+      this.name = name;
+    }
+
+    static Kind of(Operation o) {
+      switch (HotKey.OpType.of(o)) {
+      case GET:
+        return ((KeyedOperation) o).getKeys().size() > 1 ? MULTI_GET : GET;
+      case STORE:
+        return SET;
+      case DELETE:
+        return DELETE;
+      case MUTATE:
+        return INCR;
+      case TOUCH:
+        return TOUCH;
+      default:
+        if (o instanceof GetConfigOperation
+            || o instanceof SetConfigOperation
+            || o instanceof DeleteConfigOperation) {
+          return CONFIG;
+        }
+        return OTHER;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * The phases of an operation.
+   */
+  enum Phase {
+    TOTAL("total"), QUEUE("queue"), WIRE("wire"), DECODE("decode");
+
+    private final String name;
+
+    private Phase(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+  private static final Phase[] PHASES = Phase.values();
+
+  private final MetricCollector metrics;
+  private final ConcurrentMap<SocketAddress,
+      AtomicReferenceArray<LatencyHistogram>> nodes =
+      new ConcurrentHashMap<SocketAddress,
+        AtomicReferenceArray<LatencyHistogram>>();
+
+  /**
+   * The values of the published counters, guarded by this.
+   */
+  private final Map<String, Integer> published =
+      new HashMap<String, Integer>();
+
+  LatencyTracker(MetricCollector metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Record the latencies of an operation completed by the given node.
+   *
+   * @param now the time the operation completed
+   */
+  void record(MemcachedNode node, Operation o, long now) {
+    if (!(o instanceof BaseOperationImpl)) {
+      return;
+    }
+    BaseOperationImpl op = (BaseOperationImpl) o;
+    AtomicReferenceArray<LatencyHistogram> hs =
+        histograms(node.getSocketAddress());
+    int base = Kind.of(o).ordinal() * PHASES.length;
+    long created = op.getCreationTimestamp();
+    record(hs, base + Phase.TOTAL.ordinal(), now - created);
+    long writeStart = op.getWriteStartTimestamp();
+    if (writeStart != 0) {
+      record(hs, base + Phase.QUEUE.ordinal(), writeStart - created);
+    }
+    long writeComplete = o.getWriteCompleteTimestamp();
+    if (writeComplete != 0) {
+      record(hs, base + Phase.WIRE.ordinal(), now - writeComplete);
+    }
+    record(hs, base + Phase.DECODE.ordinal(), op.getDecodeTime());
+  }
+
+  /**
+   * Get the histogram of the given node, kind and phase, if any was recorded.
+   */
+  LatencyHistogram getHistogram(SocketAddress sa, Kind kind, Phase phase) {
+    AtomicReferenceArray<LatencyHistogram> hs = nodes.get(sa);
+    return hs == null ? null
+        : hs.get(kind.ordinal() * PHASES.length + phase.ordinal());
+  }
+
+  private AtomicReferenceArray<LatencyHistogram> histograms(SocketAddress sa) {
+    AtomicReferenceArray<LatencyHistogram> hs = nodes.get(sa);
+    if (hs == null) {
+      hs = new AtomicReferenceArray<LatencyHistogram>(
+          KINDS.length * PHASES.length);
+      AtomicReferenceArray<LatencyHistogram> prev = nodes.putIfAbsent(sa, hs);
+      if (prev != null) {
+        hs = prev;
+      }
+    }
+    return hs;
+  }
+
+  private static void record(AtomicReferenceArray<LatencyHistogram> hs,
+      int slot, long nanos) {
+    LatencyHistogram h = hs.get(slot);
+    if (h == null) {
+      hs.compareAndSet(slot, null, new LatencyHistogram());
+      h = hs.get(slot);
+    }
+    h.record(nanos / 1000);
+  }
+
+  /**
+   * Forget everything about a node that left the cluster.
+   */
+  void removeNode(SocketAddress sa) {
+    nodes.remove(sa);
+    String prefix = METRIC_PREFIX + sa + " ";
+    synchronized (this) {
+      for (Iterator<String> i = published.keySet().iterator(); i.hasNext();) {
+        String name = i.next();
+        if (name.startsWith(prefix)) {
+          i.remove();
+          metrics.removeCounter(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * Publish the percentiles of the window that just ended and start a new
+   * one.
+   */
+  synchronized void publish() {
+    for (Map.Entry<SocketAddress, AtomicReferenceArray<LatencyHistogram>> me
+        : nodes.entrySet()) {
+      AtomicReferenceArray<LatencyHistogram> hs = me.getValue();
+      for (int slot = 0; slot < hs.length(); slot++) {
+        LatencyHistogram h = hs.get(slot);
+        if (h == null) {
+          continue;
+        }
+        LatencyHistogram.Snapshot s = h.snapshotAndReset();
+        String prefix = METRIC_PREFIX + me.getKey() + " "
+            + KINDS[slot / PHASES.length] + " "
+            + PHASES[slot % PHASES.length] + " ";
+        for (int i = 0; i < PERCENTILES.length; i++) {
+          String name = prefix + PERCENTILE_NAMES[i];
+          if (s.getCount() == 0) {
+            if (published.remove(name) != null) {
+              metrics.removeCounter(name);
+            }
+          } else {
+            int value = (int) Math.min(Integer.MAX_VALUE,
+                s.getValueAtPercentile(PERCENTILES[i]));
+            set(name, value);
+          }
+        }
+      }
+    }
+  }
+
+  private void set(String name, int value) {
+    Integer old = published.put(name, value);
+    if (old == null) {
+      metrics.addCounter(name);
+      metrics.incrementCounter(name, value);
+    } else if (value > old) {
+      metrics.incrementCounter(name, value - old);
+    } else if (value < old) {
+      metrics.decrementCounter(name, old - value);
+    }
+  }
+}
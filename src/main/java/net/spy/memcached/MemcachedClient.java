@@ -36,10 +36,14 @@ import net.spy.memcached.ConfigurationPoller;
 import net.spy.memcached.config.NodeEndPoint;
 import net.spy.memcached.internal.BulkFuture;
 import net.spy.memcached.internal.BulkGetFuture;
+import net.spy.memcached.internal.CompletedFuture;
+import net.spy.memcached.internal.DirectFuture;
 import net.spy.memcached.internal.GetConfigFuture;
 import net.spy.memcached.internal.GetFuture;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.internal.SingleElementInfiniteIterator;
+import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkMutationOperation;
 import net.spy.memcached.ops.CASOperationStatus;
 import net.spy.memcached.ops.CancelledOperationStatus;
 import net.spy.memcached.ops.ConcatenationType;
@@ -64,6 +68,7 @@ import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.ops.TimedOutOperationStatus;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.StreamingTranscoder;
 import net.spy.memcached.transcoders.TranscodeService;
 import net.spy.memcached.transcoders.Transcoder;
 import net.spy.memcached.util.StringUtils;
@@ -78,6 +83,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -169,6 +175,13 @@ import java.util.concurrent.atomic.AtomicReference;
 public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     ConnectionObserver {
 
+  /**
+   * Status of a get answered from the near cache, or of a bulk get whose
+   * keys were all answered locally or by gets already in flight.
+   */
+  private static final OperationStatus NEAR_CACHE_HIT =
+      new OperationStatus(true, "OK", StatusCode.SUCCESS);
+
   protected final ClientMode clientMode;
   
   protected volatile boolean shuttingDown;
@@ -191,6 +204,28 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
   protected final ExecutorService executorService;
 
+  /**
+   * The client side cache of recently read values, or null if disabled.
+   */
+  private final NearCache nearCache;
+
+  /**
+   * Shares gets of the same key in flight, or null if disabled.
+   */
+  private final GetCoalescer coalescer;
+
+  /**
+   * The allocator values are encoded into, or null to encode into arrays.
+   */
+  private final BufferAllocator payloadAllocator;
+
+  /**
+   * The size of the last value of each class encoded into a buffer of the
+   * payload allocator, to size the buffer of the next one.
+   */
+  private final ConcurrentMap<Class<?>, Integer> encodedSizes =
+      new ConcurrentHashMap<Class<?>, Integer>();
+
   private NodeEndPoint configurationNode;
   //Set default value to true to attempt config API first. The value is set to false if
   //OperationNotSupportedException is thrown.
@@ -285,10 +320,21 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     transcoder = cf.getDefaultTranscoder();
     opFact = cf.getOperationFactory();
     assert opFact != null : "Connection factory failed to make op factory";
+    FactorySettings settings = FactorySettings.of(cf);
+    // Only the operation factories of this library send values from buffers.
+    payloadAllocator = opFact instanceof BaseOperationFactory
+        ? settings.getPayloadAllocator() : null;
 
     operationTimeout = cf.getOperationTimeout();
     authDescriptor = cf.getAuthDescriptor();
     executorService = cf.getListenerExecutorService();
+    nearCache = settings.getNearCacheMaxEntries() > 0
+        ? new NearCache(settings.getNearCacheMaxEntries(),
+            settings.getNearCacheMaxBytes(),
+            settings.getNearCacheMaxStaleness(), cf.getMetricCollector(),
+            cf.enableMetrics())
+        : null;
+    coalescer = settings.shouldCoalesceGets() ? new GetCoalescer() : null;
 
     if(clientMode == ClientMode.Dynamic){
       initializeClientUsingConfigEndPoint(cf, addrs.get(0));
@@ -362,7 +408,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     mconn = cf.createConnection(addrs);
     assert mconn != null : "Connection factory failed to make a connection";
   }
-  
+
   public NodeEndPoint getConfigurationNode(){
     return configurationNode;
   }
@@ -488,15 +534,55 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     return mconn.broadcastOperation(of, nodes);
   }
 
+  /**
+   * Encode a value, straight into a buffer of the payload allocator if the
+   * transcoder can stream.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CachedData encode(T value, Transcoder<T> tc) {
+    if (payloadAllocator == null || !(tc instanceof StreamingTranscoder)) {
+      return tc.encode(value);
+    }
+    Integer sizeHint = value == null ? null
+        : encodedSizes.get(value.getClass());
+    // Room for the longest command line in front of the value, and for the
+    // line end of the ascii protocol after it.
+    ValueBuffer buffer = new ValueBuffer(payloadAllocator,
+        MAX_KEY_LENGTH + 64, 2, sizeHint == null ? 0 : sizeHint);
+    try {
+      int flags = ((StreamingTranscoder<T>) tc).encode(value, buffer);
+      if (value != null) {
+        encodedSizes.put(value.getClass(), buffer.size());
+      }
+      return new CachedData(flags, buffer, tc.getMaxSize());
+    } catch (RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Create a store operation for encoded data, sent from the buffer it was
+   * encoded into if any.
+   */
+  private StoreOperation store(StoreType storeType, String key,
+      CachedData co, int exp, StoreOperation.Callback cb) {
+    if (co.getBuffer() != null) {
+      return ((BaseOperationFactory) opFact).store(storeType, key, co, exp,
+          cb);
+    }
+    return opFact.store(storeType, key, co.getFlags(), exp, co.getData(), cb);
+  }
+
   private <T> OperationFuture<Boolean> asyncStore(StoreType storeType,
       String key, int exp, T value, Transcoder<T> tc) {
-    CachedData co = tc.encode(value);
+    CachedData co = encode(value, tc);
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Boolean> rv =
       new OperationFuture<Boolean>(key, latch, operationTimeout,
       executorService);
-    Operation op = opFact.store(storeType, key, co.getFlags(), exp,
-        co.getData(), new StoreOperation.Callback() {
+    Operation op = store(storeType, key, co, exp,
+        new StoreOperation.Callback() {
             @Override
             public void receivedStatus(OperationStatus val) {
               rv.set(val.isSuccess(), val);
@@ -513,7 +599,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
             }
           });
     rv.setOperation(op);
-    enqueueOperation(key, op);
+    enqueueMutation(key, op);
     return rv;
   }
 
@@ -542,7 +628,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
           }
         });
     rv.setOperation(op);
-    enqueueOperation(key, op);
+    enqueueMutation(key, op);
     return rv;
   }
 
@@ -839,7 +925,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
             }
           });
     rv.setOperation(op);
-    enqueueOperation(key, op);
+    enqueueMutation(key, op);
     return rv;
   }
 
@@ -1204,6 +1290,23 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
    */
   @Override
   public <T> GetFuture<T> asyncGet(final String key, final Transcoder<T> tc) {
+    final long stamp;
+    if (nearCache != null) {
+      CachedData cached = nearCache.get(key);
+      if (cached != null) {
+        GetFuture<T> rv = new GetFuture<T>(new CountDownLatch(0),
+          operationTimeout, key, executorService);
+        rv.set(tcService.decode(tc, cached), NEAR_CACHE_HIT);
+        rv.signalComplete();
+        return rv;
+      }
+      stamp = nearCache.stamp();
+    } else {
+      stamp = 0;
+    }
+    if (coalescer != null) {
+      return asyncCoalescedGet(key, tc, stamp);
+    }
 
     final CountDownLatch latch = new CountDownLatch(1);
     final GetFuture<T> rv = new GetFuture<T>(latch, operationTimeout, key,
@@ -1219,8 +1322,11 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       @Override
       public void gotData(String k, int flags, byte[] data) {
         assert key.equals(k) : "Wrong key returned";
-        val =
-            tcService.decode(tc, new CachedData(flags, data, tc.getMaxSize()));
+        CachedData cd = new CachedData(flags, data, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, cd, stamp);
+        }
+        val = tcService.decode(tc, cd);
       }
 
       @Override
@@ -1233,6 +1339,445 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     enqueueOperation(key, op);
     return rv;
   }
+  /**
+   * Get the given key, sharing the operation with every other get of the key
+   * in flight.
+   */
+  private <T> GetFuture<T> asyncCoalescedGet(final String key,
+      final Transcoder<T> tc, final long stamp) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final GetFuture<T> rv = new GetFuture<T>(latch, operationTimeout, key,
+      executorService);
+    GetCoalescer.Waiter waiter = new GetCoalescer.Waiter() {
+      @Override
+      public void done(Operation op, CachedData data,
+          OperationStatus status) {
+        rv.set(data == null ? null : tcService.decode(tc, data), status);
+        latch.countDown();
+        rv.signalComplete();
+      }
+    };
+    rv.setOperation(coalescedGet(key, tc, stamp, waiter));
+    return rv;
+  }
+
+  /**
+   * Join the get of the given key in flight, or start one.
+   *
+   * @return the ticket of the given waiter on the shared operation
+   */
+  private <T> Operation coalescedGet(final String key, final Transcoder<T> tc,
+      final long stamp, GetCoalescer.Waiter waiter) {
+    GetCoalescer.Ticket joined = coalescer.join(key, waiter);
+    if (joined != null) {
+      return joined;
+    }
+
+    final GetCoalescer.Flight flight = coalescer.newFlight(key, waiter);
+    Operation op = opFact.get(key, new GetOperation.Callback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        flight.setStatus(status);
+      }
+
+      @Override
+      public void gotData(String k, int flags, byte[] data) {
+        assert key.equals(k) : "Wrong key returned";
+        CachedData cd = new CachedData(flags, data, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, cd, stamp);
+        }
+        flight.setData(cd);
+      }
+
+      @Override
+      public void complete() {
+        flight.complete();
+      }
+    });
+    flight.setOperation(op);
+    GetCoalescer.Ticket ticket = coalescer.start(flight);
+    if (ticket.isLeader()) {
+      try {
+        enqueueOperation(key, op);
+      } catch (RuntimeException e) {
+        // Release the callers that joined in the meantime.
+        flight.setStatus(new OperationStatus(false, e.getMessage(),
+            StatusCode.ERR_INTERNAL));
+        flight.complete();
+        throw e;
+      }
+    }
+    return ticket;
+  }
+
+  /**
+   * Get the given key asynchronously, completing the future directly from
+   * the IO thread.
+   *
+   * <p>
+   * Cheap values are decoded on the thread completing the future, and
+   * callbacks added to the future run there too. See {@link DirectFuture}.
+   * Values the transcoder wants decoded asynchronously, such as compressed
+   * or serialized ones, are decoded on the transcoder threads, which then
+   * complete the future.
+   * </p>
+   *
+   * @param <T>
+   * @param key the key to fetch
+   * @param tc the transcoder to serialize and unserialize value
+   * @return a future that will hold the value, or null if there is none
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public <T> DirectFuture<T> getAsync(final String key,
+      final Transcoder<T> tc) {
+    final long stamp;
+    if (nearCache != null) {
+      CachedData cached = nearCache.get(key);
+      if (cached != null) {
+        return DirectFuture.completed(tc.decode(cached), operationTimeout);
+      }
+      stamp = nearCache.stamp();
+    } else {
+      stamp = 0;
+    }
+
+    final DirectFuture<T> rv = new DirectFuture<T>(operationTimeout);
+    if (coalescer != null) {
+      rv.setOperation(coalescedGet(key, tc, stamp, new GetCoalescer.Waiter() {
+        @Override
+        public void done(Operation op, CachedData data,
+            OperationStatus status) {
+          rv.setOperation(op);
+          completeGet(rv, data, tc);
+        }
+      }));
+      return rv;
+    }
+
+    Operation op = opFact.get(key, new GetOperation.Callback() {
+      private CachedData data;
+
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        // Failures are taken from the operation on completion.
+      }
+
+      @Override
+      public void gotData(String k, int flags, byte[] d) {
+        assert key.equals(k) : "Wrong key returned";
+        data = new CachedData(flags, d, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, data, stamp);
+        }
+      }
+
+      @Override
+      public void complete() {
+        completeGet(rv, data, tc);
+      }
+    });
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
+  /**
+   * Get the given key asynchronously and decode it with the default
+   * transcoder, completing the future directly from the IO thread.
+   *
+   * @param key the key to fetch
+   * @return a future that will hold the value, or null if there is none
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Object> getAsync(String key) {
+    return getAsync(key, transcoder);
+  }
+
+  /**
+   * Complete the given future with the given value, decoding it on the
+   * transcoder threads if the transcoder asks for it.
+   */
+  private <T> void completeGet(final DirectFuture<T> rv,
+      final CachedData data, final Transcoder<T> tc) {
+    if (data != null && tc.asyncDecode(data)) {
+      tcService.execute(new Runnable() {
+        public void run() {
+          decodeAndComplete(rv, data, tc);
+        }
+      });
+    } else {
+      decodeAndComplete(rv, data, tc);
+    }
+  }
+
+  private static <T> void decodeAndComplete(DirectFuture<T> rv,
+      CachedData data, Transcoder<T> tc) {
+    T value;
+    try {
+      value = data == null ? null : tc.decode(data);
+    } catch (RuntimeException e) {
+      rv.fail(e);
+      return;
+    }
+    rv.completeOperations(value);
+  }
+
+  /**
+   * Get the given keys asynchronously, completing the future directly from
+   * the IO thread once every node answered.
+   *
+   * <p>
+   * Cheap values are decoded on the IO threads as they arrive. Values the
+   * transcoder wants decoded asynchronously are decoded on the transcoder
+   * threads once every node answered, which then complete the future. The
+   * future fails if any of its operations fails.
+   * </p>
+   *
+   * @param <T>
+   * @param keys the keys to fetch
+   * @param tc the transcoder to serialize and unserialize values
+   * @return a future that will hold the values of the keys found
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public <T> DirectFuture<Map<String, T>> getBulkAsync(
+      Collection<String> keys, final Transcoder<T> tc) {
+    final Map<String, T> m = new ConcurrentHashMap<String, T>();
+    final Map<MemcachedNode, Collection<String>> chunks =
+        new HashMap<MemcachedNode, Collection<String>>();
+    final NodeLocator locator = mconn.getLocator();
+    final long stamp = nearCache == null ? 0 : nearCache.stamp();
+    final DirectFuture<Map<String, T>> rv =
+        new DirectFuture<Map<String, T>>(operationTimeout);
+
+    try {
+      for (String key : keys) {
+        if (nearCache != null) {
+          CachedData cached = nearCache.get(key);
+          if (cached != null) {
+            m.put(key, tc.decode(cached));
+            continue;
+          }
+        }
+        addToChunk(chunks, locator, key);
+      }
+    } catch (RuntimeException e) {
+      rv.fail(e);
+      return rv;
+    }
+    if (chunks.isEmpty()) {
+      rv.complete(m);
+      return rv;
+    }
+
+    final AtomicInteger pendingChunks = new AtomicInteger(chunks.size());
+    final Map<String, CachedData> undecoded =
+        new ConcurrentHashMap<String, CachedData>();
+    final GetOperation.Callback cb = new GetOperation.Callback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        if (status.getStatusCode() == StatusCode.ERR_NOT_MY_VBUCKET) {
+          pendingChunks.addAndGet(Integer.parseInt(status.getMessage()));
+        }
+      }
+
+      @Override
+      public void gotData(String k, int flags, byte[] data) {
+        CachedData cd = new CachedData(flags, data, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, cd, stamp);
+        }
+        if (tc.asyncDecode(cd)) {
+          undecoded.put(k, cd);
+          return;
+        }
+        try {
+          m.put(k, tc.decode(cd));
+        } catch (RuntimeException e) {
+          rv.fail(e);
+        }
+      }
+
+      @Override
+      public void complete() {
+        if (pendingChunks.decrementAndGet() != 0) {
+          return;
+        }
+        if (undecoded.isEmpty()) {
+          rv.completeOperations(m);
+          return;
+        }
+        tcService.execute(new Runnable() {
+          public void run() {
+            try {
+              for (Map.Entry<String, CachedData> me : undecoded.entrySet()) {
+                m.put(me.getKey(), tc.decode(me.getValue()));
+              }
+            } catch (RuntimeException e) {
+              rv.fail(e);
+              return;
+            }
+            rv.completeOperations(m);
+          }
+        });
+      }
+    };
+
+    final Map<MemcachedNode, Operation> mops =
+        new HashMap<MemcachedNode, Operation>();
+    for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
+      mops.put(me.getKey(), opFact.get(me.getValue(), cb));
+    }
+    rv.setOperations(new ArrayList<Operation>(mops.values()));
+    mconn.checkState();
+    mconn.addOperations(mops);
+    return rv;
+  }
+
+  /**
+   * Get the given keys asynchronously and decode them with the default
+   * transcoder, completing the future directly from the IO thread.
+   *
+   * @param keys the keys to fetch
+   * @return a future that will hold the values of the keys found
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Map<String, Object>> getBulkAsync(
+      Collection<String> keys) {
+    return getBulkAsync(keys, transcoder);
+  }
+
+  /**
+   * Set an object in the cache regardless of any existing value, completing
+   * the future directly from the IO thread.
+   *
+   * @param <T>
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @param tc the transcoder to serialize and unserialize the value
+   * @return a future that will hold whether the object was stored
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public <T> DirectFuture<Boolean> setAsync(String key, int exp, T o,
+      Transcoder<T> tc) {
+    return storeAsync(StoreType.set, key, exp, o, tc);
+  }
+
+  /**
+   * Set an object in the cache regardless of any existing value using the
+   * default transcoder, completing the future directly from the IO thread.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future that will hold whether the object was stored
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Boolean> setAsync(String key, int exp, Object o) {
+    return storeAsync(StoreType.set, key, exp, o, transcoder);
+  }
+
+  /**
+   * Add an object to the cache iff it does not exist already, completing the
+   * future directly from the IO thread.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future that will hold whether the object was stored
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Boolean> addAsync(String key, int exp, Object o) {
+    return storeAsync(StoreType.add, key, exp, o, transcoder);
+  }
+
+  /**
+   * Replace an object with the given value iff there is already a value for
+   * the given key, completing the future directly from the IO thread.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future that will hold whether the object was stored
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Boolean> replaceAsync(String key, int exp, Object o) {
+    return storeAsync(StoreType.replace, key, exp, o, transcoder);
+  }
+
+  private <T> DirectFuture<Boolean> storeAsync(StoreType storeType,
+      String key, int exp, T value, Transcoder<T> tc) {
+    CachedData co = encode(value, tc);
+    final DirectFuture<Boolean> rv =
+        new DirectFuture<Boolean>(operationTimeout);
+    Operation op = store(storeType, key, co, exp,
+        new StoreOperation.Callback() {
+          private boolean stored;
+
+          @Override
+          public void receivedStatus(OperationStatus val) {
+            stored = val.isSuccess();
+          }
+
+          @Override
+          public void gotData(String k, long cas) {
+            // Not exposed by this future.
+          }
+
+          @Override
+          public void complete() {
+            rv.completeOperations(stored);
+          }
+        });
+    rv.setOperation(op);
+    enqueueMutation(key, op);
+    return rv;
+  }
+
+  /**
+   * Delete the given key from the cache, completing the future directly from
+   * the IO thread.
+   *
+   * @param key the key to delete
+   * @return a future that will hold whether the key was deleted
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  public DirectFuture<Boolean> deleteAsync(String key) {
+    final DirectFuture<Boolean> rv =
+        new DirectFuture<Boolean>(operationTimeout);
+    Operation op = opFact.delete(key, new DeleteOperation.Callback() {
+      private boolean deleted;
+
+      @Override
+      public void receivedStatus(OperationStatus s) {
+        deleted = s.isSuccess();
+      }
+
+      @Override
+      public void gotData(long cas) {
+        // Not exposed by this future.
+      }
+
+      @Override
+      public void complete() {
+        rv.completeOperations(deleted);
+      }
+    });
+    rv.setOperation(op);
+    enqueueMutation(key, op);
+    return rv;
+  }
+
   
   /**
    * Get with a single key from the specified node.
@@ -1536,42 +2081,18 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
         new HashMap<MemcachedNode, Collection<String>>();
     final NodeLocator locator = mconn.getLocator();
 
-    while (keyIter.hasNext() && tcIter.hasNext()) {
-      String key = keyIter.next();
-      tcMap.put(key, tcIter.next());
-      StringUtils.validateKey(key, opFact instanceof BinaryOperationFactory);
-      final MemcachedNode primaryNode = locator.getPrimary(key);
-      MemcachedNode node = null;
-      if (primaryNode.isActive()) {
-        node = primaryNode;
-      } else {
-        for (Iterator<MemcachedNode> i = locator.getSequence(key); node == null
-            && i.hasNext();) {
-          MemcachedNode n = i.next();
-          if (n.isActive()) {
-            node = n;
-          }
-        }
-        if (node == null) {
-          node = primaryNode;
-        }
-      }
-      assert node != null : "Didn't find a node for " + key;
-      Collection<String> ks = chunks.get(node);
-      if (ks == null) {
-        ks = new ArrayList<String>();
-        chunks.put(node, ks);
-      }
-      ks.add(key);
-    }
+    final long stamp = nearCache == null ? 0 : nearCache.stamp();
 
-    final AtomicInteger pendingChunks = new AtomicInteger(chunks.size());
-    int initialLatchCount = chunks.isEmpty() ? 0 : 1;
-    final CountDownLatch latch = new CountDownLatch(initialLatchCount);
-    final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
-    final BulkGetFuture<T> rv = new BulkGetFuture<T>(m, ops, latch, executorService);
+    // One pending count is held until every chunk has been sent, so joined
+    // gets completing early cannot release the latch.
+    final AtomicInteger pendingChunks = new AtomicInteger(1);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Collection<Operation> ops = new ArrayList<Operation>();
+    final BulkGetFuture<T> rv = new BulkGetFuture<T>(m, ops, latch,
+        executorService, tcService);
+    boolean joined = false;
 
-    GetOperation.Callback cb = new GetOperation.Callback() {
+    final GetOperation.Callback cb = new GetOperation.Callback() {
       @Override
       @SuppressWarnings("synthetic-access")
       public void receivedStatus(OperationStatus status) {
@@ -1584,8 +2105,11 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       @Override
       public void gotData(String k, int flags, byte[] data) {
         Transcoder<T> tc = tcMap.get(k);
-        m.put(k,
-            tcService.decode(tc, new CachedData(flags, data, tc.getMaxSize())));
+        CachedData cd = new CachedData(flags, data, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, cd, stamp);
+        }
+        m.put(k, tcService.decodeLater(tc, cd));
       }
 
       @Override
@@ -1597,6 +2121,43 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       }
     };
 
+    while (keyIter.hasNext() && tcIter.hasNext()) {
+      final String key = keyIter.next();
+      final Transcoder<T> tc = tcIter.next();
+      if (nearCache != null) {
+        CachedData cached = nearCache.get(key);
+        if (cached != null) {
+          m.put(key, tcService.decodeLater(tc, cached));
+          continue;
+        }
+      }
+      if (coalescer != null) {
+        pendingChunks.incrementAndGet();
+        GetCoalescer.Waiter w = new GetCoalescer.Waiter() {
+          @Override
+          public void done(Operation op, CachedData data,
+              OperationStatus status) {
+            // Only the bulk operations set the status of the future.
+            if (data != null) {
+              m.put(key, tcService.decodeLater(tc, data));
+            }
+            cb.complete();
+          }
+        };
+        if (coalescer.join(key, w) != null) {
+          joined = true;
+          continue;
+        }
+        pendingChunks.decrementAndGet();
+      }
+      tcMap.put(key, tc);
+      addToChunk(chunks, locator, key);
+    }
+    pendingChunks.addAndGet(chunks.size());
+    if (chunks.isEmpty() && (joined || !m.isEmpty())) {
+      rv.setStatus(NEAR_CACHE_HIT);
+    }
+
     // Now that we know how many servers it breaks down into, and the latch
     // is all set up, convert all of these strings collections to operations
     final Map<MemcachedNode, Operation> mops =
@@ -1610,9 +2171,281 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     assert mops.size() == chunks.size();
     mconn.checkState();
     mconn.addOperations(mops);
+    cb.complete();
     return rv;
   }
 
+  /**
+   * Validate the given key and add it to the chunk of the node it should be
+   * sent to, falling back to the first active node of its sequence when the
+   * primary node is down.
+   */
+  private void addToChunk(Map<MemcachedNode, Collection<String>> chunks,
+      NodeLocator locator, String key) {
+    StringUtils.validateKey(key, opFact instanceof BinaryOperationFactory);
+    final MemcachedNode primaryNode = locator.getPrimary(key);
+    MemcachedNode node = null;
+    if (primaryNode.isActive()) {
+      node = primaryNode;
+    } else {
+      for (Iterator<MemcachedNode> i = locator.getSequence(key); node == null
+          && i.hasNext();) {
+        MemcachedNode n = i.next();
+        if (n.isActive()) {
+          node = n;
+        }
+      }
+      if (node == null) {
+        node = primaryNode;
+      }
+    }
+    assert node != null : "Didn't find a node for " + key;
+    Collection<String> ks = chunks.get(node);
+    if (ks == null) {
+      ks = new ArrayList<String>();
+      chunks.put(node, ks);
+    }
+    ks.add(key);
+  }
+
+  /**
+   * Creates the operation mutating one chunk of keys of a bulk mutation.
+   */
+  private interface BulkMutationFactory {
+    Operation create(BulkMutationOperationFactory of, Collection<String> keys,
+        BulkMutationOperation.Callback cb);
+  }
+
+  /**
+   * Break the given keys down by node and send one pipelined mutation to each
+   * node.
+   *
+   * The resulting map holds the status of every key. The status of the
+   * future is the first failure reported for any key, or success if every
+   * key was mutated.
+   */
+  private BulkFuture<Map<String, OperationStatus>> asyncBulkMutation(
+      Collection<String> keys, BulkMutationFactory factory) {
+    if (!(opFact instanceof BulkMutationOperationFactory)) {
+      throw new UnsupportedOperationException("Bulk mutations are not "
+          + "supported by " + opFact.getClass().getSimpleName());
+    }
+    BulkMutationOperationFactory of = (BulkMutationOperationFactory) opFact;
+    final Map<MemcachedNode, Collection<String>> chunks =
+        new HashMap<MemcachedNode, Collection<String>>();
+    final NodeLocator locator = mconn.getLocator();
+    Collection<String> uniqueKeys = new LinkedHashSet<String>(keys);
+    for (String key : uniqueKeys) {
+      addToChunk(chunks, locator, key);
+      if (nearCache != null) {
+        nearCache.invalidate(key);
+      }
+    }
+
+    final ConcurrentMap<String, Future<OperationStatus>> m =
+        new ConcurrentHashMap<String, Future<OperationStatus>>();
+    final AtomicInteger pendingKeys = new AtomicInteger(uniqueKeys.size());
+    final AtomicReference<OperationStatus> failure =
+        new AtomicReference<OperationStatus>();
+    int initialLatchCount = uniqueKeys.isEmpty() ? 0 : 1;
+    final CountDownLatch latch = new CountDownLatch(initialLatchCount);
+    final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
+    final BulkGetFuture<OperationStatus> rv =
+        new BulkGetFuture<OperationStatus>(m, ops, latch, executorService);
+
+    BulkMutationOperation.Callback cb = new BulkMutationOperation.Callback() {
+      @Override
+      public void gotStatus(String key, OperationStatus status) {
+        // A key may be reported again after its operation was redistributed.
+        if (m.putIfAbsent(key, new CompletedFuture<OperationStatus>(status))
+            != null) {
+          return;
+        }
+        if (!status.isSuccess()) {
+          failure.compareAndSet(null, status);
+        }
+        if (pendingKeys.decrementAndGet() == 0) {
+          OperationStatus failed = failure.get();
+          rv.setStatus(failed == null
+              ? new OperationStatus(true, "OK", StatusCode.SUCCESS) : failed);
+          latch.countDown();
+          rv.signalComplete();
+        }
+      }
+
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        // The status of the future is derived from the status of each key.
+      }
+
+      @Override
+      public void complete() {
+        // Done once every key has a status.
+      }
+    };
+
+    final Map<MemcachedNode, Operation> mops =
+        new HashMap<MemcachedNode, Operation>();
+    for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
+      Operation op = factory.create(of, me.getValue(), cb);
+      mops.put(me.getKey(), op);
+      ops.add(op);
+    }
+    mconn.checkState();
+    mconn.addOperations(mops);
+    if (coalescer != null) {
+      for (String key : uniqueKeys) {
+        coalescer.invalidate(key);
+      }
+    }
+    return rv;
+  }
+
+  private <T> BulkFuture<Map<String, OperationStatus>> asyncStoreBulk(
+      final StoreType storeType, Map<String, ? extends T> values,
+      final int exp, Transcoder<T> tc) {
+    final Map<String, CachedData> encoded =
+        new HashMap<String, CachedData>(values.size());
+    for (Map.Entry<String, ? extends T> me : values.entrySet()) {
+      CachedData co = tc.encode(me.getValue());
+      encoded.put(me.getKey(), co);
+    }
+    return asyncBulkMutation(values.keySet(), new BulkMutationFactory() {
+      @Override
+      public Operation create(BulkMutationOperationFactory of,
+          Collection<String> keys, BulkMutationOperation.Callback cb) {
+        Map<String, CachedData> chunk =
+            new HashMap<String, CachedData>(keys.size());
+        for (String k : keys) {
+          chunk.put(k, encoded.get(k));
+        }
+        return of.storeBulk(storeType, chunk, exp, cb);
+      }
+    });
+  }
+
+  /**
+   * Set many objects in the cache, pipelining one request per key to each
+   * server.
+   *
+   * <p>
+   * Only the binary protocol supports bulk mutations. Every key is sent as a
+   * quiet set, so a server only answers for the keys it failed to store.
+   * </p>
+   *
+   * @param <T>
+   * @param values the objects to store by key
+   * @param exp the expiration of the objects
+   * @param tc the transcoder to serialize the values
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   */
+  public <T> BulkFuture<Map<String, OperationStatus>> setBulk(
+      Map<String, T> values, int exp, Transcoder<T> tc) {
+    return asyncStoreBulk(StoreType.set, values, exp, tc);
+  }
+
+  /**
+   * Set many objects in the cache using the default transcoder.
+   *
+   * @param values the objects to store by key
+   * @param exp the expiration of the objects
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   * @see #setBulk(Map, int, Transcoder)
+   */
+  public BulkFuture<Map<String, OperationStatus>> setBulk(
+      Map<String, ?> values, int exp) {
+    return asyncStoreBulk(StoreType.set, values, exp, transcoder);
+  }
+
+  /**
+   * Add many objects to the cache, pipelining one request per key to each
+   * server. Keys that already exist are reported as failed.
+   *
+   * @param <T>
+   * @param values the objects to store by key
+   * @param exp the expiration of the objects
+   * @param tc the transcoder to serialize the values
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   */
+  public <T> BulkFuture<Map<String, OperationStatus>> addBulk(
+      Map<String, T> values, int exp, Transcoder<T> tc) {
+    return asyncStoreBulk(StoreType.add, values, exp, tc);
+  }
+
+  /**
+   * Add many objects to the cache using the default transcoder.
+   *
+   * @param values the objects to store by key
+   * @param exp the expiration of the objects
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   * @see #addBulk(Map, int, Transcoder)
+   */
+  public BulkFuture<Map<String, OperationStatus>> addBulk(
+      Map<String, ?> values, int exp) {
+    return asyncStoreBulk(StoreType.add, values, exp, transcoder);
+  }
+
+  /**
+   * Delete many keys from the cache, pipelining one quiet delete per key to
+   * each server.
+   *
+   * @param keys the keys to delete
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   */
+  public BulkFuture<Map<String, OperationStatus>> deleteBulk(
+      Collection<String> keys) {
+    return asyncBulkMutation(keys, new BulkMutationFactory() {
+      @Override
+      public Operation create(BulkMutationOperationFactory of,
+          Collection<String> ks, BulkMutationOperation.Callback cb) {
+        return of.deleteBulk(ks, cb);
+      }
+    });
+  }
+
+  /**
+   * Reset the expiration of many keys, pipelining one touch per key to each
+   * server.
+   *
+   * @param keys the keys to touch
+   * @param exp the new expiration of the keys
+   * @return a future holding the status of every key
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException if the operation factory does not
+   *           support bulk mutations, as with the ASCII protocol
+   */
+  public BulkFuture<Map<String, OperationStatus>> touchBulk(
+      Collection<String> keys, final int exp) {
+    return asyncBulkMutation(keys, new BulkMutationFactory() {
+      @Override
+      public Operation create(BulkMutationOperationFactory of,
+          Collection<String> ks, BulkMutationOperation.Callback cb) {
+        return of.touchBulk(ks, exp, cb);
+      }
+    });
+  }
+
   /**
    * Asynchronously get a bunch of objects from the cache.
    *
@@ -1902,6 +2735,21 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     checkState();
     mconn.enqueueOperation(key, op);
   }
+
+  /**
+   * Enqueue an operation mutating the given key, dropping the key from the
+   * near cache first. Once it is enqueued, later gets of the key no longer
+   * join gets in flight, which may have been sent before it.
+   */
+  private void enqueueMutation(String key, Operation op) {
+    if (nearCache != null) {
+      nearCache.invalidate(key);
+    }
+    enqueueOperation(key, op);
+    if (coalescer != null) {
+      coalescer.invalidate(key);
+    }
+  }
   
   private void checkState() {
     if (clientMode == ClientMode.Dynamic && !isConfigurationInitialized) {
@@ -2167,11 +3015,25 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     }
     return rv;
   }
+  /**
+   * Get the hottest keys of every server, hottest first.
+   *
+   * Hot keys are only tracked when a hot key sampling interval was set on
+   * the connection factory. Rates are estimated from the keys sampled since
+   * the start of the current window.
+   *
+   * @return the hot keys by server, empty if hot key tracking is disabled
+   * @see ConnectionFactoryBuilder#setHotKeySamplingInterval(int)
+   */
+  public Map<SocketAddress, List<HotKey>> getHotKeys() {
+    return mconn.getHotKeys();
+  }
+
 
   private long mutate(Mutator m, String key, long by, long def, int exp) {
     final AtomicLong rv = new AtomicLong();
     final CountDownLatch latch = new CountDownLatch(1);
-    enqueueOperation(key, opFact.mutate(m, key, by, def, exp,
+    enqueueMutation(key, opFact.mutate(m, key, by, def, exp,
         new OperationCallback() {
         @Override
         public void receivedStatus(OperationStatus s) {
@@ -2422,7 +3284,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
             rv.signalComplete();
           }
         });
-    enqueueOperation(key, op);
+    enqueueMutation(key, op);
     rv.setOperation(op);
     return rv;
   }
@@ -2757,7 +3619,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     }
 
     rv.setOperation(op);
-    enqueueOperation(key, op);
+    enqueueMutation(key, op);
     return rv;
   }
 
@@ -2771,6 +3633,9 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
    */
   @Override
   public OperationFuture<Boolean> flush(final int delay) {
+    if (nearCache != null) {
+      nearCache.clear();
+    }
     final AtomicReference<Boolean> flushResult =
         new AtomicReference<Boolean>(null);
     final ConcurrentLinkedQueue<Operation> ops =
@@ -2794,6 +3659,9 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
         return op;
       }
     });
+    if (coalescer != null) {
+      coalescer.clear();
+    }
 
     return new OperationFuture<Boolean>(null, blatch, flushResult,
         operationTimeout, executorService) {
@@ -42,8 +42,13 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.SASLAuthOperation;
+import net.spy.memcached.ops.SASLMechsOperation;
+import net.spy.memcached.ops.SASLStepOperation;
 import net.spy.memcached.ops.TapOperation;
 import net.spy.memcached.ops.VBucketAware;
+import net.spy.memcached.protocol.BaseOperationImpl;
+import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.protocol.binary.MultiGetOperationImpl;
 import net.spy.memcached.protocol.binary.TapAckOperationImpl;
@@ -69,17 +74,26 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -160,6 +174,10 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     "[MEM] Response Rate: Failure";
   private static final String OVERALL_RESPONSE_SUCC_METRIC =
     "[MEM] Response Rate: Success";
+  private static final String NODE_OUTSTANDING_OPS_METRIC =
+    "[MEM] Outstanding Ops: ";
+  private static final String NODE_REJECTED_METRIC =
+    "[MEM] Rejection Rate: ";
 
   /**
    * If the connection is alread shut down or shutting down.
@@ -173,9 +191,32 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
   /**
    * Holds the current {@link Selector} to use.
+   *
+   * When more than one selector thread is configured, this is the
+   * {@link Selector} driven by the connection thread itself.
    */
   protected Selector selector = null;
 
+  /**
+   * All selector shards, the first one is always driven by this thread.
+   */
+  private final SelectorShard[] shards;
+
+  /**
+   * The {@link SelectorShard} driven by the connection thread.
+   */
+  private final SelectorShard mainShard;
+
+  /**
+   * Maps each node to the {@link SelectorShard} that owns its channel.
+   */
+  private final ConcurrentMap<MemcachedNode, SelectorShard> nodeShards;
+
+  /**
+   * The threads driving all but the first selector shard.
+   */
+  private final List<SelectorThread> selectorThreads;
+
   /**
    * The {@link NodeLocator} to use for this connection.
    */
@@ -191,12 +232,6 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private final long maxDelay;
 
-  /**
-   * Contains the current number of empty select() calls, which could indicate
-   * bugs.
-   */
-  private int emptySelects = 0;
-
   /**
    * The buffer size that will be used when reading from the server.
    */
@@ -210,15 +245,12 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   /**
    * AddedQueue is used to track the QueueAttachments for which operations
    * have recently been queued.
+   *
+   * When more than one selector thread is configured, this is the queue of
+   * the shard driven by the connection thread itself.
    */
   protected final ConcurrentLinkedQueue<MemcachedNode> addedQueue;
 
-  /**
-   * reconnectQueue contains the attachments that need to be reconnected.
-   * The key is the time at which they are eligible for reconnect.
-   */
-  private final SortedMap<Long, MemcachedNode> reconnectQueue;
-
   /**
    * True if not shutting down or shut down.
    */
@@ -301,11 +333,50 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private final boolean isTlsMode;
 
+  /**
+   * The number of threads running the delegated tasks of TLS handshakes.
+   */
+  private static final int TLS_HANDSHAKE_THREADS = 2;
+
+  /**
+   * Runs the delegated tasks of TLS handshakes, apart from the callbacks of
+   * the listener executor; null unless this connection is TLS enabled.
+   */
+  private final ThreadPoolExecutor tlsHandshakeExecutor;
+
   /**
    * Optionally bound the retry queue if set via system property.
    */
   private final int retryQueueSize;
 
+  /**
+   * Samples enqueued keys to find hot keys, or null if disabled.
+   */
+  private final HotKeyTracker hotKeys;
+
+  /**
+   * Records the latencies of completed operations, if metrics are collected.
+   */
+  private final LatencyTracker latencies;
+
+  /**
+   * Publishes the latencies at the end of every window, off the IO threads,
+   * or null if latencies are not recorded.
+   */
+  private final ScheduledThreadPoolExecutor latencyPublisher;
+
+  /**
+   * Times out operations at their deadline, unless operations never time out.
+   */
+  private final TimingWheel timeouts;
+
+  /**
+   * The limits of each node, 0 for no limit.
+   */
+  private final int maxNodeOutstandingOps;
+  private final long maxNodeQueuedBytes;
+  private final boolean rejectOverloadedOps;
+
   /**
    * Construct a {@link MemcachedConnection}.
    *
@@ -321,14 +392,26 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       final List<InetSocketAddress> socketAddressList, final Collection<ConnectionObserver> obs,
       final FailureMode fm, final OperationFactory opfactory) throws IOException {
     connObservers.addAll(obs);
-    reconnectQueue = new TreeMap<Long, MemcachedNode>();
-    addedQueue = new ConcurrentLinkedQueue<MemcachedNode>();
     failureMode = fm;
     shouldOptimize = f.shouldOptimize();
     maxDelay = TimeUnit.SECONDS.toMillis(f.getMaxReconnectDelay());
     opFact = opfactory;
     timeoutExceptionThreshold = f.getTimeoutExceptionThreshold();
-    selector = Selector.open();
+    FactorySettings settings = FactorySettings.of(f);
+    if (!settings.isCarriedByFactory()) {
+      getLogger().info("%s does not extend DefaultConnectionFactory, using "
+          + "the default selector threads, buffers and node limits",
+          f.getClass().getName());
+    }
+    shards = new SelectorShard[Math.max(1,
+        settings.getSelectorThreadCount())];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new SelectorShard(i);
+    }
+    mainShard = shards[0];
+    selector = mainShard.selector;
+    addedQueue = mainShard.addedQueue;
+    nodeShards = new ConcurrentHashMap<MemcachedNode, SelectorShard>();
     retryOps = Collections.synchronizedList(new ArrayList<Operation>());
     lockForNodeUpdates = new ReentrantLock();
     conditionLock = new ReentrantLock();
@@ -344,8 +427,53 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     metricType = f.enableMetrics();
 
     registerMetrics();
+    latencies = metricType.equals(MetricType.DEBUG)
+        || metricType.equals(MetricType.PERFORMANCE)
+        ? new LatencyTracker(metrics)
+        : null;
+    if (latencies != null) {
+      final boolean daemon = f.isDaemon();
+      latencyPublisher = new ScheduledThreadPoolExecutor(1,
+          new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+              Thread t = new Thread(r, getName() + " (latencies)");
+              t.setDaemon(daemon);
+              return t;
+            }
+          });
+    } else {
+      latencyPublisher = null;
+    }
+    hotKeys = settings.getHotKeySamplingInterval() > 0
+        ? new HotKeyTracker(settings.getHotKeySamplingInterval(),
+            HotKeyTracker.DEFAULT_WINDOW, metrics)
+        : null;
+
+    maxNodeOutstandingOps = settings.getMaxNodeOutstandingOps();
+    maxNodeQueuedBytes = settings.getMaxNodeQueuedBytes();
+    rejectOverloadedOps = settings.shouldRejectOverloadedOps();
+
+    timeouts = f.getOperationTimeout() > 0
+        ? new TimingWheel(f.getOperationTimeout(), TimingWheel.DEFAULT_TICK,
+            TimingWheel.DEFAULT_SIZE)
+        : null;
 
     isTlsMode = f.getSSLContext() != null;
+    if (isTlsMode) {
+      final boolean daemon = f.isDaemon();
+      tlsHandshakeExecutor = new ThreadPoolExecutor(TLS_HANDSHAKE_THREADS,
+          TLS_HANDSHAKE_THREADS, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+              Thread t = new Thread(r, getName() + " (TLS handshake)");
+              t.setDaemon(daemon);
+              return t;
+            }
+          });
+      tlsHandshakeExecutor.allowCoreThreadTimeOut(true);
+    } else {
+      tlsHandshakeExecutor = null;
+    }
 
     String verifyAlive = System.getProperty("net.spy.verifyAliveOnConnect");
     if(verifyAlive != null && verifyAlive.equals("true")) {
@@ -376,7 +504,40 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
     setName("Memcached IO over " + this);
     setDaemon(f.isDaemon());
+
+    selectorThreads = new ArrayList<SelectorThread>(shards.length - 1);
+    for (int i = 1; i < shards.length; i++) {
+      SelectorThread t = new SelectorThread(shards[i]);
+      t.setName(getName() + " (selector " + i + ")");
+      t.setDaemon(f.isDaemon());
+      selectorThreads.add(t);
+    }
+
+    mainShard.owner = this;
+    for (SelectorThread t : selectorThreads) {
+      t.shard.owner = t;
+    }
     start();
+    for (SelectorThread t : selectorThreads) {
+      t.start();
+    }
+    if (timeouts != null) {
+      timeouts.setName(getName() + " (timeouts)");
+      timeouts.setDaemon(true);
+      timeouts.start();
+    }
+    if (latencyPublisher != null) {
+      latencyPublisher.scheduleAtFixedRate(new Runnable() {
+        public void run() {
+          try {
+            latencies.publish();
+          } catch (RuntimeException e) {
+            getLogger().warn("Problem publishing latencies", e);
+          }
+        }
+      }, LatencyTracker.DEFAULT_WINDOW, LatencyTracker.DEFAULT_WINDOW,
+          TimeUnit.NANOSECONDS);
+    }
   }
 
   public void waitForInitialConfigApplied() {
@@ -469,32 +630,28 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           this.connectionFactory.createMemcachedNode(sa, ch, bufSize);
 
       qa.setNodeEndPoint(endPoint);
-      int ops = 0;
+      final SelectorShard shard = assignShard(qa);
 
       Socket socket = ch.socket();
       socket.setTcpNoDelay(!connectionFactory.useNagleAlgorithm());
       socket.setKeepAlive(connectionFactory.getKeepAlive());
 
-      try {
-        if (ch.connect(sa)) {
-          getLogger().info("Connected to %s immediately", qa);
-          connected(qa);
-        } else {
-          getLogger().info("Added %s to connect queue", qa);
-          ops = SelectionKey.OP_CONNECT;
-        }
-
-        selector.wakeup();
-        qa.setSk(ch.register(selector, ops, qa));
-        assert ch.isConnected()
-            || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
-            : "Not connected, and not wanting to connect";
-      } catch (SocketException e) {
-        getLogger().warn("Socket error on initial connect", e);
-        queueReconnect(qa);
-      } catch (UnresolvedAddressException e) {
-        getLogger().warn("Unresolved Address error on initial connect", e);
-        queueReconnect(qa);
+      if (shard.isOwnedByCurrentThread()) {
+        initialConnect(shard, qa, ch, sa);
+      } else {
+        final MemcachedNode node = qa;
+        final SocketChannel channel = ch;
+        final SocketAddress address = sa;
+        shard.execute(new ShardTask() {
+          public void run() {
+            try {
+              initialConnect(shard, node, channel, address);
+            } catch (IOException e) {
+              getLogger().warn("Error on initial connect", e);
+              queueReconnect(node);
+            }
+          }
+        });
       }
       connections.add(qa);
     }
@@ -502,13 +659,113 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     return connections;
   }
 
+  /**
+   * Connect the channel of a newly created node and register it with the
+   * selector of its shard.
+   *
+   * This must run on the thread owning the shard, since registering with a
+   * selector blocks while another thread is selecting on it.
+   *
+   * @param shard the shard owning the node.
+   * @param qa the node to connect.
+   * @param ch the channel of the node.
+   * @param sa the address to connect to.
+   * @throws IOException if the channel could not be connected or registered.
+   */
+  private void initialConnect(final SelectorShard shard,
+      final MemcachedNode qa, final SocketChannel ch, final SocketAddress sa)
+    throws IOException {
+    int ops = 0;
+    try {
+      if (ch.connect(sa)) {
+        getLogger().info("Connected to %s immediately", qa);
+        connected(qa);
+      } else {
+        getLogger().info("Added %s to connect queue", qa);
+        ops = SelectionKey.OP_CONNECT;
+      }
+
+      qa.setSk(ch.register(shard.selector, ops, qa));
+      assert ch.isConnected()
+          || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
+          : "Not connected, and not wanting to connect";
+    } catch (SocketException e) {
+      getLogger().warn("Socket error on initial connect", e);
+      queueReconnect(qa);
+    } catch (UnresolvedAddressException e) {
+      getLogger().warn("Unresolved Address error on initial connect", e);
+      queueReconnect(qa);
+    }
+  }
+
+  /**
+   * Assign a newly created node to the least loaded {@link SelectorShard}.
+   *
+   * @param node the node to assign.
+   * @return the shard that now owns the node.
+   */
+  private SelectorShard assignShard(final MemcachedNode node) {
+    SelectorShard target = mainShard;
+    for (SelectorShard shard : shards) {
+      if (shard.nodeCount.get() < target.nodeCount.get()) {
+        target = shard;
+      }
+    }
+    target.nodeCount.incrementAndGet();
+    nodeShards.put(node, target);
+    if (metricType.equals(MetricType.DEBUG)
+      || metricType.equals(MetricType.PERFORMANCE)) {
+      metrics.addHistogram(NODE_OUTSTANDING_OPS_METRIC
+          + node.getSocketAddress());
+      metrics.addMeter(NODE_REJECTED_METRIC + node.getSocketAddress());
+    }
+    return target;
+  }
+
+  /**
+   * Release the {@link SelectorShard} assignment of a node that left the
+   * cluster.
+   *
+   * @param node the node to release.
+   */
+  private void releaseShard(final MemcachedNode node) {
+    SelectorShard shard = nodeShards.remove(node);
+    if (shard != null) {
+      shard.nodeCount.decrementAndGet();
+    }
+    metrics.removeHistogram(NODE_OUTSTANDING_OPS_METRIC
+        + node.getSocketAddress());
+    metrics.removeMeter(NODE_REJECTED_METRIC + node.getSocketAddress());
+  }
+
+  /**
+   * Returns the {@link SelectorShard} owning the given node.
+   *
+   * Nodes that have not been created through this connection are handled
+   * by the connection thread.
+   *
+   * @param node the node to look up.
+   * @return the owning shard.
+   */
+  private SelectorShard shardFor(final MemcachedNode node) {
+    if (shards.length == 1) {
+      return mainShard;
+    }
+    SelectorShard shard = nodeShards.get(node);
+    return shard == null ? mainShard : shard;
+  }
+
   /**
    * Make sure that the current selectors make sense.
    *
+   * @param shard the shard whose nodes should be checked.
    * @return true if they do.
    */
-  private boolean selectorsMakeSense() {
+  private boolean selectorsMakeSense(final SelectorShard shard) {
     for (MemcachedNode qa : locator.getAll()) {
+      if (shardFor(qa) != shard) {
+        continue;
+      }
       if (qa.getSk() != null && qa.getSk().isValid()) {
         if (qa.getChannel().isConnected()) {
           int sops = qa.getSk().interestOps();
@@ -547,39 +804,80 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       return;
     }
 
-    handleInputQueue();
+    if (handleSelectorIO(mainShard)) {
+      handleOperationalTasks();
+    }
+  }
+
+  /**
+   * Select on the {@link Selector} of the given shard and dispatch the
+   * underlying read/write calls for all of its nodes.
+   *
+   * @param shard the shard to handle IO for.
+   * @return false if the connection was shut down while selecting.
+   * @throws IOException if an error happens during selection.
+   */
+  private boolean handleSelectorIO(final SelectorShard shard)
+    throws IOException {
+    runShardTasks(shard);
+    if (isTlsMode) {
+      handleTlsHandshakes(shard);
+    }
+    // Nodes queued before this point are handled below, the ones queued
+    // later wake the selector up again.
+    shard.wakeupPending.set(false);
+    handleInputQueue(shard);
     getLogger().debug("Done dealing with queue.");
 
     long delay = wakeupDelay;
-    if (!reconnectQueue.isEmpty()) {
+    if (!shard.reconnectQueue.isEmpty()) {
       long now = System.currentTimeMillis();
-      long then = reconnectQueue.firstKey();
+      long then = shard.reconnectQueue.firstKey();
       delay = Math.max(then - now, 1);
     }
     getLogger().debug("Selecting with delay of %sms", delay);
-    assert selectorsMakeSense() : "Selectors don't make sense.";
-    int selected = selector.select(delay);
+    assert selectorsMakeSense(shard) : "Selectors don't make sense.";
+    Selector sel = shard.selector;
+    int selected = sel.select(delay);
 
     if (shutDown) {
-      return;
-    } else if (selected == 0 && addedQueue.isEmpty()) {
+      return false;
+    } else if (selected == 0 && shard.addedQueue.isEmpty()) {
       handleWokenUpSelector();
-    } else if (selector.selectedKeys().isEmpty()) {
-      handleEmptySelects();
+    } else if (sel.selectedKeys().isEmpty()) {
+      handleEmptySelects(shard);
     } else {
       getLogger().debug("Selected %d, selected %d keys", selected,
-        selector.selectedKeys().size());
-      emptySelects = 0;
+        sel.selectedKeys().size());
+      shard.emptySelects = 0;
 
-      Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+      Iterator<SelectionKey> iterator = sel.selectedKeys().iterator();
       while(iterator.hasNext()) {
         SelectionKey sk = iterator.next();
         handleIO(sk);
         iterator.remove();
       }
     }
+    return true;
+  }
 
-    handleOperationalTasks();
+  /**
+   * Run the tasks other threads have handed to the given shard.
+   *
+   * Registering, closing and reconnecting channels all run here, on the
+   * thread owning the shard, so they never race with its select calls.
+   *
+   * @param shard the shard whose tasks should be run.
+   */
+  private void runShardTasks(final SelectorShard shard) {
+    ShardTask task;
+    while ((task = shard.tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (IOException e) {
+        logRunException(e);
+      }
+    }
   }
 
   /**
@@ -607,30 +905,36 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * @throws IOException if an error happens during shutdown queue handling.
    */
   private void handleOperationalTasks() throws IOException {
-    checkPotentiallyTimedOutConnection();
+    updateNodeList();
+    checkPotentiallyTimedOutConnection(mainShard);
 
-    if (!shutDown && !reconnectQueue.isEmpty()) {
-      attemptReconnects();
+    if (!shutDown && !mainShard.reconnectQueue.isEmpty()) {
+      attemptReconnects(mainShard);
     }
 
     if (!retryOps.isEmpty()) {
-      ArrayList<Operation> operations = new ArrayList<Operation>(retryOps);
-      retryOps.clear();
+      ArrayList<Operation> operations;
+      synchronized (retryOps) {
+        operations = new ArrayList<Operation>(retryOps);
+        retryOps.clear();
+      }
       redistributeOperations(operations);
     }
 
-    handleShutdownQueue();
+    handleShutdownQueue(mainShard);
   }
 
   /**
    * Helper method for {@link #handleIO()} to handle empty select calls.
+   *
+   * @param shard the shard whose selector returned no keys.
    */
-  private void handleEmptySelects() {
+  private void handleEmptySelects(final SelectorShard shard) {
     getLogger().debug("No selectors ready, interrupted: %b",
       Thread.interrupted());
 
-    if (++emptySelects > DOUBLE_CHECK_EMPTY) {
-      for (SelectionKey sk : selector.keys()) {
+    if (++shard.emptySelects > DOUBLE_CHECK_EMPTY) {
+      for (SelectionKey sk : shard.selector.keys()) {
         getLogger().debug("%s has %s, interested in %s", sk, sk.readyOps(),
           sk.interestOps());
         if (sk.readyOps() != 0) {
@@ -640,19 +944,22 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           lostConnection((MemcachedNode) sk.attachment());
         }
       }
-      assert emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
+      assert shard.emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
     }
   }
 
   /**
-   * Check if nodes need to be shut down and do so if needed.
+   * Check if nodes owned by the given shard need to be shut down and do so
+   * if needed.
    *
+   * @param shard the shard whose nodes should be checked.
    * @throws IOException if the channel could not be closed properly.
    */
-  private void handleShutdownQueue() throws IOException {
+  private void handleShutdownQueue(final SelectorShard shard)
+    throws IOException {
     for (MemcachedNode qa : nodesToShutdown) {
-      if (!addedQueue.contains(qa)) {
-        nodesToShutdown.remove(qa);
+      if (shardFor(qa) == shard && !shard.addedQueue.contains(qa)
+          && nodesToShutdown.remove(qa)) {
         metrics.decrementCounter(SHUTD_QUEUE_METRIC);
         Collection<Operation> notCompletedOperations = shutdownNode(qa);
         redistributeOperations(notCompletedOperations);
@@ -662,14 +969,15 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
   /**
    * Check if one or more nodes exceeded the timeout Threshold.
+   *
+   * @param shard the shard whose nodes should be checked.
    */
-  private void checkPotentiallyTimedOutConnection() {
-    updateNodeList();
+  private void checkPotentiallyTimedOutConnection(final SelectorShard shard) {
     Collection<MemcachedNode> nodes = locator.getAll();
     boolean stillCheckingTimeouts = true;
     while (stillCheckingTimeouts) {
       try {
-        for (SelectionKey sk : selector.keys()) {
+        for (SelectionKey sk : shard.selector.keys()) {
           MemcachedNode mn = (MemcachedNode) sk.attachment();
           if(nodes.contains(mn)){
             if (mn.getContinuousTimeout() > timeoutExceptionThreshold) {
@@ -721,8 +1029,14 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
                ||
                (endPointFromCurrentNode.getIpAddress() == null  && newEndPoint.getIpAddress() != null)
               ){
+              if (hotKeys != null) {
+                hotKeys.removeNode(currentNode.getSocketAddress());
+              }
+              if (latencies != null) {
+                latencies.removeNode(currentNode.getSocketAddress());
+              }
               currentNode.setNodeEndPoint(newEndPoint);
-              queueReconnect(currentNode);
+              reconnectOnShard(currentNode);
             }
             
             newNodes.add(currentNode);
@@ -741,18 +1055,20 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         }
       }
       
+      // Publish the new ring before the removed nodes go away, so that
+      // neither new requests nor the redistributed ones get routed to them.
+      locator.updateLocator(newNodes);
+
       //currentNodes list is left with the nodes to delete after finishing the above matching process.
-      if(currentNodes.size() > 0){
-        Collection<Operation> opsToRequeue = new ArrayList<Operation>();
-        for(MemcachedNode qa : currentNodes){
-          Collection<Operation> pendingOps = shutdownNode(qa);
-          opsToRequeue.addAll(pendingOps);
+      for(MemcachedNode qa : currentNodes){
+        if (hotKeys != null) {
+          hotKeys.removeNode(qa.getSocketAddress());
+        }
+        if (latencies != null) {
+          latencies.removeNode(qa.getSocketAddress());
         }
-        redistributeOperations(opsToRequeue);
-        opsToRequeue.clear();
+        removeOnShard(qa);
       }
-      
-      locator.updateLocator(newNodes);
 
     }catch(Exception e){
       getLogger().error("Error encountered while updating the node list. Adding back to endpoint list for reattempt.", e);
@@ -778,6 +1094,56 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
   }
   
+  /**
+   * Reconnect the given node on the thread of the shard owning it.
+   *
+   * @param node the node to reconnect.
+   */
+  private void reconnectOnShard(final MemcachedNode node) {
+    SelectorShard shard = shardFor(node);
+    if (shard.isOwnedByCurrentThread()) {
+      queueReconnect(node);
+    } else {
+      shard.execute(new ShardTask() {
+        public void run() {
+          queueReconnect(node);
+        }
+      });
+    }
+  }
+
+  /**
+   * Shut a node that left the cluster down on the thread of the shard owning
+   * it, and redistribute its pending operations.
+   *
+   * The buffers of the node are released on the same thread once its
+   * channel is closed, so they can no longer be in use.
+   *
+   * @param node the node to remove.
+   * @throws IOException if the channel could not be closed properly.
+   */
+  private void removeOnShard(final MemcachedNode node) throws IOException {
+    ShardTask removal = new ShardTask() {
+      public void run() throws IOException {
+        try {
+          redistributeOperations(shutdownNode(node));
+        } finally {
+          releaseShard(node);
+          TCPMemcachedNodeImpl tcpNode = tcpNode(node);
+          if (tcpNode != null) {
+            tcpNode.releaseBuffers();
+          }
+        }
+      }
+    };
+    SelectorShard shard = shardFor(node);
+    if (shard.isOwnedByCurrentThread()) {
+      removal.run();
+    } else {
+      shard.execute(removal);
+    }
+  }
+
   private Collection<Operation> shutdownNode(MemcachedNode node) throws IOException{
     Collection<Operation> notCompletedOperations = node.destroyInputQueue();
     if (node.getChannel() != null) {
@@ -795,8 +1161,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
   /**
    * Handle any requests that have been made against the client.
+   *
+   * @param shard the shard whose queued nodes should be handled.
    */
-  private void handleInputQueue() {
+  private void handleInputQueue(final SelectorShard shard) {
+    ConcurrentLinkedQueue<MemcachedNode> addedQueue = shard.addedQueue;
     if (!addedQueue.isEmpty()) {
       getLogger().debug("Handling queue");
       Collection<MemcachedNode> toAdd = new HashSet<MemcachedNode>();
@@ -823,6 +1192,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           toAdd.add(node);
         }
         node.copyInputQueue();
+        if (metricType.equals(MetricType.DEBUG)
+          || metricType.equals(MetricType.PERFORMANCE)) {
+          metrics.updateHistogram(NODE_OUTSTANDING_OPS_METRIC
+              + node.getSocketAddress(), outstandingOps(node));
+        }
         if (readyForIO) {
           try {
             if (node.getWbuf().hasRemaining()) {
@@ -930,6 +1304,8 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         } else {
           assert !channel.isConnected() : "connected";
         }
+      } else if (isTlsHandshaking(node)) {
+        continueTlsHandshake(node);
       } else {
         handleReadsAndWrites(sk, node);
       }
@@ -980,16 +1356,133 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * @param node the actual node.
    * @throws IOException if something goes wrong during reading/writing.
    */
+  @SuppressWarnings("deprecation")
   private void finishConnect(final SelectionKey sk, final MemcachedNode node)
     throws IOException {
     // After the socket channel is connected, we need to do TLS handshake for TLS connection before verifying the connection is alive.
     if (isTlsMode){
-      boolean isHandShakeSuccess = node.doTlsHandshake(connectionFactory.getOperationTimeout());
-      if (!isHandShakeSuccess){
-        throw new RuntimeException("The TLS connection can't be established due to TLS handshake failure.");
+      TCPMemcachedNodeImpl tcpNode = tcpNode(node);
+      if (tcpNode == null) {
+        // Only TCP nodes can hand shake without blocking.
+        if (!node.doTlsHandshake(connectionFactory.getOperationTimeout())) {
+          throw new RuntimeException("The TLS connection can't be established due to TLS handshake failure.");
+        }
+        completeConnect(sk, node);
+        return;
       }
+      tcpNode.beginTlsHandshake();
+      shardFor(node).tlsHandshakes.put(node, System.nanoTime()
+          + TimeUnit.MILLISECONDS.toNanos(connectionFactory.getOperationTimeout()));
+      continueTlsHandshake(node);
+      return;
     }
-    
+    completeConnect(sk, node);
+  }
+
+  /**
+   * Make progress on the TLS handshake of a node without blocking, and
+   * complete its connect once the handshake finished.
+   *
+   * The handshake continues when the channel of the node is ready for what
+   * it waits for, or once its delegated tasks ran on the TLS handshake
+   * executor.
+   *
+   * @param node the node doing a TLS handshake.
+   * @throws IOException if something goes wrong during reading/writing.
+   */
+  private void continueTlsHandshake(final MemcachedNode node)
+    throws IOException {
+    final SelectorShard shard = shardFor(node);
+    TLSConnectionHandler.HandshakeState state =
+      tcpNode(node).continueTlsHandshake(
+        tlsHandshakeExecutor, new Runnable() {
+          public void run() {
+            shard.tlsHandshakesReady.offer(node);
+            shard.selector.wakeup();
+          }
+        });
+    switch (state) {
+    case FINISHED:
+      shard.tlsHandshakes.remove(node);
+      completeConnect(node.getSk(), node);
+      break;
+    case FAILED:
+      shard.tlsHandshakes.remove(node);
+      throw new RuntimeException("The TLS connection can't be established due to TLS handshake failure.");
+    default:
+      node.fixupOps();
+    }
+  }
+
+  /**
+   * Check whether a non-blocking TLS handshake with the given node is going
+   * on.
+   */
+  private static boolean isTlsHandshaking(final MemcachedNode node) {
+    TCPMemcachedNodeImpl tcpNode = tcpNode(node);
+    return tcpNode != null && tcpNode.isTlsHandshaking();
+  }
+
+  /**
+   * Get the given node as a {@link TCPMemcachedNodeImpl}, or null if it is
+   * any other kind of node.
+   *
+   * Only TCP nodes count their outstanding operations and queued bytes, own
+   * buffers from an allocator and hand shake TLS without blocking, which
+   * {@link MemcachedNode} cannot grow without breaking its other
+   * implementations. Any other node has no limits, has no buffers to release
+   * and does the blocking TLS handshake.
+   */
+  private static TCPMemcachedNodeImpl tcpNode(final MemcachedNode node) {
+    return node instanceof TCPMemcachedNodeImpl
+        ? (TCPMemcachedNodeImpl) node : null;
+  }
+
+  /**
+   * Continue the TLS handshakes whose delegated tasks ran, and reconnect the
+   * nodes whose handshake did not finish in time.
+   *
+   * @param shard the shard whose handshakes should be handled.
+   */
+  private void handleTlsHandshakes(final SelectorShard shard) {
+    MemcachedNode node;
+    while ((node = shard.tlsHandshakesReady.poll()) != null) {
+      if (isTlsHandshaking(node)) {
+        try {
+          continueTlsHandshake(node);
+        } catch (Exception e) {
+          node.setupForAuth();
+          getLogger().info("Reconnecting due to exception on %s", node, e);
+          lostConnection(node);
+        }
+      }
+    }
+
+    long now = System.nanoTime();
+    Iterator<Map.Entry<MemcachedNode, Long>> i =
+        shard.tlsHandshakes.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<MemcachedNode, Long> me = i.next();
+      node = me.getKey();
+      if (!isTlsHandshaking(node)) {
+        i.remove();
+      } else if (now - me.getValue() > 0) {
+        i.remove();
+        getLogger().warn("Timeout during TLS handshake with %s", node);
+        lostConnection(node);
+      }
+    }
+  }
+
+  /**
+   * Complete the connect of a node, verifying its liveness if requested.
+   *
+   * @param sk the selection key for the node.
+   * @param node the actual node.
+   * @throws IOException if something goes wrong during reading/writing.
+   */
+  private void completeConnect(final SelectionKey sk, final MemcachedNode node)
+    throws IOException {
     if (verifyAliveOnConnect) {
       final CountDownLatch latch = new CountDownLatch(1);
       final OperationFuture<Boolean> rv = new OperationFuture<Boolean>("noop",
@@ -1008,7 +1501,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       testOp.setHandlingNode(node);
       testOp.initialize();
       checkState();
-      insertOperation(node, testOp);
+      enqueueFirst(node, testOp);
       node.copyInputQueue();
 
       boolean done = false;
@@ -1035,7 +1528,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
 
     connected(node);
-    addedQueue.offer(node);
+    shardFor(node).addedQueue.offer(node);
     if (node.getWbuf().hasRemaining()) {
       handleWrites(node);
     }
@@ -1090,10 +1583,6 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           throw new IllegalStateException("No read operation.");
         }
 
-        long timeOnWire =
-          System.nanoTime() - currentOp.getWriteCompleteTimestamp();
-        metrics.updateHistogram(OVERALL_AVG_TIME_ON_WIRE_METRIC,
-          (int)(timeOnWire / 1000));
         metrics.markMeter(OVERALL_RESPONSE_METRIC);
         if (!isTlsMode) {
           synchronized(currentOp) {
@@ -1132,7 +1621,13 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private void readBufferAndLogMetrics(final Operation currentOp,
     final ByteBuffer rbuf, final MemcachedNode node) throws IOException {
-    currentOp.readFromBuffer(rbuf);
+    if (latencies == null || !(currentOp instanceof BaseOperationImpl)) {
+      currentOp.readFromBuffer(rbuf);
+    } else {
+      long start = System.nanoTime();
+      currentOp.readFromBuffer(rbuf);
+      ((BaseOperationImpl) currentOp).addDecodeTime(System.nanoTime() - start);
+    }
     if (currentOp.getState() == OperationState.COMPLETE) {
       getLogger().debug("Completed read op: %s and giving the next %d "
         + "bytes", currentOp, rbuf.remaining());
@@ -1140,6 +1635,13 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       assert op == currentOp : "Expected to pop " + currentOp + " got "
         + op;
 
+      long now = System.nanoTime();
+      metrics.updateHistogram(OVERALL_AVG_TIME_ON_WIRE_METRIC,
+        (int) ((now - op.getWriteCompleteTimestamp()) / 1000));
+      if (latencies != null) {
+        latencies.record(node, op, now);
+      }
+
       if (op.hasErrored()) {
         metrics.markMeter(OVERALL_RESPONSE_FAIL_METRIC);
       } else {
@@ -1253,11 +1755,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     long delay = (long) Math.min(maxDelay, Math.pow(2,
         node.getReconnectCount()) * 1000);
     long reconnectTime = System.currentTimeMillis() + delay;
-    while (reconnectQueue.containsKey(reconnectTime)) {
+    ConcurrentNavigableMap<Long, MemcachedNode> reconnectQueue =
+      shardFor(node).reconnectQueue;
+    while (reconnectQueue.putIfAbsent(reconnectTime, node) != null) {
       reconnectTime++;
     }
-
-    reconnectQueue.put(reconnectTime, node);
     metrics.incrementCounter(RECON_QUEUE_METRIC);
 
     node.setupResend();
@@ -1361,8 +1863,10 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    *
    * Note that if a socket error arises during reconnect, the node is scheduled
    * for re-reconnect immediately.
+   *
+   * @param shard the shard whose reconnect queue should be processed.
    */
-  private void attemptReconnects() {
+  private void attemptReconnects(final SelectorShard shard) {
     final long now = System.currentTimeMillis();
     final Map<MemcachedNode, Boolean> seen =
       new IdentityHashMap<MemcachedNode, Boolean>();
@@ -1370,7 +1874,8 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     SocketChannel ch = null;
 
 
-    Iterator<MemcachedNode> i = reconnectQueue.headMap(now).values().iterator();
+    Iterator<MemcachedNode> i =
+      shard.reconnectQueue.headMap(now).values().iterator();
     while(i.hasNext()) {
       final MemcachedNode node = i.next();
       i.remove();
@@ -1404,13 +1909,13 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           }
           if (ch.connect(sa)) {
             connected(node);
-            addedQueue.offer(node);
+            shard.addedQueue.offer(node);
             getLogger().info("Immediately reconnected to %s", node);
             assert ch.isConnected();
           } else {
             ops = SelectionKey.OP_CONNECT;
           }
-          node.registerChannel(ch, ch.register(selector, ops, node));
+          node.registerChannel(ch, ch.register(shard.selector, ops, node));
           assert node.getChannel() == ch : "Channel was lost.";
         } else {
           getLogger().debug("Skipping duplicate reconnect request for %s",
@@ -1516,6 +2021,9 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
     assert o.isCancelled() || placeIn != null : "No node found for key " + key;
     if (placeIn != null) {
+      if (hotKeys != null) {
+        hotKeys.record(placeIn, o, key);
+      }
       addOperation(placeIn, o);
     } else {
       assert o.isCancelled() : "No node found for " + key + " (and not "
@@ -1557,12 +2065,24 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   public void insertOperation(final MemcachedNode node, final Operation o) {
     o.setHandlingNode(node);
     o.initialize();
+    if (!authenticates(o) && isOverloaded(node)) {
+      reject(node, o);
+      return;
+    }
+    enqueueFirst(node, o);
+  }
+
+  /**
+   * Insert an initialized operation at the beginning of the queue of the
+   * given node, whatever its limits.
+   */
+  private void enqueueFirst(final MemcachedNode node, final Operation o) {
     node.insertOp(o);
-    addedQueue.offer(node);
+    SelectorShard shard = shardFor(node);
+    shard.addedQueue.offer(node);
     metrics.markMeter(OVERALL_REQUEST_METRIC);
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    shard.wakeup();
     getLogger().debug("Added %s to %s", o, node);
   }
 
@@ -1579,12 +2099,17 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
     o.setHandlingNode(node);
     o.initialize();
+    if (isOverloaded(node)) {
+      reject(node, o);
+      return;
+    }
     node.addOp(o);
-    addedQueue.offer(node);
+    scheduleTimeout(o);
+    SelectorShard shard = shardFor(node);
+    shard.addedQueue.offer(node);
     metrics.markMeter(OVERALL_REQUEST_METRIC);
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    shard.wakeup();
     getLogger().debug("Added %s to %s", o, node);
   }
 
@@ -1594,11 +2119,106 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * @param ops the operations for each node.
    */
   public void addOperations(final Map<MemcachedNode, Operation> ops) {
+    if (!rejectOverloadedOps) {
+      // Throw before enqueueing any of them rather than leave some behind.
+      for (Map.Entry<MemcachedNode, Operation> me : ops.entrySet()) {
+        if (me.getKey().isAuthenticated() && isOverloaded(me.getKey())) {
+          throw overloaded(me.getKey(), me.getValue());
+        }
+      }
+    }
     for (Map.Entry<MemcachedNode, Operation> me : ops.entrySet()) {
+      if (hotKeys != null) {
+        hotKeys.record(me.getKey(), me.getValue());
+      }
       addOperation(me.getKey(), me.getValue());
     }
   }
 
+  /**
+   * Check whether the given node has reached one of its limits.
+   */
+  private boolean isOverloaded(final MemcachedNode node) {
+    TCPMemcachedNodeImpl tcpNode = tcpNode(node);
+    if (tcpNode == null) {
+      return false;
+    }
+    return (maxNodeOutstandingOps > 0
+        && tcpNode.getOutstandingOps() >= maxNodeOutstandingOps)
+      || (maxNodeQueuedBytes > 0
+        && tcpNode.getQueuedBytes() >= maxNodeQueuedBytes);
+  }
+
+  /**
+   * Get the number of operations queued or waiting for a response on the
+   * given node, if it keeps track of them.
+   */
+  private static int outstandingOps(final MemcachedNode node) {
+    TCPMemcachedNodeImpl tcpNode = tcpNode(node);
+    return tcpNode == null ? 0 : tcpNode.getOutstandingOps();
+  }
+
+  /**
+   * Check whether the given operation authenticates its node. Those are never
+   * rejected, as the operations already queued wait for them to drain.
+   */
+  private static boolean authenticates(final Operation o) {
+    return o instanceof SASLMechsOperation || o instanceof SASLAuthOperation
+        || o instanceof SASLStepOperation;
+  }
+
+  /**
+   * Reject an operation for an overloaded node, without waiting for room.
+   *
+   * @throws IllegalStateException unless rejected operations are failed
+   */
+  private void reject(final MemcachedNode node, final Operation o) {
+    if (!rejectOverloadedOps) {
+      throw overloaded(node, o);
+    }
+    metrics.markMeter(NODE_REJECTED_METRIC + node.getSocketAddress());
+    getLogger().debug("Rejecting %s for overloaded node %s", o, node);
+    String message = "Node " + node.getSocketAddress() + " is overloaded";
+    if (o instanceof BaseOperationImpl) {
+      ((BaseOperationImpl) o).reject(message);
+    } else {
+      o.cancel();
+    }
+  }
+
+  /**
+   * Count a rejection by an overloaded node and build the exception thrown
+   * to the caller.
+   */
+  private IllegalStateException overloaded(final MemcachedNode node,
+      final Object rejected) {
+    metrics.markMeter(NODE_REJECTED_METRIC + node.getSocketAddress());
+    return new IllegalStateException("Node " + node.getSocketAddress()
+        + " is overloaded, rejecting " + rejected);
+  }
+
+  /**
+   * Time out the given operation at its deadline. Tap operations stream for
+   * as long as they are open, so they never time out.
+   */
+  private void scheduleTimeout(final Operation o) {
+    if (timeouts != null && !(o instanceof TapOperation)) {
+      timeouts.schedule(o);
+    }
+  }
+
+  /**
+   * Get the hottest keys of every node, hottest first.
+   *
+   * @return the hot keys by node, empty if hot key tracking is disabled
+   */
+  public Map<SocketAddress, List<HotKey>> getHotKeys() {
+    if (hotKeys == null) {
+      return Collections.emptyMap();
+    }
+    return hotKeys.getHotKeys();
+  }
+
   /**
    * Broadcast an operation to all nodes.
    *
@@ -1617,20 +2237,33 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   public CountDownLatch broadcastOperation(final BroadcastOpFactory of,
     final Collection<MemcachedNode> nodes) {
+    if (!rejectOverloadedOps) {
+      for (MemcachedNode node : nodes) {
+        if (isOverloaded(node)) {
+          throw overloaded(node, "broadcast");
+        }
+      }
+    }
     final CountDownLatch latch = new CountDownLatch(nodes.size());
 
     for (MemcachedNode node : nodes) {
       getLogger().debug("broadcast Operation: node = " + node);
       Operation op = of.newOp(node, latch);
       op.initialize();
+      if (isOverloaded(node)) {
+        reject(node, op);
+        continue;
+      }
       node.addOp(op);
       op.setHandlingNode(node);
-      addedQueue.offer(node);
+      scheduleTimeout(op);
+      shardFor(node).addedQueue.offer(node);
       metrics.markMeter(OVERALL_REQUEST_METRIC);
     }
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    for (SelectorShard shard : shards) {
+      shard.wakeup();
+    }
     return latch;
   }
 
@@ -1639,9 +2272,20 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   public void shutdown() throws IOException {
     shutDown = true;
+    if (timeouts != null) {
+      timeouts.shutdown();
+    }
+    if (latencyPublisher != null) {
+      latencyPublisher.shutdownNow();
+    }
+    if (tlsHandshakeExecutor != null) {
+      tlsHandshakeExecutor.shutdownNow();
+    }
     try {
-      Selector s = selector.wakeup();
-      assert s == selector : "Wakeup returned the wrong selector.";
+      for (SelectorShard shard : shards) {
+        Selector s = shard.selector.wakeup();
+        assert s == shard.selector : "Wakeup returned the wrong selector.";
+      }
       for (MemcachedNode node : locator.getAll()) {
         if (node.getChannel() != null) {
           node.getChannel().close();
@@ -1654,8 +2298,10 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         }
       }
 
-      selector.close();
-      getLogger().debug("Shut down selector %s", selector);
+      for (SelectorShard shard : shards) {
+        shard.selector.close();
+        getLogger().debug("Shut down selector %s", shard.selector);
+      }
     } finally {
       running = false;
     }
@@ -1774,6 +2420,32 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     getLogger().info("Shut down memcached client");
   }
 
+  /**
+   * Handle IO for a single additional selector shard.
+   *
+   * Besides the regular reads and writes, this also takes care of the
+   * timeout checks and reconnects of the nodes owned by the shard. Cluster
+   * wide tasks like node list updates and retries stay on the connection
+   * thread.
+   *
+   * @param shard the shard to handle.
+   * @throws IOException if an error happens during selection.
+   */
+  private void handleShardIO(final SelectorShard shard) throws IOException {
+    if (shutDown) {
+      getLogger().debug("No IO while shut down.");
+      return;
+    }
+
+    if (handleSelectorIO(shard)) {
+      checkPotentiallyTimedOutConnection(shard);
+      if (!shutDown && !shard.reconnectQueue.isEmpty()) {
+        attemptReconnects(shard);
+      }
+      handleShutdownQueue(shard);
+    }
+  }
+
   /**
    * Log a exception to different levels depending on the state.
    *
@@ -1817,4 +2489,159 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     retryOps.add(op);
   }
 
+  /**
+   * Holds the IO state of one {@link Selector}.
+   *
+   * Every node is owned by exactly one shard, whose thread is the only one
+   * reading from, writing to, registering and closing the node's channel.
+   * Other threads hand such work to the shard with {@link #execute}.
+   */
+  private static final class SelectorShard {
+
+    /**
+     * The index of this shard, 0 for the connection thread.
+     */
+    private final int index;
+
+    /**
+     * The {@link Selector} all owned channels are registered with.
+     */
+    private final Selector selector;
+
+    /**
+     * Tracks the owned nodes for which operations have recently been queued.
+     */
+    private final ConcurrentLinkedQueue<MemcachedNode> addedQueue =
+      new ConcurrentLinkedQueue<MemcachedNode>();
+
+    /**
+     * The owned nodes doing a TLS handshake, keyed to the time at which
+     * their handshake times out. Only used by the thread of the shard.
+     */
+    private final Map<MemcachedNode, Long> tlsHandshakes =
+      new HashMap<MemcachedNode, Long>();
+
+    /**
+     * The owned nodes whose TLS handshake can continue after running its
+     * delegated tasks.
+     */
+    private final ConcurrentLinkedQueue<MemcachedNode> tlsHandshakesReady =
+      new ConcurrentLinkedQueue<MemcachedNode>();
+
+    /**
+     * Work handed to this shard by other threads, run by the thread of the
+     * shard before it selects.
+     */
+    private final ConcurrentLinkedQueue<ShardTask> tasks =
+      new ConcurrentLinkedQueue<ShardTask>();
+
+    /**
+     * The owned nodes that need to be reconnected, keyed by the time at
+     * which they are eligible for reconnect.
+     */
+    private final ConcurrentNavigableMap<Long, MemcachedNode> reconnectQueue =
+      new ConcurrentSkipListMap<Long, MemcachedNode>();
+
+    /**
+     * Contains the current number of empty select() calls, which could
+     * indicate bugs. Only used by the thread of the shard.
+     */
+    private int emptySelects = 0;
+
+    /**
+     * The number of nodes owned by this shard.
+     */
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    /**
+     * The thread driving this shard, or null until the connection starts.
+     */
+    private volatile Thread owner;
+
+    /**
+     * Whether the selector was woken up since the queued nodes were last
+     * handled.
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    private SelectorShard(final int index) throws IOException {
+      this.index = index;
+      this.selector = Selector.open();
+    }
+
+    /**
+     * Wake the selector up to handle newly queued operations, unless another
+     * thread already did since the queued nodes were last handled.
+     */
+    private void wakeup() {
+      if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+        Selector s = selector.wakeup();
+        assert s == selector : "Wakeup returned the wrong selector.";
+      }
+    }
+
+    /**
+     * Whether the current thread may use the selector of this shard
+     * directly, which is the case on the owning thread and before the
+     * connection has started.
+     */
+    private boolean isOwnedByCurrentThread() {
+      Thread t = owner;
+      return t == null || t == Thread.currentThread();
+    }
+
+    /**
+     * Hand the given task to the thread of this shard.
+     */
+    private void execute(final ShardTask task) {
+      tasks.offer(task);
+      selector.wakeup();
+    }
+
+    @Override
+    public String toString() {
+      return "{SelectorShard " + index + "}";
+    }
+  }
+
+  /**
+   * Work run on the thread owning a {@link SelectorShard}.
+   */
+  private interface ShardTask {
+    void run() throws IOException;
+  }
+
+  /**
+   * Drives one additional {@link SelectorShard} as long as the connection
+   * is running.
+   */
+  private final class SelectorThread extends SpyThread {
+
+    private final SelectorShard shard;
+
+    private SelectorThread(final SelectorShard shard) {
+      this.shard = shard;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          handleShardIO(shard);
+        } catch (IOException e) {
+          logRunException(e);
+        } catch (CancelledKeyException e) {
+          logRunException(e);
+        } catch (ClosedSelectorException e) {
+          logRunException(e);
+        } catch (IllegalStateException e) {
+          logRunException(e);
+        } catch (ConcurrentModificationException e) {
+          logRunException(e);
+        }
+      }
+      getLogger().info("Shut down memcached selector %s", shard);
+    }
+  }
+
 }
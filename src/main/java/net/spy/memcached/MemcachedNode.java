@@ -141,7 +141,10 @@ public interface MemcachedNode {
    * Do handshake for connecting to this node when TLS enabled.
    * 
    * @retrurn true if handshake is successful, false if handshake is unsuccessful.
+   * @deprecated the connection does the TLS handshake of its nodes without
+   *             blocking its selector thread; this method blocks it.
    */
+  @Deprecated
   boolean doTlsHandshake(long timeoutInMillis) throws IOException;
 
   /**
@@ -120,6 +120,7 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     root.setNodeEndPoint(endPoint);
   }
 
+  @Deprecated
   public boolean doTlsHandshake(long timeoutInMillis) throws IOException {
     throw new UnsupportedOperationException();
   }
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.metrics.MetricCollector;
+import net.spy.memcached.metrics.MetricType;
+
+/**
+ * In-process cache of recently read values in front of the servers.
+ *
+ * <p>
+ * Values are kept as {@link CachedData}, so a hit is decoded with whatever
+ * transcoder the caller asks for. The cache is bounded by a number of
+ * entries and a number of value bytes. An entry is served for at most the
+ * configured staleness after it was read from a server.
+ * </p>
+ *
+ * <p>
+ * Hits take no lock, so threads reading the same hot key do not serialize.
+ * Recency is approximated the CLOCK way: a hit only marks its entry as
+ * referenced, and eviction gives each referenced entry a second chance,
+ * moving it behind the newest entries, before evicting the oldest entry not
+ * referenced since.
+ * </p>
+ *
+ * <p>
+ * Every local mutation of a key invalidates it. A value read from a server is
+ * only stored if its key was not invalidated since the read was sent, so a
+ * response racing with a local mutation never overwrites it with the
+ * previous value. The last invalidation of up to as many keys as there are
+ * entries is remembered. Once an invalidation is forgotten, reads sent
+ * before it are not stored for any key.
+ * </p>
+ */
+final class NearCache {
+
+  private static final String HIT_METRIC = "[MEM] Near Cache Hit Rate";
+  private static final String MISS_METRIC = "[MEM] Near Cache Miss Rate";
+  private static final String EVICTION_METRIC =
+    "[MEM] Near Cache Eviction Rate";
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final long maxStalenessNanos;
+  private final MetricCollector metrics;
+
+  /**
+   * The entries looked up by hits. Only changed while holding this, along
+   * with entries.
+   */
+  private final ConcurrentMap<String, Entry> index =
+      new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * Entries in eviction order, guarded by this.
+   */
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>();
+
+  /**
+   * Value bytes of all entries, guarded by this.
+   */
+  private long bytes;
+
+  /**
+   * Number of invalidations so far, only changed while holding this.
+   */
+  private volatile long invalidations;
+
+  /**
+   * The value of invalidations after the last invalidation of each key, in
+   * invalidation order, guarded by this.
+   */
+  private final LinkedHashMap<String, Long> invalidated =
+      new LinkedHashMap<String, Long>();
+
+  /**
+   * Values read before this stamp are never stored, guarded by this.
+   */
+  private long minStamp;
+
+  NearCache(int maxEntries, long maxBytes, long maxStaleness,
+      MetricCollector metrics, MetricType metricType) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleness);
+    this.metrics = metrics;
+    if (metricType.equals(MetricType.DEBUG)
+      || metricType.equals(MetricType.PERFORMANCE)) {
+      metrics.addMeter(HIT_METRIC);
+      metrics.addMeter(MISS_METRIC);
+      metrics.addMeter(EVICTION_METRIC);
+    }
+  }
+
+  /**
+   * Get the value of the given key if it is cached and fresh enough.
+   *
+   * @param key the key
+   * @return the value, or null on a miss
+   */
+  CachedData get(String key) {
+    CachedData rv = null;
+    Entry e = index.get(key);
+    if (e != null) {
+      if (System.nanoTime() - e.created <= maxStalenessNanos) {
+        // Skip the write if already marked, so hot keys are only read.
+        if (!e.referenced) {
+          e.referenced = true;
+        }
+        rv = e.data;
+      } else {
+        synchronized (this) {
+          if (entries.get(key) == e) {
+            remove(key);
+          }
+        }
+      }
+    }
+    metrics.markMeter(rv == null ? MISS_METRIC : HIT_METRIC);
+    return rv;
+  }
+
+  /**
+   * Get a stamp to pass to {@link #put} for a value about to be read.
+   */
+  long stamp() {
+    return invalidations;
+  }
+
+  /**
+   * Store a value read from a server.
+   *
+   * The value is dropped if the key was invalidated after the given stamp
+   * was taken.
+   *
+   * @param key the key
+   * @param data the value
+   * @param stamp the stamp taken before the value was requested
+   */
+  void put(String key, CachedData data, long stamp) {
+    int size = data.getData().length;
+    if (size > maxBytes) {
+      return;
+    }
+    int evicted = 0;
+    synchronized (this) {
+      if (stamp < minStamp) {
+        return;
+      }
+      Long keyStamp = invalidated.get(key);
+      if (keyStamp != null && stamp < keyStamp) {
+        return;
+      }
+      remove(key);
+      Entry added = new Entry(data, System.nanoTime());
+      entries.put(key, added);
+      index.put(key, added);
+      bytes += size;
+      while (entries.size() > maxEntries || bytes > maxBytes) {
+        Map.Entry<String, Entry> oldest =
+            entries.entrySet().iterator().next();
+        Entry e = oldest.getValue();
+        if (e.referenced) {
+          // Second chance: move it behind the newest entry.
+          e.referenced = false;
+          entries.remove(oldest.getKey());
+          entries.put(oldest.getKey(), e);
+        } else {
+          remove(oldest.getKey());
+          evicted++;
+        }
+      }
+    }
+    for (int i = 0; i < evicted; i++) {
+      metrics.markMeter(EVICTION_METRIC);
+    }
+  }
+
+  /**
+   * Drop the given key ahead of a local mutation.
+   */
+  synchronized void invalidate(String key) {
+    invalidations++;
+    remove(key);
+    invalidated.remove(key);
+    invalidated.put(key, invalidations);
+    if (invalidated.size() > maxEntries) {
+      Iterator<Long> i = invalidated.values().iterator();
+      minStamp = i.next();
+      i.remove();
+    }
+  }
+
+  /**
+   * Drop every key.
+   */
+  synchronized void clear() {
+    invalidations++;
+    minStamp = invalidations;
+    invalidated.clear();
+    entries.clear();
+    index.clear();
+    bytes = 0;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private void remove(String key) {
+    Entry e = entries.remove(key);
+    index.remove(key);
+    if (e != null) {
+      bytes -= e.data.getData().length;
+    }
+  }
+
+  private static final class Entry {
+    private final CachedData data;
+    private final long created;
+
+    /**
+     * Whether the entry was hit since it was last considered for eviction.
+     */
+    private volatile boolean referenced;
+
+    private Entry(CachedData d, long c) {
+      data = d;
+      created = c;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferAllocator that keeps released direct buffers around and hands them
+ * out again for the next allocation of the same capacity.
+ *
+ * <p>
+ * Nodes of a connection all use buffers of the same few sizes (the read buffer
+ * size and the TLS packet and application buffer sizes), so reconnecting or
+ * adding nodes reuses the buffers of earlier connections instead of
+ * allocating fresh direct memory. The number of idle buffers kept per
+ * capacity is bounded, buffers released beyond that are left to the garbage
+ * collector.
+ * </p>
+ */
+public class PooledBufferAllocator implements BufferAllocator {
+
+  /**
+   * Maximum number of idle buffers kept per capacity.
+   */
+  public static final int DEFAULT_MAX_POOLED_PER_SIZE = 256;
+
+  private final ConcurrentMap<Integer, Pool> pools =
+    new ConcurrentHashMap<Integer, Pool>();
+  private final int maxPooledPerSize;
+
+  /**
+   * Create a pooled allocator with the default bound per capacity.
+   */
+  public PooledBufferAllocator() {
+    this(DEFAULT_MAX_POOLED_PER_SIZE);
+  }
+
+  /**
+   * Create a pooled allocator.
+   *
+   * @param maxPooledPerSize the maximum number of idle buffers kept for every
+   *          distinct capacity.
+   */
+  public PooledBufferAllocator(int maxPooledPerSize) {
+    if (maxPooledPerSize < 0) {
+      throw new IllegalArgumentException("Pool size must not be negative");
+    }
+    this.maxPooledPerSize = maxPooledPerSize;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.BufferAllocator#allocate(int)
+   */
+  public ByteBuffer allocate(int capacity) {
+    Pool pool = pools.get(capacity);
+    if (pool != null) {
+      ByteBuffer buffer = pool.buffers.poll();
+      if (buffer != null) {
+        pool.size.decrementAndGet();
+        buffer.clear();
+        return buffer;
+      }
+    }
+    return ByteBuffer.allocateDirect(capacity);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.BufferAllocator#release(java.nio.ByteBuffer)
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect()) {
+      return;
+    }
+    Pool pool = pools.get(buffer.capacity());
+    if (pool == null) {
+      pool = new Pool();
+      Pool existing = pools.putIfAbsent(buffer.capacity(), pool);
+      if (existing != null) {
+        pool = existing;
+      }
+    }
+    if (pool.size.incrementAndGet() <= maxPooledPerSize) {
+      buffer.clear();
+      pool.buffers.offer(buffer);
+    } else {
+      pool.size.decrementAndGet();
+    }
+  }
+
+  /**
+   * Get the number of idle buffers currently kept for the given capacity.
+   *
+   * @param capacity the buffer capacity.
+   * @return the number of idle buffers.
+   */
+  public int getPooledCount(int capacity) {
+    Pool pool = pools.get(capacity);
+    return pool == null ? 0 : pool.size.get();
+  }
+
+  @Override
+  public String toString() {
+    return "PooledBufferAllocator (max " + maxPooledPerSize + " per size)";
+  }
+
+  /**
+   * The idle buffers of a single capacity.
+   */
+  private static final class Pool {
+    private final Queue<ByteBuffer> buffers =
+      new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger size = new AtomicInteger();
+  }
+}
@@ -16,10 +16,29 @@ import javax.net.ssl.SSLSession;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 public class TLSConnectionHandler {
 
+  /**
+  * What a non-blocking handshake is waiting for after {@link #continueHandshake}.
+  */
+  public enum HandshakeState {
+    /** The handshake is done, the connection can be used. */
+    FINISHED,
+    /** The handshake failed, the connection must be closed. */
+    FAILED,
+    /** The handshake continues once the channel is readable. */
+    NEED_READ,
+    /** The handshake continues once the channel is writable. */
+    NEED_WRITE,
+    /** The handshake continues once its delegated tasks have run. */
+    NEED_TASK
+  }
+
   /**
   * The ByteBuffer holds this peer's application data in plaintext.
   */
@@ -55,14 +74,43 @@ public class TLSConnectionHandler {
   */
   private SSLEngineResult.HandshakeStatus handshakeStatus;
 
+  /**
+  * Whether the delegated tasks of the handshake are running on an executor.
+  */
+  private volatile boolean runningTasks;
+
+  /**
+  * Allocates (and takes back) the buffers used for the TLS data.
+  */
+  private final BufferAllocator bufferAllocator;
+
   private Logger log;
     
   public TLSConnectionHandler(SocketChannel socketChannel, SSLEngine sslEngine){
+    this(socketChannel, sslEngine, new DirectBufferAllocator());
+  }
+
+  public TLSConnectionHandler(SocketChannel socketChannel, SSLEngine sslEngine,
+      BufferAllocator bufferAllocator){
     log = LoggerFactory.getLogger(TLSConnectionHandler.class);
 
     this.socketChannel = socketChannel;
     this.sslEngine = sslEngine;
+    this.bufferAllocator = bufferAllocator;
+  }
 
+  /**
+  * Give all TLS data buffers back to the buffer allocator. The handler must not be used afterwards.
+  */
+  public void releaseBuffers() {
+    bufferAllocator.release(myNetData);
+    bufferAllocator.release(peerNetData);
+    bufferAllocator.release(myAppData);
+    bufferAllocator.release(peerAppData);
+    myNetData = null;
+    peerNetData = null;
+    myAppData = null;
+    peerAppData = null;
   }
 
   /** 
@@ -77,46 +125,87 @@ public class TLSConnectionHandler {
   * @throws OperationTimeoutException if global operation timeout is exceeded
   */ 
   public boolean doTlsHandshake(long timeoutInMillis) throws IOException {
+    // Set the start time before starting TLS handshake.
+    long startTimeDoTlsHandshake = System.nanoTime();
+
+    beginHandshake();
+    while (true) {
+      switch (continueHandshake(null, null)) {
+        case FINISHED:
+          return true;
+        case FAILED:
+          return false;
+        default:
+          // Set a timeout exception for TLS handshake
+          if (System.nanoTime() - startTimeDoTlsHandshake > TimeUnit.MILLISECONDS.toNanos(timeoutInMillis)) {
+            throw new OperationTimeoutException("Timeout during TLS handshake");
+          }
+      }
+    }
+  }
 
+  /** 
+  * Start a non-blocking handshake, which is then driven by {@link #continueHandshake}.
+  * @throws SSLException if a problem was encountered while signaling the SSLEngine to begin a new handshake.
+  */ 
+  public void beginHandshake() throws IOException {
     // Create a new SSLEngine session
     SSLSession session = sslEngine.getSession();
       
     // Get the current size of largest SSL/TLS packet that is expected when using this session.
     int packetBufferSize = session.getPacketBufferSize();
-    myNetData = ByteBuffer.allocate(packetBufferSize);
-    peerNetData = ByteBuffer.allocate(packetBufferSize);
+    myNetData = bufferAllocator.allocate(packetBufferSize);
+    peerNetData = bufferAllocator.allocate(packetBufferSize);
     
     // Get the current size of largest SSL/TLS application that is expected when using this session.
     int appBufferSize = session.getApplicationBufferSize();
-    myAppData = ByteBuffer.allocate(appBufferSize);
-    peerAppData = ByteBuffer.allocate(appBufferSize);
+    myAppData = bufferAllocator.allocate(appBufferSize);
+    peerAppData = bufferAllocator.allocate(appBufferSize);
 
-    // Prepare buffer for use
+    // Prepare buffer for use, myNetData holds no handshake data to send yet.
     myNetData.clear();
+    myNetData.flip();
     peerNetData.clear();
     myAppData.clear();
     peerAppData.clear();
 
-    // Set the start time before starting TLS handshake.
-    long startTimeDoTlsHandshake = System.nanoTime();
-    
     sslEngine.beginHandshake();
-
-    SSLEngineResult result;
     handshakeStatus = sslEngine.getHandshakeStatus();
+  }
+
+  /** 
+  * Make as much progress on the handshake as possible without blocking.
+  * 
+  * The delegated tasks of the SSLEngine are run on the given executor, or by the caller if there is none. Once
+  * they ran, the executor calls onTasksDone, and the caller should continue the handshake.
+  * 
+  * @param executor the executor to run delegated tasks on, or null to run them right away.
+  * @param onTasksDone called by the executor after running the delegated tasks.
+  * @return what the handshake is waiting for, or how it ended.
+  * @throws IOException if there is an error occurred during read/write to the socket channel.
+  */ 
+  public HandshakeState continueHandshake(Executor executor, final Runnable onTasksDone) throws IOException {
+    if (runningTasks) {
+      return HandshakeState.NEED_TASK;
+    }
+    // Send what the last wrap() left before producing more.
+    if (myNetData.hasRemaining()) {
+      writeDataToSocketChannel(myNetData);
+      if (myNetData.hasRemaining()) {
+        return HandshakeState.NEED_WRITE;
+      }
+    }
 
+    SSLSession session = sslEngine.getSession();
+    SSLEngineResult result;
     while (handshakeStatus != SSLEngineResult.HandshakeStatus.FINISHED &&
                 handshakeStatus != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
-      // Set a timeout exception for TLS handshake
-      if (System.nanoTime() - startTimeDoTlsHandshake > TimeUnit.MILLISECONDS.toNanos(timeoutInMillis)) {
-        throw new OperationTimeoutException("Timeout during TLS handshake");
-      }
-      
       switch (handshakeStatus) {
         case NEED_UNWRAP:
-          if (socketChannel.read(peerNetData) < 0) {
+          int read = socketChannel.read(peerNetData);
+          if (read < 0) {
             // The channel has reached end-of-stream
-            if (sslEngine.isInboundDone() && sslEngine.isOutboundDone()) return false;
+            if (sslEngine.isInboundDone() && sslEngine.isOutboundDone()) return HandshakeState.FAILED;
             handleEndOfStream();
             handshakeStatus = sslEngine.getHandshakeStatus();
             break;
@@ -140,7 +229,15 @@ public class TLSConnectionHandler {
           // Handle handshake result after unwrap().
           boolean shouldContinue = handleUnwrapResultForHandshake(result, session);
           if (!shouldContinue){
-            return false;
+            return HandshakeState.FAILED;
+          }
+          if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+            if (!peerNetData.hasRemaining()) {
+              // The record does not fit, make room for a whole packet.
+              peerNetData = enlargeBuffer(peerNetData, session.getPacketBufferSize());
+            } else if (read == 0) {
+              return HandshakeState.NEED_READ;
+            }
           }
           break;
         case NEED_WRAP:
@@ -154,16 +251,43 @@ public class TLSConnectionHandler {
             log.debug("Cannot process the data through SSLEngine. Will close the connection", sslException);
             sslEngine.closeOutbound();
             handshakeStatus = sslEngine.getHandshakeStatus();
+            myNetData.flip();
             break;
           }
 
           // Handle handshake result after wrap().
           handleWrapResultForHandshake(result, session);
+          if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            // Nothing was produced into the enlarged buffer.
+            myNetData.flip();
+          } else if (myNetData.hasRemaining()) {
+            return HandshakeState.NEED_WRITE;
+          }
           break;
         case NEED_TASK:
+          final List<Runnable> tasks = new ArrayList<Runnable>();
           Runnable task;
           while ((task = sslEngine.getDelegatedTask()) != null) {
-            task.run();
+            tasks.add(task);
+          }
+          if (executor != null && !tasks.isEmpty()) {
+            runningTasks = true;
+            executor.execute(new Runnable() {
+              public void run() {
+                try {
+                  for (Runnable t : tasks) {
+                    t.run();
+                  }
+                } finally {
+                  runningTasks = false;
+                  onTasksDone.run();
+                }
+              }
+            });
+            return HandshakeState.NEED_TASK;
+          }
+          for (Runnable t : tasks) {
+            t.run();
           }
           handshakeStatus = sslEngine.getHandshakeStatus();
           break;
@@ -174,9 +298,9 @@ public class TLSConnectionHandler {
 
     if (handshakeStatus == SSLEngineResult.HandshakeStatus.FINISHED) {
       peerNetData.compact();
-      return true;
+      return HandshakeState.FINISHED;
     } 
-    return false;
+    return HandshakeState.FAILED;
   }
 
   /** 
@@ -243,9 +367,10 @@ public class TLSConnectionHandler {
   */ 
   private ByteBuffer enlargeBuffer(ByteBuffer buffer, int requiredBufferSize) {
     if (requiredBufferSize > buffer.capacity()) {
-      ByteBuffer newBuffer = ByteBuffer.allocate(requiredBufferSize);
+      ByteBuffer newBuffer = bufferAllocator.allocate(requiredBufferSize);
       buffer.flip();
       newBuffer.put(buffer);
+      bufferAllocator.release(buffer);
       return newBuffer;
     }
     return buffer;
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.compat.SpyThread;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.protocol.BaseOperationImpl;
+
+/**
+ * Times out operations at their deadline, whether or not anybody waits for
+ * them.
+ *
+ * <p>
+ * This is a hashed timing wheel: a ring of buckets, each holding the
+ * operations whose deadline falls within one tick. Scheduling an operation
+ * appends it to a lock-free queue, which the wheel's own thread moves into
+ * its bucket on the next tick; every tick then visits a single bucket. Each
+ * operation is thus handled a constant number of times, however many are
+ * outstanding. A deadline further away than one turn of the wheel waits for
+ * as many turns in its bucket.
+ * </p>
+ *
+ * <p>
+ * Operations completed, cancelled or timed out before their deadline are
+ * dropped when their bucket is visited. The others are timed out, which
+ * completes their callbacks with a timed out status and counts a timeout
+ * against their node. If they were not written yet, the node skips them
+ * instead of writing them.
+ * </p>
+ */
+final class TimingWheel extends SpyThread {
+
+  static final long DEFAULT_TICK = TimeUnit.MILLISECONDS.toNanos(10);
+  static final int DEFAULT_SIZE = 512;
+
+  private final long timeoutNanos;
+  private final long tickNanos;
+  private final int mask;
+  private final Entry[] buckets;
+  private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<Entry>();
+  private final long start;
+
+  /**
+   * The next tick to process. Only touched by the thread expiring entries,
+   * like the buckets.
+   */
+  private long tick;
+  private volatile boolean shutDown;
+
+  /**
+   * Create a timing wheel.
+   *
+   * @param timeout the time in milliseconds after their creation operations
+   *          time out
+   * @param tickNanos the length of a tick in nanoseconds
+   * @param size the number of buckets, a power of two
+   */
+  TimingWheel(long timeout, long tickNanos, int size) {
+    super("Memcached Timeouts");
+    if (Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Size must be a power of two: "
+          + size);
+    }
+    // Keep deadlines far from overflowing.
+    timeoutNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(timeout),
+        Long.MAX_VALUE / 4);
+    this.tickNanos = tickNanos;
+    mask = size - 1;
+    buckets = new Entry[size];
+    start = System.nanoTime();
+  }
+
+  /**
+   * Time out the given operation once the timeout has passed since its
+   * creation.
+   *
+   * Scheduling an operation more than once is harmless.
+   */
+  void schedule(Operation op) {
+    // Operations are scheduled as they are enqueued, right after creation.
+    long created = op instanceof BaseOperationImpl
+        ? ((BaseOperationImpl) op).getCreationTimestamp() : System.nanoTime();
+    scheduled.add(new Entry(op, created + timeoutNanos));
+  }
+
+  /**
+   * Time out the operations whose deadline ended before the given time.
+   *
+   * @return the number of operations timed out
+   */
+  int expire(long now) {
+    long elapsed = (now - start) / tickNanos;
+    int expired = 0;
+    Entry e;
+    while ((e = scheduled.poll()) != null) {
+      long t = Math.max((e.deadline - start) / tickNanos, tick);
+      e.rounds = (t - tick) / buckets.length;
+      int i = (int) (t & mask);
+      e.next = buckets[i];
+      buckets[i] = e;
+    }
+    // A tick is processed once all of it has passed.
+    while (tick < elapsed) {
+      expired += expire((int) (tick & mask));
+      tick++;
+    }
+    return expired;
+  }
+
+  private int expire(int bucket) {
+    int expired = 0;
+    Entry prev = null;
+    Entry e = buckets[bucket];
+    while (e != null) {
+      Entry next = e.next;
+      Operation op = e.op;
+      boolean done = op.getState() == OperationState.COMPLETE
+          || op.isCancelled() || op.isTimedOut();
+      if (!done && e.rounds > 0) {
+        e.rounds--;
+        prev = e;
+      } else {
+        if (prev == null) {
+          buckets[bucket] = next;
+        } else {
+          prev.next = next;
+        }
+        if (!done) {
+          getLogger().debug("Timing out %s", op);
+          MemcachedConnection.opTimedOut(op);
+          op.timeOut();
+          expired++;
+        }
+      }
+      e = next;
+    }
+    return expired;
+  }
+
+  @Override
+  public void run() {
+    while (!shutDown) {
+      try {
+        expire(System.nanoTime());
+        long sleep = start + (tick + 1) * tickNanos - System.nanoTime();
+        if (sleep > 0) {
+          TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+      } catch (InterruptedException e) {
+        // shutting down
+      } catch (RuntimeException e) {
+        getLogger().warn("Problem timing out operations", e);
+      }
+    }
+  }
+
+  /**
+   * Stop timing out operations.
+   */
+  void shutdown() {
+    shutDown = true;
+    interrupt();
+  }
+
+  private static final class Entry {
+    private final Operation op;
+    private final long deadline;
+    private long rounds;
+    private Entry next;
+
+    Entry(Operation op, long deadline) {
+      this.op = op;
+      this.deadline = deadline;
+    }
+  }
+}
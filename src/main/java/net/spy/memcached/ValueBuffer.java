@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A buffer values are encoded into, and then written to the server from.
+ *
+ * <p>
+ * The buffer comes from a {@link BufferAllocator} and keeps room in front of
+ * the value for the protocol header, and after it for a trailer, so that the
+ * operation storing the value can write its command around it and send the
+ * buffer as is, without copying the value. Capacities are powers of two, so
+ * that a pooling allocator can reuse the buffers of earlier values. The
+ * operation releases the buffer once written.
+ * </p>
+ *
+ * <p>
+ * Values are written with the {@link OutputStream} methods; a buffer is not
+ * thread safe.
+ * </p>
+ */
+public final class ValueBuffer extends OutputStream {
+
+  private static final int MIN_CAPACITY = 1024;
+
+  private final BufferAllocator allocator;
+  private final int headroom;
+  private final int tailroom;
+  private final AtomicBoolean released = new AtomicBoolean();
+  private ByteBuffer buffer;
+
+  /**
+   * Create a buffer.
+   *
+   * @param allocator the allocator to get the buffer from
+   * @param headroom the number of bytes to keep in front of the value
+   * @param tailroom the number of bytes to keep after the value
+   * @param sizeHint the expected size of the value
+   */
+  public ValueBuffer(BufferAllocator allocator, int headroom, int tailroom,
+      int sizeHint) {
+    this.allocator = allocator;
+    this.headroom = headroom;
+    this.tailroom = tailroom;
+    buffer = allocator.allocate(capacityFor(headroom + sizeHint + tailroom));
+    buffer.position(headroom);
+  }
+
+  private static int capacityFor(int size) {
+    if (size <= MIN_CAPACITY) {
+      return MIN_CAPACITY;
+    }
+    int capacity = Integer.highestOneBit(size);
+    return capacity == size ? capacity : capacity << 1;
+  }
+
+  private void ensureCapacity(int more) {
+    int needed = buffer.position() + more + tailroom;
+    if (needed > buffer.capacity()) {
+      if (needed < 0) {
+        throw new IllegalArgumentException("Value too large");
+      }
+      ByteBuffer larger = allocator.allocate(capacityFor(needed));
+      buffer.flip();
+      larger.put(buffer);
+      allocator.release(buffer);
+      buffer = larger;
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(1);
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(len);
+    buffer.put(b, off, len);
+  }
+
+  /**
+   * Get the number of bytes of the value written so far.
+   */
+  public int size() {
+    return buffer.position() - headroom;
+  }
+
+  /**
+   * Discard the value written so far.
+   */
+  public void reset() {
+    buffer.position(headroom);
+  }
+
+  /**
+   * Get the number of bytes kept in front of the value.
+   */
+  public int getHeadroom() {
+    return headroom;
+  }
+
+  /**
+   * Get the number of bytes kept after the value.
+   */
+  public int getTailroom() {
+    return tailroom;
+  }
+
+  /**
+   * Get a view of the whole underlying buffer, positioned at the end of the
+   * value. The value starts at the headroom.
+   */
+  public ByteBuffer getBuffer() {
+    return buffer.duplicate();
+  }
+
+  /**
+   * Get a copy of the value.
+   */
+  public byte[] toByteArray() {
+    if (released.get()) {
+      throw new IllegalStateException("Buffer already released");
+    }
+    ByteBuffer b = buffer.duplicate();
+    b.flip();
+    b.position(headroom);
+    byte[] rv = new byte[b.remaining()];
+    b.get(rv);
+    return rv;
+  }
+
+  /**
+   * Give the buffer back to its allocator. The buffer must not be used
+   * anymore; releasing it more than once is harmless.
+   */
+  public void release() {
+    if (released.compareAndSet(false, true)) {
+      allocator.release(buffer);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "{ValueBuffer size=" + size() + " capacity=" + buffer.capacity()
+        + "}";
+  }
+}
@@ -41,6 +41,7 @@ import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.transcoders.TranscodeService;
 
 /**
  * Future for handling results from bulk gets.
@@ -56,16 +57,28 @@ public class BulkGetFuture<T>
   private final Map<String, Future<T>> rvMap;
   private final Collection<Operation> ops;
   private final CountDownLatch latch;
+  private final TranscodeService tcService;
   private OperationStatus status;
   private boolean cancelled = false;
   private boolean timeout = false;
 
   public BulkGetFuture(Map<String, Future<T>> m, Collection<Operation> getOps,
       CountDownLatch l, ExecutorService service) {
+    this(m, getOps, l, service, null);
+  }
+
+  /**
+   * Create a future whose values, prepared with
+   * {@link TranscodeService#decodeLater}, are decoded together by the given
+   * service once the response is complete.
+   */
+  public BulkGetFuture(Map<String, Future<T>> m, Collection<Operation> getOps,
+      CountDownLatch l, ExecutorService service, TranscodeService tcs) {
     super(service);
     rvMap = m;
     ops = getOps;
     latch = l;
+    tcService = tcs;
     status = null;
   }
 
@@ -101,13 +114,18 @@ public class BulkGetFuture<T>
   public Map<String, T> getSome(long to, TimeUnit unit)
     throws InterruptedException, ExecutionException {
     Collection<Operation> timedoutOps = new HashSet<Operation>();
-    Map<String, T> ret = internalGet(to, unit, timedoutOps);
+    Collection<String> undecoded = new HashSet<String>();
+    Map<String, T> ret = internalGet(to, unit, timedoutOps, undecoded, true);
     if (timedoutOps.size() > 0) {
       timeout = true;
       LoggerFactory.getLogger(getClass()).warn(
           new CheckedOperationTimeoutException("Operation timed out: ",
               timedoutOps).getMessage());
     }
+    if (undecoded.size() > 0) {
+      LoggerFactory.getLogger(getClass()).warn("Timed out decoding %d values",
+          undecoded.size());
+    }
     return ret;
 
   }
@@ -121,12 +139,18 @@ public class BulkGetFuture<T>
   public Map<String, T> get(long to, TimeUnit unit)
     throws InterruptedException, ExecutionException, TimeoutException {
     Collection<Operation> timedoutOps = new HashSet<Operation>();
-    Map<String, T> ret = internalGet(to, unit, timedoutOps);
+    Collection<String> undecoded = new HashSet<String>();
+    Map<String, T> ret = internalGet(to, unit, timedoutOps, undecoded,
+        false);
     if (timedoutOps.size() > 0) {
       this.timeout = true;
       throw new CheckedOperationTimeoutException("Operation timed out.",
           timedoutOps);
     }
+    if (undecoded.size() > 0) {
+      throw new TimeoutException("Timed out decoding " + undecoded.size()
+          + " values");
+    }
     return ret;
   }
 
@@ -137,13 +161,17 @@ public class BulkGetFuture<T>
    * @param to
    * @param unit
    * @param timedoutOps
+   * @param undecoded the keys whose values were not decoded in time
+   * @param decodeLate whether the values nobody started decoding by the
+   *          timeout are still decoded on the calling thread
    * @return
    * @throws InterruptedException
    * @throws ExecutionException
    */
   private Map<String, T> internalGet(long to, TimeUnit unit,
-      Collection<Operation> timedoutOps) throws InterruptedException,
-      ExecutionException {
+      Collection<Operation> timedoutOps, Collection<String> undecoded,
+      boolean decodeLate) throws InterruptedException, ExecutionException {
+    long start = System.nanoTime();
     if (!latch.await(to, unit)) {
       for (Operation op : ops) {
         if (op.getState() != OperationState.COMPLETE) {
@@ -162,13 +190,34 @@ public class BulkGetFuture<T>
         throw new ExecutionException(op.getException());
       }
     }
+    if (tcService != null) {
+      tcService.decodeAll(rvMap.values(), remaining(start, to, unit),
+          TimeUnit.NANOSECONDS);
+    }
     Map<String, T> m = new HashMap<String, T>();
     for (Map.Entry<String, Future<T>> me : rvMap.entrySet()) {
-      m.put(me.getKey(), me.getValue().get());
+      Future<T> f = me.getValue();
+      long left = remaining(start, to, unit);
+      if (left == 0 && !decodeLate && !f.isDone()) {
+        undecoded.add(me.getKey());
+        continue;
+      }
+      try {
+        m.put(me.getKey(), f.get(left, TimeUnit.NANOSECONDS));
+      } catch (TimeoutException e) {
+        undecoded.add(me.getKey());
+      }
     }
     return m;
   }
 
+  /**
+   * Get the nanoseconds left of the given timeout since the given start.
+   */
+  private static long remaining(long start, long to, TimeUnit unit) {
+    return Math.max(0, unit.toNanos(to) - (System.nanoTime() - start));
+  }
+
   public OperationStatus getStatus() {
     if (status == null) {
       try {
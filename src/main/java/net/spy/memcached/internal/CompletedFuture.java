@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A future that already holds its value.
+ *
+ * @param <T> the type of the value
+ */
+public class CompletedFuture<T> implements Future<T> {
+  private final T value;
+
+  public CompletedFuture(T v) {
+    value = v;
+  }
+
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  public T get() {
+    return value;
+  }
+
+  public T get(long timeout, TimeUnit unit) {
+    return value;
+  }
+
+  public boolean isCancelled() {
+    return false;
+  }
+
+  public boolean isDone() {
+    return true;
+  }
+}
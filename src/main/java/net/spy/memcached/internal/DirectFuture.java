@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.spy.memcached.MemcachedConnection;
+import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+
+/**
+ * A future completed directly by the thread that finishes its operations.
+ *
+ * <p>
+ * Unlike the latch-based futures, whose listeners are always dispatched to
+ * the listener executor, callbacks and transformations added here run on the
+ * thread that completes the future: usually the IO thread, or the caller if
+ * the future is already done. They must be quick and must not block. Heavy
+ * continuations pass their own {@link Executor}.
+ * </p>
+ *
+ * <p>
+ * The future fails with the exception of an errored operation, a
+ * {@link CancellationException} if an operation was cancelled, or a
+ * {@link CheckedOperationTimeoutException} if an operation timed out.
+ * </p>
+ *
+ * @param <T> the type of the value
+ */
+public class DirectFuture<T> extends SpyObject implements Future<T> {
+
+  /**
+   * Receives the outcome of a {@link DirectFuture}.
+   *
+   * @param <T> the type of the value
+   */
+  public interface Callback<T> {
+    void onSuccess(T value);
+
+    void onFailure(Throwable t);
+  }
+
+  /**
+   * Turns the value of a {@link DirectFuture} into another value.
+   *
+   * @param <T> the type of the value
+   * @param <U> the type of the result
+   */
+  public interface Function<T, U> {
+    U apply(T value) throws Exception;
+  }
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private final long timeout;
+  private volatile Collection<Operation> ops =
+      Collections.<Operation>emptyList();
+
+  /**
+   * Continuations waiting for the outcome, or null once completed. Guarded by
+   * this.
+   */
+  private List<Runnable> waiting = new ArrayList<Runnable>();
+  private T value;
+  private Throwable failure;
+
+  /**
+   * Create a future.
+   *
+   * @param timeout the time in milliseconds {@link #get()} waits
+   */
+  public DirectFuture(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Create a future that already holds the given value.
+   */
+  public static <T> DirectFuture<T> completed(T value, long timeout) {
+    DirectFuture<T> rv = new DirectFuture<T>(timeout);
+    rv.complete(value);
+    return rv;
+  }
+
+  /**
+   * Set the operation this future waits for.
+   */
+  public void setOperation(Operation op) {
+    ops = Collections.singletonList(op);
+  }
+
+  /**
+   * Set the operations this future waits for.
+   */
+  public void setOperations(Collection<Operation> o) {
+    ops = o;
+  }
+
+  /**
+   * Complete this future with the given value, unless one of its operations
+   * errored, was cancelled or timed out.
+   *
+   * @return true if this call completed the future
+   */
+  public boolean completeOperations(T v) {
+    for (Operation op : ops) {
+      if (op.hasErrored()) {
+        return fail(op.getException());
+      } else if (op.isCancelled()) {
+        return fail(new CancellationException("Cancelled"));
+      } else if (op.isTimedOut()) {
+        return fail(new CheckedOperationTimeoutException(
+            "Operation timed out.", op));
+      }
+    }
+    return complete(v);
+  }
+
+  /**
+   * Complete this future with the given value.
+   *
+   * @return true if this call completed the future
+   */
+  public boolean complete(T v) {
+    return finish(v, null);
+  }
+
+  /**
+   * Complete this future with the given failure.
+   *
+   * @return true if this call completed the future
+   */
+  public boolean fail(Throwable t) {
+    return finish(null, t);
+  }
+
+  private boolean finish(T v, Throwable t) {
+    List<Runnable> toRun;
+    synchronized (this) {
+      if (waiting == null) {
+        return false;
+      }
+      value = v;
+      failure = t;
+      toRun = waiting;
+      waiting = null;
+    }
+    latch.countDown();
+    for (Runnable r : toRun) {
+      r.run();
+    }
+    return true;
+  }
+
+  /**
+   * Run the given callback on the thread completing this future.
+   *
+   * @return this future
+   */
+  public DirectFuture<T> addCallback(final Callback<? super T> cb) {
+    whenDone(new Runnable() {
+      public void run() {
+        deliver(cb);
+      }
+    });
+    return this;
+  }
+
+  /**
+   * Run the given callback on the given executor once this future completes.
+   *
+   * @return this future
+   */
+  public DirectFuture<T> addCallback(final Callback<? super T> cb,
+      final Executor executor) {
+    whenDone(new Runnable() {
+      public void run() {
+        executor.execute(new Runnable() {
+          public void run() {
+            deliver(cb);
+          }
+        });
+      }
+    });
+    return this;
+  }
+
+  /**
+   * Get a future of the given function applied to the value of this future,
+   * on the thread completing this future.
+   *
+   * A failure of this future or of the function fails the returned future.
+   */
+  public <U> DirectFuture<U> thenApply(final Function<? super T, U> f) {
+    final DirectFuture<U> rv = new DirectFuture<U>(timeout);
+    rv.ops = ops;
+    addCallback(new Callback<T>() {
+      public void onSuccess(T v) {
+        try {
+          rv.complete(f.apply(v));
+        } catch (Exception e) {
+          rv.fail(e);
+        }
+      }
+
+      public void onFailure(Throwable t) {
+        rv.fail(t);
+      }
+    });
+    return rv;
+  }
+
+  /**
+   * Get a future of the given function applied to the value of this future,
+   * on the given executor.
+   */
+  public <U> DirectFuture<U> thenApplyAsync(final Function<? super T, U> f,
+      final Executor executor) {
+    final DirectFuture<U> rv = new DirectFuture<U>(timeout);
+    rv.ops = ops;
+    addCallback(new Callback<T>() {
+      public void onSuccess(T v) {
+        try {
+          rv.complete(f.apply(v));
+        } catch (Exception e) {
+          rv.fail(e);
+        }
+      }
+
+      public void onFailure(Throwable t) {
+        rv.fail(t);
+      }
+    }, executor);
+    return rv;
+  }
+
+  /**
+   * Get a future of the future the given function returns for the value of
+   * this future.
+   */
+  public <U> DirectFuture<U> thenCompose(
+      final Function<? super T, DirectFuture<U>> f) {
+    final DirectFuture<U> rv = new DirectFuture<U>(timeout);
+    addCallback(new Callback<T>() {
+      public void onSuccess(T v) {
+        DirectFuture<U> next;
+        try {
+          next = f.apply(v);
+        } catch (Exception e) {
+          rv.fail(e);
+          return;
+        }
+        rv.ops = next.ops;
+        next.addCallback(new Callback<U>() {
+          public void onSuccess(U u) {
+            rv.complete(u);
+          }
+
+          public void onFailure(Throwable t) {
+            rv.fail(t);
+          }
+        });
+      }
+
+      public void onFailure(Throwable t) {
+        rv.fail(t);
+      }
+    });
+    return rv;
+  }
+
+  private void whenDone(Runnable r) {
+    synchronized (this) {
+      if (waiting != null) {
+        waiting.add(r);
+        return;
+      }
+    }
+    r.run();
+  }
+
+  private void deliver(Callback<? super T> cb) {
+    try {
+      if (failure == null) {
+        cb.onSuccess(value);
+      } else {
+        cb.onFailure(failure);
+      }
+    } catch (RuntimeException e) {
+      getLogger().warn("Exception thrown by callback of %s", this, e);
+    }
+  }
+
+  public boolean cancel(boolean ign) {
+    boolean rv = false;
+    for (Operation op : ops) {
+      op.cancel();
+      rv |= op.getState() != OperationState.COMPLETE;
+    }
+    fail(new CancellationException("Cancelled"));
+    return rv;
+  }
+
+  public boolean isCancelled() {
+    synchronized (this) {
+      return failure instanceof CancellationException;
+    }
+  }
+
+  public boolean isDone() {
+    return latch.getCount() == 0;
+  }
+
+  /**
+   * Get the value, waiting at most the operation timeout.
+   */
+  public T get() throws InterruptedException, ExecutionException {
+    try {
+      return get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new RuntimeException("Timed out waiting for operation", e);
+    }
+  }
+
+  public T get(long duration, TimeUnit units) throws InterruptedException,
+      TimeoutException, ExecutionException {
+    if (!latch.await(duration, units)) {
+      Collection<Operation> timedOut = new ArrayList<Operation>();
+      for (Operation op : ops) {
+        if (op.getState() != OperationState.COMPLETE) {
+          MemcachedConnection.opTimedOut(op);
+          op.timeOut();
+          timedOut.add(op);
+        }
+      }
+      throw new CheckedOperationTimeoutException(
+          "Timed out waiting for operation", timedOut);
+    }
+    for (Operation op : ops) {
+      MemcachedConnection.opSucceeded(op);
+    }
+    synchronized (this) {
+      if (failure != null) {
+        throw new ExecutionException(failure);
+      }
+      return value;
+    }
+  }
+}
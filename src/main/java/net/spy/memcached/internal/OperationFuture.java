@@ -107,7 +107,10 @@ public class OperationFuture<T>
    * @return true if the operation has not yet been written to the network
    */
   public boolean cancel(boolean ign) {
-    assert op != null : "No operation";
+    if (op == null) {
+      // Completed without an operation, e.g. from the near cache.
+      return false;
+    }
     op.cancel();
     notifyListeners();
     return op.getState() == OperationState.WRITE_QUEUED;
@@ -119,7 +122,10 @@ public class OperationFuture<T>
    * @return true if the operation has not yet been written to the network
    */
   public boolean cancel() {
-    assert op != null : "No operation";
+    if (op == null) {
+      // Completed without an operation, e.g. from the near cache.
+      return false;
+    }
     op.cancel();
     notifyListeners();
     return op.getState() == OperationState.WRITE_QUEUED;
@@ -290,8 +296,7 @@ public class OperationFuture<T>
    * @return true if the Operation has been canceled
    */
   public boolean isCancelled() {
-    assert op != null : "No operation";
-    return op.isCancelled();
+    return op != null && op.isCancelled();
   }
 
   /**
@@ -305,9 +310,8 @@ public class OperationFuture<T>
    * @return true if the Operation is done
    */
   public boolean isDone() {
-    assert op != null : "No operation";
-    return latch.getCount() == 0 || op.isCancelled()
-        || op.getState() == OperationState.COMPLETE;
+    return latch.getCount() == 0 || (op != null && (op.isCancelled()
+        || op.getState() == OperationState.COMPLETE));
   }
 
   @Override
@@ -142,7 +142,7 @@ public final class DefaultMetricCollector extends AbstractMetricCollector {
 
   @Override
   public void removeCounter(String name) {
-    if (!counters.containsKey(name)) {
+    if (counters.containsKey(name)) {
       registry.remove(name);
       counters.remove(name);
     }
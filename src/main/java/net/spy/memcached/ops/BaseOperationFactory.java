@@ -23,11 +23,15 @@
 
 package net.spy.memcached.ops;
 
+import net.spy.memcached.BulkMutationOperationFactory;
+import net.spy.memcached.CachedData;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.OperationFactory;
+import net.spy.memcached.ValueBuffer;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Base class for operation factories.
@@ -43,6 +47,36 @@ public abstract class BaseOperationFactory implements OperationFactory {
     return keys.iterator().next();
   }
 
+  /**
+   * Bulk mutations are only created by factories able to create them again.
+   */
+  private BulkMutationOperationFactory bulkFactory() {
+    return (BulkMutationOperationFactory) this;
+  }
+
+  /**
+   * Create a store operation for encoded data.
+   *
+   * Data encoded in a {@link ValueBuffer} is sent from that buffer by the
+   * factories able to, and the operation releases it once it no longer needs
+   * it. Otherwise the data is copied and the buffer released right away.
+   *
+   * @param storeType the type of store operation
+   * @param key the key to store
+   * @param data the encoded data and its flags
+   * @param exp the expiration time
+   * @param cb the status callback
+   * @return the new store operation
+   */
+  public StoreOperation store(StoreType storeType, String key,
+      CachedData data, int exp, StoreOperation.Callback cb) {
+    byte[] bytes = data.getData();
+    if (data.getBuffer() != null) {
+      data.getBuffer().release();
+    }
+    return store(storeType, key, data.getFlags(), exp, bytes, cb);
+  }
+
   public Collection<Operation> clone(KeyedOperation op) {
     assert (op.getState() == OperationState.WRITE_QUEUED || op.getState()
         == OperationState.RETRY) : "Who passed me an operation in the "
@@ -104,6 +138,25 @@ public abstract class BaseOperationFactory implements OperationFactory {
       ObserveOperation oo = (ObserveOperation) op;
       rv.add(observe(first(oo.getKeys()), oo.getCasValue(), oo.getIndex(),
         (ObserveOperation.Callback) oo.getCallback()));
+    } else if (op instanceof StoreBulkOperation) {
+      StoreBulkOperation sb = (StoreBulkOperation) op;
+      for (String k : op.getKeys()) {
+        rv.add(bulkFactory().storeBulk(sb.getStoreType(),
+          Collections.singletonMap(k, sb.getValue(k)), sb.getExpiration(),
+          (BulkMutationOperation.Callback) op.getCallback()));
+      }
+    } else if (op instanceof DeleteBulkOperation) {
+      for (String k : op.getKeys()) {
+        rv.add(bulkFactory().deleteBulk(Collections.singleton(k),
+          (BulkMutationOperation.Callback) op.getCallback()));
+      }
+    } else if (op instanceof TouchBulkOperation) {
+      TouchBulkOperation tb = (TouchBulkOperation) op;
+      for (String k : op.getKeys()) {
+        rv.add(bulkFactory().touchBulk(Collections.singleton(k),
+          tb.getExpiration(),
+          (BulkMutationOperation.Callback) op.getCallback()));
+      }
     } else {
       assert false : "Unhandled operation type: " + op.getClass();
     }
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Operation mutating many keys on one node with a single pipelined request.
+ *
+ * <p>
+ * Every key of the operation gets exactly one status through
+ * {@link Callback#gotStatus(String, OperationStatus)}, also when the
+ * operation is cancelled, times out or fails.
+ * </p>
+ */
+public interface BulkMutationOperation extends KeyedOperation {
+
+  /**
+   * Bulk mutation operation callback.
+   */
+  interface Callback extends OperationCallback {
+    /**
+     * Callback for the result of a single key.
+     *
+     * @param key the key
+     * @param status the status of the mutation of this key
+     */
+    void gotStatus(String key, OperationStatus status);
+  }
+}
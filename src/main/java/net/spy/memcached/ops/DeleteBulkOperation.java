@@ -0,0 +1,12 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Bulk deletion operation.
+ */
+public interface DeleteBulkOperation extends BulkMutationOperation {
+}
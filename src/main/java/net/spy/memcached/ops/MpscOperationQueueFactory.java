@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+import java.util.concurrent.BlockingQueue;
+
+import net.spy.memcached.util.MpscBlockingQueue;
+
+/**
+ * OperationQueueFactory that uses a lock-free {@link MpscBlockingQueue}.
+ *
+ * Meant for the input queue, which is filled by the application threads and
+ * drained by the IO thread.
+ */
+public class MpscOperationQueueFactory implements OperationQueueFactory {
+
+  private final int capacity;
+
+  /**
+   * Create an MpscOperationQueueFactory that creates queues with the given
+   * capacity.
+   *
+   * @param cap maximum size of a queue produced by this factory
+   */
+  public MpscOperationQueueFactory(int cap) {
+    super();
+    capacity = cap;
+  }
+
+  public BlockingQueue<Operation> create() {
+    return new MpscBlockingQueue<Operation>(capacity);
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Bulk store operation.
+ */
+public interface StoreBulkOperation extends BulkMutationOperation {
+
+  /**
+   * Get the store type used by this operation.
+   */
+  StoreType getStoreType();
+
+  /**
+   * Get the expiration value for all stored keys.
+   */
+  int getExpiration();
+
+  /**
+   * Get the encoded value stored for the given key.
+   */
+  CachedData getValue(String key);
+}
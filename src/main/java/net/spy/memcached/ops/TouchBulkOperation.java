@@ -0,0 +1,17 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Bulk touch operation.
+ */
+public interface TouchBulkOperation extends BulkMutationOperation {
+
+  /**
+   * Get the new expiration for all touched keys.
+   */
+  int getExpiration();
+}
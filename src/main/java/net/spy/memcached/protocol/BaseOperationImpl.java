@@ -66,9 +66,12 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   private volatile boolean timedout;
   private long creationTime;
   private boolean timedOutUnsent = false;
+  private boolean callbackCompleted = false;
   protected Collection<MemcachedNode> notMyVbucketNodes =
       new HashSet<MemcachedNode>();
   private long writeCompleteTimestamp;
+  private long writeStartTimestamp;
+  private long decodeTime;
 
   /**
    * If the operation gets cloned, the reference is used to cascade cancellations
@@ -124,8 +127,10 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     }
 
     wasCancelled();
-    callback.receivedStatus(CANCELLED);
-    callback.complete();
+    if (!callbackCompleted) {
+      callback.receivedStatus(CANCELLED);
+      completeCallback();
+    }
   }
 
   /**
@@ -135,6 +140,42 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     getLogger().debug("was cancelled.");
   }
 
+  /**
+   * Fail this operation without sending it, for instance because its node
+   * has no room for it. Unlike a cancellation, its futures fail with an
+   * {@link OperationException} of type {@link OperationErrorType#CLIENT}
+   * carrying the given message.
+   *
+   * @param message the reason why the operation was rejected
+   */
+  public final synchronized void reject(String message) {
+    if (callbackCompleted) {
+      return;
+    }
+    exception = new OperationException(OperationErrorType.CLIENT, message);
+    OperationStatus status = new OperationStatus(false, message,
+        StatusCode.ERR_BUSY);
+    wasRejected(status);
+    callback.receivedStatus(status);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  /**
+   * This is called on each subclass whenever an operation was rejected,
+   * before its callback is told so.
+   */
+  protected void wasRejected(OperationStatus status) {
+    getLogger().debug("was rejected.");
+  }
+
+  /**
+   * This is called on each subclass whenever an operation timed out, before
+   * its callback is told so.
+   */
+  protected void wasTimedOut() {
+    getLogger().debug("timed out.");
+  }
+
   public final synchronized OperationState getState() {
     return state;
   }
@@ -164,11 +205,32 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
       cmd = null;
     }
     if (state == OperationState.COMPLETE) {
+      wasCompleted();
+      completeCallback();
+    }
+  }
+
+  /**
+   * Complete the callback, unless it was already completed because this
+   * operation was cancelled or timed out before its response arrived.
+   */
+  private void completeCallback() {
+    if (!callbackCompleted) {
+      callbackCompleted = true;
       callback.complete();
     }
   }
 
+  /**
+   * This is called on each subclass whenever an operation completed, after
+   * which it is neither written nor retried anymore.
+   */
+  protected void wasCompleted() {
+    // nothing to release by default
+  }
+
   public final void writing() {
+    writeStartTimestamp = System.nanoTime();
     transitionState(OperationState.WRITING);
   }
 
@@ -217,7 +279,11 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
 
   @Override
   public synchronized void timeOut() {
+    if (timedout || cancelled || state == OperationState.COMPLETE) {
+      return;
+    }
     timedout = true;
+    timedOutUnsent = state == OperationState.WRITE_QUEUED;
 
     synchronized (clones) {
       Iterator<Operation> i = clones.iterator();
@@ -226,8 +292,9 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
       }
     }
 
+    wasTimedOut();
     callback.receivedStatus(TIMED_OUT);
-    callback.complete();
+    completeCallback();
   }
 
   @Override
@@ -239,11 +306,12 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   public synchronized boolean isTimedOut(long ttlMillis) {
     long elapsed = System.nanoTime();
     long ttlNanos = ttlMillis * 1000 * 1000;
-    if (elapsed - creationTime > ttlNanos) {
+    if (!timedout && !cancelled && elapsed - creationTime > ttlNanos) {
       timedOutUnsent = true;
       timedout = true;
+      wasTimedOut();
       callback.receivedStatus(TIMED_OUT);
-      callback.complete();
+      completeCallback();
     } // else
       // timedout would be false, but we cannot allow you to untimeout an
       // operation.  This can happen when the latch timeout is shorter than the
@@ -261,6 +329,36 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     return writeCompleteTimestamp;
   }
 
+  /**
+   * Returns the timestamp from the point where the operation was created.
+   */
+  public long getCreationTimestamp() {
+    return creationTime;
+  }
+
+  /**
+   * Returns the timestamp from the point where the WRITE was started.
+   */
+  public long getWriteStartTimestamp() {
+    return writeStartTimestamp;
+  }
+
+  /**
+   * Add the given time spent reading and decoding the response.
+   *
+   * @param nanos the time in nanoseconds
+   */
+  public void addDecodeTime(long nanos) {
+    decodeTime += nanos;
+  }
+
+  /**
+   * Returns the time spent reading and decoding the response in nanoseconds.
+   */
+  public long getDecodeTime() {
+    return decodeTime;
+  }
+
   @Override
   public void addClone(Operation op) {
     clones.add(op);
@@ -34,15 +34,22 @@ import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+import net.spy.memcached.BufferAllocator;
 import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.DirectBufferAllocator;
 import net.spy.memcached.FailureMode;
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.MemcachedNode;
@@ -66,6 +73,12 @@ import net.spy.memcached.TLSConnectionHandler;
 public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     MemcachedNode {
 
+  /**
+   * The maximum number of operation buffers handed to a single gathering
+   * write.
+   */
+  private static final int MAX_GATHERED_WRITES = 64;
+
   private NodeEndPoint nodeEndPoint;
   private SocketAddress socketAddress;
   private ByteBuffer rbuf;
@@ -88,15 +101,50 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
   private volatile long lastReadTimestamp = System.nanoTime();
   private MemcachedConnection connection;
   private TLSConnectionHandler tlsConnectionHandler;
+  // the interest ops of a non-blocking TLS handshake, -1 when not handshaking
+  private volatile int tlsHandshakeOps = -1;
   private int bufSize;
+  private final BufferAllocator bufferAllocator;
+  private boolean buffersReleased = false;
+
+  // operations taken off the write queue whose bytes have not all been
+  // written to the channel yet, in write order; without TLS their buffers
+  // are handed to the channel as a single gathering write, over TLS their
+  // encrypted records end at the given write buffer positions
+  private final ByteBuffer[] gatheredBufs = new ByteBuffer[MAX_GATHERED_WRITES];
+  private final Operation[] gatheredOps = new Operation[MAX_GATHERED_WRITES];
+  private final int[] gatheredEnds = new int[MAX_GATHERED_WRITES];
+  private int gatheredOffset = 0;
+  private int gatheredCount = 0;
+
+  // operations that were not fully written when the connection was lost,
+  // written again from their start before any other operation
+  private final Deque<Operation> resendQ = new ArrayDeque<Operation>();
 
   // operation Future.get timeout counter
   private final AtomicInteger continuousTimeout = new AtomicInteger(0);
 
+  // bytes of the operations in the input and write queues; the optimized op
+  // is not counted, the operations it replaces are dequeued when optimizing
+  private final AtomicLong queuedBytes = new AtomicLong();
+
   public TCPMemcachedNodeImpl(SocketAddress sa, SocketChannel c, int bufSize,
       BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
       BlockingQueue<Operation> iq, long opQueueMaxBlockTime,
       boolean waitForAuth, long dt, long authWaitTime, ConnectionFactory fact) {
+    this(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTime, waitForAuth, dt,
+        authWaitTime, fact, new DirectBufferAllocator());
+  }
+
+  /**
+   * Create a node whose read and write buffers, including those of its TLS
+   * connection, come from the given allocator.
+   */
+  public TCPMemcachedNodeImpl(SocketAddress sa, SocketChannel c, int bufSize,
+      BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
+      BlockingQueue<Operation> iq, long opQueueMaxBlockTime,
+      boolean waitForAuth, long dt, long authWaitTime, ConnectionFactory fact,
+      BufferAllocator allocator) {
     super();
 
     assert sa != null : "No SocketAddress";
@@ -112,9 +160,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     setChannel(c);
 
     this.bufSize = bufSize;
-    
-    rbuf = ByteBuffer.allocateDirect(bufSize);
-    wbuf = ByteBuffer.allocateDirect(bufSize);
+    bufferAllocator = allocator;
+
+    rbuf = bufferAllocator.allocate(bufSize);
+    wbuf = bufferAllocator.allocate(bufSize);
   
     getWbuf().clear();
     readQ = rq;
@@ -147,6 +196,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
   public Collection<Operation> destroyInputQueue() {
     Collection<Operation> rv = new ArrayList<Operation>();
     inputQueue.drainTo(rv);
+    for (Operation op : rv) {
+      dequeued(op);
+    }
     return rv;
   }
 
@@ -156,6 +208,19 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#setupResend()
    */
   public final void setupResend() {
+    // Operations whose bytes did not all reach the channel are written
+    // again, ahead of those that have not been resent yet.
+    for (int i = gatheredCount - 1; i >= gatheredOffset; i--) {
+      resendQ.addFirst(gatheredOps[i]);
+    }
+    clearGatheredWrites();
+    for (Operation op : resendQ) {
+      ByteBuffer buf = op.getBuffer();
+      if (buf != null) {
+        buf.reset();
+      }
+    }
+
     // First, reset the current write op, or cancel it if we should
     // be authenticating
     Operation op = getCurrentWriteOp();
@@ -170,20 +235,31 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
         removeCurrentWriteOp();
       }
     }
-    // Now cancel all the pending read operations. Might be better to
-    // to requeue them.
+    // Now cancel all the pending read operations that have been written
+    // completely. Might be better to to requeue them. The ones being
+    // resent keep their place, they are written again in the same order.
+    Operation current = getCurrentWriteOp();
+    List<Operation> resent = new ArrayList<Operation>();
     while (hasReadOp()) {
       op = removeCurrentReadOp();
-      if (op != getCurrentWriteOp()) {
+      if (!shouldAuth && (op == current || resendQ.contains(op))) {
+        resent.add(op);
+      } else if (!op.isCancelled()) {
         getLogger().warn("Discarding partially completed op: %s", op);
         op.cancel();
       }
     }
+    readQ.addAll(resent);
 
     while (shouldAuth && hasWriteOp()) {
+      if (optimizedOp == null) {
+        dequeued(getCurrentWriteOp());
+      }
       op = removeCurrentWriteOp();
-      getLogger().warn("Discarding partially completed op: %s", op);
-      op.cancel();
+      if (!op.isCancelled()) {
+        getLogger().warn("Discarding partially completed op: %s", op);
+        op.cancel();
+      }
     }
 
     getWbuf().clear();
@@ -191,6 +267,35 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     toWrite = 0;
   }
 
+  /**
+   * Drop all references to operations whose writes are pending.
+   */
+  private void clearGatheredWrites() {
+    for (int i = gatheredOffset; i < gatheredCount; i++) {
+      gatheredBufs[i] = null;
+      gatheredOps[i] = null;
+    }
+    gatheredOffset = 0;
+    gatheredCount = 0;
+  }
+
+  /**
+   * Complete the write of the oldest operation whose write is pending.
+   */
+  private void completeGatheredWrite() {
+    Operation o = gatheredOps[gatheredOffset];
+    synchronized(o) {
+      o.writeComplete();
+    }
+    gatheredBufs[gatheredOffset] = null;
+    gatheredOps[gatheredOffset] = null;
+    gatheredOffset++;
+    if (gatheredOffset == gatheredCount) {
+      gatheredOffset = 0;
+      gatheredCount = 0;
+    }
+  }
+
   // Prepare the pending operations. Return true if there are any pending
   // ops
   private boolean preparePending() {
@@ -201,6 +306,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     Operation nextOp = getCurrentWriteOp();
     while (nextOp != null && nextOp.isCancelled()) {
       getLogger().info("Removing cancelled operation: %s", nextOp);
+      if (nextOp != optimizedOp) {
+        dequeued(nextOp);
+      }
       removeCurrentWriteOp();
       nextOp = getCurrentWriteOp();
     }
@@ -214,53 +322,128 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    */
   public final void fillWriteBuffer(boolean shouldOptimize) throws IOException {
     if (toWrite == 0 && readQ.remainingCapacity() > 0) {
-      getWbuf().clear();
-      Operation o=getNextWritableOp();
-
-      boolean isTlsBufferOverflow = false;
-      while(o != null && toWrite < getWbuf().capacity() && !isTlsBufferOverflow) {
-        synchronized(o) {
-          assert o.getState() == OperationState.WRITING;
-
-          ByteBuffer obuf = o.getBuffer();
-          if (tlsConnectionHandler == null) {
-            assert obuf != null : "Didn't get a write buffer from " + o;
-            int bytesToCopy = Math.min(getWbuf().remaining(), obuf.remaining());
-            byte[] b = new byte[bytesToCopy];
-            obuf.get(b);
-            getWbuf().put(b);
-            getLogger().debug("After copying stuff from %s: %s", o, getWbuf());
-            toWrite += bytesToCopy;
-          } else {
-            int bytesProduced = tlsConnectionHandler.encryptNextTLSDataRecord(obuf, wbuf);
-            if (bytesProduced == -1) {
-              isTlsBufferOverflow = true;
-            } else { 
-              toWrite += bytesProduced;
-            }
-          }
+      if (tlsConnectionHandler == null) {
+        gatherWriteBuffers(shouldOptimize);
+      } else {
+        fillTlsWriteBuffer(shouldOptimize);
+      }
+    } else {
+      getLogger().debug("Buffer is full, skipping");
+    }
+  }
+
+  /**
+   * Collect the buffers of the next writable operations so they can be
+   * handed to the channel in a single gathering write.
+   *
+   * The operation buffers are written as they are, without copying them into
+   * the write buffer first. Each operation is moved out of the write queue
+   * right away and completes its write once its buffer has been drained by
+   * {@link #writeSome()}. Until then {@link #setupResend()} writes it again
+   * after a reconnect.
+   *
+   * No more bytes than fit into the write buffer are gathered at once,
+   * unless a single operation is larger than that.
+   *
+   * @param shouldOptimize if sequential operations should be optimized.
+   */
+  private void gatherWriteBuffers(boolean shouldOptimize) {
+    getWbuf().clear();
+    clearGatheredWrites();
+    Operation o = getNextWritableOp();
+
+    while (o != null && gatheredCount < MAX_GATHERED_WRITES) {
+      synchronized(o) {
+        assert o.getState() == OperationState.WRITING;
+
+        ByteBuffer obuf = o.getBuffer();
+        assert obuf != null : "Didn't get a write buffer from " + o;
+        if (obuf.hasRemaining()) {
+          gatheredBufs[gatheredCount] = obuf;
+          gatheredOps[gatheredCount] = o;
+          gatheredCount++;
+          toWrite += obuf.remaining();
+          getLogger().debug("Gathered %d bytes from %s", obuf.remaining(), o);
+        } else {
+          o.writeComplete();
+        }
+
+        transitionWriteItem();
+
+        preparePending();
+        if (shouldOptimize) {
+          optimize();
+        }
+      }
+      if (!fitsWriteBuffer(getCurrentWriteOp())) {
+        break;
+      }
+      o = getNextWritableOp();
+    }
+    getWbuf().flip();
+    assert toWrite <= getWbuf().capacity() || gatheredCount == 1
+        : "toWrite exceeded capacity: " + this;
+  }
+
+  /**
+   * Whether the bytes of the given operation can be gathered along with the
+   * ones already gathered without exceeding the write buffer capacity.
+   */
+  private boolean fitsWriteBuffer(Operation o) {
+    if (o == null || toWrite == 0) {
+      return true;
+    }
+    ByteBuffer obuf = o.getBuffer();
+    return obuf == null
+        || toWrite + obuf.remaining() <= getWbuf().capacity();
+  }
+
+  /**
+   * Encrypt the next writable operations into the write buffer.
+   *
+   * @param shouldOptimize if sequential operations should be optimized.
+   * @throws IOException if the encryption fails.
+   */
+  private void fillTlsWriteBuffer(boolean shouldOptimize) throws IOException {
+    getWbuf().clear();
+    clearGatheredWrites();
+    Operation o=getNextWritableOp();
 
-          if (!o.getBuffer().hasRemaining()) {
-            o.writeComplete();
-            transitionWriteItem();
+    boolean isTlsBufferOverflow = false;
+    while(o != null && toWrite < getWbuf().capacity() && !isTlsBufferOverflow
+      && gatheredCount < MAX_GATHERED_WRITES) {
+      synchronized(o) {
+        assert o.getState() == OperationState.WRITING;
 
-            preparePending();
-            if (shouldOptimize) {
-              optimize();
-            }
+        ByteBuffer obuf = o.getBuffer();
+        int bytesProduced = tlsConnectionHandler.encryptNextTLSDataRecord(obuf, wbuf);
+        if (bytesProduced == -1) {
+          isTlsBufferOverflow = true;
+        } else {
+          toWrite += bytesProduced;
+        }
 
-            o=getNextWritableOp();
+        if (!o.getBuffer().hasRemaining()) {
+          // Completes once its last record has been written.
+          gatheredOps[gatheredCount] = o;
+          gatheredEnds[gatheredCount] = toWrite;
+          gatheredCount++;
+          transitionWriteItem();
+
+          preparePending();
+          if (shouldOptimize) {
+            optimize();
           }
+
+          o=getNextWritableOp();
         }
       }
-      getWbuf().flip();
-      assert toWrite <= getWbuf().capacity() : "toWrite exceeded capacity: "
-          + this;
-      assert toWrite == getWbuf().remaining() : "Expected " + toWrite
-          + " remaining, got " + getWbuf().remaining();
-    } else {
-      getLogger().debug("Buffer is full, skipping");
     }
+    getWbuf().flip();
+    assert toWrite <= getWbuf().capacity() : "toWrite exceeded capacity: "
+        + this;
+    assert toWrite == getWbuf().remaining() : "Expected " + toWrite
+        + " remaining, got " + getWbuf().remaining();
   }
 
 
@@ -268,6 +451,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     Operation o = getCurrentWriteOp();
     while (o != null && o.getState() == OperationState.WRITE_QUEUED) {
       synchronized(o) {
+        if (o != optimizedOp) {
+          dequeued(o);
+        }
         if (o.isCancelled()) {
           getLogger().debug("Not writing cancelled op.");
           Operation cancelledOp = removeCurrentWriteOp();
@@ -329,6 +515,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#getCurrentWriteOp()
    */
   public final Operation getCurrentWriteOp() {
+    if (!resendQ.isEmpty()) {
+      return resendQ.peek();
+    }
     return optimizedOp == null ? writeQ.peek() : optimizedOp;
   }
 
@@ -338,6 +527,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#removeCurrentWriteOp()
    */
   public final Operation removeCurrentWriteOp() {
+    if (!resendQ.isEmpty()) {
+      return resendQ.remove();
+    }
     Operation rv = optimizedOp;
     if (rv == null) {
       rv = writeQ.remove();
@@ -362,7 +554,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#hasWriteOp()
    */
   public final boolean hasWriteOp() {
-    return !(optimizedOp == null && writeQ.isEmpty());
+    return !(optimizedOp == null && writeQ.isEmpty() && resendQ.isEmpty());
   }
 
   /*
@@ -389,7 +581,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
         }
         return;
       }
+      queued(op);
       if (!inputQueue.offer(op, opQueueMaxBlockTime, TimeUnit.MILLISECONDS)) {
+        dequeued(op);
         throw new IllegalStateException("Timed out waiting to add " + op
             + "(max wait=" + opQueueMaxBlockTime + "ms)");
       }
@@ -407,6 +601,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * net.spy.memcached.MemcachedNode#insertOp(net.spy.memcached.ops.Operation)
    */
   public final void insertOp(Operation op) {
+    queued(op);
     ArrayList<Operation> tmp = new ArrayList<Operation>(inputQueue.size() + 1);
     tmp.add(op);
     inputQueue.drainTo(tmp);
@@ -420,7 +615,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    */
   public final int getSelectionOps() {
     int rv = 0;
-    if (getChannel().isConnected()) {
+    if (getChannel().isConnected() && tlsHandshakeOps >= 0) {
+      rv = tlsHandshakeOps;
+    } else if (getChannel().isConnected()) {
       if (hasReadOp()) {
         rv |= SelectionKey.OP_READ;
       }
@@ -456,7 +653,62 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    *
    * @see net.spy.memcached.MemcachedNode#doTlsHandshake()
    */
+  @Deprecated
   public final boolean doTlsHandshake(long timeoutInMillis) throws IOException {
+    setupTls();
+    return tlsConnectionHandler.doTlsHandshake(timeoutInMillis);
+  }
+
+  /**
+   * Start a non-blocking TLS handshake with this node.
+   *
+   * While the handshake is going on, the selection ops of the node are the
+   * ones the handshake waits for.
+   */
+  public final void beginTlsHandshake() throws IOException {
+    setupTls();
+    tlsConnectionHandler.beginHandshake();
+    tlsHandshakeOps = SelectionKey.OP_WRITE;
+  }
+
+  /**
+   * Continue the non-blocking TLS handshake with this node.
+   *
+   * @param executor the executor running the delegated tasks of the handshake
+   * @param onTasksDone called by the executor after running delegated tasks
+   * @return what the handshake waits for, or how it ended
+   */
+  public final TLSConnectionHandler.HandshakeState continueTlsHandshake(
+      Executor executor, Runnable onTasksDone) throws IOException {
+    TLSConnectionHandler.HandshakeState state =
+        tlsConnectionHandler.continueHandshake(executor, onTasksDone);
+    switch (state) {
+    case NEED_READ:
+      tlsHandshakeOps = SelectionKey.OP_READ;
+      break;
+    case NEED_WRITE:
+      tlsHandshakeOps = SelectionKey.OP_WRITE;
+      break;
+    case NEED_TASK:
+      tlsHandshakeOps = 0;
+      break;
+    default:
+      tlsHandshakeOps = -1;
+    }
+    return state;
+  }
+
+  /**
+   * Check whether a non-blocking TLS handshake with this node is going on.
+   */
+  public final boolean isTlsHandshaking() {
+    return tlsHandshakeOps >= 0;
+  }
+
+  /**
+   * Create the SSLEngine and TLSConnectionHandler for a new TLS connection.
+   */
+  private void setupTls() {
     // Initialize SSLEngine and TLSConnectionHandler for TLS connection
     SSLContext sslContext = connectionFactory.getSSLContext();
     assert sslContext != null : "SSLContext should be present in connectionFactory for TLS connection";
@@ -475,17 +727,45 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
       sslEngine = sslContext.createSSLEngine();
     }
     sslEngine.setUseClientMode(true);
-    tlsConnectionHandler = new TLSConnectionHandler(channel, sslEngine);
+    // The buffers of the handler of a previous connection are left to the
+    // garbage collector, they may still be referenced.
+    tlsConnectionHandler = new TLSConnectionHandler(channel, sslEngine,
+      bufferAllocator);
     
     int tlsBufSize = sslEngine.getSession().getPacketBufferSize();
     if (bufSize < tlsBufSize) {
       // Allocate rbuf and wbuf size for TLS connections
-      rbuf = ByteBuffer.allocateDirect(tlsBufSize);
-      wbuf = ByteBuffer.allocateDirect(tlsBufSize);
+      bufferAllocator.release(rbuf);
+      bufferAllocator.release(wbuf);
+      rbuf = bufferAllocator.allocate(tlsBufSize);
+      wbuf = bufferAllocator.allocate(tlsBufSize);
       bufSize = tlsBufSize;
     }
+  }
 
-    return tlsConnectionHandler.doTlsHandshake(timeoutInMillis);
+  /**
+   * Give the read, write and TLS buffers of this node back to the
+   * {@link BufferAllocator}.
+   *
+   * This is only called on the thread owning the node, once its channel has
+   * been closed and it has been removed from the cluster. The node is left
+   * with empty buffers, so late calls for it do not fail, but it must not
+   * perform any IO afterwards.
+   */
+  public final void releaseBuffers() {
+    if (buffersReleased) {
+      return;
+    }
+    buffersReleased = true;
+    clearGatheredWrites();
+    if (tlsConnectionHandler != null) {
+      tlsHandshakeOps = -1;
+      tlsConnectionHandler.releaseBuffers();
+    }
+    bufferAllocator.release(rbuf);
+    bufferAllocator.release(wbuf);
+    rbuf = ByteBuffer.allocate(0);
+    wbuf = ByteBuffer.allocate(0);
   }
 
   /*
@@ -549,6 +829,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#reconnecting()
    */
   public final void reconnecting() {
+    tlsHandshakeOps = -1;
     reconnectAttempt.incrementAndGet();
     continuousTimeout.set(0);
   }
@@ -655,13 +936,46 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     return toWrite;
   }
 
+  /**
+   * Get the number of operations queued or waiting for a response.
+   */
+  public final int getOutstandingOps() {
+    return inputQueue.size() + writeQ.size() + readQ.size();
+  }
+
+  /**
+   * Get the number of bytes of the operations queued but not written yet.
+   */
+  public final long getQueuedBytes() {
+    return queuedBytes.get();
+  }
+
+  private void queued(Operation op) {
+    ByteBuffer b = op.getBuffer();
+    if (b != null) {
+      queuedBytes.addAndGet(b.remaining());
+    }
+  }
+
+  /**
+   * Stop counting the bytes of an operation that leaves the queues without
+   * being written, or is about to be written. Operations already being
+   * written are no longer counted.
+   */
+  protected final void dequeued(Operation op) {
+    ByteBuffer b = op.getBuffer();
+    if (b != null && op.getState() == OperationState.WRITE_QUEUED) {
+      queuedBytes.addAndGet(-b.remaining());
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
    * @see net.spy.memcached.MemcachedNode#writeSome()
    */
   public final int writeSome() throws IOException {
-    int wrote = channel.write(wbuf);
+    int wrote = tlsConnectionHandler == null ? writeGathered() : writeTls();
     assert wrote >= 0 : "Wrote negative bytes?";
     toWrite -= wrote;
     assert toWrite >= 0 : "toWrite went negative after writing " + wrote
@@ -670,6 +984,42 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     return wrote;
   }
 
+  /**
+   * Write the gathered operation buffers to the channel and complete the
+   * writes of all operations whose buffers have been fully drained.
+   *
+   * @return the number of bytes written.
+   * @throws IOException if there's a problem writing.
+   */
+  private int writeGathered() throws IOException {
+    if (gatheredCount == 0) {
+      return 0;
+    }
+    long wrote = channel.write(gatheredBufs, gatheredOffset,
+      gatheredCount - gatheredOffset);
+    while (gatheredCount > 0
+      && !gatheredBufs[gatheredOffset].hasRemaining()) {
+      completeGatheredWrite();
+    }
+    return (int) wrote;
+  }
+
+  /**
+   * Write the encrypted records in the write buffer to the channel and
+   * complete the writes of all operations whose records have been written.
+   *
+   * @return the number of bytes written.
+   * @throws IOException if there's a problem writing.
+   */
+  private int writeTls() throws IOException {
+    int wrote = channel.write(wbuf);
+    while (gatheredCount > 0
+      && gatheredEnds[gatheredOffset] <= wbuf.position()) {
+      completeGatheredWrite();
+    }
+    return wrote;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -27,6 +27,7 @@ import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 
+import net.spy.memcached.BufferAllocator;
 import net.spy.memcached.ConnectionFactory;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.Operation;
@@ -47,18 +48,28 @@ public final class AsciiMemcachedNodeImpl extends TCPMemcachedNodeImpl {
     super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, false, dt, at, fa);
   }
 
+  public AsciiMemcachedNodeImpl(SocketAddress sa, SocketChannel c, int bufSize,
+      BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
+      BlockingQueue<Operation> iq, Long opQueueMaxBlockTimeNs, long dt,
+      long at, ConnectionFactory fa, BufferAllocator allocator) {
+    super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, false, dt, at, fa,
+      allocator);
+  }
+
   @Override
   protected void optimize() {
     // make sure there are at least two get operations in a row before
     // attempting to optimize them.
     if (writeQ.peek() instanceof GetOperation) {
       optimizedOp = writeQ.remove();
+      dequeued(optimizedOp);
       if (writeQ.peek() instanceof GetOperation) {
         OptimizedGetImpl og = new OptimizedGetImpl((GetOperation) optimizedOp);
         optimizedOp = og;
 
         while (writeQ.peek() instanceof GetOperation) {
           GetOperationImpl o = (GetOperationImpl) writeQ.remove();
+          dequeued(o);
           if (!o.isCancelled()) {
             og.addOperation(o);
           }
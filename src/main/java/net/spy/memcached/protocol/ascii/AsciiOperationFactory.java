@@ -28,6 +28,7 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ops.BaseOperationFactory;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
@@ -158,6 +159,11 @@ public class AsciiOperationFactory extends BaseOperationFactory {
     return new StoreOperationImpl(storeType, key, flags, exp, data, cb);
   }
 
+  public StoreOperation store(StoreType storeType, String key,
+      CachedData data, int exp, StoreOperation.Callback cb) {
+    return new StoreOperationImpl(storeType, key, data, exp, cb);
+  }
+
   public TouchOperation touch(String key, int expiration,
       OperationCallback cb) {
     return new TouchOperationImpl(key, expiration, cb);
@@ -23,6 +23,7 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
@@ -50,6 +51,8 @@ public abstract class BaseGetOpImpl extends OperationImpl {
   private static final OperationStatus LOCK_ERROR = new OperationStatus(false,
       "LOCK_ERROR", StatusCode.ERR_TEMP_FAIL);
   private static final byte[] RN_BYTES = "\r\n".getBytes();
+  private static final byte[] END_BYTES = "END".getBytes();
+  private static final byte[] VALUE_BYTES = "VALUE ".getBytes();
   private final String cmd;
   private final Collection<String> keys;
   private String currentKey = null;
@@ -90,28 +93,14 @@ public abstract class BaseGetOpImpl extends OperationImpl {
   @Override
   public final void handleLine(String line) {
     if (line.equals("END")) {
-      getLogger().debug("Get complete!");
-      if (hasValue) {
-        getCallback().receivedStatus(END);
-      } else {
-        getCallback().receivedStatus(NOT_FOUND);
-      }
-      transitionState(OperationState.COMPLETE);
-      data = null;
+      gotEnd();
     } else if (line.startsWith("VALUE ")) {
       getLogger().debug("Got line %s", line);
       String[] stuff = line.split(" ");
       assert stuff[0].equals("VALUE");
-      currentKey = stuff[1];
-      currentFlags = Integer.parseInt(stuff[2]);
-      data = new byte[Integer.parseInt(stuff[3])];
-      if (stuff.length > 4) {
-        casValue = Long.parseLong(stuff[4]);
-      }
-      readOffset = 0;
-      hasValue = true;
-      getLogger().debug("Set read type to data");
-      setReadType(OperationReadType.DATA);
+      gotValue(stuff[1], Integer.parseInt(stuff[2]),
+          Integer.parseInt(stuff[3]),
+          stuff.length > 4 ? Long.parseLong(stuff[4]) : casValue);
     } else if (line.equals("LOCK_ERROR")) {
       getCallback().receivedStatus(LOCK_ERROR);
       transitionState(OperationState.COMPLETE);
@@ -120,6 +109,60 @@ public abstract class BaseGetOpImpl extends OperationImpl {
     }
   }
 
+  /**
+   * Match END and VALUE lines without decoding them into a String; only the
+   * key of a VALUE line is materialized.
+   */
+  @Override
+  protected final void handleLine(byte[] line, int length)
+    throws IOException {
+    if (matches(line, length, END_BYTES)) {
+      gotEnd();
+    } else if (startsWith(line, length, VALUE_BYTES)) {
+      int keyStart = VALUE_BYTES.length;
+      int keyEnd = nextSpace(line, keyStart, length);
+      int flagsEnd = nextSpace(line, keyEnd + 1, length);
+      int lenEnd = nextSpace(line, flagsEnd + 1, length);
+      String k = new String(line, keyStart, keyEnd - keyStart, CHARSET);
+      getLogger().debug("Got value line for %s", k);
+      gotValue(k, (int) parseLong(line, keyEnd + 1, flagsEnd),
+          (int) parseLong(line, flagsEnd + 1, lenEnd),
+          lenEnd < length ? parseLong(line, lenEnd + 1, length) : casValue);
+    } else {
+      super.handleLine(line, length);
+    }
+  }
+
+  private static int nextSpace(byte[] line, int from, int length) {
+    int i = from;
+    while (i < length && line[i] != ' ') {
+      i++;
+    }
+    return i;
+  }
+
+  private void gotEnd() {
+    getLogger().debug("Get complete!");
+    if (hasValue) {
+      getCallback().receivedStatus(END);
+    } else {
+      getCallback().receivedStatus(NOT_FOUND);
+    }
+    transitionState(OperationState.COMPLETE);
+    data = null;
+  }
+
+  private void gotValue(String k, int flags, int length, long cas) {
+    currentKey = k;
+    currentFlags = flags;
+    data = new byte[length];
+    casValue = cas;
+    readOffset = 0;
+    hasValue = true;
+    getLogger().debug("Set read type to data");
+    setReadType(OperationReadType.DATA);
+  }
+
   @Override
   public final void handleRead(ByteBuffer b) {
     assert currentKey != null;
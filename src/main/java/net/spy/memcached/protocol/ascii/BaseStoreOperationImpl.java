@@ -22,11 +22,14 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ValueBuffer;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
@@ -40,11 +43,13 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
   private static final int OVERHEAD = 32;
   private static final OperationStatus STORED = new OperationStatus(true,
       "STORED", StatusCode.SUCCESS);
+  private static final byte[] STORED_BYTES = "STORED".getBytes();
   protected final String type;
   protected final String key;
   protected final int flags;
   protected final int exp;
-  protected final byte[] data;
+  private final CachedData value;
+  private final int length;
 
   public BaseStoreOperationImpl(String t, String k, int f, int e, byte[] d,
       OperationCallback cb) {
@@ -53,7 +58,19 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
     key = k;
     flags = f;
     exp = e;
-    data = d;
+    value = new CachedData(f, d, Integer.MAX_VALUE);
+    length = d.length;
+  }
+
+  public BaseStoreOperationImpl(String t, String k, CachedData d, int e,
+      OperationCallback cb) {
+    super(cb);
+    type = t;
+    key = k;
+    flags = d.getFlags();
+    exp = e;
+    value = d;
+    length = d.getBuffer() == null ? d.getData().length : d.getBuffer().size();
   }
 
   @Override
@@ -64,8 +81,38 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
     transitionState(OperationState.COMPLETE);
   }
 
+  @Override
+  protected void handleLine(byte[] line, int length) throws IOException {
+    if (matches(line, length, STORED_BYTES)) {
+      assert getState() == OperationState.READING : "Read ``STORED'' when in "
+          + getState() + " state";
+      getCallback().receivedStatus(STORED);
+      transitionState(OperationState.COMPLETE);
+    } else {
+      super.handleLine(line, length);
+    }
+  }
+
   @Override
   public void initialize() {
+    ValueBuffer buffer = value.getBuffer();
+    if (buffer != null && buffer.getTailroom() >= CRLF.length) {
+      ByteBuffer header = ByteBuffer.allocate(KeyUtil.getKeyBytes(key).length
+          + OVERHEAD);
+      setArguments(header, type, key, flags, exp, length);
+      header.flip();
+      if (header.remaining() <= buffer.getHeadroom()) {
+        // Write the command around the value rather than copying it.
+        ByteBuffer bb = buffer.getBuffer();
+        bb.put(CRLF);
+        bb.limit(bb.position());
+        bb.position(buffer.getHeadroom() - header.remaining());
+        bb.duplicate().put(header);
+        setBuffer(bb);
+        return;
+      }
+    }
+    byte[] data = value.getData();
     ByteBuffer bb = ByteBuffer.allocate(data.length
         + KeyUtil.getKeyBytes(key).length + OVERHEAD);
     setArguments(bb, type, key, flags, exp, data.length);
@@ -77,10 +124,37 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
     setBuffer(bb);
   }
 
+  @Override
+  protected void wasCompleted() {
+    releaseBuffer();
+  }
+
   @Override
   protected void wasCancelled() {
     // XXX: Replace this comment with why I did this
     getCallback().receivedStatus(CANCELLED);
+    // A store being written keeps its buffer until it completes.
+    if (getState() == OperationState.WRITE_QUEUED) {
+      releaseBuffer();
+    }
+  }
+
+  @Override
+  protected void wasTimedOut() {
+    if (getState() == OperationState.WRITE_QUEUED) {
+      releaseBuffer();
+    }
+  }
+
+  /**
+   * Give the buffer the value was encoded in back to its allocator, once the
+   * value is never written from it anymore.
+   */
+  private void releaseBuffer() {
+    ValueBuffer buffer = value.getBuffer();
+    if (buffer != null) {
+      buffer.release();
+    }
   }
 
   public Collection<String> getKeys() {
@@ -96,12 +170,12 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
   }
 
   public byte[] getData() {
-    return data;
+    return value.getData();
   }
 
   @Override
   public String toString() {
     return "Cmd: " + type + " Key: " + key + " Flags: " + flags + " Exp: "
-      + exp + " Data Length: " + data.length;
+      + exp + " Data Length: " + length;
   }
 }
@@ -22,7 +22,6 @@
 
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -41,11 +40,16 @@ import net.spy.memcached.protocol.BaseOperationImpl;
 abstract class OperationImpl extends BaseOperationImpl implements Operation {
 
   protected static final byte[] CRLF = { '\r', '\n' };
-  private static final String CHARSET = "UTF-8";
+  protected static final String CHARSET = "UTF-8";
 
-  private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+  private static final byte[] ERROR = "ERROR".getBytes();
+  private static final byte[] CLIENT_ERROR = "CLIENT_ERROR".getBytes();
+  private static final byte[] SERVER_ERROR = "SERVER_ERROR".getBytes();
+  private static final int INITIAL_LINE_SIZE = 64;
+
+  private byte[] lineBytes = new byte[INITIAL_LINE_SIZE];
+  private int lineLength = 0;
   private OperationReadType readType = OperationReadType.LINE;
-  private boolean foundCr;
   private byte[] errorMsg;
 
   protected OperationImpl() {
@@ -109,13 +113,13 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
     bb.put(CRLF);
   }
 
-  OperationErrorType classifyError(String line) {
+  OperationErrorType classifyError(byte[] line, int length) {
     OperationErrorType rv = null;
-    if (line.startsWith("ERROR")) {
+    if (startsWith(line, length, ERROR)) {
       rv = OperationErrorType.GENERAL;
-    } else if (line.startsWith("CLIENT_ERROR")) {
+    } else if (startsWith(line, length, CLIENT_ERROR)) {
       rv = OperationErrorType.CLIENT;
-    } else if (line.startsWith("SERVER_ERROR")) {
+    } else if (startsWith(line, length, SERVER_ERROR)) {
       rv = OperationErrorType.SERVER;
     }
     return rv;
@@ -127,35 +131,137 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
     while (getState() != OperationState.COMPLETE && data.remaining() > 0) {
       if (readType == OperationReadType.DATA) {
         handleRead(data);
-      } else {
-        int offset = -1;
-        for (int i = 0; data.remaining() > 0; i++) {
-          byte b = data.get();
-          if (b == '\r') {
-            foundCr = true;
-          } else if (b == '\n') {
-            assert foundCr : "got a \\n without a \\r";
-            offset = i;
-            foundCr = false;
-            break;
-          } else {
-            assert !foundCr : "got a \\r without a \\n";
-            byteBuffer.write(b);
-          }
+      } else if (readLine(data)) {
+        int length = lineLength;
+        lineLength = 0;
+        OperationErrorType eType = classifyError(lineBytes, length);
+        if (eType != null) {
+          String line = new String(lineBytes, 0, length, CHARSET);
+          errorMsg = line.getBytes();
+          handleError(eType, line);
+        } else {
+          handleLine(lineBytes, length);
         }
-        if (offset >= 0) {
-          String line = new String(byteBuffer.toByteArray(), CHARSET);
-          byteBuffer.reset();
-          OperationErrorType eType = classifyError(line);
-          if (eType != null) {
-            errorMsg = line.getBytes();
-            handleError(eType, line);
-          } else {
-            handleLine(line);
-          }
+      }
+    }
+  }
+
+  /**
+   * Scan for the end of the current line and append everything up to it to
+   * the line buffer.
+   *
+   * The scan works on the backing array of heap buffers and on absolute
+   * offsets otherwise, and the bytes are then moved with a single bulk get.
+   *
+   * @param data the buffer to read from.
+   * @return true if a complete line (without its CRLF) is in the line buffer.
+   */
+  private boolean readLine(ByteBuffer data) {
+    int pos = data.position();
+    int eol = indexOfLf(data, pos, data.limit());
+    int toRead = (eol < 0 ? data.limit() : eol) - pos;
+    if (lineLength + toRead > lineBytes.length) {
+      byte[] grown = new byte[Math.max(lineBytes.length * 2,
+          lineLength + toRead)];
+      System.arraycopy(lineBytes, 0, grown, 0, lineLength);
+      lineBytes = grown;
+    }
+    data.get(lineBytes, lineLength, toRead);
+    lineLength += toRead;
+    if (eol < 0) {
+      return false;
+    }
+    // Skip the \n and drop the \r in front of it.
+    data.get();
+    if (lineLength > 0 && lineBytes[lineLength - 1] == '\r') {
+      lineLength--;
+    } else {
+      assert false : "got a \\n without a \\r";
+    }
+    return true;
+  }
+
+  /**
+   * Find the first \n between the given absolute positions of the buffer.
+   *
+   * @return the position of the \n, or -1 if there is none.
+   */
+  static int indexOfLf(ByteBuffer data, int from, int to) {
+    if (data.hasArray()) {
+      final byte[] a = data.array();
+      final int off = data.arrayOffset();
+      for (int i = from + off, end = to + off; i < end; i++) {
+        if (a[i] == '\n') {
+          return i - off;
         }
       }
+    } else {
+      for (int i = from; i < to; i++) {
+        if (data.get(i) == '\n') {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check whether the first length bytes of the line start with the given
+   * prefix.
+   */
+  protected static boolean startsWith(byte[] line, int length,
+      byte[] prefix) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (line[i] != prefix[i]) {
+        return false;
+      }
     }
+    return true;
+  }
+
+  /**
+   * Check whether the first length bytes of the line are the given bytes.
+   */
+  protected static boolean matches(byte[] line, int length, byte[] expected) {
+    return length == expected.length && startsWith(line, length, expected);
+  }
+
+  /**
+   * Parse a non-negative decimal number from the given range of the line.
+   *
+   * @throws NumberFormatException if the range holds anything but digits.
+   */
+  protected static long parseLong(byte[] line, int from, int to) {
+    if (from >= to) {
+      throw new NumberFormatException("Empty number");
+    }
+    long rv = 0;
+    for (int i = from; i < to; i++) {
+      int digit = line[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Invalid digit: " + (char) line[i]);
+      }
+      rv = rv * 10 + digit;
+    }
+    return rv;
+  }
+
+  /**
+   * Handle a complete response line held in the first length bytes of the
+   * given array.
+   *
+   * The array is reused for the next line once this returns. By default the
+   * line is decoded into a String and passed to {@link #handleLine(String)};
+   * hot operations override this to match their responses as bytes.
+   *
+   * @param line the line buffer.
+   * @param length the length of the line, without the CRLF.
+   */
+  protected void handleLine(byte[] line, int length) throws IOException {
+    handleLine(new String(line, 0, length, CHARSET));
   }
 
   /*
@@ -22,6 +22,7 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.StoreOperation;
 import net.spy.memcached.ops.StoreType;
@@ -40,6 +41,12 @@ final class StoreOperationImpl extends BaseStoreOperationImpl implements
     storeType = t;
   }
 
+  public StoreOperationImpl(StoreType t, String k, CachedData d, int e,
+      OperationCallback cb) {
+    super(t.name(), k, d, e, cb);
+    storeType = t;
+  }
+
   public StoreType getStoreType() {
     return storeType;
   }
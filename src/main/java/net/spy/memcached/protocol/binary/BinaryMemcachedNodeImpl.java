@@ -27,6 +27,7 @@ import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 
+import net.spy.memcached.BufferAllocator;
 import net.spy.memcached.ConnectionFactory;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.GetOperation;
@@ -53,6 +54,15 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
       at, fa);
   }
 
+  public BinaryMemcachedNodeImpl(SocketAddress sa, SocketChannel c,
+      int bufSize, BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
+      BlockingQueue<Operation> iq, Long opQueueMaxBlockTimeNs,
+      boolean waitForAuth, long dt, long at, ConnectionFactory fa,
+      BufferAllocator allocator) {
+    super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, waitForAuth, dt,
+      at, fa, allocator);
+  }
+
   @Override
   protected void optimize() {
     Operation firstOp = writeQ.peek();
@@ -67,6 +77,7 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
     // make sure there are at least two get operations in a row before
     // attempting to optimize them.
     optimizedOp = writeQ.remove();
+    dequeued(optimizedOp);
     if (writeQ.peek() instanceof GetOperation) {
       OptimizedGetImpl og = new OptimizedGetImpl((GetOperation) optimizedOp);
       optimizedOp = og;
@@ -74,6 +85,7 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
       while (writeQ.peek() instanceof GetOperation
           && og.size() < MAX_GET_OPTIMIZATION_COUNT) {
         GetOperation o = (GetOperation) writeQ.remove();
+        dequeued(o);
         if (!o.isCancelled()) {
           og.addOperation(o);
         }
@@ -92,16 +104,28 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
     // make sure there are at least two get operations in a row before
     // attempting to optimize them.
     optimizedOp = writeQ.remove();
+    dequeued(optimizedOp);
     if (writeQ.peek() instanceof CASOperation) {
-      OptimizedSetImpl og = new OptimizedSetImpl((CASOperation) optimizedOp);
+      OptimizedSetImpl og;
+      // Cancelling a store releases the buffer of its value, so hold the
+      // store while the value is copied.
+      synchronized (optimizedOp) {
+        if (optimizedOp.isCancelled()) {
+          return;
+        }
+        og = new OptimizedSetImpl((CASOperation) optimizedOp);
+      }
       optimizedOp = og;
 
       while (writeQ.peek() instanceof StoreOperation
           && og.size() < MAX_SET_OPTIMIZATION_COUNT
           && og.bytes() < MAX_SET_OPTIMIZATION_BYTES) {
         CASOperation o = (CASOperation) writeQ.remove();
-        if (!o.isCancelled()) {
-          og.addOperation(o);
+        dequeued(o);
+        synchronized (o) {
+          if (!o.isCancelled()) {
+            og.addOperation(o);
+          }
         }
       }
 
@@ -28,11 +28,15 @@
 
 package net.spy.memcached.protocol.binary;
 
+import net.spy.memcached.BulkMutationOperationFactory;
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkMutationOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
 import net.spy.memcached.ops.ConcatenationType;
 import net.spy.memcached.ops.ConfigurationType;
+import net.spy.memcached.ops.DeleteBulkOperation;
 import net.spy.memcached.ops.DeleteOperation;
 import net.spy.memcached.ops.FlushOperation;
 import net.spy.memcached.ops.GetAndTouchOperation;
@@ -59,9 +63,11 @@ import net.spy.memcached.ops.SASLMechsOperation;
 import net.spy.memcached.ops.SASLStepOperation;
 import net.spy.memcached.ops.SetConfigOperation;
 import net.spy.memcached.ops.StatsOperation;
+import net.spy.memcached.ops.StoreBulkOperation;
 import net.spy.memcached.ops.StoreOperation;
 import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.ops.TapOperation;
+import net.spy.memcached.ops.TouchBulkOperation;
 import net.spy.memcached.ops.TouchOperation;
 import net.spy.memcached.ops.UnlockOperation;
 import net.spy.memcached.ops.VersionOperation;
@@ -76,7 +82,8 @@ import java.util.Map;
 /**
  * Factory for binary operations.
  */
-public class BinaryOperationFactory extends BaseOperationFactory {
+public class BinaryOperationFactory extends BaseOperationFactory
+  implements BulkMutationOperationFactory {
 
   public DeleteOperation
   delete(String key, DeleteOperation.Callback operationCallback) {
@@ -162,11 +169,32 @@ public class BinaryOperationFactory extends BaseOperationFactory {
     return new StoreOperationImpl(storeType, key, flags, exp, data, 0, cb);
   }
 
+  public StoreOperation store(StoreType storeType, String key,
+      CachedData data, int exp, StoreOperation.Callback cb) {
+    return new StoreOperationImpl(storeType, key, data, exp, 0, cb);
+  }
+
   public TouchOperation touch(String key, int expiration,
       OperationCallback cb) {
     return new TouchOperationImpl(key, expiration, cb);
   }
 
+  public StoreBulkOperation storeBulk(StoreType storeType,
+      Map<String, CachedData> values, int exp,
+      BulkMutationOperation.Callback cb) {
+    return new StoreBulkOperationImpl(storeType, values, exp, cb);
+  }
+
+  public DeleteBulkOperation deleteBulk(Collection<String> keys,
+      BulkMutationOperation.Callback cb) {
+    return new DeleteBulkOperationImpl(keys, cb);
+  }
+
+  public TouchBulkOperation touchBulk(Collection<String> keys, int expiration,
+      BulkMutationOperation.Callback cb) {
+    return new TouchBulkOperationImpl(keys, expiration, cb);
+  }
+
   public Operation refreshCertificate(OperationCallback cb) {
     throw new UnsupportedOperationException("Certificate refresh is not supported in binary mode");
   }
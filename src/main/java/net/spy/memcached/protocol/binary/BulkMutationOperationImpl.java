@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.OperationErrorType;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Base class for operations mutating many keys with one pipelined request.
+ *
+ * <p>
+ * One request per key is encoded into a single buffer, followed by a NOOP.
+ * Subclasses preferably use quiet commands, for which the server only answers
+ * on failure; once the NOOP response arrives, every key that did not get a
+ * response has succeeded.
+ * </p>
+ */
+abstract class BulkMutationOperationImpl extends MultiKeyOperationImpl
+  implements BulkMutationOperation {
+
+  private final int terminalOpaque = generateOpaque();
+
+  /**
+   * All keys of this operation by request opaque, in request order.
+   */
+  private final Map<Integer, String> requests =
+      new LinkedHashMap<Integer, String>();
+
+  /**
+   * Keys still waiting for a status by request opaque, guarded by itself.
+   */
+  private final Map<Integer, String> pending = new HashMap<Integer, String>();
+
+  protected BulkMutationOperationImpl(Collection<String> keys,
+      BulkMutationOperation.Callback cb) {
+    super(DUMMY_OPCODE, -1, cb);
+    for (String k : keys) {
+      vbmap.put(k, Short.valueOf((short) 0));
+      requests.put(generateOpaque(), k);
+    }
+    pending.putAll(requests);
+  }
+
+  /**
+   * Get the number of bytes needed for the request for the given key.
+   *
+   * @param key the key
+   * @param keyBytes the encoded key
+   */
+  protected abstract int requestSize(String key, byte[] keyBytes);
+
+  /**
+   * Encode the request for the given key.
+   *
+   * @param bb the buffer to encode into
+   * @param key the key
+   * @param keyBytes the encoded key
+   * @param reqOpaque the opaque of this request
+   */
+  protected abstract void encodeRequest(ByteBuffer bb, String key,
+      byte[] keyBytes, int reqOpaque);
+
+  /**
+   * Write a request header for the given key.
+   */
+  protected final void putHeader(ByteBuffer bb, byte reqCmd, String key,
+      byte[] keyBytes, int extraLen, int valueLen, int reqOpaque) {
+    bb.put(REQ_MAGIC);
+    bb.put(reqCmd);
+    bb.putShort((short) keyBytes.length);
+    bb.put((byte) extraLen);
+    bb.put((byte) 0); // data type
+    bb.putShort(getVBucket(key));
+    bb.putInt(keyBytes.length + extraLen + valueLen);
+    bb.putInt(reqOpaque);
+    bb.putLong(0); // cas
+  }
+
+  @Override
+  public void initialize() {
+    List<Map.Entry<Integer, String>> toSend =
+        new ArrayList<Map.Entry<Integer, String>>(requests.size());
+    synchronized (pending) {
+      for (Map.Entry<Integer, String> me : requests.entrySet()) {
+        if (pending.containsKey(me.getKey())) {
+          toSend.add(me);
+        }
+      }
+    }
+    List<byte[]> keyBytes = new ArrayList<byte[]>(toSend.size());
+    int size = MIN_RECV_PACKET;
+    for (Map.Entry<Integer, String> me : toSend) {
+      byte[] kb = KeyUtil.getKeyBytes(me.getValue());
+      keyBytes.add(kb);
+      size += requestSize(me.getValue(), kb);
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    for (int i = 0; i < toSend.size(); i++) {
+      Map.Entry<Integer, String> me = toSend.get(i);
+      encodeRequest(bb, me.getValue(), keyBytes.get(i), me.getKey());
+    }
+    // Add the noop
+    bb.put(REQ_MAGIC);
+    bb.put(NoopOperationImpl.CMD);
+    bb.putShort((short) 0);
+    bb.put((byte) 0); // extralen
+    bb.put((byte) 0); // data type
+    bb.putShort((short) 0); // reserved
+    bb.putInt(0);
+    bb.putInt(terminalOpaque);
+    bb.putLong(0); // cas
+
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  @Override
+  protected void finishedPayload(byte[] pl) throws IOException {
+    if (responseOpaque == terminalOpaque) {
+      resolveAll(STATUS_OK);
+      getCallback().receivedStatus(STATUS_OK);
+      transitionState(OperationState.COMPLETE);
+    } else {
+      OperationStatus status = errorCode == SUCCESS ? STATUS_OK
+          : new OperationStatus(false, new String(pl),
+              StatusCode.fromBinaryCode(errorCode));
+      String key;
+      synchronized (pending) {
+        key = pending.remove(responseOpaque);
+      }
+      if (key != null) {
+        ((BulkMutationOperation.Callback) getCallback()).gotStatus(key,
+            status);
+      }
+    }
+    resetInput();
+  }
+
+  @Override
+  protected boolean opaqueIsValid() {
+    return responseOpaque == terminalOpaque
+        || requests.containsKey(responseOpaque);
+  }
+
+  @Override
+  protected void wasCancelled() {
+    resolveAll(CANCELLED);
+  }
+
+  @Override
+  protected void wasTimedOut() {
+    resolveAll(TIMED_OUT);
+  }
+
+  @Override
+  protected void wasRejected(OperationStatus status) {
+    resolveAll(status);
+  }
+
+  @Override
+  protected void handleError(OperationErrorType eType, String line)
+    throws IOException {
+    resolveAll(new OperationStatus(false, line, StatusCode.ERR_INTERNAL));
+    super.handleError(eType, line);
+  }
+
+  /**
+   * Report the given status for every key that has none yet.
+   */
+  private void resolveAll(OperationStatus status) {
+    List<String> keys;
+    synchronized (pending) {
+      keys = new ArrayList<String>(pending.values());
+      pending.clear();
+    }
+    BulkMutationOperation.Callback cb =
+        (BulkMutationOperation.Callback) getCallback();
+    for (String k : keys) {
+      cb.gotStatus(k, status);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.DeleteBulkOperation;
+
+/**
+ * Bulk delete using the quiet DELETEQ command.
+ */
+class DeleteBulkOperationImpl extends BulkMutationOperationImpl
+  implements DeleteBulkOperation {
+
+  static final byte DELETEQ = 0x14;
+
+  public DeleteBulkOperationImpl(Collection<String> keys,
+      BulkMutationOperation.Callback cb) {
+    super(keys, cb);
+  }
+
+  @Override
+  protected int requestSize(String key, byte[] keyBytes) {
+    return MIN_RECV_PACKET + keyBytes.length;
+  }
+
+  @Override
+  protected void encodeRequest(ByteBuffer bb, String key, byte[] keyBytes,
+      int reqOpaque) {
+    putHeader(bb, DELETEQ, key, keyBytes, 0, 0, reqOpaque);
+    bb.put(keyBytes);
+  }
+}
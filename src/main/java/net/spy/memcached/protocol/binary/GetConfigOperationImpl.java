@@ -35,12 +35,14 @@ class GetConfigOperationImpl extends OperationImpl implements GetConfigOperation
   }
 
   @Override
-  protected void decodePayload(byte[] pl) {
-    final int flags = decodeInt(pl, 0);
-    final byte[] data = new byte[pl.length - EXTRA_HDR_LEN];
-    System.arraycopy(pl, EXTRA_HDR_LEN, data, 0, pl.length - EXTRA_HDR_LEN);
+  protected boolean decodesValue() {
+    return true;
+  }
+
+  @Override
+  protected void decodeValue(int flags, byte[] val) {
     GetConfigOperation.Callback gcb = (GetConfigOperation.Callback) getCallback();
-    gcb.gotData(type, flags, data);
+    gcb.gotData(type, flags, val);
     getCallback().receivedStatus(STATUS_OK);
   }
 
@@ -27,10 +27,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 
 import net.spy.memcached.KeyUtil;
 import net.spy.memcached.ops.GetOperation;
@@ -42,63 +39,75 @@ import net.spy.memcached.ops.StatusCode;
 
 import static net.spy.memcached.protocol.binary.GetOperationImpl.EXTRA_HDR_LEN;
 
+/**
+ * Fetch many keys with one pipelined request.
+ *
+ * <p>
+ * Every key is requested with a quiet GETKQ, so only hits are answered, and
+ * the request is terminated by a NOOP. The opaques of the requests are one
+ * contiguous block reserved when the operation is initialized, which maps a
+ * response to its key by subtracting the first opaque of the block.
+ * </p>
+ */
 public class MultiGetOperationImpl extends MultiKeyOperationImpl implements
     GetOperation {
 
-  private static final byte CMD_GETQ = 0x09;
+  static final byte CMD_GETKQ = 0x0d;
 
-  private final Map<Integer, String> keys = new HashMap<Integer, String>();
-  private final Map<Integer, byte[]> bkeys = new HashMap<Integer, byte[]>();
-  private final Map<String, Integer> rkeys = new HashMap<String, Integer>();
+  private final List<String> keys = new ArrayList<String>();
+  private final List<byte[]> bkeys = new ArrayList<byte[]>();
 
-  private final int terminalOpaque = generateOpaque();
+  /**
+   * The opaque of the first key, the NOOP uses the one after the last key.
+   */
+  private int baseOpaque = -1;
+  private int terminalOpaque = -1;
   private final List<String> retryKeys = new ArrayList<String>();
 
   public MultiGetOperationImpl(Collection<String> k, OperationCallback cb) {
     super(DUMMY_OPCODE, -1, cb);
-    for (String s : new HashSet<String>(k)) {
+    for (String s : k) {
       addKey(s);
     }
   }
 
   /**
-   * Add a key (and return its new opaque value).
+   * Add a key unless it is already part of this operation.
    */
-  protected int addKey(String k) {
-    Integer rv = rkeys.get(k);
-    if (rv == null) {
-      rv = generateOpaque();
-      keys.put(rv, k);
-      bkeys.put(rv, KeyUtil.getKeyBytes(k));
-      rkeys.put(k, rv);
-      synchronized (vbmap) {
-        vbmap.put(k, new Short((short) 0));
+  protected void addKey(String k) {
+    synchronized (vbmap) {
+      if (vbmap.containsKey(k)) {
+        return;
       }
+      vbmap.put(k, Short.valueOf((short) 0));
     }
-    return rv;
+    keys.add(k);
+    bkeys.add(KeyUtil.getKeyBytes(k));
   }
 
   @Override
   public void initialize() {
-    int size = (1 + keys.size()) * MIN_RECV_PACKET;
-    for (byte[] b : bkeys.values()) {
+    int count = keys.size();
+    int size = (1 + count) * MIN_RECV_PACKET;
+    for (byte[] b : bkeys) {
       size += b.length;
     }
+    baseOpaque = generateOpaques(count + 1);
+    terminalOpaque = baseOpaque + count;
     // set up the initial header stuff
     ByteBuffer bb = ByteBuffer.allocate(size);
-    for (Map.Entry<Integer, byte[]> me : bkeys.entrySet()) {
-      final byte[] keyBytes = me.getValue();
-      final String key = keys.get(me.getKey());
+    for (int i = 0; i < count; i++) {
+      final byte[] keyBytes = bkeys.get(i);
 
       // Custom header
       bb.put(REQ_MAGIC);
-      bb.put(CMD_GETQ);
+      bb.put(CMD_GETKQ);
       bb.putShort((short) keyBytes.length);
       bb.put((byte) 0); // extralen
       bb.put((byte) 0); // data type
-      bb.putShort(vbmap.get(key).shortValue()); // vbucket
+      bb.putShort(vbmap.get(keys.get(i)).shortValue()); // vbucket
       bb.putInt(keyBytes.length);
-      bb.putInt(me.getKey());
+      bb.putInt(baseOpaque + i);
       bb.putLong(0); // cas
       // the actual key
       bb.put(keyBytes);
@@ -118,6 +127,13 @@ public class MultiGetOperationImpl extends MultiKeyOperationImpl implements
     setBuffer(bb);
   }
 
+  /**
+   * Get the key of the current response.
+   */
+  private String responseKey() {
+    return keys.get(responseOpaque - baseOpaque);
+  }
+
   @Override
   protected void finishedPayload(byte[] pl) throws IOException {
     getStatusForErrorCode(errorCode, pl);
@@ -134,23 +150,36 @@ public class MultiGetOperationImpl extends MultiKeyOperationImpl implements
         transitionState(OperationState.COMPLETE);
       }
     } else if (errorCode == ERR_NOT_MY_VBUCKET) {
-      retryKeys.add(keys.get(responseOpaque));
+      retryKeys.add(responseKey());
     } else if (errorCode != SUCCESS) {
-      getLogger().warn("Error on key %s:  %s (%d)", keys.get(responseOpaque),
+      getLogger().warn("Error on key %s:  %s (%d)", responseKey(),
           new String(pl), errorCode);
     } else {
       final int flags = decodeInt(pl, 0);
-      final byte[] data = new byte[pl.length - EXTRA_HDR_LEN];
-      System.arraycopy(pl, EXTRA_HDR_LEN, data, 0, pl.length - EXTRA_HDR_LEN);
+      final int offset = EXTRA_HDR_LEN + keyLen;
+      final byte[] data = new byte[pl.length - offset];
+      System.arraycopy(pl, offset, data, 0, pl.length - offset);
       Callback cb = (Callback) getCallback();
-      cb.gotData(keys.get(responseOpaque), flags, data);
+      cb.gotData(responseKey(), flags, data);
     }
     resetInput();
   }
 
+  @Override
+  protected boolean decodesValue() {
+    return true;
+  }
+
+  @Override
+  protected void finishedValue(int flags, byte[] val) throws IOException {
+    Callback cb = (Callback) getCallback();
+    cb.gotData(responseKey(), flags, val);
+    resetInput();
+  }
+
   @Override
   protected boolean opaqueIsValid() {
-    return responseOpaque == terminalOpaque || keys.containsKey(responseOpaque);
+    return responseOpaque >= baseOpaque && responseOpaque <= terminalOpaque;
   }
 
   /**
@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.CASResponse;
 import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ValueBuffer;
 import net.spy.memcached.ops.CASOperationStatus;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
@@ -80,7 +81,11 @@ public  abstract class OperationImpl extends BaseOperationImpl
   protected short vbucket = 0;
   protected final int opaque;
 
-  private final byte[] header = new byte[MIN_RECV_PACKET];
+  /**
+   * Holds the response header only if it arrives split across reads,
+   * otherwise the header is decoded in place from the read buffer.
+   */
+  private byte[] header = null;
   private int headerOffset = 0;
   private byte[] payload = null;
   private byte[] errorMsg = null;
@@ -91,9 +96,16 @@ public  abstract class OperationImpl extends BaseOperationImpl
   protected int errorCode;
   protected int responseOpaque;
   protected long responseCas;
+  protected int extraLen;
 
   private int payloadOffset = 0;
 
+  // Value decoding state, see readValueFromBuffer
+  private byte[] value = null;
+  private int valueOffset = 0;
+  private int valueFlags = 0;
+  private int skipOffset = 0;
+
   /**
    * Construct with opaque.
    *
@@ -111,6 +123,10 @@ public  abstract class OperationImpl extends BaseOperationImpl
     payload = null;
     payloadOffset = 0;
     headerOffset = 0;
+    value = null;
+    valueOffset = 0;
+    valueFlags = 0;
+    skipOffset = 0;
   }
 
   /**
@@ -121,6 +137,10 @@ public  abstract class OperationImpl extends BaseOperationImpl
    * bytes, indicated by {@link #MIN_RECV_PACKET}). Then, the payload is read
    * (if one is available for this operation and can be loaded fully).
    *
+   * Successful responses to operations that {@link #decodesValue()} skip the
+   * payload stage: the flags are decoded from the extras as they stream by,
+   * the key is skipped and only the value bytes are copied out of the buffer.
+   *
    * @param buffer the buffer to read from.
    * @throws IOException if an error happened during parsing/reading.
    */
@@ -128,12 +148,11 @@ public  abstract class OperationImpl extends BaseOperationImpl
   public void readFromBuffer(final ByteBuffer buffer) throws IOException {
     if (headerOffset < MIN_RECV_PACKET) {
       readHeaderFromBuffer(buffer);
-      if (headerOffset == MIN_RECV_PACKET) {
-        parseHeaderFromBuffer();
-      }
     }
 
-    if (headerOffset >= MIN_RECV_PACKET && payload == null) {
+    if (value != null) {
+      readValueFromBuffer(buffer);
+    } else if (headerOffset >= MIN_RECV_PACKET && payload == null) {
       finishedPayload(EMPTY_BYTES);
     } else if (payload != null) {
       readPayloadFromBuffer(buffer);
@@ -150,30 +169,57 @@ public  abstract class OperationImpl extends BaseOperationImpl
    * @param buffer the buffer to read from.
    */
   private void readHeaderFromBuffer(final ByteBuffer buffer) {
+    if (headerOffset == 0 && buffer.remaining() >= MIN_RECV_PACKET
+        && buffer.order() == ByteOrder.BIG_ENDIAN) {
+      int pos = buffer.position();
+      parseHeader(buffer, pos);
+      buffer.position(pos + MIN_RECV_PACKET);
+      headerOffset = MIN_RECV_PACKET;
+      return;
+    }
+    if (header == null) {
+      header = new byte[MIN_RECV_PACKET];
+    }
     int toRead = MIN_RECV_PACKET - headerOffset;
     int available = buffer.remaining();
     toRead = Math.min(toRead, available);
     getLogger().debug("Reading %d header bytes", toRead);
     buffer.get(header, headerOffset, toRead);
     headerOffset += toRead;
+    if (headerOffset == MIN_RECV_PACKET) {
+      parseHeader(ByteBuffer.wrap(header), 0);
+    }
   }
 
   /**
-   * Parse the header info out of the buffer.
+   * Parse the header info out of the buffer, starting at the given absolute
+   * position. The position of the buffer is left untouched.
+   *
+   * @param buffer the (big endian) buffer holding the header.
+   * @param pos the position of the first header byte.
    */
-  private void parseHeaderFromBuffer() {
-    int magic = header[0];
+  private void parseHeader(final ByteBuffer buffer, final int pos) {
+    int magic = buffer.get(pos);
     assert magic == RES_MAGIC : "Invalid magic:  " + magic;
-    responseCmd = header[1];
+    responseCmd = buffer.get(pos + 1);
     assert cmd == DUMMY_OPCODE || responseCmd == cmd
       : "Unexpected response command value";
-    keyLen = decodeShort(header, 2);
-    errorCode = decodeShort(header, 6);
-    int bytesToRead = decodeInt(header, 8);
-    payload = new byte[bytesToRead];
-    responseOpaque = decodeInt(header, 12);
-    responseCas = decodeLong(header, 16);
+    keyLen = buffer.getShort(pos + 2) & 0xffff;
+    extraLen = buffer.get(pos + 4) & 0xff;
+    errorCode = buffer.getShort(pos + 6) & 0xffff;
+    int bytesToRead = buffer.getInt(pos + 8);
+    responseOpaque = buffer.getInt(pos + 12);
+    responseCas = buffer.getLong(pos + 16);
     assert opaqueIsValid() : "Opaque is not valid";
+
+    if (bytesToRead == 0) {
+      payload = EMPTY_BYTES;
+    } else if (errorCode == SUCCESS && decodesValue()
+        && bytesToRead >= extraLen + keyLen) {
+      value = new byte[bytesToRead - extraLen - keyLen];
+    } else {
+      payload = new byte[bytesToRead];
+    }
   }
 
   /**
@@ -197,6 +243,72 @@ public  abstract class OperationImpl extends BaseOperationImpl
     }
   }
 
+  /**
+   * Read the body of a successful value response from the buffer.
+   *
+   * The flags are accumulated from the leading extras bytes and the rest of
+   * the extras and the key are skipped, so the value array is the only
+   * allocation made for the response.
+   *
+   * @param buffer the buffer to read from.
+   * @throws IOException if an error occures during value finishing.
+   */
+  private void readValueFromBuffer(final ByteBuffer buffer)
+    throws IOException {
+    int flagsLen = Math.min(extraLen, 4);
+    while (skipOffset < flagsLen && buffer.hasRemaining()) {
+      valueFlags = valueFlags << 8 | (buffer.get() & 0xff);
+      skipOffset++;
+    }
+    int toSkip = Math.min(extraLen + keyLen - skipOffset, buffer.remaining());
+    buffer.position(buffer.position() + toSkip);
+    skipOffset += toSkip;
+
+    if (skipOffset == extraLen + keyLen) {
+      int toRead = Math.min(value.length - valueOffset, buffer.remaining());
+      getLogger().debug("Reading %d value bytes", toRead);
+      buffer.get(value, valueOffset, toRead);
+      valueOffset += toRead;
+
+      if (valueOffset == value.length) {
+        finishedValue(valueFlags, value);
+      }
+    }
+  }
+
+  /**
+   * Whether successful responses to this operation carry flags and a value
+   * which should be decoded with {@link #decodeValue(int, byte[])} instead of
+   * {@link #decodePayload(byte[])}.
+   *
+   * @return true if the response body holds a value.
+   */
+  protected boolean decodesValue() {
+    return false;
+  }
+
+  /**
+   * Called once the value of a successful response has been read.
+   *
+   * @param flags the flags from the response extras.
+   * @param val the value bytes.
+   * @throws IOException if an error occures during value finishing.
+   */
+  protected void finishedValue(int flags, byte[] val) throws IOException {
+    decodeValue(flags, val);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  /**
+   * Decode the given value for this command.
+   *
+   * @param flags the flags from the response extras.
+   * @param val the value bytes.
+   */
+  protected void decodeValue(int flags, byte[] val) {
+    assert false : "Value decoding requested, but decode isn't overridden";
+  }
+
   protected void finishedPayload(byte[] pl) throws IOException {
     OperationStatus status = getStatusForErrorCode(errorCode, pl);
 
@@ -227,7 +339,7 @@ public  abstract class OperationImpl extends BaseOperationImpl
         return STATUS_OK;
     } else {
         StatusCode statusCode = StatusCode.fromBinaryCode(errCode);
-        errorMsg = errPl.clone();
+        errorMsg = errPl;
 
         switch (errCode) {
             case ERR_NOT_FOUND:
@@ -322,37 +434,72 @@ public  abstract class OperationImpl extends BaseOperationImpl
    */
   protected void prepareBuffer(final String key, final long cas,
     final byte[] val, final Object... extraHeaders) {
-    int extraLen = 0;
-    int extraHeadersLength = extraHeaders.length;
-
-    if (extraHeadersLength > 0) {
-      extraLen = calculateExtraLength(extraHeaders);
-    }
-
+    int extraLen = calculateExtraLength(extraHeaders);
     final byte[] keyBytes = KeyUtil.getKeyBytes(key);
     int bufSize = MIN_RECV_PACKET + keyBytes.length + val.length;
 
     ByteBuffer bb = ByteBuffer.allocate(bufSize + extraLen);
     assert bb.order() == ByteOrder.BIG_ENDIAN;
+    putHeader(bb, keyBytes, cas, val.length, extraLen, extraHeaders);
+    bb.put(val);
+
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  /**
+   * Prepare the buffer for sending with a payload encoded in a buffer.
+   *
+   * The header is written into the headroom of the buffer, right in front
+   * of the payload, so the payload is sent without being copied. If the
+   * header does not fit, the payload is copied after all.
+   *
+   * @param key the key (for keyed ops).
+   * @param cas the cas value.
+   * @param val the buffer holding the data payload.
+   * @param extraHeaders any additional headers that need to be sent.
+   */
+  protected void prepareBuffer(final String key, final long cas,
+    final ValueBuffer val, final Object... extraHeaders) {
+    int extraLen = calculateExtraLength(extraHeaders);
+    final byte[] keyBytes = KeyUtil.getKeyBytes(key);
+    int headerLen = MIN_RECV_PACKET + extraLen + keyBytes.length;
+    if (headerLen > val.getHeadroom()) {
+      prepareBuffer(key, cas, val.toByteArray(), extraHeaders);
+      return;
+    }
+
+    ByteBuffer bb = val.getBuffer();
+    bb.limit(bb.position());
+    bb.position(val.getHeadroom() - headerLen);
+    ByteBuffer header = bb.duplicate();
+    assert header.order() == ByteOrder.BIG_ENDIAN;
+    putHeader(header, keyBytes, cas, val.size(), extraLen, extraHeaders);
+    assert header.position() == val.getHeadroom();
+    setBuffer(bb);
+  }
+
+  /**
+   * Write the header, extra headers and key of a request.
+   */
+  private void putHeader(final ByteBuffer bb, final byte[] keyBytes,
+    final long cas, final int valLength, final int extraLen,
+    final Object... extraHeaders) {
     bb.put(REQ_MAGIC);
     bb.put(cmd);
     bb.putShort((short) keyBytes.length);
     bb.put((byte) extraLen);
     bb.put((byte) 0);
     bb.putShort(vbucket);
-    bb.putInt(keyBytes.length + val.length + extraLen);
+    bb.putInt(keyBytes.length + valLength + extraLen);
     bb.putInt(opaque);
     bb.putLong(cas);
 
-    if (extraHeadersLength > 0) {
+    if (extraHeaders.length > 0) {
       addExtraHeaders(bb, extraHeaders);
     }
 
     bb.put(keyBytes);
-    bb.put(val);
-
-    bb.flip();
-    setBuffer(bb);
   }
 
   /**
@@ -414,6 +561,23 @@ public  abstract class OperationImpl extends BaseOperationImpl
     return rv;
   }
 
+  /**
+   * Generate a contiguous block of opaque IDs.
+   *
+   * @param count the number of IDs to reserve
+   * @return the first ID of the block
+   */
+  static int generateOpaques(int count) {
+    int last = SEQ_NUMBER.addAndGet(count);
+    int first = last - count + 1;
+    while (first <= 0 || last < first) {
+      SEQ_NUMBER.compareAndSet(last, 0);
+      last = SEQ_NUMBER.addAndGet(count);
+      first = last - count + 1;
+    }
+    return first;
+  }
+
   @Override
   public String toString() {
     return "Cmd: " + cmd + " Opaque: " + opaque;
@@ -72,6 +72,10 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
 
     byteCount += MIN_RECV_PACKET + StoreOperationImpl.EXTRA_LEN + keylen
       + op.getData().length;
+    // The value is sent from the copy taken above, not from its own buffer.
+    if (op instanceof StoreOperationImpl) {
+      ((StoreOperationImpl) op).releaseBuffer();
+    }
   }
 
   public int size() {
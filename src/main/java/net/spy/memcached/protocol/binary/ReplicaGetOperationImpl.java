@@ -51,14 +51,15 @@ public class ReplicaGetOperationImpl extends SingleKeyOperationImpl
   }
 
   @Override
-  protected void decodePayload(byte[] pl) {
-    final int flags = decodeInt(pl, 0);
-    final byte[] data = new byte[pl.length - EXTRA_HDR_LEN - keyLen];
-    System.arraycopy(pl, (EXTRA_HDR_LEN + keyLen), data, 0,
-      pl.length - EXTRA_HDR_LEN - keyLen);
+  protected boolean decodesValue() {
+    return true;
+  }
+
+  @Override
+  protected void decodeValue(int flags, byte[] val) {
     ReplicaGetOperation.Callback gcb =
       (ReplicaGetOperation.Callback) getCallback();
-    gcb.gotData(key, flags, data);
+    gcb.gotData(key, flags, val);
     getCallback().receivedStatus(STATUS_OK);
   }
 
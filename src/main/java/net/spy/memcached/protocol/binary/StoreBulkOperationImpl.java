@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.StoreBulkOperation;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Bulk store using the quiet SETQ, ADDQ and REPLACEQ commands.
+ */
+class StoreBulkOperationImpl extends BulkMutationOperationImpl
+  implements StoreBulkOperation {
+
+  private final StoreType storeType;
+  private final Map<String, CachedData> values;
+  private final int exp;
+
+  public StoreBulkOperationImpl(StoreType t, Map<String, CachedData> v,
+      int e, BulkMutationOperation.Callback cb) {
+    super(v.keySet(), cb);
+    storeType = t;
+    values = v;
+    exp = e;
+  }
+
+  @Override
+  protected int requestSize(String key, byte[] keyBytes) {
+    return MIN_RECV_PACKET + StoreOperationImpl.EXTRA_LEN + keyBytes.length
+      + values.get(key).getData().length;
+  }
+
+  @Override
+  protected void encodeRequest(ByteBuffer bb, String key, byte[] keyBytes,
+      int reqOpaque) {
+    CachedData cd = values.get(key);
+    byte[] data = cd.getData();
+    putHeader(bb, cmdMap(storeType), key, keyBytes,
+      StoreOperationImpl.EXTRA_LEN, data.length, reqOpaque);
+    bb.putInt(cd.getFlags());
+    bb.putInt(exp);
+    bb.put(keyBytes);
+    bb.put(data);
+  }
+
+  private static byte cmdMap(StoreType t) {
+    switch (t) {
+    case set:
+      return StoreOperationImpl.SETQ;
+    case add:
+      return StoreOperationImpl.ADDQ;
+    case replace:
+      return StoreOperationImpl.REPLACEQ;
+    default:
+      throw new IllegalArgumentException("Unhandled store type:  " + t);
+    }
+  }
+
+  public StoreType getStoreType() {
+    return storeType;
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  public CachedData getValue(String key) {
+    return values.get(key);
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + " Cmd: " + storeType + " Exp: " + exp;
+  }
+}
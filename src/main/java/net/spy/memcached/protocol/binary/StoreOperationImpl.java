@@ -23,7 +23,10 @@
 
 package net.spy.memcached.protocol.binary;
 
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ValueBuffer;
 import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.StoreOperation;
 import net.spy.memcached.ops.StoreType;
 
@@ -45,7 +48,8 @@ class StoreOperationImpl extends SingleKeyOperationImpl implements
   private final int flags;
   private final int exp;
   private final long cas;
-  private final byte[] data;
+  private final CachedData value;
+  private final int length;
 
   private static byte cmdMap(StoreType t) {
     byte rv;
@@ -72,14 +76,62 @@ class StoreOperationImpl extends SingleKeyOperationImpl implements
     super(cmdMap(t), generateOpaque(), k, cb);
     flags = f;
     exp = e;
-    data = d;
+    value = new CachedData(f, d, Integer.MAX_VALUE);
+    length = d.length;
+    cas = c;
+    storeType = t;
+  }
+
+  public StoreOperationImpl(StoreType t, String k, CachedData d, int e,
+      long c, StoreOperation.Callback cb) {
+    super(cmdMap(t), generateOpaque(), k, cb);
+    flags = d.getFlags();
+    exp = e;
+    value = d;
+    length = d.getBuffer() == null ? d.getData().length : d.getBuffer().size();
     cas = c;
     storeType = t;
   }
 
   @Override
   public void initialize() {
-    prepareBuffer(key, cas, data, flags, exp);
+    ValueBuffer buffer = value.getBuffer();
+    if (buffer != null) {
+      prepareBuffer(key, cas, buffer, flags, exp);
+    } else {
+      prepareBuffer(key, cas, value.getData(), flags, exp);
+    }
+  }
+
+  @Override
+  protected void wasCompleted() {
+    releaseBuffer();
+  }
+
+  @Override
+  protected void wasCancelled() {
+    // A store being written keeps its buffer until it completes.
+    if (getState() == OperationState.WRITE_QUEUED) {
+      releaseBuffer();
+    }
+  }
+
+  @Override
+  protected void wasTimedOut() {
+    if (getState() == OperationState.WRITE_QUEUED) {
+      releaseBuffer();
+    }
+  }
+
+  /**
+   * Give the buffer the value was encoded in back to its allocator, once the
+   * value is never written from it anymore.
+   */
+  void releaseBuffer() {
+    ValueBuffer buffer = value.getBuffer();
+    if (buffer != null) {
+      buffer.release();
+    }
   }
 
   public long getCasValue() {
@@ -95,7 +147,7 @@ class StoreOperationImpl extends SingleKeyOperationImpl implements
   }
 
   public byte[] getData() {
-    return data;
+    return value.getData();
   }
 
   public StoreType getStoreType() {
@@ -111,6 +163,6 @@ class StoreOperationImpl extends SingleKeyOperationImpl implements
   @Override
   public String toString() {
     return super.toString() + " Cas: " + cas + " Exp: " + exp + " Flags: "
-      + flags + " Data Length: " + data.length;
+      + flags + " Data Length: " + length;
   }
 }
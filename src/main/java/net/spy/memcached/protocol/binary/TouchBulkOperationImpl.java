@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.TouchBulkOperation;
+
+/**
+ * Bulk touch.
+ *
+ * The binary protocol has no quiet touch command, so every key gets a
+ * response; they are still all pipelined in a single request.
+ */
+class TouchBulkOperationImpl extends BulkMutationOperationImpl
+  implements TouchBulkOperation {
+
+  private static final int EXTRA_LEN = 4;
+
+  private final int exp;
+
+  public TouchBulkOperationImpl(Collection<String> keys, int e,
+      BulkMutationOperation.Callback cb) {
+    super(keys, cb);
+    exp = e;
+  }
+
+  @Override
+  protected int requestSize(String key, byte[] keyBytes) {
+    return MIN_RECV_PACKET + EXTRA_LEN + keyBytes.length;
+  }
+
+  @Override
+  protected void encodeRequest(ByteBuffer bb, String key, byte[] keyBytes,
+      int reqOpaque) {
+    putHeader(bb, TouchOperationImpl.CMD, key, keyBytes, EXTRA_LEN, 0,
+      reqOpaque);
+    bb.putInt(exp);
+    bb.put(keyBytes);
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + " Exp: " + exp;
+  }
+}
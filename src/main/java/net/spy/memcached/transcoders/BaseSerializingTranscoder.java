@@ -28,9 +28,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import net.spy.memcached.CachedData;
 import net.spy.memcached.compat.CloseUtil;
@@ -47,12 +46,40 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
    */
   public static final int DEFAULT_COMPRESSION_THRESHOLD = 16384;
 
+  /**
+   * The position of the compression codec id in the flags.
+   */
+  public static final int COMPRESSION_CODEC_SHIFT = 16;
+
+  /**
+   * The flag bits holding the id of the codec data was compressed with.
+   */
+  public static final int COMPRESSION_CODEC_MASK =
+      CompressionCodec.MAX_ID << COMPRESSION_CODEC_SHIFT;
+
+  /**
+   * The position of the dictionary id in the flags.
+   */
+  public static final int COMPRESSION_DICTIONARY_SHIFT = 20;
+
+  /**
+   * The flag bits holding the id of the dictionary data was compressed with,
+   * for the {@link DictionaryCompressionCodec}.
+   */
+  public static final int COMPRESSION_DICTIONARY_MASK =
+      CompressionDictionary.MAX_ID << COMPRESSION_DICTIONARY_SHIFT;
+
   private static final String DEFAULT_CHARSET = "UTF-8";
 
   protected int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
   protected String charset = DEFAULT_CHARSET;
+  protected CompressionCodec compressionCodec;
 
   private final int maxSize;
+  private final CompressionCodec[] codecs =
+      new CompressionCodec[CompressionCodec.MAX_ID + 1];
+  private final CompressionCodec[] dictionaryCodecs =
+      new CompressionCodec[CompressionDictionary.MAX_ID + 1];
 
   /**
    * Initialize a serializing transcoder with the given maximum data size.
@@ -60,6 +87,9 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
   public BaseSerializingTranscoder(int max) {
     super();
     maxSize = max;
+    compressionCodec = new GzipCompressionCodec();
+    codecs[GzipCompressionCodec.ID] = compressionCodec;
+    codecs[LzCompressionCodec.ID] = new LzCompressionCodec();
   }
 
   public boolean asyncDecode(CachedData d) {
@@ -76,6 +106,44 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
     compressionThreshold = to;
   }
 
+  /**
+   * Set the codec compressing data (defaults to GZIP).
+   *
+   * The codec is also used to decompress data carrying its id, like
+   * {@link #addCompressionCodec(CompressionCodec)} does. Data compressed with
+   * other codecs is still decompressed with the codec of its id.
+   *
+   * @param to the codec
+   */
+  public void setCompressionCodec(CompressionCodec to) {
+    addCompressionCodec(to);
+    compressionCodec = to;
+  }
+
+  /**
+   * Decompress data carrying the id of the given codec with that codec,
+   * replacing the codec previously known under that id.
+   *
+   * Readers must know a codec before writers start to use it. Dictionary
+   * codecs are known by the id of their dictionary, so any number of them
+   * can be added.
+   *
+   * @param codec the codec
+   */
+  public void addCompressionCodec(CompressionCodec codec) {
+    int id = codec.getId();
+    if (id < 0 || id > CompressionCodec.MAX_ID) {
+      throw new IllegalArgumentException("Invalid compression codec id: "
+          + id);
+    }
+    if (codec instanceof DictionaryCompressionCodec) {
+      dictionaryCodecs[((DictionaryCompressionCodec) codec).getDictionary()
+          .getId()] = codec;
+    } else {
+      codecs[id] = codec;
+    }
+  }
+
   /**
    * Set the character set for string value transcoding (defaults to UTF-8).
    */
@@ -93,26 +161,27 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
    * Get the bytes representing the given serialized object.
    */
   protected byte[] serialize(Object o) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    serialize(o, bos);
+    return bos.toByteArray();
+  }
+
+  /**
+   * Write the bytes representing the given serialized object to the given
+   * stream, which is left open.
+   */
+  protected void serialize(Object o, OutputStream out) {
     if (o == null) {
       throw new NullPointerException("Can't serialize null");
     }
-    byte[] rv=null;
-    ByteArrayOutputStream bos = null;
     ObjectOutputStream os = null;
     try {
-      bos = new ByteArrayOutputStream();
-      os = new ObjectOutputStream(bos);
+      os = new ObjectOutputStream(out);
       os.writeObject(o);
-      os.close();
-      bos.close();
-      rv = bos.toByteArray();
+      os.flush();
     } catch (IOException e) {
       throw new IllegalArgumentException("Non-serializable object", e);
-    } finally {
-      CloseUtil.close(os);
-      CloseUtil.close(bos);
     }
-    return rv;
   }
 
   /**
@@ -144,57 +213,70 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
   }
 
   /**
-   * Compress the given array of bytes.
+   * Compress the given array of bytes with the compression codec.
    */
   protected byte[] compress(byte[] in) {
     if (in == null) {
       throw new NullPointerException("Can't compress null");
     }
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    GZIPOutputStream gz = null;
-    try {
-      gz = new GZIPOutputStream(bos);
-      gz.write(in);
-    } catch (IOException e) {
-      throw new RuntimeException("IO exception compressing data", e);
-    } finally {
-      CloseUtil.close(gz);
-      CloseUtil.close(bos);
-    }
-    byte[] rv = bos.toByteArray();
+    byte[] rv = compressionCodec.compress(in);
     getLogger().debug("Compressed %d bytes to %d", in.length, rv.length);
     return rv;
   }
 
   /**
-   * Decompress the given array of bytes.
+   * Get the flags identifying the compression codec, to add to the flags of
+   * compressed data.
+   */
+  protected int getCompressionFlags() {
+    int flags = compressionCodec.getId() << COMPRESSION_CODEC_SHIFT;
+    if (compressionCodec instanceof DictionaryCompressionCodec) {
+      flags |= ((DictionaryCompressionCodec) compressionCodec).getDictionary()
+          .getId() << COMPRESSION_DICTIONARY_SHIFT;
+    }
+    return flags;
+  }
+
+  /**
+   * Decompress the given array of bytes compressed with GZIP.
    *
    * @return null if the bytes cannot be decompressed
    */
   protected byte[] decompress(byte[] in) {
-    ByteArrayOutputStream bos = null;
-    if(in != null) {
-      ByteArrayInputStream bis = new ByteArrayInputStream(in);
-      bos = new ByteArrayOutputStream();
-      GZIPInputStream gis = null;
-      try {
-        gis = new GZIPInputStream(bis);
-
-        byte[] buf = new byte[8192];
-        int r = -1;
-        while ((r = gis.read(buf)) > 0) {
-          bos.write(buf, 0, r);
-        }
-      } catch (IOException e) {
-        getLogger().warn("Failed to decompress data", e);
-        bos = null;
-      } finally {
-        CloseUtil.close(gis);
-        CloseUtil.close(bis);
-        CloseUtil.close(bos);
+    return decompress(in, 0);
+  }
+
+  /**
+   * Decompress the given array of bytes with the codec identified by the
+   * given flags.
+   *
+   * @return null if the bytes cannot be decompressed
+   */
+  protected byte[] decompress(byte[] in, int flags) {
+    if (in == null) {
+      return null;
+    }
+    int id = (flags & COMPRESSION_CODEC_MASK) >>> COMPRESSION_CODEC_SHIFT;
+    CompressionCodec codec = codecs[id];
+    if (id == DictionaryCompressionCodec.ID) {
+      int dictionary = (flags & COMPRESSION_DICTIONARY_MASK)
+          >>> COMPRESSION_DICTIONARY_SHIFT;
+      codec = dictionaryCodecs[dictionary];
+      if (codec == null) {
+        getLogger().warn("No compression dictionary with id %d", dictionary);
+        return null;
       }
     }
-    return bos == null ? null : bos.toByteArray();
+    if (codec == null) {
+      getLogger().warn("No compression codec with id %d", id);
+      return null;
+    }
+    try {
+      return codec.decompress(in);
+    } catch (IOException e) {
+      getLogger().warn("Failed to decompress data", e);
+      return null;
+    }
   }
 
   /**
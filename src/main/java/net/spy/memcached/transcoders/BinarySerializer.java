@@ -0,0 +1,841 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compact binary serializer for the common value types.
+ *
+ * <p>
+ * Strings, boxed primitives, {@link Date}, {@link BigDecimal},
+ * {@link BigInteger}, primitive and string arrays, and the usual lists, maps
+ * and sets are written natively: a one byte tag followed by the value, with
+ * variable length integers and without any class descriptor. Classes
+ * registered with {@link #register(Class, int)} are written as their id
+ * followed by their fields, read and written through reflection metadata
+ * computed once per class. Any other serializable object, such as a list
+ * implementation not listed here, is written with Java serialization inside
+ * the binary data.
+ * </p>
+ *
+ * <p>
+ * Object graphs are written as trees: an object referenced twice is written
+ * twice, and cycles are not supported. The readers of the data must have the
+ * same classes registered under the same ids as the writers. Instances are
+ * thread safe, registrations being expected before use.
+ * </p>
+ */
+public class BinarySerializer {
+
+  private static final int VERSION = 1;
+
+  // Value tags.
+  private static final int NULL = 0;
+  private static final int TRUE = 1;
+  private static final int FALSE = 2;
+  private static final int BYTE = 3;
+  private static final int SHORT = 4;
+  private static final int INT = 5;
+  private static final int LONG = 6;
+  private static final int FLOAT = 7;
+  private static final int DOUBLE = 8;
+  private static final int CHAR = 9;
+  private static final int STRING = 10;
+  private static final int DATE = 11;
+  private static final int BIG_DECIMAL = 12;
+  private static final int BIG_INTEGER = 13;
+  private static final int ARRAY_LIST = 16;
+  private static final int LINKED_LIST = 17;
+  private static final int HASH_MAP = 18;
+  private static final int LINKED_HASH_MAP = 19;
+  private static final int TREE_MAP = 20;
+  private static final int HASH_SET = 21;
+  private static final int LINKED_HASH_SET = 22;
+  private static final int TREE_SET = 23;
+  private static final int BYTE_ARRAY = 32;
+  private static final int SHORT_ARRAY = 33;
+  private static final int INT_ARRAY = 34;
+  private static final int LONG_ARRAY = 35;
+  private static final int FLOAT_ARRAY = 36;
+  private static final int DOUBLE_ARRAY = 37;
+  private static final int CHAR_ARRAY = 38;
+  private static final int BOOLEAN_ARRAY = 39;
+  private static final int STRING_ARRAY = 40;
+  private static final int OBJECT_ARRAY = 41;
+  private static final int REGISTERED = 48;
+  private static final int JAVA = 49;
+
+  private static final int MAX_DEPTH = 256;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ConcurrentMap<Class<?>, TypeInfo> byClass =
+      new ConcurrentHashMap<Class<?>, TypeInfo>();
+  private final ConcurrentMap<Integer, TypeInfo> byId =
+      new ConcurrentHashMap<Integer, TypeInfo>();
+
+  /**
+   * Write instances of the given class field by field.
+   *
+   * <p>
+   * All the non static, non transient fields of the class and of its
+   * superclasses are written, and the class needs a constructor without
+   * arguments to be read. The fields themselves can be of any type this
+   * serializer handles.
+   * </p>
+   *
+   * @param type the class
+   * @param id the id standing for the class in the data
+   * @throws IllegalArgumentException if the class has no constructor without
+   *           arguments, or the id is taken by another class
+   */
+  public void register(Class<?> type, int id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Invalid id: " + id);
+    }
+    TypeInfo info = new TypeInfo(type, id);
+    TypeInfo previous = byId.putIfAbsent(id, info);
+    if (previous != null && previous.type != type) {
+      throw new IllegalArgumentException("Id " + id + " is already used by "
+          + previous.type.getName());
+    }
+    byClass.put(type, info);
+  }
+
+  /**
+   * Get the bytes representing the given object.
+   *
+   * @throws IllegalArgumentException if the object or an object it references
+   *           cannot be serialized
+   */
+  public byte[] serialize(Object o) {
+    if (o == null) {
+      throw new NullPointerException("Can't serialize null");
+    }
+    Output out = new Output();
+    out.writeByte(VERSION);
+    write(out, o, 0);
+    return out.toByteArray();
+  }
+
+  /**
+   * Get the object represented by the given bytes.
+   *
+   * @throws IOException if the bytes cannot be read
+   */
+  public Object deserialize(byte[] in) throws IOException {
+    Input input = new Input(in);
+    try {
+      if (input.readByte() != VERSION) {
+        throw new IOException("Unknown data format");
+      }
+      Object rv = read(input, 0);
+      if (input.pos != in.length) {
+        throw new IOException("Unexpected data after the value");
+      }
+      return rv;
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt data", e);
+    }
+  }
+
+  private void write(Output out, Object o, int depth) {
+    if (depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Object graph too deep");
+    }
+    if (o == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> c = o.getClass();
+    if (c == String.class) {
+      out.writeByte(STRING);
+      out.writeString((String) o);
+    } else if (c == Integer.class) {
+      out.writeByte(INT);
+      out.writeVarLong(zigzag((Integer) o));
+    } else if (c == Long.class) {
+      out.writeByte(LONG);
+      out.writeVarLong(zigzag((Long) o));
+    } else if (c == Boolean.class) {
+      out.writeByte((Boolean) o ? TRUE : FALSE);
+    } else if (c == Double.class) {
+      out.writeByte(DOUBLE);
+      out.writeLong(Double.doubleToRawLongBits((Double) o));
+    } else if (c == Float.class) {
+      out.writeByte(FLOAT);
+      out.writeInt(Float.floatToRawIntBits((Float) o));
+    } else if (c == Short.class) {
+      out.writeByte(SHORT);
+      out.writeVarLong(zigzag((Short) o));
+    } else if (c == Byte.class) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) o);
+    } else if (c == Character.class) {
+      out.writeByte(CHAR);
+      out.writeVarLong((Character) o);
+    } else if (c == Date.class) {
+      out.writeByte(DATE);
+      out.writeVarLong(zigzag(((Date) o).getTime()));
+    } else if (c == BigDecimal.class) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeVarLong(zigzag(((BigDecimal) o).scale()));
+      out.writeBytes(((BigDecimal) o).unscaledValue().toByteArray());
+    } else if (c == BigInteger.class) {
+      out.writeByte(BIG_INTEGER);
+      out.writeBytes(((BigInteger) o).toByteArray());
+    } else if (c == ArrayList.class) {
+      writeCollection(out, ARRAY_LIST, (Collection<?>) o, depth);
+    } else if (c == LinkedList.class) {
+      writeCollection(out, LINKED_LIST, (Collection<?>) o, depth);
+    } else if (c == HashMap.class) {
+      writeMap(out, HASH_MAP, (Map<?, ?>) o, depth);
+    } else if (c == LinkedHashMap.class) {
+      writeMap(out, LINKED_HASH_MAP, (Map<?, ?>) o, depth);
+    } else if (c == TreeMap.class && ((TreeMap<?, ?>) o).comparator() == null) {
+      writeMap(out, TREE_MAP, (Map<?, ?>) o, depth);
+    } else if (c == HashSet.class) {
+      writeCollection(out, HASH_SET, (Collection<?>) o, depth);
+    } else if (c == LinkedHashSet.class) {
+      writeCollection(out, LINKED_HASH_SET, (Collection<?>) o, depth);
+    } else if (c == TreeSet.class && ((TreeSet<?>) o).comparator() == null) {
+      writeCollection(out, TREE_SET, (Collection<?>) o, depth);
+    } else if (!c.isArray() || !writeArray(out, o, depth)) {
+      writeObject(out, o, depth);
+    }
+  }
+
+  /**
+   * Write an object of a registered class, or with Java serialization.
+   */
+  private void writeObject(Output out, Object o, int depth) {
+    TypeInfo info = byClass.get(o.getClass());
+    if (info != null) {
+      out.writeByte(REGISTERED);
+      out.writeVarLong(info.id);
+      try {
+        for (FieldInfo f : info.fields) {
+          writeField(out, f, o, depth);
+        }
+      } catch (IllegalAccessException e) {
+        throw new IllegalArgumentException("Cannot read the fields of "
+            + info.type.getName(), e);
+      }
+    } else if (o instanceof Serializable) {
+      out.writeByte(JAVA);
+      out.writeBytes(javaSerialize(o));
+    } else {
+      throw new IllegalArgumentException("Non-serializable object: "
+          + o.getClass().getName());
+    }
+  }
+
+  private void writeCollection(Output out, int tag, Collection<?> c,
+      int depth) {
+    out.writeByte(tag);
+    out.writeVarLong(c.size());
+    for (Object o : c) {
+      write(out, o, depth + 1);
+    }
+  }
+
+  private void writeMap(Output out, int tag, Map<?, ?> m, int depth) {
+    out.writeByte(tag);
+    out.writeVarLong(m.size());
+    for (Map.Entry<?, ?> e : m.entrySet()) {
+      write(out, e.getKey(), depth + 1);
+      write(out, e.getValue(), depth + 1);
+    }
+  }
+
+  /**
+   * Write the arrays handled natively.
+   *
+   * @return false if the array is of another type
+   */
+  private boolean writeArray(Output out, Object o, int depth) {
+    Class<?> c = o.getClass();
+    if (c == byte[].class) {
+      out.writeByte(BYTE_ARRAY);
+      out.writeBytes((byte[]) o);
+    } else if (c == int[].class) {
+      int[] a = (int[]) o;
+      out.writeByte(INT_ARRAY);
+      out.writeVarLong(a.length);
+      for (int v : a) {
+        out.writeVarLong(zigzag(v));
+      }
+    } else if (c == long[].class) {
+      long[] a = (long[]) o;
+      out.writeByte(LONG_ARRAY);
+      out.writeVarLong(a.length);
+      for (long v : a) {
+        out.writeVarLong(zigzag(v));
+      }
+    } else if (c == double[].class) {
+      double[] a = (double[]) o;
+      out.writeByte(DOUBLE_ARRAY);
+      out.writeVarLong(a.length);
+      for (double v : a) {
+        out.writeLong(Double.doubleToRawLongBits(v));
+      }
+    } else if (c == float[].class) {
+      float[] a = (float[]) o;
+      out.writeByte(FLOAT_ARRAY);
+      out.writeVarLong(a.length);
+      for (float v : a) {
+        out.writeInt(Float.floatToRawIntBits(v));
+      }
+    } else if (c == short[].class) {
+      short[] a = (short[]) o;
+      out.writeByte(SHORT_ARRAY);
+      out.writeVarLong(a.length);
+      for (short v : a) {
+        out.writeVarLong(zigzag(v));
+      }
+    } else if (c == char[].class) {
+      char[] a = (char[]) o;
+      out.writeByte(CHAR_ARRAY);
+      out.writeVarLong(a.length);
+      for (char v : a) {
+        out.writeVarLong(v);
+      }
+    } else if (c == boolean[].class) {
+      boolean[] a = (boolean[]) o;
+      out.writeByte(BOOLEAN_ARRAY);
+      out.writeVarLong(a.length);
+      for (boolean v : a) {
+        out.writeByte(v ? 1 : 0);
+      }
+    } else if (c == String[].class) {
+      String[] a = (String[]) o;
+      out.writeByte(STRING_ARRAY);
+      out.writeVarLong(a.length);
+      for (String v : a) {
+        write(out, v, depth + 1);
+      }
+    } else if (c == Object[].class) {
+      Object[] a = (Object[]) o;
+      out.writeByte(OBJECT_ARRAY);
+      out.writeVarLong(a.length);
+      for (Object v : a) {
+        write(out, v, depth + 1);
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private void writeField(Output out, FieldInfo f, Object o, int depth)
+    throws IllegalAccessException {
+    Field field = f.field;
+    switch (f.kind) {
+    case INT:
+      out.writeVarLong(zigzag(field.getInt(o)));
+      break;
+    case LONG:
+      out.writeVarLong(zigzag(field.getLong(o)));
+      break;
+    case DOUBLE:
+      out.writeLong(Double.doubleToRawLongBits(field.getDouble(o)));
+      break;
+    case FLOAT:
+      out.writeInt(Float.floatToRawIntBits(field.getFloat(o)));
+      break;
+    case SHORT:
+      out.writeVarLong(zigzag(field.getShort(o)));
+      break;
+    case BYTE:
+      out.writeByte(field.getByte(o));
+      break;
+    case CHAR:
+      out.writeVarLong(field.getChar(o));
+      break;
+    case TRUE:
+      out.writeByte(field.getBoolean(o) ? 1 : 0);
+      break;
+    default:
+      write(out, field.get(o), depth + 1);
+    }
+  }
+
+  private Object read(Input in, int depth) throws IOException {
+    if (depth > MAX_DEPTH) {
+      throw new IOException("Object graph too deep");
+    }
+    int tag = in.readByte();
+    switch (tag) {
+    case NULL:
+      return null;
+    case TRUE:
+      return Boolean.TRUE;
+    case FALSE:
+      return Boolean.FALSE;
+    case STRING:
+      return in.readString();
+    case INT:
+      return Integer.valueOf((int) unzigzag(in.readVarLong()));
+    case LONG:
+      return Long.valueOf(unzigzag(in.readVarLong()));
+    case DOUBLE:
+      return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+    case FLOAT:
+      return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+    case SHORT:
+      return Short.valueOf((short) unzigzag(in.readVarLong()));
+    case BYTE:
+      return Byte.valueOf((byte) in.readByte());
+    case CHAR:
+      return Character.valueOf((char) in.readVarLong());
+    case DATE:
+      return new Date(unzigzag(in.readVarLong()));
+    case BIG_DECIMAL:
+      int scale = (int) unzigzag(in.readVarLong());
+      return new BigDecimal(new BigInteger(in.readBytes()), scale);
+    case BIG_INTEGER:
+      return new BigInteger(in.readBytes());
+    case ARRAY_LIST:
+      int size = in.readLength(1);
+      return readCollection(in, new ArrayList<Object>(size), size, depth);
+    case LINKED_LIST:
+      return readCollection(in, new LinkedList<Object>(), in.readLength(1),
+          depth);
+    case HASH_MAP:
+      size = in.readLength(2);
+      return readMap(in, new HashMap<Object, Object>(capacity(size)), size,
+          depth);
+    case LINKED_HASH_MAP:
+      size = in.readLength(2);
+      return readMap(in, new LinkedHashMap<Object, Object>(capacity(size)),
+          size, depth);
+    case TREE_MAP:
+      return readMap(in, new TreeMap<Object, Object>(), in.readLength(2),
+          depth);
+    case HASH_SET:
+      size = in.readLength(1);
+      return readCollection(in, new HashSet<Object>(capacity(size)), size,
+          depth);
+    case LINKED_HASH_SET:
+      size = in.readLength(1);
+      return readCollection(in, new LinkedHashSet<Object>(capacity(size)),
+          size, depth);
+    case TREE_SET:
+      return readCollection(in, new TreeSet<Object>(), in.readLength(1),
+          depth);
+    case REGISTERED:
+      return readRegistered(in, depth);
+    case JAVA:
+      return javaDeserialize(in.readBytes());
+    default:
+      return readArray(in, tag, depth);
+    }
+  }
+
+  private Object readCollection(Input in, Collection<Object> c, int size,
+      int depth) throws IOException {
+    for (int i = 0; i < size; i++) {
+      c.add(read(in, depth + 1));
+    }
+    return c;
+  }
+
+  private Object readMap(Input in, Map<Object, Object> m, int size,
+      int depth) throws IOException {
+    for (int i = 0; i < size; i++) {
+      Object key = read(in, depth + 1);
+      m.put(key, read(in, depth + 1));
+    }
+    return m;
+  }
+
+  private Object readArray(Input in, int tag, int depth) throws IOException {
+    switch (tag) {
+    case BYTE_ARRAY:
+      return in.readBytes();
+    case INT_ARRAY:
+      int[] ia = new int[in.readLength(1)];
+      for (int i = 0; i < ia.length; i++) {
+        ia[i] = (int) unzigzag(in.readVarLong());
+      }
+      return ia;
+    case LONG_ARRAY:
+      long[] la = new long[in.readLength(1)];
+      for (int i = 0; i < la.length; i++) {
+        la[i] = unzigzag(in.readVarLong());
+      }
+      return la;
+    case DOUBLE_ARRAY:
+      double[] da = new double[in.readLength(8)];
+      for (int i = 0; i < da.length; i++) {
+        da[i] = Double.longBitsToDouble(in.readLong());
+      }
+      return da;
+    case FLOAT_ARRAY:
+      float[] fa = new float[in.readLength(4)];
+      for (int i = 0; i < fa.length; i++) {
+        fa[i] = Float.intBitsToFloat(in.readInt());
+      }
+      return fa;
+    case SHORT_ARRAY:
+      short[] sa = new short[in.readLength(1)];
+      for (int i = 0; i < sa.length; i++) {
+        sa[i] = (short) unzigzag(in.readVarLong());
+      }
+      return sa;
+    case CHAR_ARRAY:
+      char[] ca = new char[in.readLength(1)];
+      for (int i = 0; i < ca.length; i++) {
+        ca[i] = (char) in.readVarLong();
+      }
+      return ca;
+    case BOOLEAN_ARRAY:
+      boolean[] ba = new boolean[in.readLength(1)];
+      for (int i = 0; i < ba.length; i++) {
+        ba[i] = in.readByte() != 0;
+      }
+      return ba;
+    case STRING_ARRAY:
+      String[] stra = new String[in.readLength(1)];
+      for (int i = 0; i < stra.length; i++) {
+        stra[i] = (String) read(in, depth + 1);
+      }
+      return stra;
+    case OBJECT_ARRAY:
+      Object[] oa = new Object[in.readLength(1)];
+      for (int i = 0; i < oa.length; i++) {
+        oa[i] = read(in, depth + 1);
+      }
+      return oa;
+    default:
+      throw new IOException("Unknown tag " + tag);
+    }
+  }
+
+  private Object readRegistered(Input in, int depth) throws IOException {
+    int id = (int) in.readVarLong();
+    TypeInfo info = byId.get(id);
+    if (info == null) {
+      throw new IOException("No class registered with id " + id);
+    }
+    try {
+      Object o = info.constructor.newInstance();
+      for (FieldInfo f : info.fields) {
+        readField(in, f, o, depth);
+      }
+      return o;
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Cannot create " + info.type.getName(), e);
+    }
+  }
+
+  private void readField(Input in, FieldInfo f, Object o, int depth)
+    throws IOException, IllegalAccessException {
+    Field field = f.field;
+    switch (f.kind) {
+    case INT:
+      field.setInt(o, (int) unzigzag(in.readVarLong()));
+      break;
+    case LONG:
+      field.setLong(o, unzigzag(in.readVarLong()));
+      break;
+    case DOUBLE:
+      field.setDouble(o, Double.longBitsToDouble(in.readLong()));
+      break;
+    case FLOAT:
+      field.setFloat(o, Float.intBitsToFloat(in.readInt()));
+      break;
+    case SHORT:
+      field.setShort(o, (short) unzigzag(in.readVarLong()));
+      break;
+    case BYTE:
+      field.setByte(o, (byte) in.readByte());
+      break;
+    case CHAR:
+      field.setChar(o, (char) in.readVarLong());
+      break;
+    case TRUE:
+      field.setBoolean(o, in.readByte() != 0);
+      break;
+    default:
+      field.set(o, read(in, depth + 1));
+    }
+  }
+
+  private static byte[] javaSerialize(Object o) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream os = new ObjectOutputStream(bos);
+      os.writeObject(o);
+      os.close();
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Non-serializable object", e);
+    }
+  }
+
+  private static Object javaDeserialize(byte[] b) throws IOException {
+    ObjectInputStream is =
+        new ObjectInputStream(new ByteArrayInputStream(b));
+    try {
+      return is.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Cannot deserialize", e);
+    } finally {
+      is.close();
+    }
+  }
+
+  private static int capacity(int size) {
+    return (int) (size / 0.75f) + 1;
+  }
+
+  private static long zigzag(long v) {
+    return (v << 1) ^ (v >> 63);
+  }
+
+  private static long unzigzag(long v) {
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  /**
+   * How to write the instances of a registered class.
+   */
+  private static final class TypeInfo {
+    private final Class<?> type;
+    private final int id;
+    private final Constructor<?> constructor;
+    private final FieldInfo[] fields;
+
+    TypeInfo(Class<?> type, int id) {
+      this.type = type;
+      this.id = id;
+      try {
+        constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(type.getName()
+            + " has no constructor without arguments", e);
+      }
+      List<FieldInfo> all = new ArrayList<FieldInfo>();
+      for (Class<?> c = type; c != Object.class && c != null;
+          c = c.getSuperclass()) {
+        List<FieldInfo> declared = new ArrayList<FieldInfo>();
+        for (Field f : c.getDeclaredFields()) {
+          int mod = f.getModifiers();
+          if (!Modifier.isStatic(mod) && !Modifier.isTransient(mod)) {
+            f.setAccessible(true);
+            declared.add(new FieldInfo(f));
+          }
+        }
+        // The order of the declared fields is not specified.
+        FieldInfo[] sorted = declared.toArray(new FieldInfo[declared.size()]);
+        Arrays.sort(sorted, new Comparator<FieldInfo>() {
+          public int compare(FieldInfo a, FieldInfo b) {
+            return a.field.getName().compareTo(b.field.getName());
+          }
+        });
+        all.addAll(0, Arrays.asList(sorted));
+      }
+      fields = all.toArray(new FieldInfo[all.size()]);
+    }
+  }
+
+  private static final class FieldInfo {
+    private final Field field;
+    // The tag of the type of a primitive field, TRUE standing for boolean, or
+    // NULL for a reference.
+    private final int kind;
+
+    FieldInfo(Field field) {
+      this.field = field;
+      Class<?> t = field.getType();
+      if (t == int.class) {
+        kind = INT;
+      } else if (t == long.class) {
+        kind = LONG;
+      } else if (t == double.class) {
+        kind = DOUBLE;
+      } else if (t == float.class) {
+        kind = FLOAT;
+      } else if (t == short.class) {
+        kind = SHORT;
+      } else if (t == byte.class) {
+        kind = BYTE;
+      } else if (t == char.class) {
+        kind = CHAR;
+      } else if (t == boolean.class) {
+        kind = TRUE;
+      } else {
+        kind = NULL;
+      }
+    }
+  }
+
+  private static final class Output {
+    private byte[] buf = new byte[256];
+    private int n;
+
+    private void ensure(int more) {
+      if (n + more > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, n + more));
+      }
+    }
+
+    void writeByte(int b) {
+      ensure(1);
+      buf[n++] = (byte) b;
+    }
+
+    void writeInt(int v) {
+      ensure(4);
+      buf[n++] = (byte) (v >>> 24);
+      buf[n++] = (byte) (v >>> 16);
+      buf[n++] = (byte) (v >>> 8);
+      buf[n++] = (byte) v;
+    }
+
+    void writeLong(long v) {
+      writeInt((int) (v >>> 32));
+      writeInt((int) v);
+    }
+
+    void writeVarLong(long v) {
+      ensure(10);
+      while ((v & ~0x7fL) != 0) {
+        buf[n++] = (byte) ((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      buf[n++] = (byte) v;
+    }
+
+    void writeBytes(byte[] b) {
+      writeVarLong(b.length);
+      ensure(b.length);
+      System.arraycopy(b, 0, buf, n, b.length);
+      n += b.length;
+    }
+
+    void writeString(String s) {
+      int length = s.length();
+      for (int i = 0; i < length; i++) {
+        if (s.charAt(i) >= 0x80) {
+          writeBytes(s.getBytes(UTF8));
+          return;
+        }
+      }
+      // Plain ASCII, as is most often the case.
+      writeVarLong(length);
+      ensure(length);
+      for (int i = 0; i < length; i++) {
+        buf[n++] = (byte) s.charAt(i);
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buf, n);
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buf;
+    private int pos;
+
+    Input(byte[] buf) {
+      this.buf = buf;
+    }
+
+    private void require(int length) throws IOException {
+      if (length > buf.length - pos) {
+        throw new IOException("Truncated data");
+      }
+    }
+
+    int readByte() throws IOException {
+      require(1);
+      return buf[pos++];
+    }
+
+    int readInt() throws IOException {
+      require(4);
+      int v = (buf[pos] & 0xff) << 24 | (buf[pos + 1] & 0xff) << 16
+          | (buf[pos + 2] & 0xff) << 8 | (buf[pos + 3] & 0xff);
+      pos += 4;
+      return v;
+    }
+
+    long readLong() throws IOException {
+      return (long) readInt() << 32 | (readInt() & 0xffffffffL);
+    }
+
+    long readVarLong() throws IOException {
+      long v = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        v |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return v;
+        }
+      }
+      throw new IOException("Malformed number");
+    }
+
+    /**
+     * Read the length of something taking at least the given number of bytes
+     * per element.
+     */
+    int readLength(int bytesPerElement) throws IOException {
+      long length = readVarLong();
+      if (length < 0 || length > (buf.length - pos) / bytesPerElement) {
+        throw new IOException("Invalid length " + length);
+      }
+      return (int) length;
+    }
+
+    byte[] readBytes() throws IOException {
+      int length = readLength(1);
+      byte[] b = Arrays.copyOfRange(buf, pos, pos + length);
+      pos += length;
+      return b;
+    }
+
+    String readString() throws IOException {
+      int length = readLength(1);
+      String s = new String(buf, pos, length, UTF8);
+      pos += length;
+      return s;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses the data of the serializing transcoders.
+ *
+ * <p>
+ * Each codec has an id, which the transcoders store in the flags of the items
+ * they compress so that they can be decompressed with the same codec, whatever
+ * codec is configured for writing. Ids go from 0 to {@link #MAX_ID}; 0 is the
+ * GZIP codec every transcoder has always used. Codecs are shared by all the
+ * threads using a transcoder and must be thread safe.
+ * </p>
+ */
+public interface CompressionCodec {
+
+  /**
+   * The highest codec id.
+   */
+  int MAX_ID = 15;
+
+  /**
+   * Get the id stored in the flags of the items compressed by this codec.
+   */
+  int getId();
+
+  /**
+   * Compress the given array of bytes.
+   */
+  byte[] compress(byte[] in);
+
+  /**
+   * Decompress the given array of bytes.
+   *
+   * @throws IOException if the bytes were not compressed by this codec
+   */
+  byte[] decompress(byte[] in) throws IOException;
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.util.Arrays;
+
+/**
+ * A preset dictionary for deflate, holding byte sequences common to the values
+ * to compress.
+ *
+ * <p>
+ * Compressing starts as if the dictionary had just been seen, so even values
+ * of a few hundred bytes compress well when they share their field names and
+ * structure with the dictionary. Decompressing needs the very same
+ * dictionary, which is why its id is stored with the compressed data: a new
+ * dictionary must get a new id, and the old one must stay known until the
+ * data compressed with it has expired. Use {@link DictionaryTrainer} to
+ * build a dictionary from sample values.
+ * </p>
+ */
+public final class CompressionDictionary {
+
+  /**
+   * The highest dictionary id. Ids start at 1.
+   */
+  public static final int MAX_ID = 255;
+
+  /**
+   * The largest useful dictionary: deflate only looks back this far.
+   */
+  public static final int MAX_SIZE = 32768;
+
+  private final int id;
+  private final byte[] bytes;
+
+  /**
+   * Create a dictionary.
+   *
+   * @param id the id of the dictionary, from 1 to {@link #MAX_ID}
+   * @param bytes the content of the dictionary, the most common sequences
+   *          last
+   */
+  public CompressionDictionary(int id, byte[] bytes) {
+    if (id < 1 || id > MAX_ID) {
+      throw new IllegalArgumentException("Invalid dictionary id: " + id);
+    }
+    if (bytes.length == 0 || bytes.length > MAX_SIZE) {
+      throw new IllegalArgumentException("Invalid dictionary size: "
+          + bytes.length);
+    }
+    this.id = id;
+    this.bytes = bytes.clone();
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Get a copy of the content of the dictionary, to store it.
+   */
+  public byte[] getBytes() {
+    return bytes.clone();
+  }
+
+  byte[] bytes() {
+    return bytes;
+  }
+
+  public int size() {
+    return bytes.length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof CompressionDictionary
+        && id == ((CompressionDictionary) o).id
+        && Arrays.equals(bytes, ((CompressionDictionary) o).bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return id * 31 + Arrays.hashCode(bytes);
+  }
+
+  @Override
+  public String toString() {
+    return "{CompressionDictionary id=" + id + ", size=" + bytes.length + "}";
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps raw deflate {@link Deflater} and {@link Inflater} instances for
+ * reuse, as creating them allocates native memory.
+ */
+final class DeflaterPool {
+
+  private final int level;
+  private final BlockingQueue<Deflater> deflaters;
+  private final BlockingQueue<Inflater> inflaters;
+
+  DeflaterPool(int level, int size) {
+    if (level < Deflater.DEFAULT_COMPRESSION
+        || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: "
+          + level);
+    }
+    this.level = level;
+    deflaters = new ArrayBlockingQueue<Deflater>(size);
+    inflaters = new ArrayBlockingQueue<Inflater>(size);
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  Deflater getDeflater() {
+    Deflater deflater = deflaters.poll();
+    return deflater == null ? new Deflater(level, true) : deflater;
+  }
+
+  void release(Deflater deflater) {
+    deflater.reset();
+    if (!deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  Inflater getInflater() {
+    Inflater inflater = inflaters.poll();
+    return inflater == null ? new Inflater(true) : inflater;
+  }
+
+  void release(Inflater inflater) {
+    inflater.reset();
+    if (!inflaters.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Get the largest size deflate can produce from the given number of bytes.
+   */
+  static int maxDeflatedSize(int length) {
+    return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+  }
+}
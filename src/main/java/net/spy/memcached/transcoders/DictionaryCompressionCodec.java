@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec deflating data with a preset {@link CompressionDictionary}.
+ *
+ * <p>
+ * All the dictionary codecs share the same codec id; the transcoders also
+ * store the id of the dictionary in the flags, and decompress data with the
+ * codec of its dictionary. To rotate dictionaries, add the codec of the new
+ * dictionary to all readers, then make it the compression codec of the
+ * writers, keeping the old one added until its data is gone.
+ * </p>
+ *
+ * <p>
+ * The compressed data is the original size followed by raw deflate data. As
+ * the gain is largest on small values, use a compression threshold of a few
+ * dozen bytes with this codec.
+ * </p>
+ */
+public class DictionaryCompressionCodec implements CompressionCodec {
+
+  /**
+   * The id of all dictionary codecs.
+   */
+  public static final int ID = 2;
+
+  private final CompressionDictionary dictionary;
+  private final DeflaterPool pool;
+
+  /**
+   * Create a codec for the given dictionary with the default compression
+   * level.
+   */
+  public DictionaryCompressionCodec(CompressionDictionary dictionary) {
+    this(dictionary, Deflater.DEFAULT_COMPRESSION,
+        GzipCompressionCodec.DEFAULT_POOL_SIZE);
+  }
+
+  /**
+   * Create a codec for the given dictionary.
+   *
+   * @param dictionary the dictionary
+   * @param level the compression level, from 0 to 9, or -1 for the default
+   * @param poolSize the number of deflaters and inflaters kept for reuse, at
+   *          least 1
+   */
+  public DictionaryCompressionCodec(CompressionDictionary dictionary,
+      int level, int poolSize) {
+    this.dictionary = dictionary;
+    pool = new DeflaterPool(level, poolSize);
+  }
+
+  public int getId() {
+    return ID;
+  }
+
+  public CompressionDictionary getDictionary() {
+    return dictionary;
+  }
+
+  public byte[] compress(byte[] in) {
+    if (in == null) {
+      throw new NullPointerException("Can't compress null");
+    }
+    Deflater deflater = pool.getDeflater();
+    try {
+      deflater.setDictionary(dictionary.bytes());
+      deflater.setInput(in);
+      deflater.finish();
+      byte[] out = new byte[4 + DeflaterPool.maxDeflatedSize(in.length)];
+      out[0] = (byte) (in.length >>> 24);
+      out[1] = (byte) (in.length >>> 16);
+      out[2] = (byte) (in.length >>> 8);
+      out[3] = (byte) in.length;
+      int n = 4;
+      while (!deflater.finished()) {
+        if (n == out.length) {
+          out = Arrays.copyOf(out, out.length * 2);
+        }
+        n += deflater.deflate(out, n, out.length - n);
+      }
+      return Arrays.copyOf(out, n);
+    } finally {
+      pool.release(deflater);
+    }
+  }
+
+  public byte[] decompress(byte[] in) throws IOException {
+    if (in.length < 5) {
+      throw new IOException("Truncated data");
+    }
+    int size = (in[0] & 0xff) << 24 | (in[1] & 0xff) << 16
+        | (in[2] & 0xff) << 8 | (in[3] & 0xff);
+    if (size < 0 || size > (long) in.length * 1032) {
+      throw new IOException("Corrupt data");
+    }
+    byte[] out = new byte[size];
+    Inflater inflater = pool.getInflater();
+    int n = 0;
+    try {
+      inflater.setDictionary(dictionary.bytes());
+      inflater.setInput(in, 4, in.length - 4);
+      while (!inflater.finished() && n < size) {
+        int r = inflater.inflate(out, n, size - n);
+        if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated data");
+        }
+        n += r;
+      }
+      // The end of the data may follow the last byte of the value.
+      if (!inflater.finished() && inflater.inflate(new byte[1]) != 0) {
+        throw new IOException("Corrupt data");
+      }
+      if (!inflater.finished()) {
+        throw new IOException("Truncated data");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt data", e);
+    } finally {
+      pool.release(inflater);
+    }
+    if (n != size) {
+      throw new IOException("Corrupt data");
+    }
+    return out;
+  }
+
+  @Override
+  public String toString() {
+    return "Deflate with dictionary " + dictionary.getId() + " level "
+        + pool.getLevel();
+  }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds a {@link CompressionDictionary} from sample values.
+ *
+ * <p>
+ * Values are sampled as they are added, keeping a uniform random sample of a
+ * bounded number of them. Training then looks for the short byte sequences
+ * found in the most values and fills the dictionary with the segments of the
+ * samples that contain the most of them, in the spirit of the COVER algorithm
+ * of zstd. The most valuable segments go last, where deflate reaches them with
+ * the shortest distances.
+ * </p>
+ *
+ * <p>
+ * Sample the encoded values, such as the data of the {@link
+ * net.spy.memcached.CachedData} a transcoder produces, since that is what
+ * gets compressed.
+ * </p>
+ */
+public class DictionaryTrainer {
+
+  /**
+   * Default number of samples kept.
+   */
+  public static final int DEFAULT_MAX_SAMPLES = 2000;
+
+  /**
+   * Default size of the dictionaries.
+   */
+  public static final int DEFAULT_DICTIONARY_SIZE = 16384;
+
+  // The length of the sequences counted, and of the segments picked.
+  private static final int K = 6;
+  private static final int SEGMENT_SIZE = 64;
+  // Longer samples are cut, their beginning is the most typical.
+  private static final int MAX_SAMPLE_SIZE = 8192;
+
+  private final int maxSamples;
+  private final List<byte[]> samples = new ArrayList<byte[]>();
+  private final Random random = new Random();
+  private long seen;
+
+  /**
+   * Create a trainer keeping the default number of samples.
+   */
+  public DictionaryTrainer() {
+    this(DEFAULT_MAX_SAMPLES);
+  }
+
+  /**
+   * Create a trainer keeping the given number of samples.
+   */
+  public DictionaryTrainer(int maxSamples) {
+    if (maxSamples <= 0) {
+      throw new IllegalArgumentException("Invalid number of samples: "
+          + maxSamples);
+    }
+    this.maxSamples = maxSamples;
+  }
+
+  /**
+   * Offer a value to the sample.
+   */
+  public synchronized void addSample(byte[] value) {
+    if (value.length < K) {
+      return;
+    }
+    byte[] sample = value.length > MAX_SAMPLE_SIZE
+        ? Arrays.copyOf(value, MAX_SAMPLE_SIZE) : value.clone();
+    seen++;
+    if (samples.size() < maxSamples) {
+      samples.add(sample);
+    } else {
+      long i = (long) (random.nextDouble() * seen);
+      if (i < maxSamples) {
+        samples.set((int) i, sample);
+      }
+    }
+  }
+
+  /**
+   * Get the number of values currently sampled.
+   */
+  public synchronized int getSampleCount() {
+    return samples.size();
+  }
+
+  /**
+   * Build a dictionary of the default size from the sampled values.
+   *
+   * @param id the id of the dictionary
+   */
+  public CompressionDictionary train(int id) {
+    return train(id, DEFAULT_DICTIONARY_SIZE);
+  }
+
+  /**
+   * Build a dictionary from the sampled values.
+   *
+   * @param id the id of the dictionary
+   * @param size the maximum size of the dictionary
+   * @throws IllegalStateException if there is nothing in common between the
+   *           sampled values
+   */
+  public CompressionDictionary train(int id, int size) {
+    if (size <= 0 || size > CompressionDictionary.MAX_SIZE) {
+      throw new IllegalArgumentException("Invalid dictionary size: " + size);
+    }
+    List<byte[]> sampled;
+    synchronized (this) {
+      sampled = new ArrayList<byte[]>(samples);
+    }
+
+    // Count in how many samples each sequence occurs.
+    Map<Long, int[]> counts = new HashMap<Long, int[]>();
+    for (int s = 0; s < sampled.size(); s++) {
+      byte[] sample = sampled.get(s);
+      for (int i = 0; i + K <= sample.length; i++) {
+        Long key = key(sample, i);
+        int[] count = counts.get(key);
+        if (count == null) {
+          counts.put(key, new int[] { 1, s });
+        } else if (count[1] != s) {
+          count[0]++;
+          count[1] = s;
+        }
+      }
+    }
+
+    // Pick the best segment of each epoch, a slice of the samples, so the
+    // picks spread over all of them.
+    int total = 0;
+    for (byte[] sample : sampled) {
+      total += sample.length;
+    }
+    int epochs = Math.max(1, size / SEGMENT_SIZE);
+    int epochSize = Math.max(SEGMENT_SIZE, total / epochs);
+    List<Segment> segments = new ArrayList<Segment>();
+    int sample = 0;
+    int offset = 0;
+    while (sample < sampled.size()) {
+      Segment best = null;
+      int taken = 0;
+      while (taken < epochSize && sample < sampled.size()) {
+        byte[] b = sampled.get(sample);
+        int end = Math.min(b.length, offset + epochSize - taken);
+        Segment s = bestSegment(b, offset, end, counts);
+        if (s != null && (best == null || s.score > best.score)) {
+          best = s;
+        }
+        taken += end - offset;
+        if (end == b.length) {
+          sample++;
+          offset = 0;
+        } else {
+          offset = end;
+        }
+      }
+      if (best != null) {
+        // Sequences in the dictionary are worth nothing more.
+        for (int i = best.start; i + K <= best.end; i++) {
+          counts.get(key(best.sample, i))[0] = 0;
+        }
+        segments.add(best);
+      }
+    }
+    if (segments.isEmpty()) {
+      throw new IllegalStateException("Not enough in common between the "
+          + sampled.size() + " sampled values");
+    }
+
+    Collections.sort(segments, new Comparator<Segment>() {
+      public int compare(Segment a, Segment b) {
+        return a.score < b.score ? 1 : a.score > b.score ? -1 : 0;
+      }
+    });
+    int used = 0;
+    int n = 0;
+    while (n < segments.size() && used < size) {
+      Segment s = segments.get(n++);
+      used += s.end - s.start;
+    }
+    // The least valuable segment is cut to fit, and goes first.
+    ByteArrayOutputStream dict = new ByteArrayOutputStream(size);
+    for (int i = n - 1; i >= 0; i--) {
+      Segment s = segments.get(i);
+      int length = s.end - s.start;
+      int skip = i == n - 1 ? Math.max(0, used - size) : 0;
+      dict.write(s.sample, s.start + skip, length - skip);
+    }
+    return new CompressionDictionary(id, dict.toByteArray());
+  }
+
+  /**
+   * Find the segment of the given range of a sample containing the
+   * sequences found in the most samples.
+   */
+  private static Segment bestSegment(byte[] b, int from, int to,
+      Map<Long, int[]> counts) {
+    int windows = SEGMENT_SIZE - K + 1;
+    Segment best = null;
+    long score = 0;
+    for (int i = from; i + K <= to; i++) {
+      score += score(b, i, counts);
+      int start = i - windows + 1;
+      if (start >= from) {
+        if (score > 0 && (best == null || score > best.score)) {
+          best = new Segment(b, start, i + K, score);
+        }
+        score -= score(b, start, counts);
+      }
+    }
+    if (best == null && score > 0 && to - from >= K) {
+      best = new Segment(b, from, to, score);
+    }
+    return best;
+  }
+
+  private static int score(byte[] b, int i, Map<Long, int[]> counts) {
+    int count = counts.get(key(b, i))[0];
+    // Sequences found in a single value are not worth anything.
+    return count > 1 ? count : 0;
+  }
+
+  private static Long key(byte[] b, int i) {
+    long key = 0;
+    for (int j = 0; j < K; j++) {
+      key = key << 8 | (b[i + j] & 0xff);
+    }
+    return Long.valueOf(key);
+  }
+
+  private static final class Segment {
+    private final byte[] sample;
+    private final int start;
+    private final int end;
+    private final long score;
+
+    Segment(byte[] sample, int start, int end, long score) {
+      this.sample = sample;
+      this.start = start;
+      this.end = end;
+      this.score = score;
+    }
+  }
+}
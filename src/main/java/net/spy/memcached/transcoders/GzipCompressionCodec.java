@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec producing the GZIP format, as the transcoders always did.
+ *
+ * <p>
+ * Rather than going through the GZIP streams, this codec writes the GZIP
+ * header and trailer itself around raw deflate data, reusing pooled
+ * {@link Deflater} and {@link Inflater} instances. Output buffers are sized
+ * up front: for compressing from the worst case size of deflate, for
+ * decompressing from the original size GZIP records in its trailer.
+ * </p>
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+
+  /**
+   * The id of this codec.
+   */
+  public static final int ID = 0;
+
+  /**
+   * Default number of pooled deflaters and inflaters.
+   */
+  public static final int DEFAULT_POOL_SIZE = 16;
+
+  private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED,
+    0, 0, 0, 0, 0, 0, 0 };
+  private static final int TRAILER_SIZE = 8;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  // Deflate never compresses better than this.
+  private static final int MAX_RATIO = 1032;
+
+  private final DeflaterPool pool;
+
+  /**
+   * Create a GZIP codec with the default compression level.
+   */
+  public GzipCompressionCodec() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Create a GZIP codec with the given compression level.
+   *
+   * @param level the compression level, from 0 to 9, or -1 for the default
+   */
+  public GzipCompressionCodec(int level) {
+    this(level, DEFAULT_POOL_SIZE);
+  }
+
+  /**
+   * Create a GZIP codec with the given compression level.
+   *
+   * @param level the compression level, from 0 to 9, or -1 for the default
+   * @param poolSize the number of deflaters and inflaters kept for reuse, at
+   *          least 1
+   */
+  public GzipCompressionCodec(int level, int poolSize) {
+    pool = new DeflaterPool(level, poolSize);
+  }
+
+  public int getId() {
+    return ID;
+  }
+
+  public byte[] compress(byte[] in) {
+    if (in == null) {
+      throw new NullPointerException("Can't compress null");
+    }
+    Deflater deflater = pool.getDeflater();
+    try {
+      deflater.setInput(in);
+      deflater.finish();
+      byte[] out = new byte[HEADER.length
+          + DeflaterPool.maxDeflatedSize(in.length) + TRAILER_SIZE];
+      System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+      int n = HEADER.length;
+      while (!deflater.finished()) {
+        if (n == out.length - TRAILER_SIZE) {
+          out = Arrays.copyOf(out, out.length * 2);
+        }
+        n += deflater.deflate(out, n, out.length - TRAILER_SIZE - n);
+      }
+      CRC32 crc = new CRC32();
+      crc.update(in, 0, in.length);
+      writeInt(out, n, (int) crc.getValue());
+      writeInt(out, n + 4, in.length);
+      return Arrays.copyOf(out, n + TRAILER_SIZE);
+    } finally {
+      pool.release(deflater);
+    }
+  }
+
+  public byte[] decompress(byte[] in) throws IOException {
+    if (in.length < HEADER.length + TRAILER_SIZE || in[0] != HEADER[0]
+        || in[1] != HEADER[1] || in[2] != HEADER[2]) {
+      throw new IOException("Not in GZIP format");
+    }
+    int offset = skipHeader(in);
+    int crc = readInt(in, in.length - TRAILER_SIZE);
+    int size = readInt(in, in.length - 4);
+    // The recorded size is only a hint, it is modulo 2^32.
+    byte[] out = new byte[size >= 0 && size <= (long) in.length * MAX_RATIO
+        ? size : in.length * 2];
+    Inflater inflater = pool.getInflater();
+    int n = 0;
+    try {
+      inflater.setInput(in, offset, in.length - offset);
+      while (!inflater.finished()) {
+        if (n == out.length) {
+          out = Arrays.copyOf(out, Math.max(out.length * 2, 64));
+        }
+        int r = inflater.inflate(out, n, out.length - n);
+        if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated GZIP data");
+        }
+        n += r;
+      }
+      if (inflater.getRemaining() != TRAILER_SIZE) {
+        throw new IOException("Unexpected data after the GZIP data");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt GZIP data", e);
+    } finally {
+      pool.release(inflater);
+    }
+    CRC32 actual = new CRC32();
+    actual.update(out, 0, n);
+    if ((int) actual.getValue() != crc || n != size) {
+      throw new IOException("Corrupt GZIP data");
+    }
+    return n == out.length ? out : Arrays.copyOf(out, n);
+  }
+
+  private static int skipHeader(byte[] in) throws IOException {
+    int flags = in[3] & 0xff;
+    int offset = HEADER.length;
+    try {
+      if ((flags & FEXTRA) != 0) {
+        offset += 2 + ((in[offset] & 0xff) | (in[offset + 1] & 0xff) << 8);
+      }
+      if ((flags & FNAME) != 0) {
+        while (in[offset++] != 0) {
+          // skip the file name
+        }
+      }
+      if ((flags & FCOMMENT) != 0) {
+        while (in[offset++] != 0) {
+          // skip the comment
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt GZIP header");
+    }
+    if ((flags & FHCRC) != 0) {
+      offset += 2;
+    }
+    if (offset > in.length - TRAILER_SIZE) {
+      throw new IOException("Corrupt GZIP header");
+    }
+    return offset;
+  }
+
+  private static int readInt(byte[] b, int i) {
+    return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16
+        | (b[i + 3] & 0xff) << 24;
+  }
+
+  private static void writeInt(byte[] b, int i, int v) {
+    b[i] = (byte) v;
+    b[i + 1] = (byte) (v >>> 8);
+    b[i + 2] = (byte) (v >>> 16);
+    b[i + 3] = (byte) (v >>> 24);
+  }
+
+  @Override
+  public String toString() {
+    return "GZIP level " + pool.getLevel();
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 codec written in plain Java.
+ *
+ * <p>
+ * It trades compression ratio for speed: matches are found through a single
+ * hash table probe, and the data is laid out in sequences of literals and
+ * back references like in the LZ4 block format, which decode with little
+ * more than array copies. The compressed data starts with the original size,
+ * so decompressing allocates its output once.
+ * </p>
+ */
+public class LzCompressionCodec implements CompressionCodec {
+
+  /**
+   * The id of this codec.
+   */
+  public static final int ID = 1;
+
+  private static final int MIN_MATCH = 4;
+  private static final int HASH_BITS = 12;
+  private static final int MAX_OFFSET = 0xffff;
+  // The last bytes are always literals, and no match starts this close to
+  // the end.
+  private static final int LAST_LITERALS = 5;
+  private static final int MATCH_FIND_LIMIT = 12;
+  // Look for matches less often the longer none is found.
+  private static final int SKIP_STRENGTH = 6;
+
+  public int getId() {
+    return ID;
+  }
+
+  public byte[] compress(byte[] in) {
+    if (in == null) {
+      throw new NullPointerException("Can't compress null");
+    }
+    int length = in.length;
+    byte[] out = new byte[4 + length + length / 255 + 16];
+    writeInt(out, 0, length);
+    int n = 4;
+    int anchor = 0;
+    if (length > MATCH_FIND_LIMIT) {
+      // Positions plus one, so zero means none.
+      int[] table = new int[1 << HASH_BITS];
+      int limit = length - MATCH_FIND_LIMIT;
+      int matchLimit = length - LAST_LITERALS;
+      int i = 0;
+      int misses = 0;
+      while (i < limit) {
+        int seq = readInt(in, i);
+        int h = hash(seq);
+        int ref = table[h] - 1;
+        table[h] = i + 1;
+        if (ref < 0 || i - ref > MAX_OFFSET || readInt(in, ref) != seq) {
+          i += 1 + (misses++ >> SKIP_STRENGTH);
+          continue;
+        }
+        misses = 0;
+        while (i > anchor && ref > 0 && in[i - 1] == in[ref - 1]) {
+          i--;
+          ref--;
+        }
+        int len = MIN_MATCH;
+        while (i + len < matchLimit && in[i + len] == in[ref + len]) {
+          len++;
+        }
+        int token = n;
+        n = writeSequence(in, anchor, i - anchor, out, n);
+        out[n++] = (byte) (i - ref);
+        out[n++] = (byte) ((i - ref) >>> 8);
+        int matchLength = len - MIN_MATCH;
+        out[token] |= (byte) Math.min(matchLength, 15);
+        if (matchLength >= 15) {
+          n = writeLength(out, n, matchLength - 15);
+        }
+        i += len;
+        anchor = i;
+      }
+    }
+    n = writeSequence(in, anchor, length - anchor, out, n);
+    return Arrays.copyOf(out, n);
+  }
+
+  public byte[] decompress(byte[] in) throws IOException {
+    if (in.length < 5) {
+      throw new IOException("Truncated data");
+    }
+    int length = readInt(in, 0);
+    if (length < 0 || length > (long) in.length * 255) {
+      throw new IOException("Corrupt data");
+    }
+    byte[] out = new byte[length];
+    int i = 4;
+    int n = 0;
+    try {
+      while (true) {
+        int token = in[i++] & 0xff;
+        int literals = token >>> 4;
+        if (literals == 15) {
+          int b;
+          do {
+            b = in[i++] & 0xff;
+            literals += b;
+          } while (b == 255);
+        }
+        System.arraycopy(in, i, out, n, literals);
+        i += literals;
+        n += literals;
+        if (i == in.length) {
+          break;
+        }
+        int offset = (in[i++] & 0xff) | (in[i++] & 0xff) << 8;
+        int len = token & 0xf;
+        if (len == 15) {
+          int b;
+          do {
+            b = in[i++] & 0xff;
+            len += b;
+          } while (b == 255);
+        }
+        len += MIN_MATCH;
+        int ref = n - offset;
+        if (offset == 0 || ref < 0 || n + len > length) {
+          throw new IOException("Corrupt data");
+        }
+        if (offset >= len) {
+          System.arraycopy(out, ref, out, n, len);
+          n += len;
+        } else {
+          // The match overlaps what it repeats.
+          for (int end = n + len; n < end; n++) {
+            out[n] = out[ref++];
+          }
+        }
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt data");
+    }
+    if (n != length) {
+      throw new IOException("Corrupt data");
+    }
+    return out;
+  }
+
+  /**
+   * Write the token and the literals of a sequence, leaving the match length
+   * of the token to fill in.
+   */
+  private static int writeSequence(byte[] in, int start, int literals,
+      byte[] out, int n) {
+    out[n++] = (byte) (Math.min(literals, 15) << 4);
+    if (literals >= 15) {
+      n = writeLength(out, n, literals - 15);
+    }
+    System.arraycopy(in, start, out, n, literals);
+    return n + literals;
+  }
+
+  private static int writeLength(byte[] out, int n, int length) {
+    while (length >= 255) {
+      out[n++] = (byte) 255;
+      length -= 255;
+    }
+    out[n++] = (byte) length;
+    return n;
+  }
+
+  private static int hash(int seq) {
+    return (seq * -1640531535) >>> (32 - HASH_BITS);
+  }
+
+  private static int readInt(byte[] b, int i) {
+    return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16
+        | (b[i + 3] & 0xff) << 24;
+  }
+
+  private static void writeInt(byte[] b, int i, int v) {
+    b[i] = (byte) v;
+    b[i + 1] = (byte) (v >>> 8);
+    b[i + 2] = (byte) (v >>> 16);
+    b[i + 3] = (byte) (v >>> 24);
+  }
+
+  @Override
+  public String toString() {
+    return "LZ";
+  }
+}
@@ -22,20 +22,23 @@
 
 package net.spy.memcached.transcoders;
 
+import java.io.IOException;
 import java.util.Date;
 
 import net.spy.memcached.CachedData;
+import net.spy.memcached.ValueBuffer;
 import net.spy.memcached.util.StringUtils;
 
 /**
  * Transcoder that serializes and compresses objects.
  */
 public class SerializingTranscoder extends BaseSerializingTranscoder implements
-    Transcoder<Object> {
+    StreamingTranscoder<Object> {
 
   // General flags
   static final int SERIALIZED = 1;
   static final int COMPRESSED = 2;
+  static final int BINARY_SERIALIZED = 4;
 
   // Special flags for specially handled types.
   private static final int SPECIAL_MASK = 0xff00;
@@ -48,7 +51,11 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
   static final int SPECIAL_DOUBLE = (7 << 8);
   static final int SPECIAL_BYTEARRAY = (8 << 8);
 
+  private static final BinarySerializer DEFAULT_BINARY_SERIALIZER =
+      new BinarySerializer();
+
   private final TranscoderUtils tu = new TranscoderUtils(true);
+  private BinarySerializer binarySerializer;
 
   /**
    * Get a serializing transcoder with the default max data size.
@@ -64,9 +71,23 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
     super(max);
   }
 
+  /**
+   * Serialize objects other than strings and primitives with the given
+   * serializer rather than with Java serialization.
+   *
+   * Data serialized either way is always decoded; the serializer is only
+   * needed to decode data with registered classes.
+   *
+   * @param to the serializer, or null for Java serialization
+   */
+  public void setBinarySerializer(BinarySerializer to) {
+    binarySerializer = to;
+  }
+
   @Override
   public boolean asyncDecode(CachedData d) {
-    if ((d.getFlags() & COMPRESSED) != 0 || (d.getFlags() & SERIALIZED) != 0) {
+    if ((d.getFlags()
+        & (COMPRESSED | SERIALIZED | BINARY_SERIALIZED)) != 0) {
       return true;
     }
     return super.asyncDecode(d);
@@ -81,10 +102,12 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
     byte[] data = d.getData();
     Object rv = null;
     if ((d.getFlags() & COMPRESSED) != 0) {
-      data = decompress(d.getData());
+      data = decompress(d.getData(), d.getFlags());
     }
     int flags = d.getFlags() & SPECIAL_MASK;
-    if ((d.getFlags() & SERIALIZED) != 0 && data != null) {
+    if ((d.getFlags() & BINARY_SERIALIZED) != 0 && data != null) {
+      rv = deserializeBinary(data);
+    } else if ((d.getFlags() & SERIALIZED) != 0 && data != null) {
       rv = deserialize(data);
     } else if (flags != 0 && data != null) {
       switch (flags) {
@@ -158,6 +181,9 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
     } else if (o instanceof byte[]) {
       b = (byte[]) o;
       flags |= SPECIAL_BYTEARRAY;
+    } else if (binarySerializer != null) {
+      b = binarySerializer.serialize(o);
+      flags |= BINARY_SERIALIZED;
     } else {
       b = serialize(o);
       flags |= SERIALIZED;
@@ -169,7 +195,7 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
         getLogger().debug("Compressed %s from %d to %d",
             o.getClass().getName(), b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= COMPRESSED | getCompressionFlags();
       } else {
         getLogger().info("Compression increased the size of %s from %d to %d",
             o.getClass().getName(), b.length, compressed.length);
@@ -177,4 +203,55 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
     }
     return new CachedData(flags, b, getMaxSize());
   }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.transcoders.StreamingTranscoder#encode(
+   * java.lang.Object, net.spy.memcached.ValueBuffer)
+   */
+  public int encode(Object o, ValueBuffer out) {
+    if (!isJavaSerialized(o)) {
+      CachedData d = encode(o);
+      out.write(d.getData(), 0, d.getData().length);
+      return d.getFlags();
+    }
+    // Serialize straight into the buffer; only compression needs a copy.
+    int flags = SERIALIZED;
+    serialize(o, out);
+    if (out.size() > compressionThreshold) {
+      byte[] b = out.toByteArray();
+      byte[] compressed = compress(b);
+      if (compressed.length < b.length) {
+        getLogger().debug("Compressed %s from %d to %d",
+            o.getClass().getName(), b.length, compressed.length);
+        out.reset();
+        out.write(compressed, 0, compressed.length);
+        flags |= COMPRESSED | getCompressionFlags();
+      } else {
+        getLogger().info("Compression increased the size of %s from %d to %d",
+            o.getClass().getName(), b.length, compressed.length);
+      }
+    }
+    return flags;
+  }
+
+  private boolean isJavaSerialized(Object o) {
+    return !(o instanceof String || o instanceof Long || o instanceof Integer
+        || o instanceof Boolean || o instanceof Date || o instanceof Byte
+        || o instanceof Float || o instanceof Double || o instanceof byte[]
+        || binarySerializer != null);
+  }
+
+  private Object deserializeBinary(byte[] data) {
+    BinarySerializer serializer = binarySerializer == null
+        ? DEFAULT_BINARY_SERIALIZER : binarySerializer;
+    try {
+      return serializer.deserialize(data);
+    } catch (IOException e) {
+      getLogger().warn("Caught IOException decoding %d bytes of data",
+          data.length, e);
+      return null;
+    }
+  }
 }
@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import net.spy.memcached.ValueBuffer;
+
+/**
+ * Transcoder that can encode values straight into the buffer they are sent
+ * to the server from.
+ *
+ * @param <T> the type of objects supported by this transcoder
+ */
+public interface StreamingTranscoder<T> extends Transcoder<T> {
+
+  /**
+   * Encode the given object into the given buffer.
+   *
+   * The data written must be the same {@link #encode(Object)} produces.
+   *
+   * @param o the object
+   * @param out the buffer to write the data to
+   * @return the flags of the data
+   */
+  int encode(T o, ValueBuffer out);
+}
@@ -22,11 +22,15 @@
 
 package net.spy.memcached.transcoders;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -38,15 +42,51 @@ import net.spy.memcached.internal.BasicThreadFactory;
 
 /**
  * Asynchronous transcoder.
+ *
+ * <p>
+ * Values are decoded on a pool of threads. Single values needing an
+ * asynchronous decode are handed to the pool as they arrive. The values of a
+ * bulk response are decoded together once the response is complete: in
+ * parallel batches when enough of them need an asynchronous decode, and
+ * inline on the calling thread otherwise. Values the pool has not started on
+ * yet are decoded by the thread asking for them.
+ * </p>
  */
 public class TranscodeService extends SpyObject {
 
+  /**
+   * Default number of values needing an asynchronous decode from which the
+   * values of a bulk response are decoded in parallel.
+   */
+  public static final int DEFAULT_BATCH_THRESHOLD = 32;
+
+  /**
+   * Number of values a single task of a parallel decode handles.
+   */
+  private static final int BATCH_SIZE = 8;
+
   private final ThreadPoolExecutor pool;
+  private final int batchThreshold;
 
   public TranscodeService(boolean daemon) {
-    pool = new ThreadPoolExecutor(1, 10, 60L, TimeUnit.MILLISECONDS,
-        new ArrayBlockingQueue<Runnable>(100), new BasicThreadFactory(
-          "transcoder", daemon), new ThreadPoolExecutor.DiscardPolicy());
+    this(daemon, Runtime.getRuntime().availableProcessors(),
+        DEFAULT_BATCH_THRESHOLD);
+  }
+
+  /**
+   * Create a transcode service.
+   *
+   * @param daemon whether the decoding threads are daemon threads
+   * @param parallelism the number of decoding threads
+   * @param threshold the number of values needing an asynchronous decode
+   *          from which a bulk response is decoded in parallel
+   */
+  public TranscodeService(boolean daemon, int parallelism, int threshold) {
+    pool = new ThreadPoolExecutor(parallelism, parallelism, 60L,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new BasicThreadFactory("transcoder", daemon));
+    pool.allowCoreThreadTimeOut(true);
+    batchThreshold = threshold;
   }
 
   /**
@@ -57,19 +97,87 @@ public class TranscodeService extends SpyObject {
 
     assert !pool.isShutdown() : "Pool has already shut down.";
 
-    TranscodeService.Task<T> task =
-        new TranscodeService.Task<T>(new Callable<T>() {
-          public T call() {
-            return tc.decode(cachedData);
-          }
-        });
-
-    if (tc.asyncDecode(cachedData)) {
-      this.pool.execute(task);
+    TranscodeService.Task<T> task = newTask(tc, cachedData);
+    if (task.async) {
+      try {
+        pool.execute(task);
+      } catch (RejectedExecutionException e) {
+        // Decoded by the caller.
+        getLogger().debug("Transcoder pool shut down, decoding inline");
+      }
     }
     return task;
   }
 
+  /**
+   * Prepare a decode that runs when the value is asked for, or when it is
+   * decoded along with others by {@link #decodeAll}.
+   */
+  public <T> Future<T> decodeLater(final Transcoder<T> tc,
+      final CachedData cachedData) {
+    return newTask(tc, cachedData);
+  }
+
+  /**
+   * Decode the given values prepared by {@link #decodeLater}, in parallel
+   * if enough of them need an asynchronous decode. Values already decoded or
+   * being decoded are skipped, as are futures from elsewhere.
+   *
+   * Waits at most the given time; the values not decoded by then are left to
+   * the thread asking for them.
+   *
+   * @param values the values to decode
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void decodeAll(Collection<? extends Future<?>> values, long timeout,
+      TimeUnit unit) throws InterruptedException {
+    List<Task<?>> pending = new ArrayList<Task<?>>();
+    for (Future<?> f : values) {
+      if (f instanceof Task && ((Task<?>) f).async
+          && !((Task<?>) f).isStarted()) {
+        pending.add((Task<?>) f);
+      }
+    }
+    if (pending.size() < batchThreshold) {
+      // Cheaper to decode on the caller as the values are asked for.
+      return;
+    }
+    List<DecodeBatch> batches = new ArrayList<DecodeBatch>();
+    for (int i = 0; i < pending.size(); i += BATCH_SIZE) {
+      batches.add(new DecodeBatch(pending.subList(i,
+          Math.min(i + BATCH_SIZE, pending.size()))));
+    }
+    try {
+      pool.invokeAll(batches, timeout, unit);
+    } catch (RejectedExecutionException e) {
+      getLogger().debug("Transcoder pool shut down, decoding inline");
+    }
+  }
+
+  /**
+   * Run the given work on the decoding threads, or on the calling thread
+   * once this service is shut down.
+   */
+  public void execute(Runnable r) {
+    try {
+      pool.execute(r);
+    } catch (RejectedExecutionException e) {
+      getLogger().debug("Transcoder pool shut down, decoding inline");
+      r.run();
+    }
+  }
+
+  private <T> Task<T> newTask(final Transcoder<T> tc,
+      final CachedData cachedData) {
+    return new TranscodeService.Task<T>(new Callable<T>() {
+      public T call() {
+        return tc.decode(cachedData);
+      }
+    }, tc.asyncDecode(cachedData));
+  }
+
   /**
    * Shut down the pool.
    */
@@ -86,9 +194,15 @@ public class TranscodeService extends SpyObject {
 
   private static class Task<T> extends FutureTask<T> {
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final boolean async;
 
-    public Task(Callable<T> callable) {
+    public Task(Callable<T> callable, boolean async) {
       super(callable);
+      this.async = async;
+    }
+
+    boolean isStarted() {
+      return isRunning.get();
     }
 
     @Override
@@ -111,4 +225,26 @@ public class TranscodeService extends SpyObject {
       }
     }
   }
+
+  /**
+   * Decodes a batch of values, stopping early once past the deadline of the
+   * bulk decode, which interrupts it.
+   */
+  private static final class DecodeBatch implements Callable<Void> {
+    private final List<Task<?>> tasks;
+
+    DecodeBatch(List<Task<?>> tasks) {
+      this.tasks = tasks;
+    }
+
+    public Void call() {
+      for (Task<?> t : tasks) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        t.run();
+      }
+      return null;
+    }
+  }
 }
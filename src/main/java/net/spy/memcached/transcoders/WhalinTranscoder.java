@@ -64,12 +64,13 @@ public class WhalinTranscoder extends BaseSerializingTranscoder implements
     byte[] data = d.getData();
     Object rv = null;
     if ((d.getFlags() & COMPRESSED) != 0) {
-      data = decompress(d.getData());
+      data = decompress(d.getData(), d.getFlags());
     }
     if ((d.getFlags() & SERIALIZED) != 0) {
       rv = deserialize(data);
     } else {
-      int f = d.getFlags() & ~COMPRESSED;
+      int f = d.getFlags() & ~(COMPRESSED | COMPRESSION_CODEC_MASK
+          | COMPRESSION_DICTIONARY_MASK);
       switch (f) {
       case SPECIAL_BOOLEAN:
         rv = Boolean.valueOf(this.decodeBoolean(data));
@@ -173,7 +174,7 @@ public class WhalinTranscoder extends BaseSerializingTranscoder implements
         getLogger().debug("Compressed %s from %d to %d",
           o.getClass().getName(), b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= COMPRESSED | getCompressionFlags();
       } else {
         getLogger().info("Compression increased the size of %s from %d to %d",
             o.getClass().getName(), b.length, compressed.length);
@@ -98,7 +98,7 @@ public class WhalinV1Transcoder extends BaseSerializingTranscoder implements
         getLogger().info("Compressed %s from %d to %d", o.getClass().getName(),
             b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= COMPRESSED | getCompressionFlags();
       } else {
         getLogger().info("Compression increased the size of %s from %d to %d",
             o.getClass().getName(), b.length, compressed.length);
@@ -111,7 +111,7 @@ public class WhalinV1Transcoder extends BaseSerializingTranscoder implements
     byte[] data = d.getData();
     Object rv = null;
     if ((d.getFlags() & COMPRESSED) != 0) {
-      data = decompress(d.getData());
+      data = decompress(d.getData(), d.getFlags());
     }
     if ((d.getFlags() & SERIALIZED) != 0) {
       rv = deserialize(data);
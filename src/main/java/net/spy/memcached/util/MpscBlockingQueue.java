@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue for many producers and a single consumer.
+ *
+ * <p>
+ * Producers claim a slot of a ring buffer with a single compare-and-set and
+ * never take a lock, so threads enqueueing at the same time do not block each
+ * other. Taking elements out is meant for one thread at a time: removals are
+ * serialized by a lock, which is uncontended as long as only one thread
+ * consumes.
+ * </p>
+ *
+ * <p>
+ * Waiting for space or for an element parks the thread for short periods
+ * instead of waiting on a condition, as producers never signal. The iterator
+ * works on a snapshot and does not support removal.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+public class MpscBlockingQueue<E> extends AbstractQueue<E>
+    implements BlockingQueue<E> {
+
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> buffer;
+  private final AtomicLong producerIndex = new AtomicLong();
+  private final AtomicLong consumerIndex = new AtomicLong();
+  private final Object consumerLock = new Object();
+
+  /**
+   * Create a queue holding at most the given number of elements.
+   */
+  public MpscBlockingQueue(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    buffer = new AtomicReferenceArray<E>(size);
+  }
+
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    long p;
+    do {
+      p = producerIndex.get();
+      if (p - consumerIndex.get() >= capacity) {
+        return false;
+      }
+    } while (!producerIndex.compareAndSet(p, p + 1));
+    buffer.lazySet((int) p & mask, e);
+    return true;
+  }
+
+  public boolean offer(E e, long timeout, TimeUnit unit)
+    throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!offer(e)) {
+      if (!park(deadline)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void put(E e) throws InterruptedException {
+    while (!offer(e)) {
+      park(Long.MAX_VALUE);
+    }
+  }
+
+  public E poll() {
+    synchronized (consumerLock) {
+      return take(false);
+    }
+  }
+
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    E e;
+    while ((e = poll()) == null) {
+      if (!park(deadline)) {
+        return null;
+      }
+    }
+    return e;
+  }
+
+  public E take() throws InterruptedException {
+    E e;
+    while ((e = poll()) == null) {
+      park(Long.MAX_VALUE);
+    }
+    return e;
+  }
+
+  public E peek() {
+    synchronized (consumerLock) {
+      return take(true);
+    }
+  }
+
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    int n = 0;
+    synchronized (consumerLock) {
+      E e;
+      while (n < maxElements && (e = take(false)) != null) {
+        c.add(e);
+        n++;
+      }
+    }
+    return n;
+  }
+
+  @Override
+  public int size() {
+    long c;
+    long p;
+    do {
+      c = consumerIndex.get();
+      p = producerIndex.get();
+    } while (c != consumerIndex.get());
+    return (int) Math.max(0, Math.min(p - c, capacity));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return consumerIndex.get() == producerIndex.get();
+  }
+
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<E>();
+    synchronized (consumerLock) {
+      long p = producerIndex.get();
+      for (long c = consumerIndex.get(); c < p; c++) {
+        E e = buffer.get((int) c & mask);
+        if (e != null) {
+          snapshot.add(e);
+        }
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  /**
+   * Get the head of the queue, removing it unless peeking. Must hold the
+   * consumer lock.
+   */
+  private E take(boolean peek) {
+    long c = consumerIndex.get();
+    int i = (int) c & mask;
+    E e = buffer.get(i);
+    if (e == null) {
+      if (c == producerIndex.get()) {
+        return null;
+      }
+      // The slot is claimed, its producer is about to store the element.
+      while ((e = buffer.get(i)) == null) {
+        Thread.yield();
+      }
+    }
+    if (!peek) {
+      buffer.lazySet(i, null);
+      consumerIndex.lazySet(c + 1);
+    }
+    return e;
+  }
+
+  /**
+   * Park for a short while.
+   *
+   * @return false if the deadline has passed
+   */
+  private static boolean park(long deadline) throws InterruptedException {
+    long left = deadline == Long.MAX_VALUE ? PARK_NANOS
+        : deadline - System.nanoTime();
+    if (left <= 0) {
+      return false;
+    }
+    LockSupport.parkNanos(Math.min(left, PARK_NANOS));
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    return true;
+  }
+}
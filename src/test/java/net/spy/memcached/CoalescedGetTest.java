@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
+
+/**
+ * Test gets coalesced by the client against an embedded server.
+ */
+public class CoalescedGetTest extends TestCase {
+
+  private EmbeddedMemcachedServer server;
+  private MemcachedClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new EmbeddedMemcachedServer(1);
+    client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static)
+        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+        .setCoalesceGets(true).setOpTimeout(5000).build(),
+        server.getAddresses());
+    assertTrue(client.set("a", 0, "1").get());
+    server.setLatency(300, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testCancelLeavesOtherWaiters() throws Exception {
+    GetFuture<Object> first = client.asyncGet("a");
+    GetFuture<Object> second = client.asyncGet("a");
+    assertTrue(second.cancel(true) || second.isCancelled());
+    assertTrue(second.isCancelled());
+    try {
+      second.get();
+      fail("Expected a cancellation");
+    } catch (ExecutionException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Cancelled"));
+    }
+    assertFalse(first.isCancelled());
+    assertEquals("1", first.get());
+  }
+
+  public void testTimeoutLeavesOtherWaiters() throws Exception {
+    GetFuture<Object> first = client.asyncGet("a");
+    GetFuture<Object> second = client.asyncGet("a");
+    try {
+      first.get(10, TimeUnit.MILLISECONDS);
+      fail("Expected a timeout");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    assertEquals("1", second.get());
+  }
+
+  public void testGetAfterSetSeesValue() throws Exception {
+    Future<Object> before = client.asyncGet("a");
+    Future<Boolean> set = client.set("a", 0, "2");
+    Future<Object> after = client.asyncGet("a");
+    assertEquals("1", before.get());
+    assertEquals("2", after.get());
+    assertTrue(set.get());
+  }
+
+  public void testJoinedMissKeepsBulkStatus() throws Exception {
+    Future<Object> miss = client.asyncGet("missing");
+    BulkFuture<Map<String, Object>> bulk =
+        client.asyncGetBulk(Arrays.asList("a", "missing"));
+    assertNull(miss.get());
+    Map<String, Object> values = bulk.get();
+    assertEquals(1, values.size());
+    assertEquals("1", values.get("a"));
+    assertTrue(bulk.getStatus().isSuccess());
+  }
+}
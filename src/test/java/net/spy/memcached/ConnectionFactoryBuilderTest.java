@@ -32,6 +32,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.ConnectionFactoryBuilder.Locator;
 import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
@@ -66,6 +67,12 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
         f.getOperationTimeout());
     assertEquals(DefaultConnectionFactory.DEFAULT_READ_BUFFER_SIZE,
         f.getReadBufSize());
+    assertEquals(DefaultConnectionFactory.DEFAULT_SELECTOR_THREAD_COUNT,
+        ((DefaultConnectionFactory) f).getSelectorThreadCount());
+    assertTrue(((DefaultConnectionFactory) f).getBufferAllocator()
+        instanceof DirectBufferAllocator);
+    assertEquals(0,
+        ((DefaultConnectionFactory) f).getNearCacheMaxEntries());
     assertSame(DefaultConnectionFactory.DEFAULT_HASH, f.getHashAlg());
     assertTrue(f.getDefaultTranscoder() instanceof SerializingTranscoder);
     assertSame(DefaultConnectionFactory.DEFAULT_FAILURE_MODE,
@@ -125,6 +132,7 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
     OperationQueueFactory opQueueFactory = new DirectFactory(oQueue);
     OperationQueueFactory rQueueFactory = new DirectFactory(rQueue);
     OperationQueueFactory wQueueFactory = new DirectFactory(wQueue);
+    BufferAllocator allocator = new PooledBufferAllocator();
     AuthDescriptor anAuthDescriptor = new AuthDescriptor(
         new String[] { "PLAIN" }, new PlainCallbackHandler("username",
           "password"));
@@ -142,10 +150,20 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
         .setAuthDescriptor(anAuthDescriptor)
         .setAuthWaitTime(3000)
         .setKeepAlive(true)
+        .setSelectorThreadCount(4)
+        .setBufferAllocator(allocator)
+        .setNearCache(100, 4096, 2, TimeUnit.SECONDS)
         .build();
 
     assertEquals(4225, f.getOperationTimeout());
     assertEquals(19, f.getReadBufSize());
+    assertEquals(4,
+        ((DefaultConnectionFactory) f).getSelectorThreadCount());
+    assertSame(allocator, ((DefaultConnectionFactory) f).getBufferAllocator());
+    DefaultConnectionFactory df = (DefaultConnectionFactory) f;
+    assertEquals(100, df.getNearCacheMaxEntries());
+    assertEquals(4096, df.getNearCacheMaxBytes());
+    assertEquals(2000, df.getNearCacheMaxStaleness());
     assertSame(DefaultHashAlgorithm.KETAMA_HASH, f.getHashAlg());
     assertTrue(f.getDefaultTranscoder() instanceof WhalinTranscoder);
     assertSame(FailureMode.Redistribute, f.getFailureMode());
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.internal.DirectFuture;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
+
+/**
+ * Test the {@link DirectFuture} API of {@link MemcachedClient} against an
+ * embedded server.
+ */
+public class DirectFutureClientTest extends TestCase {
+
+  private EmbeddedMemcachedServer server;
+  private MemcachedClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new EmbeddedMemcachedServer(2);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    server.shutdown();
+    super.tearDown();
+  }
+
+  private void connect(ConnectionFactoryBuilder b) throws Exception {
+    client = new MemcachedClient(b.setClientMode(ClientMode.Static).build(),
+        server.getAddresses());
+    // Operations sent before a node connects are redistributed to another.
+    long deadline = System.currentTimeMillis() + 10000;
+    while (client.getAvailableServers().size() < 2) {
+      assertTrue("Servers did not connect",
+          System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  public void testStoreGetDelete() throws Exception {
+    connect(new ConnectionFactoryBuilder()
+        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY));
+    assertTrue(client.setAsync("a", 0, "1").get());
+    assertFalse(client.addAsync("a", 0, "2").get());
+    assertTrue(client.replaceAsync("a", 0, "3").get());
+    assertFalse(client.replaceAsync("b", 0, "3").get());
+    assertTrue(client.setAsync("b", 0, "4").get());
+    assertEquals("3", client.getAsync("a").get());
+
+    Map<String, Object> m =
+        client.getBulkAsync(Arrays.asList("a", "b", "c")).get();
+    assertEquals(2, m.size());
+    assertEquals("4", m.get("b"));
+
+    assertTrue(client.deleteAsync("a").get());
+    assertFalse(client.deleteAsync("a").get());
+    assertNull(client.getAsync("a").get());
+  }
+
+  public void testCompletesOnIOThread() throws Exception {
+    connect(new ConnectionFactoryBuilder());
+    assertTrue(client.setAsync("a", 0, "1").get());
+    // Keep the get pending, so the function is not applied on this thread.
+    server.setLatency(200, TimeUnit.MILLISECONDS);
+    final AtomicReference<String> thread = new AtomicReference<String>();
+    DirectFuture<Object> get = client.getAsync("a");
+    assertFalse(get.isDone());
+    DirectFuture<Integer> len = get.thenApply(
+        new DirectFuture.Function<Object, Integer>() {
+          public Integer apply(Object value) {
+            thread.set(Thread.currentThread().getName());
+            return ((String) value).length();
+          }
+        });
+    assertEquals(Integer.valueOf(1), len.get());
+    assertTrue(thread.get(), thread.get().startsWith("Memcached IO"));
+  }
+
+  public void testDecodesSerializedValuesOffIOThread() throws Exception {
+    connect(new ConnectionFactoryBuilder());
+    ArrayList<String> value = new ArrayList<String>(Arrays.asList("x"));
+    assertTrue(client.setAsync("a", 0, value).get());
+    assertTrue(client.setAsync("b", 0, "1").get());
+    server.setLatency(200, TimeUnit.MILLISECONDS);
+    final AtomicReference<String> thread = new AtomicReference<String>();
+    DirectFuture<Object> get = client.getAsync("a");
+    DirectFuture<Object> applied = get.thenApply(
+        new DirectFuture.Function<Object, Object>() {
+          public Object apply(Object v) {
+            thread.set(Thread.currentThread().getName());
+            return v;
+          }
+        });
+    assertEquals(value, applied.get());
+    assertTrue(thread.get(), thread.get().startsWith("transcoder"));
+
+    Map<String, Object> m =
+        client.getBulkAsync(Arrays.asList("a", "b")).get();
+    assertEquals(value, m.get("a"));
+    assertEquals("1", m.get("b"));
+  }
+
+  public void testNearCacheHitCompletesImmediately() throws Exception {
+    connect(new ConnectionFactoryBuilder()
+        .setNearCache(10, 1000, 1, TimeUnit.MINUTES));
+    assertTrue(client.setAsync("a", 0, "1").get());
+    assertEquals("1", client.getAsync("a").get());
+    assertTrue(client.getAsync("a").isDone());
+  }
+
+  public void testTimeout() throws Exception {
+    connect(new ConnectionFactoryBuilder().setOpTimeout(100));
+    server.setLatency(1, TimeUnit.SECONDS);
+    DirectFuture<Object> f = client.getAsync("a");
+    // Give up waiting well before the operation itself times out.
+    try {
+      f.get(10, TimeUnit.MILLISECONDS);
+      fail("Expected a timeout");
+    } catch (CheckedOperationTimeoutException e) {
+      // expected
+    }
+    try {
+      f.get();
+      fail("Expected a failure");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CheckedOperationTimeoutException);
+    }
+  }
+}
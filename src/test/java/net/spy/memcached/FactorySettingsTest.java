@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jmock.MockObjectTestCase;
+
+/**
+ * Test the {@link FactorySettings}.
+ */
+public class FactorySettingsTest extends MockObjectTestCase {
+
+  public void testReadsDefaultConnectionFactory() {
+    ConnectionFactory f = new ConnectionFactoryBuilder()
+        .setSelectorThreadCount(3)
+        .setNearCache(7, 1024, 1, TimeUnit.SECONDS)
+        .setCoalesceGets(true).setNodeLimits(11, 0).build();
+    FactorySettings s = FactorySettings.of(f);
+    assertTrue(s.isCarriedByFactory());
+    assertEquals(3, s.getSelectorThreadCount());
+    assertEquals(7, s.getNearCacheMaxEntries());
+    assertTrue(s.shouldCoalesceGets());
+    assertEquals(11, s.getMaxNodeOutstandingOps());
+  }
+
+  public void testOtherFactoriesGetDefaults() {
+    ConnectionFactory f =
+        (ConnectionFactory) mock(ConnectionFactory.class).proxy();
+    FactorySettings s = FactorySettings.of(f);
+    assertFalse(s.isCarriedByFactory());
+    assertEquals(DefaultConnectionFactory.DEFAULT_SELECTOR_THREAD_COUNT,
+        s.getSelectorThreadCount());
+    assertTrue(s.getBufferAllocator() instanceof DirectBufferAllocator);
+    assertNull(s.getPayloadAllocator());
+    assertEquals(DefaultConnectionFactory.DEFAULT_NEAR_CACHE_MAX_ENTRIES,
+        s.getNearCacheMaxEntries());
+    assertFalse(s.shouldCoalesceGets());
+    assertEquals(DefaultConnectionFactory.DEFAULT_MAX_NODE_OUTSTANDING_OPS,
+        s.getMaxNodeOutstandingOps());
+    assertFalse(s.shouldRejectOverloadedOps());
+  }
+}
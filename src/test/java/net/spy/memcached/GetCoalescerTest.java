@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+
+/**
+ * Test the {@link GetCoalescer}.
+ */
+public class GetCoalescerTest extends TestCase {
+
+  private final GetCoalescer coalescer = new GetCoalescer();
+  private final List<CachedData> results = new ArrayList<CachedData>();
+  private final List<OperationStatus> statuses =
+      new ArrayList<OperationStatus>();
+
+  private GetCoalescer.Waiter waiter() {
+    return new GetCoalescer.Waiter() {
+      public void done(Operation op, CachedData data,
+          OperationStatus status) {
+        results.add(data);
+        statuses.add(status);
+      }
+    };
+  }
+
+  private GetCoalescer.Flight flight(String key) {
+    final GetCoalescer.Flight f = coalescer.newFlight(key, waiter());
+    f.setOperation(new BinaryOperationFactory().get(key,
+        new GetOperation.Callback() {
+          public void receivedStatus(OperationStatus status) {
+            f.setStatus(status);
+          }
+
+          public void gotData(String k, int flags, byte[] data) {
+            f.setData(new CachedData(flags, data, CachedData.MAX_SIZE));
+          }
+
+          public void complete() {
+            f.complete();
+          }
+        }));
+    return f;
+  }
+
+  private static void succeed(GetCoalescer.Flight f, CachedData d) {
+    f.setData(d);
+    f.setStatus(new OperationStatus(true, "OK", StatusCode.SUCCESS));
+    f.complete();
+  }
+
+  public void testWaitersShareResult() {
+    assertNull(coalescer.join("k", waiter()));
+    GetCoalescer.Flight f = flight("k");
+    assertTrue(coalescer.start(f).isLeader());
+    assertNotNull(coalescer.join("k", waiter()));
+    assertNotNull(coalescer.join("k", waiter()));
+
+    CachedData d = new CachedData(0, new byte[1], CachedData.MAX_SIZE);
+    succeed(f, d);
+    assertEquals(3, results.size());
+    for (CachedData r : results) {
+      assertSame(d, r);
+    }
+    assertNull(coalescer.join("k", waiter()));
+  }
+
+  public void testSecondFlightJoinsFirst() {
+    GetCoalescer.Flight first = flight("k");
+    assertTrue(coalescer.start(first).isLeader());
+    GetCoalescer.Flight second = flight("k");
+    assertFalse(coalescer.start(second).isLeader());
+
+    succeed(first, null);
+    assertEquals(2, results.size());
+
+    GetCoalescer.Flight third = flight("k");
+    assertTrue(coalescer.start(third).isLeader());
+  }
+
+  public void testCancelReleasesOnlyItsWaiter() {
+    GetCoalescer.Flight f = flight("k");
+    GetCoalescer.Ticket leader = coalescer.start(f);
+    GetCoalescer.Ticket joined = coalescer.join("k", waiter());
+
+    joined.cancel();
+    assertTrue(joined.isCancelled());
+    assertEquals(StatusCode.CANCELLED, statuses.get(0).getStatusCode());
+    assertFalse(leader.isCancelled());
+    assertFalse(f.getOperation().isCancelled());
+
+    CachedData d = new CachedData(0, new byte[1], CachedData.MAX_SIZE);
+    succeed(f, d);
+    assertEquals(2, results.size());
+    assertSame(d, results.get(1));
+    assertTrue(joined.isCancelled());
+    assertFalse(leader.isCancelled());
+  }
+
+  public void testTimeOutReleasesOnlyItsWaiter() {
+    GetCoalescer.Flight f = flight("k");
+    GetCoalescer.Ticket leader = coalescer.start(f);
+    coalescer.join("k", waiter());
+
+    leader.timeOut();
+    assertTrue(leader.isTimedOut());
+    assertEquals(StatusCode.TIMEDOUT, statuses.get(0).getStatusCode());
+    assertFalse(f.getOperation().isTimedOut());
+  }
+
+  public void testLastWaiterCancelsOperation() {
+    GetCoalescer.Flight f = flight("k");
+    GetCoalescer.Ticket leader = coalescer.start(f);
+    GetCoalescer.Ticket joined = coalescer.join("k", waiter());
+
+    joined.cancel();
+    leader.cancel();
+    assertTrue(f.getOperation().isCancelled());
+    assertEquals(2, statuses.size());
+    assertNull(coalescer.join("k", waiter()));
+  }
+
+  public void testMutationEndsJoining() {
+    GetCoalescer.Flight f = flight("k");
+    coalescer.start(f);
+    coalescer.invalidate("k");
+    assertNull(coalescer.join("k", waiter()));
+    assertTrue(coalescer.start(flight("k")).isLeader());
+
+    coalescer.clear();
+    assertTrue(coalescer.start(flight("k")).isLeader());
+  }
+
+  public void testStaleFlightIsNotJoined() {
+    // Created before the mutation, started after it.
+    GetCoalescer.Flight f = flight("k");
+    coalescer.invalidate("k");
+    assertTrue(coalescer.start(f).isLeader());
+    assertNull(coalescer.join("k", waiter()));
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.metrics.AbstractMetricCollector;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+
+/**
+ * Test the {@link HotKeyTracker}.
+ */
+public class HotKeyTrackerTest extends TestCase {
+
+  private final OperationFactory opFact = new BinaryOperationFactory();
+  private final MockMemcachedNode node =
+      new MockMemcachedNode(new InetSocketAddress("127.0.0.1", 11211));
+
+  public void testFindsHottestKeys() {
+    HotKeyTracker tracker = new HotKeyTracker(1, Long.MAX_VALUE,
+        new RecordingMetricCollector());
+    Operation get = opFact.get("x", null);
+    Operation delete = opFact.delete("x", null);
+    for (int i = 0; i < 1000; i++) {
+      tracker.record(node, get, "hot");
+      tracker.record(node, get, "key" + i);
+      if (i % 2 == 0) {
+        tracker.record(node, delete, "warm");
+      }
+    }
+
+    List<HotKey> hot = tracker.getHotKeys().get(node.getSocketAddress());
+    assertTrue(hot.size() <= 2 * HotKeyTracker.TOP_KEYS);
+    assertEquals("hot", hot.get(0).getKey());
+    assertSame(HotKey.OpType.GET, hot.get(0).getOpType());
+    assertEquals("warm", hot.get(1).getKey());
+    assertSame(HotKey.OpType.DELETE, hot.get(1).getOpType());
+    assertTrue(hot.get(0).getRate() > hot.get(1).getRate());
+  }
+
+  public void testSamplesOneInInterval() {
+    HotKeyTracker tracker = new HotKeyTracker(10, Long.MAX_VALUE,
+        new RecordingMetricCollector());
+    Operation get = opFact.get("x", null);
+    for (int i = 0; i < 9; i++) {
+      tracker.record(node, get, "k");
+    }
+    assertTrue(tracker.getHotKeys().isEmpty());
+    tracker.record(node, get, "k");
+    assertEquals(1, tracker.getHotKeys().size());
+  }
+
+  public void testPublishesWhenWindowEnds() throws Exception {
+    RecordingMetricCollector metrics = new RecordingMetricCollector();
+    HotKeyTracker tracker = new HotKeyTracker(1, 1, metrics);
+    Operation get = opFact.get("x", null);
+    tracker.record(node, get, "first");
+    Thread.sleep(2);
+    tracker.record(node, get, "second");
+    String name = "[MEM] Hottest Key Rate: " + node.getSocketAddress();
+    assertEquals(1, metrics.counters.size());
+    int first = metrics.counters.get(name);
+    assertTrue(first > 0);
+
+    // The counter holds the rate of the last window, not a running total.
+    Thread.sleep(200);
+    tracker.record(node, get, "third");
+    assertEquals(1, metrics.counters.size());
+    int second = metrics.counters.get(name);
+    assertTrue(second > 0);
+    assertTrue(second < first);
+
+    tracker.removeNode(node.getSocketAddress());
+    assertTrue(metrics.counters.isEmpty());
+    assertTrue(tracker.getHotKeys().isEmpty());
+  }
+
+  public void testSketchNeverUnderestimates() {
+    HotKeyTracker.Sketch s = new HotKeyTracker.Sketch();
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (int i = 0; i < 5000; i++) {
+      String key = "key" + (i % 700);
+      Integer c = counts.get(key);
+      counts.put(key, c == null ? 1 : c + 1);
+      assertTrue(s.add(key) >= counts.get(key));
+    }
+  }
+
+  private static class RecordingMetricCollector
+    extends AbstractMetricCollector {
+    private final Map<String, Integer> counters =
+        new HashMap<String, Integer>();
+
+    public void addCounter(String name) {
+      counters.put(name, 0);
+    }
+
+    public void removeCounter(String name) {
+      counters.remove(name);
+    }
+
+    public void incrementCounter(String name, int amount) {
+      counters.put(name, counters.get(name) + amount);
+    }
+
+    public void decrementCounter(String name, int amount) {
+      counters.put(name, counters.get(name) - amount);
+    }
+
+    public void addMeter(String name) {
+      // noop
+    }
+
+    public void removeMeter(String name) {
+      // noop
+    }
+
+    public void markMeter(String name) {
+      // noop
+    }
+
+    public void addHistogram(String name) {
+      // noop
+    }
+
+    public void removeHistogram(String name) {
+      // noop
+    }
+
+    public void updateHistogram(String name, int amount) {
+      // noop
+    }
+  }
+}
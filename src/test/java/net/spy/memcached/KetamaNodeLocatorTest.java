@@ -30,6 +30,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedMap;
 
 import org.jmock.Mock;
 
@@ -113,6 +116,86 @@ public class KetamaNodeLocatorTest extends AbstractNodeLocationCase {
         locator.getReadonlyCopy().getPrimary("some other key").toString());
   }
 
+  public void testContinuumMatchesSortedMap() {
+    setupNodes(5);
+    KetamaNodeLocator kl = (KetamaNodeLocator) locator;
+    SortedMap<Long, MemcachedNode> ring = kl.getKetamaNodes();
+    Random r = new Random(7);
+    for (int i = 0; i < 10000; i++) {
+      long hash = r.nextLong() & 0xffffffffL;
+      SortedMap<Long, MemcachedNode> tail = ring.tailMap(hash);
+      Long point = tail.isEmpty() ? ring.firstKey() : tail.firstKey();
+      assertSame(ring.get(point), kl.getNodeForKey(hash));
+    }
+    for (Long point : ring.keySet()) {
+      assertSame(ring.get(point), kl.getNodeForKey(point));
+    }
+    assertSame(ring.get(ring.firstKey()),
+        kl.getNodeForKey(ring.lastKey() + 1));
+  }
+
+  public void testIncrementalUpdateMatchesFreshContinuum() {
+    setupNodes(6);
+    List<MemcachedNode> all = Arrays.asList(nodes);
+    KetamaNodeLocator kl = (KetamaNodeLocator) locator;
+    kl.updateLocator(all.subList(0, 4));
+    assertEquals(4, kl.getAll().size());
+    kl.updateLocator(all.subList(1, 6));
+    assertEquals(all.subList(1, 6), kl.getAll());
+
+    KetamaNodeLocator fresh = new KetamaNodeLocator(all.subList(1, 6),
+        DefaultHashAlgorithm.KETAMA_HASH);
+    assertEquals(fresh.getKetamaNodes(), kl.getKetamaNodes());
+  }
+
+  public void testContinuumViewIsSharedAndUnmodifiable() {
+    setupNodes(3);
+    KetamaNodeLocator kl = (KetamaNodeLocator) locator;
+    SortedMap<Long, MemcachedNode> ring = kl.getKetamaNodes();
+    assertSame(ring, kl.getKetamaNodes());
+    try {
+      ring.clear();
+      fail("Continuum view could be modified");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    assertEquals(ring.lastKey().longValue(), kl.getMaxKey());
+  }
+
+  public void testEmptyContinuum() {
+    KetamaNodeLocator kl = new KetamaNodeLocator(
+        new ArrayList<MemcachedNode>(), DefaultHashAlgorithm.KETAMA_HASH);
+    assertTrue(kl.getKetamaNodes().isEmpty());
+    assertNull(kl.getNodeForKey(42));
+    try {
+      kl.getMaxKey();
+      fail("Empty continuum has a max key");
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  public void testContinuumWithWidePoints() {
+    // Points well outside 32 bits, negative ones included.
+    setupNodes(new HashAlgorithm() {
+      public long hash(String k) {
+        return (k.hashCode() + 1L) * 0x9E3779B97F4A7C15L;
+      }
+    }, 4);
+    KetamaNodeLocator kl = (KetamaNodeLocator) locator;
+    SortedMap<Long, MemcachedNode> ring = kl.getKetamaNodes();
+    assertTrue(ring.firstKey() < 0);
+    assertTrue(ring.lastKey() > 0xffffffffL);
+    Random r = new Random(11);
+    for (int i = 0; i < 10000; i++) {
+      long hash = r.nextLong();
+      SortedMap<Long, MemcachedNode> tail = ring.tailMap(hash);
+      Long point = tail.isEmpty() ? ring.firstKey() : tail.firstKey();
+      assertSame(ring.get(point), kl.getNodeForKey(hash));
+    }
+    assertEquals(ring.lastKey().longValue(), kl.getMaxKey());
+  }
+
   public void testContinuumWrapping() {
     setupNodes(4);
     // This is the method by which I found something that would wrap
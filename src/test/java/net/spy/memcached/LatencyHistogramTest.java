@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest extends TestCase {
+
+  public void testBucketsCoverEveryValue() {
+    int prev = -1;
+    for (long v = 0; v < 100000; v++) {
+      int idx = LatencyHistogram.index(v);
+      assertTrue(idx == prev || idx == prev + 1);
+      assertTrue(LatencyHistogram.highestValue(idx) >= v);
+      prev = idx;
+    }
+  }
+
+  public void testValuesWithinOnePercent() {
+    Random r = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      long v = r.nextInt(Integer.MAX_VALUE);
+      long reported =
+          LatencyHistogram.highestValue(LatencyHistogram.index(v));
+      assertTrue(reported >= v);
+      assertTrue(v + " reported as " + reported, reported - v <= v / 100);
+    }
+  }
+
+  public void testPercentiles() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      h.record(i);
+    }
+    LatencyHistogram.Snapshot s = h.snapshotAndReset();
+    assertEquals(1000, s.getCount());
+    assertEquals(501, s.getValueAtPercentile(50), 5);
+    assertEquals(991, s.getValueAtPercentile(99), 10);
+    assertEquals(1000, s.getValueAtPercentile(99.9), 10);
+    assertEquals(0, h.snapshotAndReset().getCount());
+  }
+
+  public void testClampsOutOfRangeValues() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(-5);
+    h.record(Long.MAX_VALUE);
+    LatencyHistogram.Snapshot s = h.snapshotAndReset();
+    assertEquals(0, s.getValueAtPercentile(50));
+    assertTrue(s.getValueAtPercentile(100) >= LatencyHistogram.MAX_VALUE);
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.metrics.AbstractMetricCollector;
+import net.spy.memcached.ops.ConfigurationType;
+import net.spy.memcached.ops.Mutator;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.BaseOperationImpl;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+
+/**
+ * Test the {@link LatencyTracker}.
+ */
+public class LatencyTrackerTest extends TestCase {
+
+  private final OperationFactory opFact = new BinaryOperationFactory();
+  private final MockMemcachedNode node =
+      new MockMemcachedNode(new InetSocketAddress("127.0.0.1", 11211));
+
+  public void testKinds() {
+    assertSame(LatencyTracker.Kind.GET,
+        LatencyTracker.Kind.of(opFact.get("a", null)));
+    assertSame(LatencyTracker.Kind.MULTI_GET,
+        LatencyTracker.Kind.of(opFact.get(Arrays.asList("a", "b"), null)));
+    assertSame(LatencyTracker.Kind.SET, LatencyTracker.Kind.of(
+        opFact.store(StoreType.set, "a", 0, 0,
+            new byte[0], null)));
+    assertSame(LatencyTracker.Kind.DELETE,
+        LatencyTracker.Kind.of(opFact.delete("a", null)));
+    assertSame(LatencyTracker.Kind.INCR, LatencyTracker.Kind.of(
+        opFact.mutate(Mutator.incr, "a", 1, 0, 0, null)));
+    assertSame(LatencyTracker.Kind.CONFIG, LatencyTracker.Kind.of(
+        opFact.getConfig(ConfigurationType.CLUSTER, null)));
+    assertSame(LatencyTracker.Kind.OTHER,
+        LatencyTracker.Kind.of(opFact.noop(null)));
+  }
+
+  public void testRecordsPhases() {
+    LatencyTracker tracker = new LatencyTracker(
+        new RecordingMetricCollector());
+    BaseOperationImpl op = (BaseOperationImpl) opFact.get("a", null);
+    op.writing();
+    op.writeComplete();
+    op.addDecodeTime(3000);
+    tracker.record(node, op, System.nanoTime());
+
+    for (LatencyTracker.Phase p : LatencyTracker.Phase.values()) {
+      LatencyHistogram h = tracker.getHistogram(node.getSocketAddress(),
+          LatencyTracker.Kind.GET, p);
+      assertEquals(p.toString(), 1, h.snapshotAndReset().getCount());
+    }
+    assertNull(tracker.getHistogram(node.getSocketAddress(),
+        LatencyTracker.Kind.SET, LatencyTracker.Phase.TOTAL));
+  }
+
+  public void testPublishesPercentiles() {
+    RecordingMetricCollector metrics = new RecordingMetricCollector();
+    LatencyTracker tracker = new LatencyTracker(metrics);
+    String name = "[MEM] Latency: " + node.getSocketAddress()
+        + " get decode p99";
+
+    BaseOperationImpl op = (BaseOperationImpl) opFact.get("a", null);
+    op.addDecodeTime(5000);
+    tracker.record(node, op, System.nanoTime());
+    // Recording never publishes.
+    assertTrue(metrics.counters.isEmpty());
+    tracker.publish();
+    assertEquals(Integer.valueOf(5), metrics.counters.get(name));
+    // Total and decode times, the operation was never written.
+    assertEquals(6, metrics.counters.size());
+
+    op = (BaseOperationImpl) opFact.get("a", null);
+    op.addDecodeTime(2000);
+    tracker.record(node, op, System.nanoTime());
+    tracker.publish();
+    assertEquals(Integer.valueOf(2), metrics.counters.get(name));
+
+    // An idle window removes the counters.
+    tracker.publish();
+    assertFalse(metrics.counters.containsKey(name));
+
+    // A counter published again starts over from the new value.
+    op = (BaseOperationImpl) opFact.get("a", null);
+    op.addDecodeTime(7000);
+    tracker.record(node, op, System.nanoTime());
+    tracker.publish();
+    assertEquals(Integer.valueOf(7), metrics.counters.get(name));
+  }
+
+  public void testRemoveNodeDropsItsCounters() {
+    RecordingMetricCollector metrics = new RecordingMetricCollector();
+    LatencyTracker tracker = new LatencyTracker(metrics);
+    tracker.record(node, opFact.get("a", null), System.nanoTime());
+    tracker.publish();
+    assertFalse(metrics.counters.isEmpty());
+
+    tracker.removeNode(node.getSocketAddress());
+    assertTrue(metrics.counters.isEmpty());
+    assertNull(tracker.getHistogram(node.getSocketAddress(),
+        LatencyTracker.Kind.GET, LatencyTracker.Phase.TOTAL));
+    tracker.publish();
+    assertTrue(metrics.counters.isEmpty());
+  }
+
+  private static class RecordingMetricCollector
+    extends AbstractMetricCollector {
+    private final Map<String, Integer> counters =
+        new HashMap<String, Integer>();
+
+    public void addCounter(String name) {
+      counters.put(name, 0);
+    }
+
+    public void removeCounter(String name) {
+      counters.remove(name);
+    }
+
+    public void incrementCounter(String name, int amount) {
+      counters.put(name, counters.get(name) + amount);
+    }
+
+    public void decrementCounter(String name, int amount) {
+      counters.put(name, counters.get(name) - amount);
+    }
+
+    public void addMeter(String name) {
+      // noop
+    }
+
+    public void removeMeter(String name) {
+      // noop
+    }
+
+    public void markMeter(String name) {
+      // noop
+    }
+
+    public void addHistogram(String name) {
+      // noop
+    }
+
+    public void removeHistogram(String name) {
+      // noop
+    }
+
+    public void updateHistogram(String name, int amount) {
+      // noop
+    }
+  }
+}
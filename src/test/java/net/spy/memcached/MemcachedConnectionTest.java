@@ -27,9 +27,12 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
+import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
 
 /**
  * Test stuff that can be tested within a MemcachedConnection separately.
@@ -54,6 +57,88 @@ public class MemcachedConnectionTest extends TestCase {
     assertNotNull(mcc.connectionsStatus());
   }
 
+  public void testMultipleSelectorThreads() throws Exception {
+    ConnectionFactory factory = new ConnectionFactoryBuilder()
+      .setSelectorThreadCount(2).setDaemon(true).build();
+    List<InetSocketAddress> addresses = AddrUtil.getAddresses(
+      UnitTestConfig.IPV4_ADDR + ":11211 " + UnitTestConfig.IPV4_ADDR
+      + ":11212 " + UnitTestConfig.IPV4_ADDR + ":11213");
+    Collection<ConnectionObserver> observers =
+      new ArrayList<ConnectionObserver>();
+    MemcachedConnection mcc = new MemcachedConnection(10240, factory,
+      addresses, observers, FailureMode.Retry, new BinaryOperationFactory());
+    try {
+      assertEquals(3, mcc.getLocator().getAll().size());
+      for (MemcachedNode node : mcc.getLocator().getAll()) {
+        assertTrue(mcc.belongsToCluster(node));
+      }
+      assertNotNull(mcc.connectionsStatus());
+    } finally {
+      mcc.shutdown();
+    }
+    assertTrue(mcc.isShutDown());
+  }
+
+  public void testMultipleSelectorThreadsReconnect() throws Exception {
+    EmbeddedMemcachedServer server = new EmbeddedMemcachedServer(3);
+    MemcachedClient client = null;
+    try {
+      client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static).setProtocol(Protocol.BINARY)
+        .setSelectorThreadCount(3).setDaemon(true).build(),
+        server.getAddresses());
+      long deadline = System.currentTimeMillis() + 10000;
+      while (client.getAvailableServers().size() < 3
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      for (int i = 0; i < 100; i++) {
+        assertTrue(client.set("key" + i, 0, "value" + i).get());
+      }
+      for (int i = 0; i < 3; i++) {
+        assertTrue(server.getItemCount(i) > 0);
+      }
+
+      server.dropConnections();
+      deadline = System.currentTimeMillis() + 10000;
+      int found = 0;
+      while (found < 100 && System.currentTimeMillis() < deadline) {
+        try {
+          Map<String, Object> values = client.getBulk(keys(100));
+          found = 0;
+          for (int i = 0; i < 100; i++) {
+            if (("value" + i).equals(values.get("key" + i))) {
+              found++;
+            }
+          }
+        } catch (RuntimeException e) {
+          found = 0;
+        }
+        if (found < 100) {
+          Thread.sleep(100);
+        }
+      }
+      assertEquals(100, found);
+      for (int i = 0; i < 100; i++) {
+        assertTrue(client.set("key" + i, 0, "other" + i).get());
+        assertEquals("other" + i, client.get("key" + i));
+      }
+    } finally {
+      if (client != null) {
+        client.shutdown();
+      }
+      server.shutdown();
+    }
+  }
+
+  private static List<String> keys(int count) {
+    List<String> keys = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      keys.add("key" + i);
+    }
+    return keys;
+  }
+
   public void testBelongsToCluster() throws Exception {
     ConnectionFactory factory = new DefaultConnectionFactory();
     Collection<ConnectionObserver> observers =
@@ -150,6 +150,7 @@ public class MockMemcachedNode implements MemcachedNode {
     return null;
   }
 
+  @Deprecated
   public boolean doTlsHandshake(long timeoutInMillis) throws IOException {
     return false;
   }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.spy.memcached.metrics.MetricType;
+import net.spy.memcached.metrics.NoopMetricCollector;
+
+/**
+ * Test the {@link NearCache}.
+ */
+public class NearCacheTest extends TestCase {
+
+  private static CachedData data(int size) {
+    return new CachedData(0, new byte[size], CachedData.MAX_SIZE);
+  }
+
+  private static NearCache cache(int entries, long bytes, long staleness) {
+    return new NearCache(entries, bytes, staleness, new NoopMetricCollector(),
+        MetricType.OFF);
+  }
+
+  public void testGetAfterPut() {
+    NearCache c = cache(10, 1024, 60000);
+    assertNull(c.get("k"));
+    CachedData d = data(10);
+    c.put("k", d, c.stamp());
+    assertSame(d, c.get("k"));
+  }
+
+  public void testStaleEntryIsDropped() throws Exception {
+    NearCache c = cache(10, 1024, 0);
+    c.put("k", data(10), c.stamp());
+    Thread.sleep(2);
+    assertNull(c.get("k"));
+    assertEquals(0, c.size());
+  }
+
+  public void testInvalidationDropsRacingPut() {
+    NearCache c = cache(10, 1024, 60000);
+    long stamp = c.stamp();
+    c.invalidate("k");
+    c.put("k", data(10), stamp);
+    assertNull(c.get("k"));
+    c.put("k", data(10), c.stamp());
+    assertNotNull(c.get("k"));
+    c.invalidate("k");
+    assertNull(c.get("k"));
+  }
+
+  public void testInvalidationKeepsOtherKeys() {
+    NearCache c = cache(10, 1024, 60000);
+    long stamp = c.stamp();
+    c.invalidate("other");
+    c.put("k", data(10), stamp);
+    assertNotNull(c.get("k"));
+  }
+
+  public void testForgottenInvalidationDropsOlderPuts() {
+    NearCache c = cache(2, 1024, 60000);
+    long stamp = c.stamp();
+    c.invalidate("a");
+    c.invalidate("b");
+    c.invalidate("c");
+    c.put("a", data(10), stamp);
+    assertNull(c.get("a"));
+    c.put("d", data(10), stamp);
+    assertNull(c.get("d"));
+    c.put("d", data(10), c.stamp());
+    assertNotNull(c.get("d"));
+  }
+
+  public void testClearDropsRacingPut() {
+    NearCache c = cache(10, 1024, 60000);
+    long stamp = c.stamp();
+    c.clear();
+    c.put("k", data(10), stamp);
+    assertNull(c.get("k"));
+  }
+
+  public void testEvictsLeastRecentlyUsedEntry() {
+    NearCache c = cache(2, 1024, 60000);
+    c.put("a", data(1), c.stamp());
+    c.put("b", data(1), c.stamp());
+    assertNotNull(c.get("a"));
+    c.put("c", data(1), c.stamp());
+    assertEquals(2, c.size());
+    assertNotNull(c.get("a"));
+    assertNull(c.get("b"));
+    assertNotNull(c.get("c"));
+  }
+
+  public void testHitsTakeNoLock() throws Exception {
+    final NearCache c = cache(10, 1024, 60000);
+    c.put("k", data(1), c.stamp());
+    final AtomicReference<CachedData> hit = new AtomicReference<CachedData>();
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        hit.set(c.get("k"));
+      }
+    };
+    synchronized (c) {
+      reader.start();
+      reader.join(5000);
+      assertNotNull(hit.get());
+    }
+  }
+
+  public void testEvictsByBytes() {
+    NearCache c = cache(10, 100, 60000);
+    c.put("a", data(60), c.stamp());
+    c.put("b", data(60), c.stamp());
+    assertNull(c.get("a"));
+    assertNotNull(c.get("b"));
+    c.put("big", data(101), c.stamp());
+    assertNull(c.get("big"));
+    assertNotNull(c.get("b"));
+  }
+
+  public void testClear() {
+    NearCache c = cache(10, 1024, 60000);
+    c.put("a", data(1), c.stamp());
+    c.clear();
+    assertEquals(0, c.size());
+    assertNull(c.get("a"));
+  }
+}
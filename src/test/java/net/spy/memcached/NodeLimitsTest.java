@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
+
+/**
+ * Test the per node limits of outstanding operations against an embedded
+ * server.
+ */
+public class NodeLimitsTest extends TestCase {
+
+  private EmbeddedMemcachedServer server;
+  private MemcachedClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new EmbeddedMemcachedServer(1);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    server.shutdown();
+    super.tearDown();
+  }
+
+  private void connect(ConnectionFactoryBuilder b) throws Exception {
+    client = new MemcachedClient(b.setClientMode(ClientMode.Static)
+        .setOpTimeout(5000).build(), server.getAddresses());
+    assertTrue(client.set("a", 0, "1").get());
+    server.setLatency(500, TimeUnit.MILLISECONDS);
+  }
+
+  public void testFailsFast() throws Exception {
+    connect(new ConnectionFactoryBuilder().setNodeLimits(2, 0));
+    Future<Object> first = client.asyncGet("a");
+    client.asyncGet("a");
+    long start = System.nanoTime();
+    try {
+      client.asyncGet("a");
+      fail("Expected the node to be overloaded");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("overloaded"));
+    }
+    assertTrue(System.nanoTime() - start
+        < TimeUnit.MILLISECONDS.toNanos(100));
+    assertEquals("1", first.get());
+    assertEquals("1", client.asyncGet("a").get());
+  }
+
+  public void testBulkFailsFast() throws Exception {
+    connect(new ConnectionFactoryBuilder().setNodeLimits(1, 0));
+    Future<Object> first = client.asyncGet("a");
+    try {
+      client.asyncGetBulk(Arrays.asList("a", "b"));
+      fail("Expected the node to be overloaded");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("overloaded"));
+    }
+    assertEquals("1", first.get());
+  }
+
+  public void testRejectsWithFailedFuture() throws Exception {
+    connect(new ConnectionFactoryBuilder().setNodeLimits(1, 0)
+        .setRejectOverloadedOps(true));
+    Future<Boolean> first = client.set("b", 0, "2");
+    OperationFuture<Boolean> rejected = client.set("c", 0, "3");
+    assertTrue(rejected.isDone());
+    assertFalse(rejected.isCancelled());
+    try {
+      rejected.get();
+      fail("Expected a rejection");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof OperationException);
+      assertTrue(e.getMessage(), e.getMessage().contains("overloaded"));
+    }
+    assertEquals(StatusCode.ERR_BUSY, rejected.getStatus().getStatusCode());
+    assertTrue(first.get());
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import junit.framework.TestCase;
+import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
+
+/**
+ * Test the {@link PooledBufferAllocator}.
+ */
+public class PooledBufferAllocatorTest extends TestCase {
+
+  public void testAllocateDirect() {
+    ByteBuffer b = new PooledBufferAllocator().allocate(128);
+    assertTrue(b.isDirect());
+    assertEquals(128, b.capacity());
+    assertEquals(0, b.position());
+    assertEquals(128, b.limit());
+  }
+
+  public void testReleasedBuffersAreReused() {
+    PooledBufferAllocator allocator = new PooledBufferAllocator();
+    ByteBuffer b = allocator.allocate(64);
+    b.putInt(42);
+    allocator.release(b);
+    assertEquals(1, allocator.getPooledCount(64));
+    assertEquals(0, allocator.getPooledCount(128));
+
+    assertNotSame(b, allocator.allocate(128));
+    ByteBuffer reused = allocator.allocate(64);
+    assertSame(b, reused);
+    assertEquals(0, reused.position());
+    assertEquals(64, reused.limit());
+    assertEquals(0, allocator.getPooledCount(64));
+  }
+
+  public void testPoolIsBounded() {
+    PooledBufferAllocator allocator = new PooledBufferAllocator(2);
+    for (int i = 0; i < 5; i++) {
+      allocator.release(ByteBuffer.allocateDirect(32));
+    }
+    assertEquals(2, allocator.getPooledCount(32));
+  }
+
+  public void testHeapBuffersAreNotPooled() {
+    PooledBufferAllocator allocator = new PooledBufferAllocator();
+    allocator.release(ByteBuffer.allocate(32));
+    allocator.release(null);
+    assertEquals(0, allocator.getPooledCount(32));
+  }
+
+  public void testNodeBuffersGoBackToPool() throws Exception {
+    PooledBufferAllocator allocator = new PooledBufferAllocator();
+    ConnectionFactory factory = new ConnectionFactoryBuilder()
+      .setBufferAllocator(allocator).build();
+    SocketChannel sc = SocketChannel.open();
+    try {
+      MemcachedNode node = factory.createMemcachedNode(
+        InetSocketAddress.createUnresolved("localhost",
+          UnitTestConfig.PORT_NUMBER), sc, 256);
+      assertTrue(node.getRbuf().isDirect());
+      ((TCPMemcachedNodeImpl) node).releaseBuffers();
+      assertEquals(2, allocator.getPooledCount(256));
+
+      // A released node still answers, but gives nothing back twice.
+      assertEquals(0, node.getWbuf().capacity());
+      node.setupResend();
+      assertNotNull(node.toString());
+      ((TCPMemcachedNodeImpl) node).releaseBuffers();
+      assertEquals(2, allocator.getPooledCount(256));
+
+      factory.createMemcachedNode(
+        InetSocketAddress.createUnresolved("localhost",
+          UnitTestConfig.PORT_NUMBER), sc, 256);
+      assertEquals(0, allocator.getPooledCount(256));
+    } finally {
+      sc.close();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.KeyStore;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManagerFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the non-blocking handshake of the {@link TLSConnectionHandler}
+ * against a blocking handshake on the server side.
+ */
+public class TLSConnectionHandlerTest extends TestCase {
+
+  private static final char[] PASSWORD = "changeit".toCharArray();
+
+  private File keyStoreFile;
+  private ServerSocketChannel server;
+  private SocketChannel client;
+  private SocketChannel accepted;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    keyStoreFile = File.createTempFile("tls-test", ".p12");
+    keyStoreFile.delete();
+    server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+    client = SocketChannel.open(server.socket().getLocalSocketAddress());
+    client.configureBlocking(false);
+    accepted = server.accept();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    accepted.close();
+    client.close();
+    server.close();
+    keyStoreFile.delete();
+    super.tearDown();
+  }
+
+  /**
+   * Create a self signed key with the keytool of the running JDK.
+   */
+  private KeyStore createKeyStore() throws Exception {
+    String keytool = System.getProperty("java.home") + File.separator + "bin"
+        + File.separator + "keytool";
+    Process p = new ProcessBuilder(keytool, "-genkeypair", "-alias", "test",
+        "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=localhost",
+        "-validity", "1", "-storetype", "PKCS12", "-keystore",
+        keyStoreFile.getPath(), "-storepass", new String(PASSWORD),
+        "-keypass", new String(PASSWORD)).redirectErrorStream(true).start();
+    InputStream out = p.getInputStream();
+    while (out.read() != -1) {
+      // drain the output
+    }
+    assertEquals(0, p.waitFor());
+    KeyStore ks = KeyStore.getInstance("PKCS12");
+    FileInputStream in = new FileInputStream(keyStoreFile);
+    try {
+      ks.load(in, PASSWORD);
+    } finally {
+      in.close();
+    }
+    return ks;
+  }
+
+  public void testNonBlockingHandshake() throws Exception {
+    KeyStore ks = createKeyStore();
+    KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+        KeyManagerFactory.getDefaultAlgorithm());
+    kmf.init(ks, PASSWORD);
+    SSLContext serverContext = SSLContext.getInstance("TLS");
+    serverContext.init(kmf.getKeyManagers(), null, null);
+    TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+        TrustManagerFactory.getDefaultAlgorithm());
+    tmf.init(ks);
+    SSLContext clientContext = SSLContext.getInstance("TLS");
+    clientContext.init(null, tmf.getTrustManagers(), null);
+
+    SSLEngine serverEngine = serverContext.createSSLEngine();
+    serverEngine.setUseClientMode(false);
+    final TLSConnectionHandler serverHandler =
+        new TLSConnectionHandler(accepted, serverEngine);
+    final AtomicBoolean serverDone = new AtomicBoolean();
+    Thread serverThread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          serverDone.set(serverHandler.doTlsHandshake(10000));
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    };
+    serverThread.start();
+
+    SSLEngine clientEngine = clientContext.createSSLEngine();
+    clientEngine.setUseClientMode(true);
+    TLSConnectionHandler clientHandler =
+        new TLSConnectionHandler(client, clientEngine);
+    Executor executor = new Executor() {
+      public void execute(Runnable r) {
+        new Thread(r).start();
+      }
+    };
+    final Semaphore tasksDone = new Semaphore(0);
+    Runnable onTasksDone = new Runnable() {
+      public void run() {
+        tasksDone.release();
+      }
+    };
+
+    Selector selector = Selector.open();
+    try {
+      SelectionKey sk = client.register(selector, 0);
+      clientHandler.beginHandshake();
+      long stop = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      TLSConnectionHandler.HandshakeState state;
+      while ((state = clientHandler.continueHandshake(executor, onTasksDone))
+          != TLSConnectionHandler.HandshakeState.FINISHED) {
+        assertTrue("Handshake took too long", System.nanoTime() < stop);
+        switch (state) {
+        case NEED_READ:
+          sk.interestOps(SelectionKey.OP_READ);
+          selector.select(100);
+          break;
+        case NEED_WRITE:
+          sk.interestOps(SelectionKey.OP_WRITE);
+          selector.select(100);
+          break;
+        case NEED_TASK:
+          tasksDone.tryAcquire(100, TimeUnit.MILLISECONDS);
+          break;
+        default:
+          fail("Handshake failed");
+        }
+        selector.selectedKeys().clear();
+      }
+    } finally {
+      selector.close();
+    }
+    serverThread.join(10000);
+    assertTrue(serverDone.get());
+
+    // The connection carries application data.
+    ByteBuffer plain = ByteBuffer.wrap("hello".getBytes("UTF-8"));
+    ByteBuffer net = ByteBuffer.allocate(
+        clientEngine.getSession().getPacketBufferSize());
+    assertTrue(clientHandler.encryptNextTLSDataRecord(plain, net) > 0);
+    net.flip();
+    while (net.hasRemaining()) {
+      client.write(net);
+    }
+    ByteBuffer received = ByteBuffer.allocate(
+        serverEngine.getSession().getPacketBufferSize());
+    ByteBuffer decrypted = null;
+    while (decrypted == null) {
+      accepted.read(received);
+      received.flip();
+      decrypted = serverHandler.decryptNextTLSDataRecord(received);
+      received.compact();
+    }
+    byte[] bytes = new byte[decrypted.remaining()];
+    decrypted.get(bytes);
+    assertEquals("hello", new String(bytes, "UTF-8"));
+  }
+}
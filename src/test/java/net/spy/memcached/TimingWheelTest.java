@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.internal.GetCompletionListener;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.protocol.BaseOperationImpl;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
+
+/**
+ * Test the {@link TimingWheel}.
+ */
+public class TimingWheelTest extends TestCase {
+
+  private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final OperationFactory opFact = new BinaryOperationFactory();
+  private volatile OperationStatus status;
+
+  private Operation newOp() {
+    return opFact.get("a", new GetOperation.Callback() {
+      public void receivedStatus(OperationStatus s) {
+        status = s;
+      }
+
+      public void gotData(String key, int flags, byte[] data) {
+        // not expected
+      }
+
+      public void complete() {
+        // nothing to do
+      }
+    });
+  }
+
+  public void testExpiresAtDeadline() {
+    TimingWheel wheel = new TimingWheel(100, TICK, 16);
+    Operation op = newOp();
+    wheel.schedule(op);
+    long created = ((BaseOperationImpl) op).getCreationTimestamp();
+
+    assertEquals(0, wheel.expire(created + TimeUnit.MILLISECONDS.toNanos(50)));
+    assertFalse(op.isTimedOut());
+    assertEquals(1, wheel.expire(created + TimeUnit.MILLISECONDS.toNanos(102)));
+    assertTrue(op.isTimedOut());
+    assertEquals(StatusCode.TIMEDOUT, status.getStatusCode());
+  }
+
+  public void testSkipsFinishedOperations() {
+    TimingWheel wheel = new TimingWheel(10, TICK, 16);
+    Operation cancelled = newOp();
+    cancelled.cancel();
+    Operation timedOut = newOp();
+    timedOut.timeOut();
+    wheel.schedule(cancelled);
+    wheel.schedule(timedOut);
+    wheel.schedule(timedOut);
+    assertEquals(0, wheel.expire(System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(1)));
+  }
+
+  public void testCompletesTimedOutOperationOnce() {
+    final AtomicInteger completions = new AtomicInteger();
+    Operation op = opFact.get("a", new GetOperation.Callback() {
+      public void receivedStatus(OperationStatus s) {
+        status = s;
+      }
+
+      public void gotData(String key, int flags, byte[] data) {
+        // not expected
+      }
+
+      public void complete() {
+        completions.incrementAndGet();
+      }
+    });
+    TimingWheel wheel = new TimingWheel(10, TICK, 16);
+    wheel.schedule(op);
+    assertEquals(1, wheel.expire(System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(1)));
+    assertTrue(op.isTimedOutUnsent());
+    // The node finds it timed out when it comes up for writing.
+    assertTrue(op.isTimedOut(-1));
+    op.timeOut();
+    op.cancel();
+    assertEquals(1, completions.get());
+    assertEquals(StatusCode.TIMEDOUT, status.getStatusCode());
+  }
+
+  public void testTimedOutWrittenOperationIsNotUnsent() {
+    Operation op = newOp();
+    op.writing();
+    op.timeOut();
+    assertTrue(op.isTimedOut());
+    assertFalse(op.isTimedOutUnsent());
+  }
+
+  public void testManyOperations() {
+    TimingWheel wheel = new TimingWheel(10, TICK, 16);
+    for (int i = 0; i < 100000; i++) {
+      wheel.schedule(newOp());
+    }
+    assertEquals(100000, wheel.expire(System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(1)));
+  }
+
+  public void testTimesOutWithoutWaiting() throws Exception {
+    EmbeddedMemcachedServer server = new EmbeddedMemcachedServer(1);
+    MemcachedClient client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setOpTimeout(100).setClientMode(ClientMode.Static).build(),
+        server.getAddresses());
+    try {
+      assertTrue(client.set("a", 0, "1").get());
+      server.setLatency(1, TimeUnit.SECONDS);
+      final CountDownLatch latch = new CountDownLatch(1);
+      client.asyncGet("a").addListener(new GetCompletionListener() {
+        public void onComplete(GetFuture<?> future) {
+          latch.countDown();
+        }
+      });
+      assertTrue(latch.await(500, TimeUnit.MILLISECONDS));
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+}
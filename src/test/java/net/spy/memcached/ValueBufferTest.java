@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.binary.OptimizedSetImpl;
+import net.spy.memcached.server.EmbeddedMemcachedServer;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+/**
+ * Test the {@link ValueBuffer} and storing values encoded into it.
+ */
+public class ValueBufferTest extends TestCase {
+
+  public void testWriteAndGrow() {
+    PooledBufferAllocator allocator = new PooledBufferAllocator();
+    ValueBuffer vb = new ValueBuffer(allocator, 100, 2, 0);
+    assertEquals(0, vb.size());
+    assertEquals(1024, vb.getBuffer().capacity());
+
+    byte[] value = new byte[5000];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+    vb.write(value[0]);
+    vb.write(value, 1, value.length - 1);
+    assertEquals(value.length, vb.size());
+    assertEquals(8192, vb.getBuffer().capacity());
+    assertEquals(100 + value.length, vb.getBuffer().position());
+    assertTrue(Arrays.equals(value, vb.toByteArray()));
+    // The smaller buffer went back to the pool when growing.
+    assertEquals(1, allocator.getPooledCount(1024));
+
+    vb.reset();
+    assertEquals(0, vb.size());
+    vb.release();
+    vb.release();
+    assertEquals(1, allocator.getPooledCount(8192));
+    try {
+      vb.toByteArray();
+      fail("Read a released buffer");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testTailroomIsKept() {
+    ValueBuffer vb = new ValueBuffer(new PooledBufferAllocator(), 10, 2,
+        1012);
+    assertEquals(1024, vb.getBuffer().capacity());
+    vb.write(new byte[1012], 0, 1012);
+    assertEquals(1024, vb.getBuffer().capacity());
+    vb.write(0);
+    assertEquals(2048, vb.getBuffer().capacity());
+  }
+
+  public void testCachedDataCopiesLazily() {
+    ValueBuffer vb = new ValueBuffer(new PooledBufferAllocator(), 10, 0, 0);
+    vb.write(new byte[] {1, 2, 3}, 0, 3);
+    CachedData d = new CachedData(5, vb, 3);
+    assertSame(vb, d.getBuffer());
+    assertEquals(5, d.getFlags());
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3}, d.getData()));
+    assertSame(d.getData(), d.getData());
+    try {
+      new CachedData(5, vb, 2);
+      fail("Stored data larger than allowed");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static Operation store(PooledBufferAllocator allocator) {
+    ValueBuffer vb = new ValueBuffer(allocator, 300, 2, 0);
+    vb.write(new byte[] {1, 2, 3}, 0, 3);
+    Operation op = new BinaryOperationFactory().store(StoreType.set, "k",
+        new CachedData(0, vb, CachedData.MAX_SIZE), 0,
+        new StoreOperation.Callback() {
+          public void receivedStatus(OperationStatus status) {
+            // nothing to do
+          }
+
+          public void gotData(String key, long cas) {
+            // nothing to do
+          }
+
+          public void complete() {
+            // nothing to do
+          }
+        });
+    op.initialize();
+    return op;
+  }
+
+  public void testCancelledStoreReleasesBuffer() {
+    CountingAllocator allocator = new CountingAllocator();
+    store(allocator).cancel();
+    assertEquals(1, allocator.released.get());
+
+    // A store being written keeps its buffer until it completes.
+    Operation written = store(allocator);
+    written.writing();
+    written.cancel();
+    written.timeOut();
+    assertEquals(1, allocator.released.get());
+
+    store(allocator).timeOut();
+    assertEquals(2, allocator.released.get());
+  }
+
+  public void testOptimizedStoresReleaseBuffers() {
+    CountingAllocator allocator = new CountingAllocator();
+    Operation first = store(allocator);
+    Operation second = store(allocator);
+    OptimizedSetImpl optimized = new OptimizedSetImpl((CASOperation) first);
+    optimized.addOperation((CASOperation) second);
+    optimized.initialize();
+    assertEquals(2, allocator.released.get());
+    second.cancel();
+    assertEquals(2, allocator.released.get());
+  }
+
+  public void testSizesBufferAfterLastValue() throws Exception {
+    CountingAllocator allocator = new CountingAllocator();
+    EmbeddedMemcachedServer server = new EmbeddedMemcachedServer(1);
+    MemcachedClient client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static).setPayloadAllocator(allocator)
+        .build(), server.getAddresses());
+    try {
+      List<Integer> list = new ArrayList<Integer>();
+      for (int i = 0; i < 1000; i++) {
+        list.add(i);
+      }
+      assertTrue(client.set("a", 0, list).get());
+      assertTrue(allocator.allocated.get() > 1);
+      int allocated = allocator.allocated.get();
+      assertTrue(client.set("b", 0, list).get());
+      // Sized after the first list, the buffer of the second never grows.
+      assertEquals(allocated + 1, allocator.allocated.get());
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+
+  public void testStoreBinary() throws Exception {
+    roundTrip(ConnectionFactoryBuilder.Protocol.BINARY);
+  }
+
+  public void testStoreAscii() throws Exception {
+    roundTrip(ConnectionFactoryBuilder.Protocol.TEXT);
+  }
+
+  private void roundTrip(ConnectionFactoryBuilder.Protocol protocol)
+    throws Exception {
+    CountingAllocator allocator = new CountingAllocator();
+    SerializingTranscoder tc = new SerializingTranscoder();
+    tc.setCompressionThreshold(1024);
+    EmbeddedMemcachedServer server = new EmbeddedMemcachedServer(1);
+    MemcachedClient client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setProtocol(protocol).setClientMode(ClientMode.Static)
+        .setPayloadAllocator(allocator).setTranscoder(tc).build(),
+        server.getAddresses());
+    try {
+      List<Integer> list = new ArrayList<Integer>();
+      for (int i = 0; i < 10000; i++) {
+        list.add(i % 100);
+      }
+      ArrayList<String> small = new ArrayList<String>(Arrays.asList("a", "b"));
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 3000; i++) {
+        sb.append("value ").append(i);
+      }
+      String key = "k" + sb.substring(0, 200).replace(' ', '_');
+
+      assertTrue(client.set("list", 0, list).get());
+      assertTrue(client.set("small", 0, small).get());
+      assertTrue(client.set("string", 0, sb.toString()).get());
+      assertTrue(client.set(key, 0, 42).get());
+      assertTrue(client.setAsync("direct", 0, "x").get());
+      assertFalse(client.add("small", 0, "other").get());
+
+      assertEquals(list, client.get("list"));
+      assertEquals(small, client.get("small"));
+      assertEquals(sb.toString(), client.get("string"));
+      assertEquals(42, client.get(key));
+      assertEquals("x", client.get("direct"));
+      // Every buffer went back to the allocator once stored.
+      assertTrue(allocator.allocated.get() > 0);
+      assertEquals(allocator.allocated.get(), allocator.released.get());
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+
+  private static class CountingAllocator extends PooledBufferAllocator {
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final AtomicInteger released = new AtomicInteger();
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+      allocated.incrementAndGet();
+      return super.allocate(capacity);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+      released.incrementAndGet();
+      super.release(buffer);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.transcoders.TranscodeService;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Test the decoding of the values of a {@link BulkGetFuture}.
+ */
+public class BulkGetFutureTest extends TestCase {
+
+  private ExecutorService executor;
+  private TranscodeService tcService;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    tcService.shutdown();
+    executor.shutdown();
+    super.tearDown();
+  }
+
+  private BulkGetFuture<String> future(int count, long decodeMillis) {
+    Map<String, Future<String>> m = new HashMap<String, Future<String>>();
+    for (int i = 0; i < count; i++) {
+      m.put("k" + i, tcService.decodeLater(new SlowTranscoder(decodeMillis),
+          new CachedData(0, new byte[0], 0)));
+    }
+    return new BulkGetFuture<String>(m, Collections.<Operation>emptyList(),
+        new CountDownLatch(0), executor, tcService);
+  }
+
+  public void testDecodesInParallel() throws Exception {
+    tcService = new TranscodeService(true, 4, 4);
+    Map<String, String> values = future(40, 0).get(10, TimeUnit.SECONDS);
+    assertEquals(40, values.size());
+    for (String v : values.values()) {
+      assertTrue(v, v.startsWith("transcoder-"));
+    }
+  }
+
+  public void testDecodeHonoursTimeout() throws Exception {
+    tcService = new TranscodeService(true, 1, 2);
+    BulkGetFuture<String> f = future(4, 100);
+    long start = System.nanoTime();
+    try {
+      f.get(20, TimeUnit.MILLISECONDS);
+      fail("Decoded four slow values in 20ms");
+    } catch (TimeoutException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("decoding"));
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+    // The values are still there for a caller willing to wait.
+    assertEquals(4, f.get().size());
+  }
+
+  private static final class SlowTranscoder implements Transcoder<String> {
+    private final long decodeNanos;
+
+    SlowTranscoder(long decodeMillis) {
+      decodeNanos = TimeUnit.MILLISECONDS.toNanos(decodeMillis);
+    }
+
+    public boolean asyncDecode(CachedData d) {
+      return true;
+    }
+
+    public String decode(CachedData d) {
+      long end = System.nanoTime() + decodeNanos;
+      while (System.nanoTime() < end) {
+        // busy, like a real decode
+      }
+      return Thread.currentThread().getName();
+    }
+
+    public CachedData encode(String o) {
+      throw new RuntimeException("Not invoked.");
+    }
+
+    public int getMaxSize() {
+      return 5;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the completion and chaining of {@link DirectFuture}.
+ */
+public class DirectFutureTest extends TestCase {
+
+  private final List<String> events = new ArrayList<String>();
+
+  private DirectFuture.Callback<Object> recorder(final String name) {
+    return new DirectFuture.Callback<Object>() {
+      public void onSuccess(Object value) {
+        events.add(name + " " + value + " " + Thread.currentThread().getName());
+      }
+
+      public void onFailure(Throwable t) {
+        events.add(name + " failed " + t.getMessage());
+      }
+    };
+  }
+
+  public void testCallbacksRunOnCompletingThread() throws Exception {
+    final DirectFuture<String> f = new DirectFuture<String>(1000);
+    f.addCallback(recorder("a"));
+    assertTrue(events.isEmpty());
+    Thread t = new Thread(new Runnable() {
+      public void run() {
+        f.complete("v");
+      }
+    }, "completer");
+    t.start();
+    t.join();
+    assertEquals("a v completer", events.get(0));
+    assertEquals("v", f.get());
+    assertFalse(f.complete("w"));
+
+    f.addCallback(recorder("b"));
+    assertEquals("b v " + Thread.currentThread().getName(), events.get(1));
+  }
+
+  public void testCallbackOnExecutor() {
+    final List<Runnable> queued = new ArrayList<Runnable>();
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    f.addCallback(recorder("a"), new Executor() {
+      public void execute(Runnable r) {
+        queued.add(r);
+      }
+    });
+    f.complete("v");
+    assertTrue(events.isEmpty());
+    queued.get(0).run();
+    assertEquals(1, events.size());
+  }
+
+  public void testThenApply() throws Exception {
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    DirectFuture<Integer> len = f.thenApply(
+        new DirectFuture.Function<String, Integer>() {
+          public Integer apply(String value) {
+            return value.length();
+          }
+        });
+    f.complete("four");
+    assertEquals(Integer.valueOf(4), len.get());
+  }
+
+  public void testThenCompose() throws Exception {
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    final DirectFuture<String> next = new DirectFuture<String>(1000);
+    DirectFuture<String> composed = f.thenCompose(
+        new DirectFuture.Function<String, DirectFuture<String>>() {
+          public DirectFuture<String> apply(String value) {
+            return next;
+          }
+        });
+    f.complete("first");
+    assertFalse(composed.isDone());
+    next.complete("second");
+    assertEquals("second", composed.get());
+  }
+
+  public void testFailurePropagates() throws Exception {
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    DirectFuture<Integer> len = f.thenApply(
+        new DirectFuture.Function<String, Integer>() {
+          public Integer apply(String value) {
+            fail("Applied to a failed future");
+            return null;
+          }
+        });
+    len.addCallback(recorder("a"));
+    f.fail(new RuntimeException("boom"));
+    assertEquals("a failed boom", events.get(0));
+    try {
+      len.get();
+      fail("Expected a failure");
+    } catch (ExecutionException e) {
+      assertEquals("boom", e.getCause().getMessage());
+    }
+  }
+
+  public void testCancel() {
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    f.cancel(true);
+    assertTrue(f.isCancelled());
+    assertTrue(f.isDone());
+  }
+
+  public void testGetTimesOut() throws Exception {
+    DirectFuture<String> f = new DirectFuture<String>(1000);
+    try {
+      f.get(10, TimeUnit.MILLISECONDS);
+      fail("Expected a timeout");
+    } catch (TimeoutException e) {
+      assertFalse(f.isDone());
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.spy.memcached.BinaryConnectionFactory;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.OperationFactory;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Test the write path of the {@link TCPMemcachedNodeImpl}.
+ */
+public class TCPMemcachedNodeImplTest extends TestCase {
+
+  private ServerSocketChannel server;
+  private SocketChannel client;
+  private SocketChannel accepted;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+    client = SocketChannel.open(server.socket().getLocalSocketAddress());
+    accepted = server.accept();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    accepted.close();
+    client.close();
+    server.close();
+    super.tearDown();
+  }
+
+  public void testGatheredWritesKeepOperationBytes() throws Exception {
+    BinaryConnectionFactory factory = new BinaryConnectionFactory();
+    OperationFactory opFact = factory.getOperationFactory();
+    MemcachedNode node = factory.createMemcachedNode(
+      client.socket().getRemoteSocketAddress(), client, 128);
+
+    List<Operation> ops = new ArrayList<Operation>();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int i = 0; i < 10; i++) {
+      byte[] value = new byte[i * 50];
+      Operation op = opFact.store(StoreType.set, "key" + i, 0, 0, value,
+        new NoopCallback());
+      op.setHandlingNode(node);
+      op.initialize();
+      ByteBuffer b = op.getBuffer().duplicate();
+      byte[] bytes = new byte[b.remaining()];
+      b.get(bytes);
+      expected.write(bytes);
+      node.addOp(op);
+      ops.add(op);
+    }
+    node.copyInputQueue();
+
+    node.fillWriteBuffer(false);
+    while (node.getBytesRemainingToWrite() > 0) {
+      node.writeSome();
+      node.fillWriteBuffer(false);
+    }
+
+    for (Operation op : ops) {
+      assertSame(OperationState.READING, op.getState());
+    }
+    assertFalse(node.hasWriteOp());
+
+    ByteBuffer received = ByteBuffer.allocate(expected.size());
+    while (received.hasRemaining()) {
+      accepted.read(received);
+    }
+    assertTrue(Arrays.equals(expected.toByteArray(),
+      received.array()));
+  }
+
+  public void testResendAfterDropMidWrite() throws Exception {
+    BinaryConnectionFactory factory = new BinaryConnectionFactory();
+    OperationFactory opFact = factory.getOperationFactory();
+    MemcachedNode node = factory.createMemcachedNode(
+      client.socket().getRemoteSocketAddress(), client, 128);
+    client.configureBlocking(false);
+
+    Operation[] ops = new Operation[3];
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int i = 0; i < ops.length; i++) {
+      byte[] value = new byte[i == 0 ? 10 : 4 * 1024 * 1024];
+      Arrays.fill(value, (byte) i);
+      ops[i] = opFact.store(StoreType.set, "key" + i, 0, 0, value,
+        new NoopCallback());
+      ops[i].setHandlingNode(node);
+      ops[i].initialize();
+      if (i > 0) {
+        ByteBuffer b = ops[i].getBuffer().duplicate();
+        byte[] bytes = new byte[b.remaining()];
+        b.get(bytes);
+        expected.write(bytes);
+      }
+      node.addOp(ops[i]);
+    }
+    node.copyInputQueue();
+
+    // Nobody reads, so the second operation is stuck halfway.
+    node.fillWriteBuffer(false);
+    while (node.getBytesRemainingToWrite() > 0 && node.writeSome() > 0) {
+      node.fillWriteBuffer(false);
+    }
+    assertSame(OperationState.READING, ops[0].getState());
+    assertSame(OperationState.WRITING, ops[1].getState());
+    assertTrue(ops[1].getBuffer().position() > 0);
+
+    // The connection drops and gets reopened.
+    node.setupResend();
+    assertTrue(ops[0].isCancelled());
+    assertFalse(ops[1].isCancelled());
+    assertSame(ops[1], node.getCurrentWriteOp());
+    assertSame(ops[1], node.getCurrentReadOp());
+    assertEquals(0, ops[1].getBuffer().position());
+
+    accepted.close();
+    client.close();
+    client = SocketChannel.open(server.socket().getLocalSocketAddress());
+    client.configureBlocking(false);
+    accepted = server.accept();
+    accepted.configureBlocking(false);
+    node.registerChannel(client, null);
+
+    ByteBuffer received = ByteBuffer.allocate(expected.size());
+    node.fillWriteBuffer(false);
+    while (received.hasRemaining()) {
+      if (node.getBytesRemainingToWrite() > 0) {
+        node.writeSome();
+        node.fillWriteBuffer(false);
+      }
+      accepted.read(received);
+    }
+    assertSame(OperationState.READING, ops[1].getState());
+    assertSame(OperationState.READING, ops[2].getState());
+    assertFalse(node.hasWriteOp());
+    assertSame(ops[1], node.removeCurrentReadOp());
+    assertSame(ops[2], node.removeCurrentReadOp());
+    assertTrue(Arrays.equals(expected.toByteArray(), received.array()));
+  }
+
+  public void testQueuedBytes() throws Exception {
+    BinaryConnectionFactory factory = new BinaryConnectionFactory();
+    OperationFactory opFact = factory.getOperationFactory();
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) factory
+      .createMemcachedNode(client.socket().getRemoteSocketAddress(), client,
+        128);
+
+    long bytes = 0;
+    for (int i = 0; i < 10; i++) {
+      Operation op = opFact.store(StoreType.set, "key" + i, 0, 0,
+        new byte[i * 50], new NoopCallback());
+      op.setHandlingNode(node);
+      op.initialize();
+      bytes += op.getBuffer().remaining();
+      node.addOp(op);
+      if (i == 5) {
+        op.cancel();
+      }
+    }
+    assertEquals(bytes, node.getQueuedBytes());
+    assertEquals(10, node.getOutstandingOps());
+    node.copyInputQueue();
+    assertEquals(bytes, node.getQueuedBytes());
+
+    node.fillWriteBuffer(true);
+    while (node.getBytesRemainingToWrite() > 0) {
+      node.writeSome();
+      node.fillWriteBuffer(true);
+    }
+    assertEquals(0, node.getQueuedBytes());
+    // the first op, then the others sent as one optimized op
+    assertEquals(2, node.getOutstandingOps());
+  }
+
+  static class NoopCallback implements StoreOperation.Callback {
+    public void gotData(String key, long cas) {
+      // noop
+    }
+
+    public void receivedStatus(OperationStatus status) {
+      // noop
+    }
+
+    public void complete() {
+      // noop
+    }
+  }
+}
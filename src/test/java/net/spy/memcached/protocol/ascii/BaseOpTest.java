@@ -28,6 +28,9 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.spy.memcached.compat.BaseMockCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
 
 /**
  * Test the basic operation buffer handling stuff.
@@ -103,6 +106,52 @@ public class BaseOpTest extends BaseMockCase {
     assertEquals("this is a test", op.getCurrentLine());
   }
 
+  public void testLineSplitBetweenCrAndLf() throws Exception {
+    SimpleOp op = new SimpleOp(OperationReadType.LINE);
+    op.linesToRead = 2;
+    op.readFromBuffer(ByteBuffer.wrap("first\r".getBytes()));
+    assertNull(op.getCurrentLine());
+    op.readFromBuffer(ByteBuffer.wrap("\nsecond\r\n".getBytes()));
+    assertEquals(Arrays.asList("first", "second"), op.getLines());
+  }
+
+  public void testLongLineFromDirectBuffer() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("line").append(i);
+    }
+    byte[] input = (sb + "\r\n").getBytes();
+    ByteBuffer b = ByteBuffer.allocateDirect(input.length);
+    b.put(input);
+    b.flip();
+    SimpleOp op = new SimpleOp(OperationReadType.LINE);
+    op.readFromBuffer(b);
+    assertEquals(sb.toString(), op.getCurrentLine());
+    assertFalse(b.hasRemaining());
+  }
+
+  public void testGetResponse() throws Exception {
+    final List<String> got = new LinkedList<String>();
+    GetOperationImpl op = new GetOperationImpl(Arrays.asList("a", "b"),
+      new GetOperation.Callback() {
+        public void gotData(String key, int flags, byte[] data) {
+          got.add(key + "/" + flags + "/" + new String(data));
+        }
+
+        public void receivedStatus(OperationStatus status) {
+          got.add(status.getMessage());
+        }
+
+        public void complete() {
+          // noop
+        }
+      });
+    op.readFromBuffer(ByteBuffer.wrap(("VALUE a 3 2\r\nhi\r\n"
+      + "VALUE b 4294967295 0\r\n\r\nEND\r\n").getBytes()));
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(Arrays.asList("a/3/hi", "b/-1/", "END"), got);
+  }
+
   private static class SimpleOp extends OperationImpl {
 
     private final LinkedList<String> lines = new LinkedList<String>();
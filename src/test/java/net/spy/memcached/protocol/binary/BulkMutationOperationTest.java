@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.BulkMutationOperation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Test the pipelined bulk mutation operations.
+ */
+public class BulkMutationOperationTest extends TestCase {
+
+  public void testDeleteReportsEveryKey() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    DeleteBulkOperationImpl op = new DeleteBulkOperationImpl(
+        Arrays.asList("a", "b", "c"), cb);
+    op.initialize();
+    List<int[]> requests = parseRequests(op.getBuffer());
+    assertEquals(4, requests.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(DeleteBulkOperationImpl.DELETEQ, requests.get(i)[0]);
+    }
+    assertEquals(NoopOperationImpl.CMD, requests.get(3)[0]);
+
+    // Quiet commands only answer on failure.
+    op.readFromBuffer(getResponse(DeleteBulkOperationImpl.DELETEQ,
+        OperationImpl.ERR_NOT_FOUND, requests.get(1)[1], "Not found"));
+    assertEquals(1, cb.statuses.size());
+    op.readFromBuffer(getResponse(NoopOperationImpl.CMD, 0,
+        requests.get(3)[1], ""));
+
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(3, cb.statuses.size());
+    assertTrue(cb.statuses.get("a").isSuccess());
+    assertFalse(cb.statuses.get("b").isSuccess());
+    assertSame(StatusCode.ERR_NOT_FOUND, cb.statuses.get("b").getStatusCode());
+    assertTrue(cb.statuses.get("c").isSuccess());
+  }
+
+  public void testStoreEncodesQuietSets() throws Exception {
+    Map<String, CachedData> values = new LinkedHashMap<String, CachedData>();
+    values.put("k1", new CachedData(3, "v1".getBytes(), 1024));
+    values.put("k2", new CachedData(5, "value2".getBytes(), 1024));
+    RecordingCallback cb = new RecordingCallback();
+    StoreBulkOperationImpl op = new StoreBulkOperationImpl(StoreType.set,
+        values, 60, cb);
+    op.initialize();
+    ByteBuffer bb = op.getBuffer().duplicate();
+    assertEquals(StoreOperationImpl.SETQ, bb.get(1));
+    assertEquals(2, bb.getShort(2));
+    assertEquals(StoreOperationImpl.EXTRA_LEN, bb.get(4));
+    assertEquals(8 + 2 + 2, bb.getInt(8));
+    assertEquals(3, bb.getInt(24));
+    assertEquals(60, bb.getInt(28));
+
+    op.cancel();
+    assertEquals(2, cb.statuses.size());
+    for (OperationStatus s : cb.statuses.values()) {
+      assertSame(StatusCode.CANCELLED, s.getStatusCode());
+    }
+  }
+
+  public void testTimeOutReportsPendingKeys() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    TouchBulkOperationImpl op = new TouchBulkOperationImpl(
+        Arrays.asList("a", "b"), 60, cb);
+    op.initialize();
+    List<int[]> requests = parseRequests(op.getBuffer());
+    op.readFromBuffer(getResponse(TouchOperationImpl.CMD,
+        OperationImpl.ERR_NOT_FOUND, requests.get(0)[1], "Not found"));
+    op.timeOut();
+    assertSame(StatusCode.ERR_NOT_FOUND, cb.statuses.get("a").getStatusCode());
+    assertSame(StatusCode.TIMEDOUT, cb.statuses.get("b").getStatusCode());
+
+    cb = new RecordingCallback();
+    op = new TouchBulkOperationImpl(Arrays.asList("a", "b"), 60, cb);
+    assertFalse(op.isTimedOut(60000));
+    assertTrue(cb.statuses.isEmpty());
+    assertTrue(op.isTimedOut(-1));
+    assertEquals(2, cb.statuses.size());
+    for (OperationStatus s : cb.statuses.values()) {
+      assertSame(StatusCode.TIMEDOUT, s.getStatusCode());
+    }
+  }
+
+  /**
+   * Get the command and opaque of each request in the buffer.
+   */
+  private static List<int[]> parseRequests(ByteBuffer buffer) {
+    ByteBuffer bb = buffer.duplicate();
+    List<int[]> rv = new ArrayList<int[]>();
+    while (bb.hasRemaining()) {
+      int start = bb.position();
+      int cmd = bb.get(start + 1);
+      int bodyLen = bb.getInt(start + 8);
+      int opaque = bb.getInt(start + 12);
+      rv.add(new int[] { cmd, opaque });
+      bb.position(start + 24 + bodyLen);
+    }
+    return rv;
+  }
+
+  private static ByteBuffer getResponse(byte cmd, int status, int opaque,
+      String body) {
+    byte[] b = body.getBytes();
+    ByteBuffer bb = ByteBuffer.allocate(24 + b.length);
+    bb.put(OperationImpl.RES_MAGIC).put(cmd);
+    bb.putShort((short) 0).put((byte) 0).put((byte) 0);
+    bb.putShort((short) status);
+    bb.putInt(b.length).putInt(opaque).putLong(0).put(b);
+    bb.flip();
+    return bb;
+  }
+
+  private static class RecordingCallback
+    implements BulkMutationOperation.Callback {
+    private final Map<String, OperationStatus> statuses =
+        new HashMap<String, OperationStatus>();
+
+    public void gotStatus(String key, OperationStatus status) {
+      assertNull(statuses.put(key, status));
+    }
+
+    public void receivedStatus(OperationStatus status) {
+      // noop
+    }
+
+    public void complete() {
+      // noop
+    }
+  }
+}
@@ -22,7 +22,15 @@
 
 package net.spy.memcached.protocol.binary;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import junit.framework.TestCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
 
 import static net.spy.memcached.protocol.binary.OperationImpl.decodeInt;
 import static net.spy.memcached.protocol.binary.OperationImpl.decodeLong;
@@ -64,4 +72,140 @@ public class OperatonTest extends TestCase {
     String s = String.valueOf(OperationImpl.STATUS_OK);
     assertEquals("{OperationStatus success=true:  OK}", s);
   }
+
+  public void testValueDecodedFromWholeBuffer() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    GetOperationImpl op = new GetOperationImpl("k", cb);
+    op.readFromBuffer(getResponse(op.opaque, 0, 0x01020304, "hello"));
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(0x01020304, cb.flags);
+    assertTrue(Arrays.equals("hello".getBytes(), cb.data));
+    assertTrue(cb.status.isSuccess());
+  }
+
+  public void testValueDecodedFromSplitBuffer() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    GetOperationImpl op = new GetOperationImpl("k", cb);
+    ByteBuffer response = getResponse(op.opaque, 0, 7, "split value");
+    while (response.hasRemaining()) {
+      ByteBuffer b = ByteBuffer.allocate(1);
+      b.put(response.get());
+      b.flip();
+      op.readFromBuffer(b);
+      assertFalse(b.hasRemaining());
+    }
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(7, cb.flags);
+    assertTrue(Arrays.equals("split value".getBytes(), cb.data));
+  }
+
+  public void testErrorResponseKeepsMessage() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    GetOperationImpl op = new GetOperationImpl("k", cb);
+    byte[] msg = "Not found".getBytes();
+    ByteBuffer b = ByteBuffer.allocate(24 + msg.length);
+    b.put(OperationImpl.RES_MAGIC).put(GetOperationImpl.GET_CMD);
+    b.putShort((short) 0).put((byte) 0).put((byte) 0);
+    b.putShort((short) OperationImpl.ERR_NOT_FOUND);
+    b.putInt(msg.length).putInt(op.opaque).putLong(0).put(msg);
+    b.flip();
+    op.readFromBuffer(b);
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertNull(cb.data);
+    assertFalse(cb.status.isSuccess());
+    assertEquals("Not found", cb.status.getMessage());
+    assertTrue(Arrays.equals(msg, op.getErrorMsg()));
+  }
+
+  public void testMultiGetUsesContiguousOpaques() throws Exception {
+    final Map<String, String> hits = new HashMap<String, String>();
+    GetOperation.Callback cb = new GetOperation.Callback() {
+      public void gotData(String key, int flags, byte[] data) {
+        hits.put(key, new String(data));
+      }
+
+      public void receivedStatus(OperationStatus status) {
+        assertTrue(status.isSuccess());
+      }
+
+      public void complete() {
+        // noop
+      }
+    };
+    MultiGetOperationImpl op = new MultiGetOperationImpl(
+        Arrays.asList("k0", "k1", "k2", "k1"), cb);
+    op.initialize();
+    ByteBuffer req = op.getBuffer();
+    int[] opaques = new int[4];
+    int pos = 0;
+    for (int i = 0; i < opaques.length; i++) {
+      assertEquals(i < 3 ? MultiGetOperationImpl.CMD_GETKQ
+          : NoopOperationImpl.CMD, req.get(pos + 1));
+      opaques[i] = req.getInt(pos + 12);
+      pos += 24 + req.getInt(pos + 8);
+    }
+    assertEquals(req.limit(), pos);
+    for (int i = 1; i < opaques.length; i++) {
+      assertEquals(opaques[0] + i, opaques[i]);
+    }
+
+    op.readFromBuffer(getKeyedResponse(opaques[2], "k2", "two"));
+    op.readFromBuffer(getKeyedResponse(opaques[0], "k0", "zero"));
+    ByteBuffer noop = ByteBuffer.allocate(24);
+    noop.put(OperationImpl.RES_MAGIC).put(NoopOperationImpl.CMD);
+    noop.putShort((short) 0).putShort((short) 0).putShort((short) 0);
+    noop.putInt(0).putInt(opaques[3]).putLong(0);
+    noop.flip();
+    op.readFromBuffer(noop);
+
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(2, hits.size());
+    assertEquals("zero", hits.get("k0"));
+    assertEquals("two", hits.get("k2"));
+  }
+
+  private static ByteBuffer getKeyedResponse(int opaque, String key,
+      String value) {
+    byte[] k = key.getBytes();
+    byte[] val = value.getBytes();
+    ByteBuffer b = ByteBuffer.allocate(24 + 4 + k.length + val.length);
+    b.put(OperationImpl.RES_MAGIC).put(MultiGetOperationImpl.CMD_GETKQ);
+    b.putShort((short) k.length).put((byte) 4).put((byte) 0);
+    b.putShort((short) 0);
+    b.putInt(4 + k.length + val.length).putInt(opaque).putLong(0);
+    b.putInt(0).put(k).put(val);
+    b.flip();
+    return b;
+  }
+
+  private static ByteBuffer getResponse(int opaque, long cas, int flags,
+      String value) {
+    byte[] val = value.getBytes();
+    ByteBuffer b = ByteBuffer.allocate(24 + 4 + val.length);
+    b.put(OperationImpl.RES_MAGIC).put(GetOperationImpl.GET_CMD);
+    b.putShort((short) 0).put((byte) 4).put((byte) 0).putShort((short) 0);
+    b.putInt(4 + val.length).putInt(opaque).putLong(cas);
+    b.putInt(flags).put(val);
+    b.flip();
+    return b;
+  }
+
+  private static class RecordingCallback implements GetOperation.Callback {
+    private int flags;
+    private byte[] data;
+    private OperationStatus status;
+
+    public void gotData(String key, int f, byte[] d) {
+      flags = f;
+      data = d;
+    }
+
+    public void receivedStatus(OperationStatus s) {
+      status = s;
+    }
+
+    public void complete() {
+      // noop
+    }
+  }
 }
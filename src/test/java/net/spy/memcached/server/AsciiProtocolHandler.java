@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Answers requests in the ASCII protocol.
+ */
+final class AsciiProtocolHandler extends ProtocolHandler {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  AsciiProtocolHandler(EmbeddedMemcachedServer server, Storage storage) {
+    super(server, storage);
+  }
+
+  @Override
+  int handle(ByteBuffer in, ByteArrayOutputStream out) {
+    int start = in.position();
+    int eol = -1;
+    for (int i = start; i < in.limit() - 1; i++) {
+      if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+        eol = i;
+        break;
+      }
+    }
+    if (eol == -1) {
+      return INCOMPLETE;
+    }
+    byte[] lineBytes = new byte[eol - start];
+    in.get(lineBytes);
+    String[] args = new String(lineBytes, UTF_8).trim().split(" +");
+    String cmd = args[0];
+
+    byte[] data = null;
+    int dataLen = dataLength(args);
+    if (dataLen >= 0) {
+      if (in.limit() - eol - 2 < dataLen + 2) {
+        in.position(start);
+        return INCOMPLETE;
+      }
+      in.position(eol + 2);
+      data = new byte[dataLen];
+      in.get(data);
+      in.position(in.position() + 2);
+    } else {
+      in.position(eol + 2);
+    }
+
+    try {
+      if (cmd.equals("get") || cmd.equals("gets")) {
+        get(args, 1, cmd.equals("gets"), false, out);
+      } else if (cmd.equals("gat") || cmd.equals("gats")) {
+        get(args, 2, cmd.equals("gats"), true, out);
+      } else if (cmd.equals("set")) {
+        store(args, Storage.Mode.SET, data, 0, out);
+      } else if (cmd.equals("add")) {
+        store(args, Storage.Mode.ADD, data, 0, out);
+      } else if (cmd.equals("replace")) {
+        store(args, Storage.Mode.REPLACE, data, 0, out);
+      } else if (cmd.equals("append")) {
+        store(args, Storage.Mode.APPEND, data, 0, out);
+      } else if (cmd.equals("prepend")) {
+        store(args, Storage.Mode.PREPEND, data, 0, out);
+      } else if (cmd.equals("cas")) {
+        store(args, Storage.Mode.SET, data, Long.parseLong(args[5]), out);
+      } else if (cmd.equals("delete")) {
+        Storage.Result r = storage.delete(args[1], 0);
+        reply(args, r == Storage.Result.OK ? "DELETED" : "NOT_FOUND", out);
+      } else if (cmd.equals("incr") || cmd.equals("decr")) {
+        mutate(args, cmd.equals("incr"), out);
+      } else if (cmd.equals("touch")) {
+        Storage.Item i = storage.touch(args[1], Integer.parseInt(args[2]));
+        reply(args, i == null ? "NOT_FOUND" : "TOUCHED", out);
+      } else if (cmd.equals("flush_all")) {
+        storage.flush();
+        reply(args, "OK", out);
+      } else if (cmd.equals("version")) {
+        line("VERSION " + VERSION, out);
+      } else if (cmd.equals("stats")) {
+        line("STAT pid 0", out);
+        line("STAT version " + VERSION, out);
+        line("STAT curr_items " + storage.size(), out);
+        line("STAT config_version " + server.getConfigVersion(), out);
+        line("END", out);
+      } else if (cmd.equals("quit")) {
+        return CLOSE;
+      } else if (cmd.equals("config") && args.length > 2) {
+        config(args, data, out);
+      } else {
+        line("ERROR", out);
+      }
+    } catch (NumberFormatException e) {
+      line("CLIENT_ERROR bad command line format", out);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      line("CLIENT_ERROR bad command line format", out);
+    }
+    return HANDLED;
+  }
+
+  /**
+   * Get the length of the data block following a request line.
+   *
+   * @return the length, or -1 if the command has no data block
+   */
+  private static int dataLength(String[] args) {
+    String cmd = args[0];
+    try {
+      if (cmd.equals("set") || cmd.equals("add") || cmd.equals("replace")
+          || cmd.equals("append") || cmd.equals("prepend")
+          || cmd.equals("cas")) {
+        return Integer.parseInt(args[4]);
+      } else if (cmd.equals("config") && args.length > 4
+          && args[1].equals("set")) {
+        return Integer.parseInt(args[4]);
+      }
+    } catch (NumberFormatException e) {
+      return -1;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      return -1;
+    }
+    return -1;
+  }
+
+  private void get(String[] args, int firstKey, boolean withCas,
+      boolean touch, ByteArrayOutputStream out) {
+    int exp = touch ? Integer.parseInt(args[1]) : 0;
+    for (int k = firstKey; k < args.length; k++) {
+      Storage.Item i = touch ? storage.touch(args[k], exp)
+          : storage.get(args[k]);
+      if (i != null) {
+        line("VALUE " + args[k] + " " + i.flags + " " + i.data.length
+            + (withCas ? " " + i.cas : ""), out);
+        out.write(i.data, 0, i.data.length);
+        out.write(CRLF, 0, CRLF.length);
+      }
+    }
+    line("END", out);
+  }
+
+  private void store(String[] args, Storage.Mode mode, byte[] data, long cas,
+      ByteArrayOutputStream out) {
+    Storage.Result r = storage.store(mode, args[1],
+        (int) Long.parseLong(args[2]), Integer.parseInt(args[3]), data, cas);
+    switch (r) {
+    case OK:
+      reply(args, "STORED", out);
+      break;
+    case EXISTS:
+      reply(args, "EXISTS", out);
+      break;
+    case NOT_FOUND:
+      reply(args, "NOT_FOUND", out);
+      break;
+    default:
+      reply(args, "NOT_STORED", out);
+      break;
+    }
+  }
+
+  private void mutate(String[] args, boolean incr,
+      ByteArrayOutputStream out) {
+    Storage.Item i;
+    try {
+      i = storage.mutate(args[1], incr, Long.parseLong(args[2]), null, 0);
+    } catch (NumberFormatException e) {
+      reply(args, "CLIENT_ERROR cannot increment or decrement non-numeric "
+          + "value", out);
+      return;
+    }
+    reply(args, i == null ? "NOT_FOUND" : new String(i.data, UTF_8), out);
+  }
+
+  private void config(String[] args, byte[] data, ByteArrayOutputStream out) {
+    String type = args[2];
+    if (args[1].equals("get")) {
+      if (EmbeddedMemcachedServer.CLUSTER.equals(type)) {
+        byte[] config = server.getClusterConfig().getBytes(UTF_8);
+        line("CONFIG " + type + " 0 " + config.length, out);
+        out.write(config, 0, config.length);
+        out.write(CRLF, 0, CRLF.length);
+      }
+      line("END", out);
+    } else if (args[1].equals("set") && data != null) {
+      try {
+        server.setClusterConfig(type, new String(data, UTF_8));
+        line("STORED", out);
+      } catch (IllegalArgumentException e) {
+        line("CLIENT_ERROR " + e.getMessage(), out);
+      }
+    } else {
+      line("ERROR", out);
+    }
+  }
+
+  private static void reply(String[] args, String msg,
+      ByteArrayOutputStream out) {
+    if (!args[args.length - 1].equals("noreply")) {
+      line(msg, out);
+    }
+  }
+
+  private static void line(String s, ByteArrayOutputStream out) {
+    byte[] b = s.getBytes(UTF_8);
+    out.write(b, 0, b.length);
+    out.write(CRLF, 0, CRLF.length);
+  }
+}
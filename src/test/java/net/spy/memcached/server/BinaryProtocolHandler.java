@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Answers requests in the binary protocol.
+ */
+final class BinaryProtocolHandler extends ProtocolHandler {
+
+  static final byte REQ_MAGIC = (byte) 0x80;
+  private static final byte RES_MAGIC = (byte) 0x81;
+  private static final int HEADER_LEN = 24;
+
+  private static final byte GET = 0x00;
+  private static final byte SET = 0x01;
+  private static final byte ADD = 0x02;
+  private static final byte REPLACE = 0x03;
+  private static final byte DELETE = 0x04;
+  private static final byte INCR = 0x05;
+  private static final byte DECR = 0x06;
+  private static final byte QUIT = 0x07;
+  private static final byte FLUSH = 0x08;
+  private static final byte GETQ = 0x09;
+  private static final byte NOOP = 0x0a;
+  private static final byte VERSION_CMD = 0x0b;
+  private static final byte GETK = 0x0c;
+  private static final byte GETKQ = 0x0d;
+  private static final byte APPEND = 0x0e;
+  private static final byte PREPEND = 0x0f;
+  private static final byte STAT = 0x10;
+  private static final byte SETQ = 0x11;
+  private static final byte ADDQ = 0x12;
+  private static final byte REPLACEQ = 0x13;
+  private static final byte DELETEQ = 0x14;
+  private static final byte INCRQ = 0x15;
+  private static final byte DECRQ = 0x16;
+  private static final byte QUITQ = 0x17;
+  private static final byte FLUSHQ = 0x18;
+  private static final byte APPENDQ = 0x19;
+  private static final byte PREPENDQ = 0x1a;
+  private static final byte TOUCH = 0x1c;
+  private static final byte GAT = 0x1d;
+  private static final byte GATQ = 0x1e;
+  private static final byte CONFIG_GET = 0x60;
+  private static final byte CONFIG_SET = 0x64;
+
+  private static final int SUCCESS = 0x00;
+  private static final int ERR_NOT_FOUND = 0x01;
+  private static final int ERR_EXISTS = 0x02;
+  private static final int ERR_INVAL = 0x04;
+  private static final int ERR_NOT_STORED = 0x05;
+  private static final int ERR_DELTA_BADVAL = 0x06;
+  private static final int ERR_UNKNOWN_COMMAND = 0x81;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  BinaryProtocolHandler(EmbeddedMemcachedServer server, Storage storage) {
+    super(server, storage);
+  }
+
+  @Override
+  int handle(ByteBuffer in, ByteArrayOutputStream out) {
+    if (in.remaining() < HEADER_LEN) {
+      return INCOMPLETE;
+    }
+    int pos = in.position();
+    if (in.get(pos) != REQ_MAGIC) {
+      return CLOSE;
+    }
+    int bodyLen = in.getInt(pos + 8);
+    if (in.remaining() < HEADER_LEN + bodyLen) {
+      return INCOMPLETE;
+    }
+    Request r = new Request();
+    r.opcode = in.get(pos + 1);
+    int keyLen = in.getShort(pos + 2) & 0xffff;
+    int extLen = in.get(pos + 4) & 0xff;
+    r.opaque = in.getInt(pos + 12);
+    r.cas = in.getLong(pos + 16);
+    in.position(pos + HEADER_LEN);
+    r.extras = ByteBuffer.wrap(read(in, extLen));
+    r.key = new String(read(in, keyLen), UTF_8);
+    r.value = read(in, bodyLen - extLen - keyLen);
+    return handle(r, out);
+  }
+
+  private int handle(Request r, ByteArrayOutputStream out) {
+    switch (r.opcode) {
+    case GET:
+    case GETQ:
+    case GETK:
+    case GETKQ:
+    case GAT:
+    case GATQ:
+      get(r, out);
+      break;
+    case SET:
+    case SETQ:
+      store(r, Storage.Mode.SET, out);
+      break;
+    case ADD:
+    case ADDQ:
+      store(r, Storage.Mode.ADD, out);
+      break;
+    case REPLACE:
+    case REPLACEQ:
+      store(r, Storage.Mode.REPLACE, out);
+      break;
+    case APPEND:
+    case APPENDQ:
+      store(r, Storage.Mode.APPEND, out);
+      break;
+    case PREPEND:
+    case PREPENDQ:
+      store(r, Storage.Mode.PREPEND, out);
+      break;
+    case DELETE:
+    case DELETEQ:
+      status(r, storage.delete(r.key, r.cas), out);
+      break;
+    case INCR:
+    case INCRQ:
+    case DECR:
+    case DECRQ:
+      mutate(r, out);
+      break;
+    case TOUCH:
+      if (storage.touch(r.key, r.extras.getInt()) == null) {
+        error(r, ERR_NOT_FOUND, "Not found", out);
+      } else {
+        respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      }
+      break;
+    case FLUSH:
+    case FLUSHQ:
+      storage.flush();
+      if (r.opcode == FLUSH) {
+        respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      }
+      break;
+    case NOOP:
+      respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      break;
+    case VERSION_CMD:
+      respond(r, SUCCESS, 0, EMPTY, EMPTY, VERSION.getBytes(UTF_8), out);
+      break;
+    case STAT:
+      stat(r, "pid", "0", out);
+      stat(r, "version", VERSION, out);
+      stat(r, "curr_items", String.valueOf(storage.size()), out);
+      stat(r, "config_version", String.valueOf(server.getConfigVersion()),
+          out);
+      respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      break;
+    case QUIT:
+    case QUITQ:
+      if (r.opcode == QUIT) {
+        respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      }
+      return CLOSE;
+    case CONFIG_GET:
+      if (EmbeddedMemcachedServer.CLUSTER.equals(r.key)) {
+        byte[] flags = new byte[4];
+        respond(r, SUCCESS, 0, flags, EMPTY,
+            server.getClusterConfig().getBytes(UTF_8), out);
+      } else {
+        error(r, ERR_NOT_FOUND, "Not found", out);
+      }
+      break;
+    case CONFIG_SET:
+      try {
+        server.setClusterConfig(r.key, new String(r.value, UTF_8));
+        respond(r, SUCCESS, 0, EMPTY, EMPTY, EMPTY, out);
+      } catch (IllegalArgumentException e) {
+        error(r, ERR_INVAL, e.getMessage(), out);
+      }
+      break;
+    default:
+      error(r, ERR_UNKNOWN_COMMAND, "Unknown command", out);
+      break;
+    }
+    return HANDLED;
+  }
+
+  private void get(Request r, ByteArrayOutputStream out) {
+    boolean touch = r.opcode == GAT || r.opcode == GATQ;
+    Storage.Item i = touch ? storage.touch(r.key, r.extras.getInt())
+        : storage.get(r.key);
+    if (i == null) {
+      if (!quiet(r.opcode)) {
+        error(r, ERR_NOT_FOUND, "Not found", out);
+      }
+      return;
+    }
+    byte[] flags = ByteBuffer.allocate(4).putInt(i.flags).array();
+    boolean withKey = r.opcode == GETK || r.opcode == GETKQ;
+    respond(r, SUCCESS, i.cas, flags,
+        withKey ? r.key.getBytes(UTF_8) : EMPTY, i.data, out);
+  }
+
+  private void store(Request r, Storage.Mode mode, ByteArrayOutputStream out) {
+    int flags = 0;
+    int exp = 0;
+    if (mode != Storage.Mode.APPEND && mode != Storage.Mode.PREPEND) {
+      flags = r.extras.getInt();
+      exp = r.extras.getInt();
+    }
+    status(r, storage.store(mode, r.key, flags, exp, r.value, r.cas), out);
+  }
+
+  private void mutate(Request r, ByteArrayOutputStream out) {
+    boolean incr = r.opcode == INCR || r.opcode == INCRQ;
+    long delta = r.extras.getLong();
+    long initial = r.extras.getLong();
+    int exp = r.extras.getInt();
+    Storage.Item i;
+    try {
+      i = storage.mutate(r.key, incr, delta, exp == -1 ? null : initial, exp);
+    } catch (NumberFormatException e) {
+      error(r, ERR_DELTA_BADVAL, "Non-numeric server-side value", out);
+      return;
+    }
+    if (i == null) {
+      error(r, ERR_NOT_FOUND, "Not found", out);
+    } else if (!quiet(r.opcode)) {
+      byte[] value = ByteBuffer.allocate(8)
+          .putLong(Long.parseLong(new String(i.data, UTF_8))).array();
+      respond(r, SUCCESS, i.cas, EMPTY, EMPTY, value, out);
+    }
+  }
+
+  private void status(Request r, Storage.Result result,
+      ByteArrayOutputStream out) {
+    switch (result) {
+    case OK:
+      if (!quiet(r.opcode)) {
+        Storage.Item i = storage.get(r.key);
+        respond(r, SUCCESS, i == null ? 0 : i.cas, EMPTY, EMPTY, EMPTY, out);
+      }
+      break;
+    case NOT_FOUND:
+      error(r, ERR_NOT_FOUND, "Not found", out);
+      break;
+    case EXISTS:
+      error(r, ERR_EXISTS, "Data exists for key.", out);
+      break;
+    default:
+      error(r, ERR_NOT_STORED, "Not stored.", out);
+      break;
+    }
+  }
+
+  private void stat(Request r, String name, String value,
+      ByteArrayOutputStream out) {
+    respond(r, SUCCESS, 0, EMPTY, name.getBytes(UTF_8),
+        value.getBytes(UTF_8), out);
+  }
+
+  private void error(Request r, int status, String msg,
+      ByteArrayOutputStream out) {
+    respond(r, status, 0, EMPTY, EMPTY, msg.getBytes(UTF_8), out);
+  }
+
+  private static void respond(Request r, int status, long cas, byte[] extras,
+      byte[] key, byte[] value, ByteArrayOutputStream out) {
+    ByteBuffer bb = ByteBuffer.allocate(HEADER_LEN + extras.length
+        + key.length + value.length);
+    bb.put(RES_MAGIC);
+    bb.put(r.opcode);
+    bb.putShort((short) key.length);
+    bb.put((byte) extras.length);
+    bb.put((byte) 0);
+    bb.putShort((short) status);
+    bb.putInt(extras.length + key.length + value.length);
+    bb.putInt(r.opaque);
+    bb.putLong(cas);
+    bb.put(extras);
+    bb.put(key);
+    bb.put(value);
+    out.write(bb.array(), 0, bb.capacity());
+  }
+
+  private static boolean quiet(byte opcode) {
+    switch (opcode) {
+    case GETQ:
+    case GETKQ:
+    case GATQ:
+    case SETQ:
+    case ADDQ:
+    case REPLACEQ:
+    case APPENDQ:
+    case PREPENDQ:
+    case DELETEQ:
+    case INCRQ:
+    case DECRQ:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static byte[] read(ByteBuffer in, int len) {
+    byte[] rv = new byte[len];
+    in.get(rv);
+    return rv;
+  }
+
+  /**
+   * A decoded request.
+   */
+  private static final class Request {
+    private byte opcode;
+    private int opaque;
+    private long cas;
+    private ByteBuffer extras;
+    private String key;
+    private byte[] value;
+  }
+}
@@ -0,0 +1,699 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.compat.SpyThread;
+
+/**
+ * An in-process memcached cluster for tests and benchmarks.
+ *
+ * <p>
+ * Every node listens on its own port of the loopback interface and keeps its
+ * own items. A connection speaks the binary protocol if its first byte is the
+ * binary request magic and the ASCII protocol otherwise. Both protocols
+ * answer the ElastiCache {@code config get cluster} and
+ * {@code config set cluster} commands, so clients in dynamic mode can use any
+ * node as their configuration endpoint.
+ * </p>
+ *
+ * <p>
+ * Each node can be slowed down with a fixed latency added to every response
+ * and a cap on the requests it handles per second. Connections can be dropped
+ * and whole nodes stopped and restarted to exercise failover, and the cluster
+ * configuration can be changed to exercise auto discovery.
+ * </p>
+ *
+ * <p>
+ * One thread serves all nodes. It is meant to measure and test the client,
+ * not to be a fast or complete memcached.
+ * </p>
+ */
+public final class EmbeddedMemcachedServer extends SpyThread {
+
+  static final String CLUSTER = "cluster";
+
+  private static final int READ_BUFFER_SIZE = 16384;
+
+  private final Selector selector;
+  private final List<Node> nodes;
+  private final ConcurrentLinkedQueue<Runnable> tasks =
+      new ConcurrentLinkedQueue<Runnable>();
+  private volatile boolean running = true;
+
+  /**
+   * The configuration version, guarded by this.
+   */
+  private long configVersion = 1;
+
+  /**
+   * The node list of the configuration, or null to list every running node.
+   * Guarded by this.
+   */
+  private String configNodes;
+
+  /**
+   * Start a server with the given number of nodes on ephemeral ports.
+   */
+  public EmbeddedMemcachedServer(int nodeCount) throws IOException {
+    this(new int[nodeCount]);
+  }
+
+  /**
+   * Start a server with one node on each of the given ports.
+   *
+   * A port of 0 picks an ephemeral port.
+   */
+  public EmbeddedMemcachedServer(int... ports) throws IOException {
+    if (ports.length == 0) {
+      throw new IllegalArgumentException("At least one node is required");
+    }
+    selector = Selector.open();
+    List<Node> n = new ArrayList<Node>(ports.length);
+    try {
+      for (int i = 0; i < ports.length; i++) {
+        Node node = new Node(i, ports[i]);
+        node.bind();
+        n.add(node);
+      }
+    } catch (IOException e) {
+      for (Node node : n) {
+        node.unbind();
+      }
+      selector.close();
+      throw e;
+    }
+    nodes = Collections.unmodifiableList(n);
+    setName("Embedded memcached on " + getAddresses());
+    setDaemon(true);
+    start();
+  }
+
+  /**
+   * Get the number of nodes.
+   */
+  public int getNodeCount() {
+    return nodes.size();
+  }
+
+  /**
+   * Get the address of the given node.
+   */
+  public InetSocketAddress getAddress(int node) {
+    return nodes.get(node).address;
+  }
+
+  /**
+   * Get the addresses of all nodes.
+   */
+  public List<InetSocketAddress> getAddresses() {
+    List<InetSocketAddress> rv = new ArrayList<InetSocketAddress>();
+    for (Node n : nodes) {
+      rv.add(n.address);
+    }
+    return rv;
+  }
+
+  /**
+   * Delay every response of every node by the given time.
+   */
+  public void setLatency(long latency, TimeUnit unit) {
+    for (int i = 0; i < nodes.size(); i++) {
+      setLatency(i, latency, unit);
+    }
+  }
+
+  /**
+   * Delay every response of the given node by the given time.
+   */
+  public void setLatency(int node, long latency, TimeUnit unit) {
+    nodes.get(node).latencyNanos = unit.toNanos(latency);
+    selector.wakeup();
+  }
+
+  /**
+   * Limit the requests every node handles per second.
+   *
+   * @param requestsPerSecond the limit, or 0 for none
+   */
+  public void setThroughputLimit(int requestsPerSecond) {
+    for (int i = 0; i < nodes.size(); i++) {
+      setThroughputLimit(i, requestsPerSecond);
+    }
+  }
+
+  /**
+   * Limit the requests the given node handles per second.
+   *
+   * Requests beyond the limit wait in the socket buffers, just like on an
+   * overloaded server.
+   *
+   * @param requestsPerSecond the limit, or 0 for none
+   */
+  public void setThroughputLimit(int node, int requestsPerSecond) {
+    if (requestsPerSecond < 0) {
+      throw new IllegalArgumentException("Limit must not be negative");
+    }
+    nodes.get(node).requestsPerSecond = requestsPerSecond;
+    selector.wakeup();
+  }
+
+  /**
+   * Close every client connection of every node.
+   */
+  public void dropConnections() {
+    for (int i = 0; i < nodes.size(); i++) {
+      dropConnections(i);
+    }
+  }
+
+  /**
+   * Close every client connection of the given node.
+   *
+   * The node keeps accepting new connections.
+   */
+  public void dropConnections(int node) {
+    final Node n = nodes.get(node);
+    execute(new Runnable() {
+      public void run() {
+        n.dropConnections();
+      }
+    });
+  }
+
+  /**
+   * Stop the given node, closing its connections and its port.
+   */
+  public void stopNode(int node) {
+    final Node n = nodes.get(node);
+    execute(new Runnable() {
+      public void run() {
+        n.dropConnections();
+        n.unbind();
+      }
+    });
+  }
+
+  /**
+   * Restart a stopped node on its previous port, without any items.
+   *
+   * @throws IOException if the port cannot be bound again
+   */
+  public void startNode(int node) throws IOException {
+    final Node n = nodes.get(node);
+    final IOException[] failure = new IOException[1];
+    execute(new Runnable() {
+      public void run() {
+        try {
+          n.storage.flush();
+          n.bind();
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+  }
+
+  /**
+   * Get the number of items stored on the given node.
+   */
+  public int getItemCount(int node) {
+    final Node n = nodes.get(node);
+    final int[] rv = new int[1];
+    execute(new Runnable() {
+      public void run() {
+        rv[0] = n.storage.size();
+      }
+    });
+    return rv[0];
+  }
+
+  /**
+   * Get the version of the cluster configuration.
+   */
+  public synchronized long getConfigVersion() {
+    return configVersion;
+  }
+
+  /**
+   * Get the cluster configuration as returned by {@code config get cluster}.
+   */
+  public synchronized String getClusterConfig() {
+    String list = configNodes;
+    if (list == null) {
+      StringBuilder sb = new StringBuilder();
+      for (Node n : nodes) {
+        if (n.isBound()) {
+          if (sb.length() > 0) {
+            sb.append(' ');
+          }
+          sb.append(endpoint(n));
+        }
+      }
+      list = sb.toString();
+    }
+    return configVersion + "\n" + list + "\n";
+  }
+
+  /**
+   * Advance the configuration version without changing the node list.
+   *
+   * @return the new version
+   */
+  public synchronized long bumpConfigVersion() {
+    return ++configVersion;
+  }
+
+  /**
+   * List only the given nodes in the cluster configuration and advance its
+   * version.
+   *
+   * @return the new version
+   */
+  public synchronized long setClusterNodes(int... nodeIndexes) {
+    StringBuilder sb = new StringBuilder();
+    for (int i : nodeIndexes) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(endpoint(nodes.get(i)));
+    }
+    configNodes = sb.toString();
+    return ++configVersion;
+  }
+
+  /**
+   * Replace the cluster configuration, as {@code config set cluster} does.
+   *
+   * @param type the configuration type, which must be {@code cluster}
+   * @param config the version on the first line and the node list on the
+   *          second
+   * @throws IllegalArgumentException if the configuration is malformed
+   */
+  public synchronized void setClusterConfig(String type, String config) {
+    if (!CLUSTER.equals(type)) {
+      throw new IllegalArgumentException("Unknown configuration type " + type);
+    }
+    String[] lines = config.trim().split("\r?\n");
+    if (lines.length != 2) {
+      throw new IllegalArgumentException("Expected a version and a node list");
+    }
+    try {
+      configVersion = Long.parseLong(lines[0].trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Bad version " + lines[0]);
+    }
+    configNodes = lines[1].trim();
+  }
+
+  /**
+   * Stop every node and the server thread.
+   */
+  public void shutdown() throws IOException {
+    running = false;
+    selector.wakeup();
+    try {
+      join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        long wait = serve();
+        if (wait == 0) {
+          selector.selectNow();
+        } else {
+          selector.select(wait < 0 ? 0
+              : Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+        }
+        handleSelected();
+      } catch (IOException e) {
+        getLogger().warn("Problem in the embedded memcached server", e);
+      }
+    }
+    for (Node n : nodes) {
+      n.dropConnections();
+      n.unbind();
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      getLogger().warn("Problem closing the selector", e);
+    }
+  }
+
+  /**
+   * Run the pending tasks, then handle and answer the buffered requests of
+   * every connection that may proceed.
+   *
+   * @return nanoseconds until a connection may proceed, 0 if one can right
+   *         away or -1 if none is waiting for time to pass
+   */
+  private long serve() {
+    Runnable r;
+    while ((r = tasks.poll()) != null) {
+      r.run();
+    }
+    long now = System.nanoTime();
+    long wait = -1;
+    for (Node n : nodes) {
+      for (Connection c : new ArrayList<Connection>(n.connections)) {
+        long w = c.serve(now);
+        if (w >= 0 && (wait < 0 || w < wait)) {
+          wait = w;
+        }
+      }
+    }
+    return wait;
+  }
+
+  private void handleSelected() throws IOException {
+    Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+    while (i.hasNext()) {
+      SelectionKey sk = i.next();
+      i.remove();
+      if (!sk.isValid()) {
+        continue;
+      }
+      if (sk.isAcceptable()) {
+        Node n = (Node) sk.attachment();
+        SocketChannel ch = ((ServerSocketChannel) sk.channel()).accept();
+        if (ch != null) {
+          ch.configureBlocking(false);
+          ch.socket().setTcpNoDelay(true);
+          Connection c = new Connection(n, ch);
+          c.key = ch.register(selector, SelectionKey.OP_READ, c);
+          n.connections.add(c);
+        }
+      } else {
+        Connection c = (Connection) sk.attachment();
+        if (sk.isReadable()) {
+          c.read();
+        }
+        if (sk.isValid() && sk.isWritable()) {
+          c.write(System.nanoTime());
+        }
+      }
+    }
+  }
+
+  /**
+   * Run the given task on the server thread and wait for it.
+   */
+  private void execute(Runnable r) {
+    if (Thread.currentThread() == this) {
+      r.run();
+      return;
+    }
+    FutureTask<Void> f = new FutureTask<Void>(r, null);
+    tasks.add(f);
+    selector.wakeup();
+    try {
+      f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Task failed in the embedded server",
+          e.getCause());
+    }
+  }
+
+  private static String endpoint(Node n) {
+    return "localhost|" + n.address.getAddress().getHostAddress() + "|"
+        + n.address.getPort();
+  }
+
+  /**
+   * One listening port and its items.
+   */
+  private final class Node {
+    private final int index;
+    private final Storage storage = new Storage();
+    private final Set<Connection> connections = new HashSet<Connection>();
+    private volatile InetSocketAddress address;
+    private volatile ServerSocketChannel server;
+
+    private volatile long latencyNanos;
+    private volatile int requestsPerSecond;
+
+    /**
+     * Requests that may be handled right away, used with the throughput
+     * limit.
+     */
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private Node(int index, int port) throws IOException {
+      this.index = index;
+      this.address = new InetSocketAddress(
+          InetAddress.getByAddress(new byte[] {127, 0, 0, 1}), port);
+    }
+
+    private boolean isBound() {
+      return server != null;
+    }
+
+    private void bind() throws IOException {
+      if (server != null) {
+        return;
+      }
+      ServerSocketChannel ch = ServerSocketChannel.open();
+      try {
+        ch.socket().setReuseAddress(true);
+        ch.socket().bind(address);
+        ch.configureBlocking(false);
+        ch.register(selector, SelectionKey.OP_ACCEPT, this);
+      } catch (IOException e) {
+        ch.close();
+        throw e;
+      }
+      server = ch;
+      address = new InetSocketAddress(address.getAddress(),
+          ch.socket().getLocalPort());
+    }
+
+    private void unbind() {
+      if (server == null) {
+        return;
+      }
+      try {
+        server.close();
+      } catch (IOException e) {
+        getLogger().warn("Problem closing node " + index, e);
+      }
+      server = null;
+    }
+
+    private void dropConnections() {
+      for (Connection c : new ArrayList<Connection>(connections)) {
+        c.close();
+      }
+    }
+
+    /**
+     * Take the right to handle one request.
+     *
+     * @return 0 if the request may be handled, or the nanoseconds until it
+     *         may
+     */
+    private long acquire(long now) {
+      int limit = requestsPerSecond;
+      if (limit == 0) {
+        return 0;
+      }
+      double burst = Math.max(1, limit / 100.0);
+      tokens = Math.min(burst,
+          tokens + (now - lastRefill) * limit / 1e9);
+      lastRefill = now;
+      if (tokens >= 1) {
+        tokens--;
+        return 0;
+      }
+      return Math.max(1, (long) ((1 - tokens) * 1e9 / limit));
+    }
+
+    /**
+     * Give back the right taken for a request that has not fully arrived.
+     */
+    private void release() {
+      if (requestsPerSecond > 0) {
+        tokens++;
+      }
+    }
+  }
+
+  /**
+   * One client connection.
+   */
+  private final class Connection {
+    private final Node node;
+    private final SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private ProtocolHandler handler;
+
+    /**
+     * Responses not written yet, oldest first.
+     */
+    private final LinkedList<Response> out = new LinkedList<Response>();
+    private boolean closing;
+
+    private Connection(Node node, SocketChannel channel) {
+      this.node = node;
+      this.channel = channel;
+    }
+
+    private void read() {
+      try {
+        if (!in.hasRemaining()) {
+          ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+          in.flip();
+          bigger.put(in);
+          in = bigger;
+        }
+        if (channel.read(in) < 0) {
+          close();
+        }
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    /**
+     * Handle the buffered requests and write the responses that are due.
+     *
+     * @return nanoseconds until this connection may proceed, or -1 if it is
+     *         only waiting for the network
+     */
+    private long serve(long now) {
+      long wait = -1;
+      in.flip();
+      try {
+        while (!closing && in.hasRemaining()) {
+          if (handler == null) {
+            handler = in.get(in.position()) == BinaryProtocolHandler.REQ_MAGIC
+                ? new BinaryProtocolHandler(EmbeddedMemcachedServer.this,
+                    node.storage)
+                : new AsciiProtocolHandler(EmbeddedMemcachedServer.this,
+                    node.storage);
+          }
+          long throttled = node.acquire(now);
+          if (throttled > 0) {
+            wait = throttled;
+            break;
+          }
+          ByteArrayOutputStream response = new ByteArrayOutputStream();
+          int rv = handler.handle(in, response);
+          if (rv == ProtocolHandler.INCOMPLETE) {
+            node.release();
+            break;
+          }
+          if (response.size() > 0) {
+            out.add(new Response(now + node.latencyNanos,
+                ByteBuffer.wrap(response.toByteArray())));
+          }
+          if (rv == ProtocolHandler.CLOSE) {
+            closing = true;
+          }
+        }
+      } finally {
+        in.compact();
+      }
+      long w = write(now);
+      if (w >= 0 && (wait < 0 || w < wait)) {
+        wait = w;
+      }
+      return wait;
+    }
+
+    /**
+     * Write the responses that are due.
+     *
+     * @return nanoseconds until the next response is due, or -1 if none is
+     *         waiting for its time
+     */
+    private long write(long now) {
+      if (!channel.isOpen()) {
+        return -1;
+      }
+      try {
+        while (!out.isEmpty()) {
+          Response r = out.getFirst();
+          if (r.due > now) {
+            key.interestOps(SelectionKey.OP_READ);
+            return r.due - now;
+          }
+          channel.write(r.data);
+          if (r.data.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            return -1;
+          }
+          out.removeFirst();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        if (closing) {
+          close();
+        }
+      } catch (IOException e) {
+        close();
+      }
+      return -1;
+    }
+
+    private void close() {
+      node.connections.remove(this);
+      out.clear();
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        channel.close();
+      } catch (IOException e) {
+        getLogger().debug("Problem closing a connection", e);
+      }
+    }
+  }
+
+  /**
+   * A response waiting to be written.
+   */
+  private static final class Response {
+    private final long due;
+    private final ByteBuffer data;
+
+    private Response(long due, ByteBuffer data) {
+      this.due = due;
+      this.data = data;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.BinaryConnectionFactory;
+import net.spy.memcached.CASValue;
+import net.spy.memcached.ClientMode;
+import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.DefaultConnectionFactory;
+import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.config.ClusterConfiguration;
+import net.spy.memcached.ops.ConfigurationType;
+
+/**
+ * Runs clients of both protocols against an {@link EmbeddedMemcachedServer}.
+ */
+public class EmbeddedMemcachedServerTest extends TestCase {
+
+  private EmbeddedMemcachedServer server;
+  private MemcachedClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new EmbeddedMemcachedServer(3);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testBinaryOperations() throws Exception {
+    client = new MemcachedClient(new BinaryConnectionFactory(ClientMode.Static),
+        server.getAddresses());
+    assertOperations();
+  }
+
+  public void testAsciiOperations() throws Exception {
+    client = new MemcachedClient(
+        new DefaultConnectionFactory(ClientMode.Static),
+        server.getAddresses());
+    assertOperations();
+  }
+
+  private void assertOperations() throws Exception {
+    // Operations sent before a node connects are redistributed to another.
+    long deadline = System.currentTimeMillis() + 10000;
+    while (client.getAvailableServers().size()
+        < server.getAddresses().size()) {
+      assertTrue("Servers did not connect",
+          System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+    assertTrue(client.set("a", 0, "1").get());
+    assertFalse(client.add("a", 0, "2").get());
+    assertTrue(client.append(0, "a", "0").get());
+    assertEquals("10", client.get("a"));
+    assertEquals(11, client.incr("a", 1));
+    assertEquals(1, client.decr("a", 10));
+    assertEquals(-1, client.incr("missing", 1));
+
+    CASValue<Object> cv = client.gets("a");
+    assertTrue(client.touch("a", 100).get());
+    assertTrue(client.delete("a").get());
+    assertFalse(client.delete("a").get());
+    assertNull(client.get("a"));
+    assertNotNull(cv);
+
+    for (int i = 0; i < 30; i++) {
+      assertTrue(client.set("k" + i, 0, "v" + i).get());
+    }
+    Map<String, Object> m = client.getBulk(Arrays.asList("k1", "k2", "x"));
+    assertEquals(2, m.size());
+    assertEquals("v2", m.get("k2"));
+    assertEquals(3, client.getVersions().size());
+    int items = 0;
+    for (int i = 0; i < server.getNodeCount(); i++) {
+      items += server.getItemCount(i);
+    }
+    assertEquals(30, items);
+  }
+
+  public void testConfig() throws Exception {
+    ClusterConfiguration config =
+        AddrUtil.parseClusterTypeConfiguration(server.getClusterConfig());
+    assertEquals(1, config.getConfigVersion());
+    assertEquals(3, config.getCacheNodeEndPoints().size());
+
+    assertEquals(2, server.setClusterNodes(0, 2));
+    config = AddrUtil.parseClusterTypeConfiguration(server.getClusterConfig());
+    assertEquals(2, config.getCacheNodeEndPoints().size());
+    assertEquals(server.getAddress(2).getPort(),
+        config.getCacheNodeEndPoints().get(1).getPort());
+
+    assertEquals(3, server.bumpConfigVersion());
+  }
+
+  public void testDynamicMode() throws Exception {
+    assertDynamicMode(new BinaryConnectionFactory(ClientMode.Dynamic));
+  }
+
+  public void testDynamicModeAscii() throws Exception {
+    assertDynamicMode(new DefaultConnectionFactory(ClientMode.Dynamic));
+  }
+
+  private void assertDynamicMode(ConnectionFactory cf) throws Exception {
+    server.setClusterNodes(1, 2);
+    client = new MemcachedClient(cf, Arrays.asList(server.getAddress(0)));
+    assertEquals(2, client.getNodeLocator().getAll().size());
+    String config = (String) client.getConfig(server.getAddress(0),
+        ConfigurationType.CLUSTER);
+    assertEquals(server.getClusterConfig(), config);
+
+    client.setConfig(server.getAddress(0),
+        ConfigurationType.CLUSTER,
+        "7\n" + "localhost|127.0.0.1|" + server.getAddress(1).getPort())
+        .get();
+    assertEquals(7, server.getConfigVersion());
+  }
+
+  public void testLatency() throws Exception {
+    client = new MemcachedClient(new BinaryConnectionFactory(ClientMode.Static),
+        Arrays.asList(server.getAddress(0)));
+    assertTrue(client.set("a", 0, "1").get());
+    server.setLatency(200, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    assertEquals("1", client.get("a"));
+    assertTrue(System.nanoTime() - start
+        >= TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  public void testThroughputLimit() throws Exception {
+    client = new MemcachedClient(new BinaryConnectionFactory(ClientMode.Static),
+        Arrays.asList(server.getAddress(0)));
+    server.setThroughputLimit(100);
+    long start = System.nanoTime();
+    for (int i = 0; i < 30; i++) {
+      client.get("a");
+    }
+    assertTrue(System.nanoTime() - start
+        >= TimeUnit.MILLISECONDS.toNanos(250));
+  }
+
+  public void testReconnectAfterDrop() throws Exception {
+    client = new MemcachedClient(new BinaryConnectionFactory(ClientMode.Static),
+        Arrays.asList(server.getAddress(0)));
+    assertTrue(client.set("a", 0, "1").get());
+    server.dropConnections(0);
+    long deadline = System.currentTimeMillis() + 10000;
+    Object value = null;
+    while (value == null && System.currentTimeMillis() < deadline) {
+      try {
+        value = client.get("a");
+      } catch (RuntimeException e) {
+        Thread.sleep(100);
+      }
+    }
+    assertEquals("1", value);
+  }
+
+  public void testStopAndStartNode() throws Exception {
+    client = new MemcachedClient(new BinaryConnectionFactory(ClientMode.Static),
+        Arrays.asList(server.getAddress(0)));
+    assertTrue(client.set("a", 0, "1").get());
+    server.stopNode(0);
+    assertFalse(server.getClusterConfig().contains(
+        "|" + server.getAddress(0).getPort()));
+    server.startNode(0);
+    assertEquals(0, server.getItemCount(0));
+  }
+}
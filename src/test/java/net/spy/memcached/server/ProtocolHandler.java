@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Answers the requests of one connection to an
+ * {@link EmbeddedMemcachedServer}.
+ */
+abstract class ProtocolHandler {
+
+  /**
+   * Returned by {@link #handle} when the buffer does not hold a whole request.
+   */
+  static final int INCOMPLETE = 0;
+
+  /**
+   * Returned by {@link #handle} after handling a request.
+   */
+  static final int HANDLED = 1;
+
+  /**
+   * Returned by {@link #handle} when the connection must be closed.
+   */
+  static final int CLOSE = 2;
+
+  static final String VERSION = "1.4.14-embedded";
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  protected final EmbeddedMemcachedServer server;
+  protected final Storage storage;
+
+  ProtocolHandler(EmbeddedMemcachedServer server, Storage storage) {
+    this.server = server;
+    this.storage = storage;
+  }
+
+  /**
+   * Handle the next request in the buffer.
+   *
+   * The buffer is only consumed if it holds a whole request.
+   *
+   * @param in the bytes read from the connection
+   * @param out where to write the response, if any
+   * @return {@link #INCOMPLETE}, {@link #HANDLED} or {@link #CLOSE}
+   */
+  abstract int handle(ByteBuffer in, ByteArrayOutputStream out);
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.server;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The items of one node of an {@link EmbeddedMemcachedServer}.
+ *
+ * <p>
+ * Only used from the server thread, so nothing here is synchronized.
+ * </p>
+ */
+final class Storage {
+
+  /**
+   * Relative expiration times are at most this many seconds.
+   */
+  private static final int MAX_RELATIVE_EXP = 60 * 60 * 24 * 30;
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  /**
+   * Outcome of a command changing an item.
+   */
+  enum Result {
+    OK, NOT_STORED, EXISTS, NOT_FOUND
+  }
+
+  /**
+   * The kinds of store commands.
+   */
+  enum Mode {
+    SET, ADD, REPLACE, APPEND, PREPEND
+  }
+
+  private final Map<String, Item> items = new HashMap<String, Item>();
+  private long lastCas;
+
+  /**
+   * Get a live item.
+   *
+   * @return the item, or null if there is none or it expired
+   */
+  Item get(String key) {
+    Item i = items.get(key);
+    if (i != null && i.expired(System.currentTimeMillis())) {
+      items.remove(key);
+      i = null;
+    }
+    return i;
+  }
+
+  /**
+   * Store an item.
+   *
+   * @param cas the CAS the current item must have, or 0 for any
+   */
+  Result store(Mode mode, String key, int flags, int exp, byte[] data,
+      long cas) {
+    Item current = get(key);
+    if (cas != 0) {
+      if (current == null) {
+        return Result.NOT_FOUND;
+      } else if (current.cas != cas) {
+        return Result.EXISTS;
+      }
+    }
+    switch (mode) {
+    case ADD:
+      if (current != null) {
+        return Result.NOT_STORED;
+      }
+      break;
+    case REPLACE:
+      if (current == null) {
+        return Result.NOT_STORED;
+      }
+      break;
+    case APPEND:
+    case PREPEND:
+      if (current == null) {
+        return Result.NOT_STORED;
+      }
+      byte[] joined = new byte[current.data.length + data.length];
+      if (mode == Mode.APPEND) {
+        System.arraycopy(current.data, 0, joined, 0, current.data.length);
+        System.arraycopy(data, 0, joined, current.data.length, data.length);
+      } else {
+        System.arraycopy(data, 0, joined, 0, data.length);
+        System.arraycopy(current.data, 0, joined, data.length,
+            current.data.length);
+      }
+      items.put(key, new Item(current.flags, current.expiresAt, ++lastCas,
+          joined));
+      return Result.OK;
+    default:
+      break;
+    }
+    items.put(key, new Item(flags, expiresAt(exp), ++lastCas, data));
+    return Result.OK;
+  }
+
+  /**
+   * Delete an item.
+   *
+   * @param cas the CAS the item must have, or 0 for any
+   */
+  Result delete(String key, long cas) {
+    Item current = get(key);
+    if (current == null) {
+      return Result.NOT_FOUND;
+    } else if (cas != 0 && current.cas != cas) {
+      return Result.EXISTS;
+    }
+    items.remove(key);
+    return Result.OK;
+  }
+
+  /**
+   * Increment or decrement a counter.
+   *
+   * @param initial the value to create a missing counter with, or null to
+   *          leave it missing
+   * @return the updated item, or null if it is missing
+   * @throws NumberFormatException if the value is not a number
+   */
+  Item mutate(String key, boolean incr, long delta, Long initial, int exp) {
+    Item current = get(key);
+    long value;
+    int flags = 0;
+    long expiresAt;
+    if (current == null) {
+      if (initial == null) {
+        return null;
+      }
+      value = initial;
+      expiresAt = expiresAt(exp);
+    } else {
+      value = Long.parseLong(new String(current.data, ASCII).trim());
+      value = incr ? value + delta : Math.max(0, value - delta);
+      flags = current.flags;
+      expiresAt = current.expiresAt;
+    }
+    Item rv = new Item(flags, expiresAt, ++lastCas,
+        String.valueOf(value).getBytes(ASCII));
+    items.put(key, rv);
+    return rv;
+  }
+
+  /**
+   * Set the expiration of an item.
+   *
+   * @return the item, or null if it is missing
+   */
+  Item touch(String key, int exp) {
+    Item current = get(key);
+    if (current == null) {
+      return null;
+    }
+    Item rv = new Item(current.flags, expiresAt(exp), current.cas,
+        current.data);
+    items.put(key, rv);
+    return rv;
+  }
+
+  void flush() {
+    items.clear();
+  }
+
+  int size() {
+    long now = System.currentTimeMillis();
+    for (Iterator<Item> i = items.values().iterator(); i.hasNext();) {
+      if (i.next().expired(now)) {
+        i.remove();
+      }
+    }
+    return items.size();
+  }
+
+  private static long expiresAt(int exp) {
+    if (exp == 0) {
+      return 0;
+    } else if (exp < 0) {
+      return 1;
+    } else if (exp <= MAX_RELATIVE_EXP) {
+      return System.currentTimeMillis() + exp * 1000L;
+    }
+    return exp * 1000L;
+  }
+
+  /**
+   * A stored value.
+   */
+  static final class Item {
+    final int flags;
+    final long expiresAt;
+    final long cas;
+    final byte[] data;
+
+    private Item(int flags, long expiresAt, long cas, byte[] data) {
+      this.flags = flags;
+      this.expiresAt = expiresAt;
+      this.cas = cas;
+      this.data = data;
+    }
+
+    private boolean expired(long now) {
+      return expiresAt != 0 && expiresAt <= now;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the binary serializer.
+ */
+public class BinarySerializerTest extends TestCase {
+
+  private BinarySerializer serializer;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    serializer = new BinarySerializer();
+  }
+
+  private Object roundTrip(Object o) throws IOException {
+    Object rv = serializer.deserialize(serializer.serialize(o));
+    assertEquals(o.getClass(), rv.getClass());
+    return rv;
+  }
+
+  private void assertRoundTrip(Object o) throws IOException {
+    assertEquals(o, roundTrip(o));
+  }
+
+  private static Map<String, Object> sampleMap() {
+    Map<String, Object> m = new HashMap<String, Object>();
+    m.put("id", 12345L);
+    m.put("name", "Some name");
+    m.put("unicode", "caf\u00e9 \ud83d\ude00");
+    m.put("active", Boolean.TRUE);
+    m.put("score", 98.5);
+    m.put("created", new Date(1234567890123L));
+    m.put("price", new BigDecimal("-1234.5678"));
+    m.put("tags", new ArrayList<String>(Arrays.asList("a", "b", "c")));
+    m.put("nothing", null);
+    Map<String, Object> nested = new LinkedHashMap<String, Object>();
+    nested.put("count", 3);
+    nested.put("ids", new HashSet<Integer>(Arrays.asList(1, 2, 3)));
+    m.put("nested", nested);
+    return m;
+  }
+
+  public void testScalars() throws Exception {
+    Object[] values = { "", "hello", "\u00e9\u4e2d", Integer.MIN_VALUE,
+      Integer.MAX_VALUE, 0, -1, Long.MIN_VALUE, Long.MAX_VALUE, (short) -7,
+      (byte) -128, 'x', '\uffff', 1.5f, Double.NaN, -0.0, true, false,
+      new Date(), new BigDecimal("3.14159265358979323846264338327950288"),
+      new BigInteger("-123456789012345678901234567890") };
+    for (Object o : values) {
+      assertRoundTrip(o);
+    }
+  }
+
+  public void testCollections() throws Exception {
+    List<Object> list = new ArrayList<Object>(Arrays.asList(1, "two", null,
+        3.0));
+    assertRoundTrip(list);
+    assertRoundTrip(new LinkedList<Object>(list));
+    assertRoundTrip(new HashSet<Object>(list));
+    assertRoundTrip(new LinkedHashSet<Object>(list));
+    assertRoundTrip(new TreeSet<String>(Arrays.asList("b", "a", "c")));
+    assertRoundTrip(sampleMap());
+    assertRoundTrip(new LinkedHashMap<String, Object>(sampleMap()));
+    assertRoundTrip(new TreeMap<String, Object>(sampleMap()));
+    assertRoundTrip(new ArrayList<Object>());
+  }
+
+  public void testArrays() throws Exception {
+    assertTrue(Arrays.equals(new byte[] { 1, -2, 3 },
+        (byte[]) roundTrip(new byte[] { 1, -2, 3 })));
+    assertTrue(Arrays.equals(new int[] { 1, -2, Integer.MAX_VALUE },
+        (int[]) roundTrip(new int[] { 1, -2, Integer.MAX_VALUE })));
+    assertTrue(Arrays.equals(new long[] { Long.MIN_VALUE, 0 },
+        (long[]) roundTrip(new long[] { Long.MIN_VALUE, 0 })));
+    assertTrue(Arrays.equals(new double[] { 1.5, -2 },
+        (double[]) roundTrip(new double[] { 1.5, -2 })));
+    assertTrue(Arrays.equals(new float[] { 1.5f },
+        (float[]) roundTrip(new float[] { 1.5f })));
+    assertTrue(Arrays.equals(new short[] { -1, 300 },
+        (short[]) roundTrip(new short[] { -1, 300 })));
+    assertTrue(Arrays.equals(new char[] { 'a', '\u00e9' },
+        (char[]) roundTrip(new char[] { 'a', '\u00e9' })));
+    assertTrue(Arrays.equals(new boolean[] { true, false },
+        (boolean[]) roundTrip(new boolean[] { true, false })));
+    assertTrue(Arrays.equals(new String[] { "a", null },
+        (String[]) roundTrip(new String[] { "a", null })));
+    assertTrue(Arrays.equals(new Object[] { "a", 1 },
+        (Object[]) roundTrip(new Object[] { "a", 1 })));
+  }
+
+  public void testJavaSerializationFallback() throws Exception {
+    Calendar c = Calendar.getInstance();
+    assertRoundTrip(c);
+    List<Object> list = new ArrayList<Object>();
+    list.add(Collections.singletonList("a"));
+    list.add(Collections.unmodifiableMap(sampleMap()));
+    assertRoundTrip(list);
+  }
+
+  public void testNonSerializable() {
+    try {
+      serializer.serialize(new Object());
+      fail("Serialized an object");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+  }
+
+  public void testRegistered() throws Exception {
+    serializer.register(Pojo.class, 1);
+    Pojo p = new Pojo();
+    p.id = 42;
+    p.name = "pojo";
+    p.weight = 1.25;
+    p.flag = true;
+    p.child = new Pojo();
+    p.child.tags = new ArrayList<String>(Arrays.asList("x"));
+    Pojo rv = (Pojo) roundTrip(p);
+    assertEquals(42, rv.id);
+    assertEquals("pojo", rv.name);
+    assertEquals(1.25, rv.weight);
+    assertTrue(rv.flag);
+    assertEquals(Arrays.asList("x"), rv.child.tags);
+    assertNull(rv.child.child);
+    assertEquals(0, rv.skipped);
+
+    BinarySerializer other = new BinarySerializer();
+    try {
+      other.deserialize(serializer.serialize(p));
+      fail("Read an unregistered class");
+    } catch (IOException e) {
+      // pass
+    }
+  }
+
+  public void testRegistrationConflicts() {
+    serializer.register(Pojo.class, 1);
+    serializer.register(Pojo.class, 1);
+    try {
+      serializer.register(Base.class, 1);
+      fail("Registered two classes with the same id");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+    try {
+      serializer.register(Integer.class, 2);
+      fail("Registered a class without a default constructor");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+  }
+
+  public void testSmallerThanJavaSerialization() throws Exception {
+    Map<String, Object> m = sampleMap();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream os = new ObjectOutputStream(bos);
+    os.writeObject(m);
+    os.close();
+    assertTrue(serializer.serialize(m).length * 2 < bos.size());
+  }
+
+  public void testCorruptData() throws Exception {
+    byte[] b = serializer.serialize(sampleMap());
+    for (int i = 1; i < b.length; i++) {
+      try {
+        serializer.deserialize(Arrays.copyOf(b, i));
+        fail("Read truncated data");
+      } catch (IOException e) {
+        // pass
+      }
+    }
+    try {
+      serializer.deserialize(new byte[] { 1, 18, -1, -1, -1, -1, 7 });
+      fail("Read a huge map");
+    } catch (IOException e) {
+      // pass
+    }
+  }
+
+  static class Base {
+    protected long id;
+  }
+
+  static class Pojo extends Base {
+    private String name;
+    private double weight;
+    private boolean flag;
+    private Pojo child;
+    private List<String> tags;
+    private transient int skipped = 0;
+
+    Pojo() {
+      skipped = 0;
+    }
+  }
+}
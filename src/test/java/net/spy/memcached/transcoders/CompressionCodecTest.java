@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the compression codecs.
+ */
+public class CompressionCodecTest extends TestCase {
+
+  private final Random random = new Random(42);
+
+  private byte[] json(int size) {
+    StringBuilder sb = new StringBuilder("[");
+    while (sb.length() < size) {
+      sb.append("{\"id\":").append(random.nextInt(100000))
+          .append(",\"name\":\"item").append(random.nextInt(100))
+          .append("\",\"tags\":[\"a\",\"b\"]},");
+    }
+    sb.setLength(size - 1);
+    return sb.append(']').toString().getBytes();
+  }
+
+  private byte[] randomBytes(int size) {
+    byte[] b = new byte[size];
+    random.nextBytes(b);
+    return b;
+  }
+
+  private void assertRoundTrip(CompressionCodec codec, byte[] data)
+    throws IOException {
+    byte[] compressed = codec.compress(data);
+    assertTrue(Arrays.equals(data, codec.decompress(compressed)));
+  }
+
+  private void assertRoundTrips(CompressionCodec codec) throws IOException {
+    assertRoundTrip(codec, new byte[0]);
+    assertRoundTrip(codec, "a".getBytes());
+    assertRoundTrip(codec, "abcdabcdabcdabcd".getBytes());
+    assertRoundTrip(codec, new byte[100000]);
+    assertRoundTrip(codec, randomBytes(10));
+    assertRoundTrip(codec, randomBytes(100000));
+    for (int size = 1; size < 2000; size += 37) {
+      assertRoundTrip(codec, json(size));
+    }
+    byte[] large = json(50000);
+    assertTrue(codec.compress(large).length < large.length / 2);
+    assertRoundTrip(codec, large);
+  }
+
+  private void assertCorruptDataRejected(CompressionCodec codec) {
+    byte[] compressed = codec.compress(json(5000));
+    for (int i = 0; i < 100; i++) {
+      byte[] corrupt = compressed.clone();
+      corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+      try {
+        byte[] data = codec.decompress(corrupt);
+        assertNotNull(data);
+      } catch (IOException e) {
+        // expected most of the time
+      }
+    }
+    try {
+      codec.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+      fail("Decompressed truncated data");
+    } catch (IOException e) {
+      // pass
+    }
+  }
+
+  public void testGzipRoundTrips() throws Exception {
+    assertRoundTrips(new GzipCompressionCodec());
+    assertRoundTrips(new GzipCompressionCodec(1, 1));
+    assertRoundTrips(new GzipCompressionCodec(9, 2));
+  }
+
+  public void testLzRoundTrips() throws Exception {
+    assertRoundTrips(new LzCompressionCodec());
+  }
+
+  public void testGzipCompatibility() throws Exception {
+    GzipCompressionCodec codec = new GzipCompressionCodec();
+    byte[] data = json(20000);
+
+    GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(
+        codec.compress(data)));
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    int r;
+    while ((r = in.read(buf)) > 0) {
+      bos.write(buf, 0, r);
+    }
+    assertTrue(Arrays.equals(data, bos.toByteArray()));
+
+    bos = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bos);
+    out.write(data);
+    out.close();
+    assertTrue(Arrays.equals(data, codec.decompress(bos.toByteArray())));
+  }
+
+  public void testGzipRejectsCorruptData() {
+    assertCorruptDataRejected(new GzipCompressionCodec());
+  }
+
+  public void testLzRejectsCorruptData() {
+    assertCorruptDataRejected(new LzCompressionCodec());
+  }
+
+  public void testInvalidLevel() {
+    try {
+      new GzipCompressionCodec(10);
+      fail("Accepted an invalid level");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Test compressing with preset dictionaries.
+ */
+public class DictionaryCompressionTest extends TestCase {
+
+  private final Random random = new Random(42);
+
+  private String document() {
+    StringBuilder sb = new StringBuilder("{\"customerId\":")
+        .append(random.nextInt(1000000))
+        .append(",\"status\":\"").append(random.nextBoolean() ? "ACTIVE"
+            : "SUSPENDED").append("\",\"orders\":[");
+    int orders = 2 + random.nextInt(12);
+    for (int i = 0; i < orders; i++) {
+      sb.append(i == 0 ? "" : ",").append("{\"orderId\":")
+          .append(random.nextInt(100000000)).append(",\"amount\":")
+          .append(random.nextInt(10000)).append('.')
+          .append(random.nextInt(100)).append(",\"currency\":\"USD\"")
+          .append(",\"shippingAddress\":{\"country\":\"US\",\"zip\":\"")
+          .append(10000 + random.nextInt(89999)).append("\"}}");
+    }
+    return sb.append("]}").toString();
+  }
+
+  private CompressionDictionary train(int id) {
+    DictionaryTrainer trainer = new DictionaryTrainer(500);
+    for (int i = 0; i < 2000; i++) {
+      trainer.addSample(document().getBytes());
+    }
+    assertEquals(500, trainer.getSampleCount());
+    return trainer.train(id, 4096);
+  }
+
+  public void testTrain() {
+    CompressionDictionary dict = train(1);
+    assertEquals(1, dict.getId());
+    assertTrue(dict.size() > 0);
+    assertTrue(dict.size() <= 4096);
+    assertTrue(new String(dict.getBytes()).contains("shippingAddress"));
+  }
+
+  public void testNothingInCommon() {
+    DictionaryTrainer trainer = new DictionaryTrainer();
+    byte[] b = new byte[1000];
+    random.nextBytes(b);
+    trainer.addSample(b);
+    try {
+      trainer.train(1);
+      fail("Trained a dictionary from a single value");
+    } catch (IllegalStateException e) {
+      // pass
+    }
+  }
+
+  public void testInvalidDictionaries() {
+    try {
+      new CompressionDictionary(0, new byte[1]);
+      fail("Accepted dictionary id 0");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+    try {
+      new CompressionDictionary(1, new byte[CompressionDictionary.MAX_SIZE
+          + 1]);
+      fail("Accepted a dictionary too large");
+    } catch (IllegalArgumentException e) {
+      // pass
+    }
+  }
+
+  public void testSmallValues() throws Exception {
+    DictionaryCompressionCodec codec =
+        new DictionaryCompressionCodec(train(1));
+    GzipCompressionCodec gzip = new GzipCompressionCodec();
+    int original = 0;
+    int gzipped = 0;
+    int compressed = 0;
+    for (int i = 0; i < 200; i++) {
+      byte[] b = document().getBytes();
+      byte[] c = codec.compress(b);
+      assertTrue(Arrays.equals(b, codec.decompress(c)));
+      original += b.length;
+      gzipped += gzip.compress(b).length;
+      compressed += c.length;
+    }
+    assertTrue("Compressed " + original + " bytes to " + compressed
+        + " with a dictionary, " + gzipped + " without",
+        compressed * 3 < original && compressed < gzipped);
+  }
+
+  public void testRoundTrips() throws Exception {
+    DictionaryCompressionCodec codec =
+        new DictionaryCompressionCodec(train(1));
+    byte[][] values = { new byte[0], "a".getBytes(), new byte[100000],
+      document().getBytes() };
+    for (byte[] b : values) {
+      assertTrue(Arrays.equals(b, codec.decompress(codec.compress(b))));
+    }
+    byte[] compressed = codec.compress(document().getBytes());
+    try {
+      codec.decompress(Arrays.copyOf(compressed, compressed.length - 2));
+      fail("Decompressed truncated data");
+    } catch (IOException e) {
+      // pass
+    }
+  }
+
+  public void testRotation() throws Exception {
+    SerializingTranscoder tc = new SerializingTranscoder();
+    tc.setCompressionThreshold(64);
+    // JSON strings are never compressed.
+    String s = "customer " + document();
+
+    tc.setCompressionCodec(new DictionaryCompressionCodec(train(1)));
+    CachedData first = tc.encode(s);
+    assertEquals(SerializingTranscoder.COMPRESSED
+        | DictionaryCompressionCodec.ID
+            << SerializingTranscoder.COMPRESSION_CODEC_SHIFT
+        | 1 << SerializingTranscoder.COMPRESSION_DICTIONARY_SHIFT,
+        first.getFlags());
+
+    tc.setCompressionCodec(new DictionaryCompressionCodec(train(2)));
+    CachedData second = tc.encode(s);
+    assertEquals(2, (second.getFlags()
+        & SerializingTranscoder.COMPRESSION_DICTIONARY_MASK)
+        >>> SerializingTranscoder.COMPRESSION_DICTIONARY_SHIFT);
+    assertEquals(s, tc.decode(first));
+    assertEquals(s, tc.decode(second));
+
+    SerializingTranscoder other = new SerializingTranscoder();
+    assertNull(other.decode(second));
+  }
+}
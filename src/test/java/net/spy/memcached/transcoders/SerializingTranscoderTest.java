@@ -26,6 +26,8 @@ import java.util.Arrays;
 import java.util.Calendar;
 
 import net.spy.memcached.CachedData;
+import net.spy.memcached.PooledBufferAllocator;
+import net.spy.memcached.ValueBuffer;
 
 /**
  * Test the serializing transcoder.
@@ -85,6 +87,37 @@ public class SerializingTranscoderTest extends BaseTranscoderCase {
     assertEquals(s1, tc.decode(cd));
   }
 
+  public void testLzCompressedString() throws Exception {
+    String s1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    tc.setCompressionThreshold(8);
+    tc.setCompressionCodec(new LzCompressionCodec());
+    CachedData cd = tc.encode(s1);
+    assertEquals(SerializingTranscoder.COMPRESSED
+        | LzCompressionCodec.ID << SerializingTranscoder.COMPRESSION_CODEC_SHIFT,
+        cd.getFlags());
+    assertEquals(s1, tc.decode(cd));
+  }
+
+  public void testMixedCodecs() throws Exception {
+    String s1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    tc.setCompressionThreshold(8);
+    CachedData gzipped = tc.encode(s1);
+    tc.setCompressionCodec(new LzCompressionCodec());
+    CachedData lz = tc.encode(s1);
+    assertFalse(Arrays.equals(gzipped.getData(), lz.getData()));
+    assertEquals(s1, tc.decode(gzipped));
+    assertEquals(s1, tc.decode(lz));
+    tc.setCompressionCodec(new GzipCompressionCodec(1));
+    assertEquals(s1, tc.decode(lz));
+  }
+
+  public void testUnknownCodec() throws Exception {
+    CachedData cd = new CachedData(SerializingTranscoder.COMPRESSED
+        | 7 << SerializingTranscoder.COMPRESSION_CODEC_SHIFT,
+        tu.encodeInt(Integer.MAX_VALUE), tc.getMaxSize());
+    assertNull(tc.decode(cd));
+  }
+
   public void testObject() throws Exception {
     Calendar c = Calendar.getInstance();
     CachedData cd = tc.encode(c);
@@ -92,6 +125,34 @@ public class SerializingTranscoderTest extends BaseTranscoderCase {
     assertEquals(c, tc.decode(cd));
   }
 
+  public void testBinarySerializedObject() throws Exception {
+    tc.setBinarySerializer(new BinarySerializer());
+    Calendar c = Calendar.getInstance();
+    CachedData cd = tc.encode(c);
+    assertEquals(SerializingTranscoder.BINARY_SERIALIZED, cd.getFlags());
+    assertEquals(c, tc.decode(cd));
+    // Strings and primitives are not affected.
+    assertEquals(0, tc.encode("a").getFlags());
+    assertEquals(SerializingTranscoder.SPECIAL_INT,
+        tc.encode(Integer.valueOf(1)).getFlags());
+
+    // Either kind of data can be decoded.
+    SerializingTranscoder other = new SerializingTranscoder();
+    assertEquals(c, other.decode(cd));
+    assertEquals(c, tc.decode(other.encode(c)));
+  }
+
+  public void testCompressedBinarySerializedObject() throws Exception {
+    tc.setBinarySerializer(new BinarySerializer());
+    tc.setCompressionThreshold(8);
+    java.util.Map<String, Object> m = new java.util.HashMap<String, Object>();
+    m.put("aaaaaaaaaaaaaaaaaaaa", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+    CachedData cd = tc.encode(m);
+    assertEquals(SerializingTranscoder.BINARY_SERIALIZED
+        | SerializingTranscoder.COMPRESSED, cd.getFlags());
+    assertEquals(m, tc.decode(cd));
+  }
+
   public void testCompressedObject() throws Exception {
     tc.setCompressionThreshold(8);
     Calendar c = Calendar.getInstance();
@@ -101,6 +162,27 @@ public class SerializingTranscoderTest extends BaseTranscoderCase {
     assertEquals(c, tc.decode(cd));
   }
 
+  public void testEncodeIntoBuffer() throws Exception {
+    tc.setCompressionThreshold(64);
+    Object[] values = {"a", Integer.valueOf(1), new byte[] {1, 2},
+      Calendar.getInstance(), new java.util.ArrayList<Object>(
+          java.util.Collections.nCopies(100, "aaaa"))};
+    for (Object o : values) {
+      ValueBuffer vb = new ValueBuffer(new PooledBufferAllocator(), 16, 0, 0);
+      int flags = tc.encode(o, vb);
+      CachedData expected = tc.encode(o);
+      assertEquals(expected.getFlags(), flags);
+      assertTrue(Arrays.equals(expected.getData(), vb.toByteArray()));
+      CachedData cd = new CachedData(flags, vb, tc.getMaxSize());
+      if (o instanceof byte[]) {
+        assertTrue(Arrays.equals((byte[]) o, (byte[]) tc.decode(cd)));
+      } else {
+        assertEquals(o, tc.decode(cd));
+      }
+      vb.release();
+    }
+  }
+
   public void testUnencodeable() throws Exception {
     try {
       CachedData cd = tc.encode(new Object());
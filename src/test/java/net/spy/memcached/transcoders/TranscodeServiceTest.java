@@ -22,7 +22,10 @@
 
 package net.spy.memcached.transcoders;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 import net.spy.memcached.CachedData;
@@ -59,6 +62,61 @@ public class TranscodeServiceTest extends TestCase {
     assertEquals("Stuff!", fs.get());
   }
 
+  public void testDecodeAllInParallel() throws Exception {
+    TranscodeService parallel = new TranscodeService(true, 4, 16);
+    try {
+      List<Future<String>> values = new ArrayList<Future<String>>();
+      for (int i = 0; i < 100; i++) {
+        values.add(parallel.decodeLater(new ThreadTranscoder(),
+            new CachedData(1, new byte[0], 0)));
+      }
+      values.add(parallel.decodeLater(new ThreadTranscoder(),
+          new CachedData(0, new byte[0], 0)));
+      parallel.decodeAll(values, 10, TimeUnit.SECONDS);
+      for (int i = 0; i < 100; i++) {
+        assertTrue(values.get(i).isDone());
+        assertTrue(values.get(i).get().startsWith("transcoder-"));
+      }
+      // Values not needing an asynchronous decode are left to the caller.
+      assertFalse(values.get(100).isDone());
+      assertEquals(Thread.currentThread().getName(), values.get(100).get());
+    } finally {
+      parallel.shutdown();
+    }
+  }
+
+  public void testDecodeAllInlineBelowThreshold() throws Exception {
+    List<Future<String>> values = new ArrayList<Future<String>>();
+    for (int i = 0; i < 10; i++) {
+      values.add(ts.decodeLater(new ThreadTranscoder(),
+          new CachedData(1, new byte[0], 0)));
+    }
+    ts.decodeAll(values, 10, TimeUnit.SECONDS);
+    for (Future<String> f : values) {
+      assertFalse(f.isDone());
+      assertEquals(Thread.currentThread().getName(), f.get());
+    }
+  }
+
+  private static final class ThreadTranscoder implements Transcoder<String> {
+
+    public boolean asyncDecode(CachedData d) {
+      return d.getFlags() == 1;
+    }
+
+    public String decode(CachedData d) {
+      return Thread.currentThread().getName();
+    }
+
+    public CachedData encode(String o) {
+      throw new RuntimeException("Not invoked.");
+    }
+
+    public int getMaxSize() {
+      return 5;
+    }
+  }
+
   private static final class TestTranscoder implements Transcoder<String> {
 
     public boolean asyncDecode(CachedData d) {
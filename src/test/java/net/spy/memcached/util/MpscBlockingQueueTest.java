@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link MpscBlockingQueue}.
+ */
+public class MpscBlockingQueueTest extends TestCase {
+
+  public void testFifo() {
+    MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(3);
+    assertTrue(q.isEmpty());
+    assertNull(q.poll());
+    assertTrue(q.offer(1));
+    assertTrue(q.offer(2));
+    assertTrue(q.offer(3));
+    assertFalse(q.offer(4));
+    assertEquals(3, q.size());
+    assertEquals(0, q.remainingCapacity());
+    assertEquals(Arrays.asList(1, 2, 3), new ArrayList<Integer>(q));
+    assertEquals(Integer.valueOf(1), q.peek());
+    assertEquals(Integer.valueOf(1), q.poll());
+    assertTrue(q.offer(4));
+
+    List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(2, q.drainTo(drained, 2));
+    assertEquals(Arrays.asList(2, 3), drained);
+    assertEquals(1, q.drainTo(drained));
+    assertEquals(Integer.valueOf(4), drained.get(2));
+    assertTrue(q.isEmpty());
+  }
+
+  public void testTimedOffer() throws Exception {
+    MpscBlockingQueue<String> q = new MpscBlockingQueue<String>(1);
+    assertTrue(q.offer("a", 10, TimeUnit.MILLISECONDS));
+    long start = System.nanoTime();
+    assertFalse(q.offer("b", 20, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    assertNull(new MpscBlockingQueue<String>(1).poll(1,
+        TimeUnit.MILLISECONDS));
+  }
+
+  public void testConcurrentProducers() throws Exception {
+    final int producers = 8;
+    final int perProducer = 100000;
+    final MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(64);
+    Thread[] threads = new Thread[producers];
+    for (int i = 0; i < producers; i++) {
+      final int id = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < perProducer; j++) {
+              q.put(id * perProducer + j);
+            }
+          } catch (InterruptedException e) {
+            fail("Interrupted");
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    int[] last = new int[producers];
+    Arrays.fill(last, -1);
+    for (int n = 0; n < producers * perProducer; n++) {
+      int v = q.take();
+      int id = v / perProducer;
+      assertTrue("Out of order: " + v, v % perProducer > last[id]);
+      last[id] = v % perProducer;
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertTrue(q.isEmpty());
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package net.spy.memcached.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.TranscodeService;
+
+/**
+ * Measure decoding the compressed values of a bulk get with an increasing
+ * number of decoding threads.
+ */
+public final class BulkDecodeBench {
+
+  private BulkDecodeBench() {
+    // Empty
+  }
+
+  private static Map<String, Object> value(int i) {
+    Map<String, Object> m = new HashMap<String, Object>();
+    for (int j = 0; j < 100; j++) {
+      m.put("field" + j, "customer " + i + " value " + j);
+    }
+    return m;
+  }
+
+  private static void run(int threads, SerializingTranscoder tc,
+      List<CachedData> encoded, int rounds) throws Exception {
+    TranscodeService ts = new TranscodeService(true, threads,
+        TranscodeService.DEFAULT_BATCH_THRESHOLD);
+    long start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      List<Future<Object>> values =
+          new ArrayList<Future<Object>>(encoded.size());
+      for (CachedData cd : encoded) {
+        values.add(ts.decodeLater(tc, cd));
+      }
+      ts.decodeAll(values);
+      for (Future<Object> f : values) {
+        f.get();
+      }
+    }
+    long time = System.nanoTime() - start;
+    ts.shutdown();
+    System.out.println(threads + " threads\t" + time / rounds / 1000
+        + " us per bulk get");
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    SerializingTranscoder tc = new SerializingTranscoder();
+    tc.setCompressionThreshold(1024);
+    List<CachedData> encoded = new ArrayList<CachedData>();
+    for (int i = 0; i < count; i++) {
+      encoded.add(tc.encode(value(i)));
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    // Warm up, then measure.
+    for (int i = 0; i < 3; i++) {
+      for (int threads = 1; threads <= cores; threads *= 2) {
+        run(threads, tc, encoded, rounds);
+      }
+    }
+  }
+}
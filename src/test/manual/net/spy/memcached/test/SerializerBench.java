@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2026 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package net.spy.memcached.test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.BinarySerializer;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+/**
+ * Compare encoding and decoding map values with Java serialization and with
+ * the binary serializer.
+ */
+public final class SerializerBench {
+
+  private SerializerBench() {
+    // Empty
+  }
+
+  private static Map<String, Object> value(int i) {
+    Map<String, Object> m = new HashMap<String, Object>();
+    m.put("id", Long.valueOf(i));
+    m.put("name", "customer-" + i);
+    m.put("email", "customer" + i + "@example.com");
+    m.put("active", Boolean.valueOf(i % 2 == 0));
+    m.put("balance", new BigDecimal(i).movePointLeft(2));
+    m.put("score", Double.valueOf(i / 7.0));
+    m.put("created", new Date(1500000000000L + i));
+    List<String> tags = new ArrayList<String>();
+    for (int j = 0; j < 5; j++) {
+      tags.add("tag" + (i + j) % 17);
+    }
+    m.put("tags", tags);
+    Map<String, Object> address = new HashMap<String, Object>();
+    address.put("street", i + " Main Street");
+    address.put("zip", Integer.valueOf(10000 + i % 90000));
+    m.put("address", address);
+    return m;
+  }
+
+  private static void run(String name, SerializingTranscoder tc,
+      List<Map<String, Object>> values, int rounds) {
+    CachedData[] encoded = new CachedData[values.size()];
+    long bytes = 0;
+    long start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      for (int i = 0; i < encoded.length; i++) {
+        encoded[i] = tc.encode(values.get(i));
+      }
+    }
+    long encodeTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      for (CachedData cd : encoded) {
+        tc.decode(cd);
+      }
+    }
+    long decodeTime = System.nanoTime() - start;
+    for (CachedData cd : encoded) {
+      bytes += cd.getData().length;
+    }
+    long ops = (long) rounds * encoded.length;
+    System.out.println(name + "\t" + bytes / encoded.length + " bytes\t"
+        + "encode " + encodeTime / ops + " ns\tdecode " + decodeTime / ops
+        + " ns");
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    List<Map<String, Object>> values = new ArrayList<Map<String, Object>>();
+    for (int i = 0; i < count; i++) {
+      values.add(value(i));
+    }
+    SerializingTranscoder java = new SerializingTranscoder();
+    java.setCompressionThreshold(Integer.MAX_VALUE);
+    SerializingTranscoder binary = new SerializingTranscoder();
+    binary.setCompressionThreshold(Integer.MAX_VALUE);
+    binary.setBinarySerializer(new BinarySerializer());
+
+    // Warm up, then measure.
+    for (int i = 0; i < 3; i++) {
+      run("java", java, values, rounds);
+      run("binary", binary, values, rounds);
+    }
+  }
+}